@@ -0,0 +1,73 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Batch SKU lookups against the same SKUs looked up one at a time, with 10% unknown SKUs.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchLookupBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"1000", "100000"})
+    public int batchSize;
+
+    private ProductManager productManager;
+    private List<String> skus;
+
+    @Setup
+    public void setUp() throws IOException {
+        CatalogGenerator generator = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 42);
+        Path csvFile = Files.createTempFile("benchmark", ".csv");
+        try {
+            generator.writeCsv(csvFile, rows);
+            productManager = new ProductManager();
+            productManager.loadProductsFromCSVParallel(csvFile.toString());
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+
+        List<Product> products = generator.products(rows);
+        SplittableRandom random = new SplittableRandom(7);
+        skus = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            skus.add(random.nextInt(10) == 0 ? "MISSING" + i : products.get(random.nextInt(rows)).getSku());
+        }
+    }
+
+    @Benchmark
+    public List<Product> batch() {
+        return productManager.searchBySKUs(skus);
+    }
+
+    @Benchmark
+    public List<Product> oneByOne() {
+        List<Product> found = new ArrayList<>(skus.size());
+        for (String sku : skus) {
+            found.add(productManager.searchBySKU(sku));
+        }
+        return found;
+    }
+}
@@ -0,0 +1,79 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SKU lookups on a Zipfian workload, with and without the lookup cache.
+ * Compare the p99 of the sample-time results; capacity 0 means no cache.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CacheBenchmark {
+    private static final int PROBES = 1 << 16; // power of two, for cheap masking
+    private static final double ZIPF_EXPONENT = 0.99;
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"0", "1024", "16384"})
+    public int capacity;
+
+    private ProductManager productManager;
+    private String[] probes;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        CatalogGenerator generator = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 42);
+        Path csvFile = Files.createTempFile("benchmark", ".csv");
+        try {
+            generator.writeCsv(csvFile, rows);
+            productManager = new ProductManager();
+            productManager.loadProductsFromCSVParallel(csvFile.toString());
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+        List<Product> products = generator.products(rows);
+        if (capacity > 0) {
+            productManager.enableLookupCache(capacity);
+        }
+
+        // Cumulative Zipf distribution over popularity ranks; rank r is drawn with weight 1/r^s
+        double[] cumulative = new double[rows];
+        double sum = 0;
+        for (int rank = 0; rank < rows; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulative[rank] = sum;
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        probes = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            probes[i] = products.get(rank < 0 ? Math.min(-rank - 1, rows - 1) : rank).getSku();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Product zipfianLookup() {
+        return productManager.searchBySKU(probes[next++ & (PROBES - 1)]);
+    }
+}
@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SKU lookups on the published snapshot from 1, 2, 4 and all available threads, optionally
+ * while a writer keeps reloading part of the catalog. Reads take no lock, so throughput
+ * should grow about linearly with the thread count up to the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConcurrentReadBenchmark {
+    private static final int PROBES = 1 << 16; // power of two, for cheap masking
+    private static final int RELOADED_ROWS = 1_000;
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean writing;
+
+    private ProductManager productManager;
+    private String[] probes;
+    private Path reloadFile;
+    private Thread writer;
+    private volatile boolean stopped;
+
+    /**
+     * Each reader walks the probes from its own random start.
+     */
+    @State(Scope.Thread)
+    public static class Reader {
+        int next = ThreadLocalRandom.current().nextInt(PROBES);
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        CatalogGenerator generator = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 42);
+        Path csvFile = Files.createTempFile("benchmark", ".csv");
+        try {
+            generator.writeCsv(csvFile, rows);
+            productManager = new ProductManager();
+            productManager.loadProductsFromCSVParallel(csvFile.toString());
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+
+        List<Product> products = generator.products(rows);
+        SplittableRandom random = new SplittableRandom(7);
+        probes = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = products.get(random.nextInt(rows)).getSku();
+        }
+
+        if (writing) {
+            // The first rows of the same generator, so every reload replaces products and publishes
+            reloadFile = Files.createTempFile("benchmark-reload", ".csv");
+            generator.writeCsv(reloadFile, RELOADED_ROWS);
+            writer = new Thread(() -> {
+                while (!stopped) {
+                    try {
+                        productManager.loadProductsFromCSV(reloadFile.toString());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }, "catalog-writer");
+            writer.start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        stopped = true;
+        if (writer != null) {
+            writer.join();
+        }
+        if (reloadFile != null) {
+            Files.deleteIfExists(reloadFile);
+        }
+    }
+
+    private Product lookup(Reader reader) {
+        return productManager.searchBySKU(probes[reader.next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Product oneThread(Reader reader) {
+        return lookup(reader);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Product twoThreads(Reader reader) {
+        return lookup(reader);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Product fourThreads(Reader reader) {
+        return lookup(reader);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Product allThreads(Reader reader) {
+        return lookup(reader);
+    }
+}
@@ -0,0 +1,72 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Price listings: the full sorted listing, top-K from either end and the first page.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ListingBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private ProductManager productManager;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path csvFile = Files.createTempFile("benchmark", ".csv");
+        try {
+            new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 42).writeCsv(csvFile, rows);
+            productManager = new ProductManager();
+            productManager.loadProductsFromCSVParallel(csvFile.toString());
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Product> listProductsByPriceAscending() {
+        return productManager.listProductsByPriceAscending();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Product> cheapest20() {
+        return productManager.cheapest(20);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Product> mostExpensive20() {
+        return productManager.mostExpensive(20);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Page firstPageByPrice() {
+        return productManager.pageByPriceAscending(null, 50);
+    }
+}
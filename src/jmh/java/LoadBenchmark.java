@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading a generated CSV file end to end, sequentially and in parallel, the latter
+ * also into a SKU index with one shard per core. The gzip variants compare the pipelined
+ * compressed load against decompression alone.
+ * Run with -p rows=10000000 for the 10M-row case (needs a larger heap).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class LoadBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"RANDOM", "SORTED", "SKEWED"})
+    public CatalogGenerator.Distribution distribution;
+
+    private Path csvFile;
+    private Path gzFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        csvFile = Files.createTempFile("benchmark", ".csv");
+        new CatalogGenerator(distribution, 42).writeCsv(csvFile, rows);
+        gzFile = Files.createTempFile("benchmark", ".csv.gz");
+        try (InputStream in = Files.newInputStream(csvFile);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzFile), 1 << 16)) {
+            in.transferTo(out);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+        Files.deleteIfExists(gzFile);
+    }
+
+    @Benchmark
+    public ProductManager loadSequential() throws IOException {
+        ProductManager productManager = new ProductManager();
+        productManager.loadProductsFromCSV(csvFile.toString());
+        return productManager;
+    }
+
+    @Benchmark
+    public ProductManager loadParallel() throws IOException {
+        ProductManager productManager = new ProductManager();
+        productManager.loadProductsFromCSVParallel(csvFile.toString());
+        return productManager;
+    }
+
+    @Benchmark
+    public ProductManager loadParallelSharded() throws IOException {
+        ProductManager productManager = new ProductManager(new ShardedSkuIndex());
+        productManager.loadProductsFromCSVParallel(csvFile.toString());
+        return productManager;
+    }
+
+    @Benchmark
+    public ProductManager loadCompressed() throws IOException {
+        ProductManager productManager = new ProductManager();
+        productManager.loadProductsFromCSVParallel(gzFile.toString());
+        return productManager;
+    }
+
+    @Benchmark
+    public long gunzipOnly() throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gzFile), 1 << 16)) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Name searches over an index whose posting lists are long enough to use their skip entries,
+ * after churn has deleted part of the catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NameSearchBenchmark {
+    private static final String[] WORDS = {"steel", "black", "white", "pro", "mini", "max", "smart", "kitchen"};
+
+    @Param({"50000", "1000000"})
+    public int products;
+
+    private ProductNameIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new ProductNameIndex();
+        Random random = new Random(11);
+        for (int i = 0; i < products; i++) {
+            StringBuilder name = new StringBuilder();
+            for (String word : WORDS) {
+                if (random.nextInt(word.length()) == 0) {
+                    name.append(word).append(' ');
+                }
+            }
+            index.add(new Product(String.format("SKU%08d", i), i, i, name.toString(), "Category"));
+        }
+        for (int i = 0; i < products * 4 / 5; i += 2) {
+            index.remove(String.format("SKU%08d", i));
+        }
+    }
+
+    @Benchmark
+    public List<Product> twoTerms() {
+        return index.search("steel kitchen", 10);
+    }
+
+    @Benchmark
+    public List<Product> threeTerms() {
+        return index.search("smart steel kitchen", 10);
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-row parsing costs: prices on the fast and slow paths, and whole CSV rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParseBenchmark {
+    private static final String[] PRICES = {"179.99", "12", "1299.5", "0.99", "45999.00", "7.25", "310.10", "88"};
+    private static final String[] FORMATTED_PRICES = {"$1,299.00", "1,234.50", "$79.99", "2,000"};
+
+    private ProductCsvParser parser;
+    private String[] rows;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        parser = ProductCsvParser.fromHeader(CatalogGenerator.HEADER);
+        rows = new String[64];
+        int i = 0;
+        for (Product product : new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 42).products(rows.length)) {
+            rows[i++] = CatalogGenerator.toCsvRow(product);
+        }
+    }
+
+    @Benchmark
+    public double parsePrice() {
+        String price = PRICES[next++ & (PRICES.length - 1)];
+        return ProductCsvParser.parsePrice(price, 0, price.length());
+    }
+
+    @Benchmark
+    public double parseFormattedPrice() {
+        String price = FORMATTED_PRICES[next++ & (FORMATTED_PRICES.length - 1)];
+        return ProductCsvParser.parsePrice(price, 0, price.length());
+    }
+
+    @Benchmark
+    public Product parseRow() {
+        return parser.parse(rows[next++ & (rows.length - 1)]);
+    }
+}
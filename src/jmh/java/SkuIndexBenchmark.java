@@ -0,0 +1,81 @@
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Point lookups, prefix queries and full scans on the SKU index backends.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SkuIndexBenchmark {
+    private static final int PROBES = 4096; // power of two, for cheap masking
+
+    @Param({"1000000", "5000000"})
+    public int rows;
+
+    @Param({"redblack", "bplus16", "bplus64", "bplus256", "radix"})
+    public String backend;
+
+    private SkuIndex index;
+    private String[] hits;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<Product> products = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 42).products(rows);
+        if (backend.equals("redblack")) {
+            index = new TreeSkuIndex();
+        } else if (backend.equals("radix")) {
+            index = new RadixTreeSkuIndex();
+        } else {
+            index = new BPlusTreeSkuIndex(Integer.parseInt(backend.substring("bplus".length())));
+        }
+        index.putAll(products);
+
+        SplittableRandom random = new SplittableRandom(7);
+        hits = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            hits[i] = products.get(random.nextInt(rows)).getSku();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Product lookup() {
+        return index.get(hits[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<Product> prefixQuery() {
+        // Dropping the last two hex digits leaves up to 256 matches
+        String sku = hits[next++ & (PROBES - 1)];
+        return index.withPrefix(sku.substring(0, sku.length() - 2), 100);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double fullScan() {
+        double sum = 0;
+        for (Product product : index) {
+            sum += product.getPriceCurrent();
+        }
+        return sum;
+    }
+}
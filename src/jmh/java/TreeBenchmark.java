@@ -0,0 +1,89 @@
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building and searching the SKU tree behind {@link TreeSkuIndex}.
+ * The plain {@link BinarySearchTree} is left out: on sorted input it degenerates to
+ * O(n^2) and a single 1M-row build would not finish in reasonable time.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TreeBenchmark {
+    private static final int PROBES = 4096; // power of two, for cheap masking
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"RANDOM", "SORTED", "SKEWED"})
+    public CatalogGenerator.Distribution distribution;
+
+    private List<Product> products;
+    private TreeSkuIndex tree;
+    private String[] hits;
+    private String[] misses;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        products = new CatalogGenerator(distribution, 42).products(rows);
+        tree = new TreeSkuIndex();
+        tree.putAll(products);
+
+        SplittableRandom random = new SplittableRandom(7);
+        hits = new String[PROBES];
+        misses = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            hits[i] = products.get(random.nextInt(rows)).getSku();
+            misses[i] = "MISSING" + i;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TreeSkuIndex insertOneByOne() {
+        TreeSkuIndex built = new TreeSkuIndex();
+        for (Product product : products) {
+            built.put(product);
+        }
+        return built;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TreeSkuIndex bulkLoad() {
+        TreeSkuIndex built = new TreeSkuIndex();
+        built.putAll(products);
+        return built;
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Product searchHit() {
+        return tree.get(hits[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Product searchMiss() {
+        return tree.get(misses[next++ & (PROBES - 1)]);
+    }
+}
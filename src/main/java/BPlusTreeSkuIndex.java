@@ -0,0 +1,637 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * SKU index on a B+-tree. Nodes hold up to fanout SKUs in one array, so a lookup reads a
+ * handful of wide nodes (binary search within each) instead of one node per level of a
+ * binary tree. Products live only in the leaves, so full scans and prefix scans walk
+ * arrays rather than chasing parent pointers.
+ *
+ * Nodes are copy-on-write: each remembers the generation that created it, and
+ * {@link #snapshot()} starts a new generation, so the next change to a node shared with a
+ * snapshot copies it (and the path above it) first. Nodes have no sibling links, which
+ * would tie each node to a single tree; scans keep the path to the current leaf instead.
+ */
+public class BPlusTreeSkuIndex implements SkuIndex {
+    public static final int DEFAULT_FANOUT = 64;
+    private static final int MERGE_RATIO = 16; // batches above 1/16 of the index are merged and rebuilt
+
+    private final int fanout; // maximum entries per leaf and children per inner node
+    private final int minLeafEntries;
+    private final int minChildren;
+    Node root;
+    private int size;
+    private int generation; // nodes of an older generation may be shared with a snapshot
+    private final boolean readOnly;
+
+    // Set by insert: the product replaced, and the separator of a node split off
+    private Product replaced;
+    private String promoted;
+
+    abstract static class Node {
+        final String[] keys;
+        int count; // keys in use
+        final int generation;
+
+        Node(int capacity, int generation) {
+            keys = new String[capacity];
+            this.generation = generation;
+        }
+
+        /**
+         * Returns a copy of this node for the given generation.
+         */
+        abstract Node copy(int generation);
+    }
+
+    // keys[i] is the SKU of values[i]
+    static final class Leaf extends Node {
+        final Product[] values;
+
+        Leaf(int fanout, int generation) {
+            super(fanout + 1, generation); // one spare slot, filled just before a split
+            values = new Product[fanout + 1];
+        }
+
+        @Override
+        Leaf copy(int generation) {
+            Leaf leaf = new Leaf(values.length - 1, generation);
+            System.arraycopy(keys, 0, leaf.keys, 0, count);
+            System.arraycopy(values, 0, leaf.values, 0, count);
+            leaf.count = count;
+            return leaf;
+        }
+    }
+
+    // children[i] holds the SKUs from keys[i - 1] (inclusive) to keys[i] (exclusive)
+    static final class Inner extends Node {
+        final Node[] children;
+
+        Inner(int fanout, int generation) {
+            super(fanout, generation);
+            children = new Node[fanout + 1];
+        }
+
+        @Override
+        Inner copy(int generation) {
+            Inner inner = new Inner(keys.length, generation);
+            System.arraycopy(keys, 0, inner.keys, 0, count);
+            System.arraycopy(children, 0, inner.children, 0, count + 1);
+            inner.count = count;
+            return inner;
+        }
+    }
+
+    /**
+     * Constructs an empty index with the default fanout.
+     */
+    public BPlusTreeSkuIndex() {
+        this(DEFAULT_FANOUT);
+    }
+
+    /**
+     * Constructs an empty index.
+     * @param fanout Maximum entries per leaf and children per inner node, at least 4
+     */
+    public BPlusTreeSkuIndex(int fanout) {
+        if (fanout < 4) {
+            throw new IllegalArgumentException("fanout must be at least 4: " + fanout);
+        }
+        this.fanout = fanout;
+        minLeafEntries = fanout / 2;
+        minChildren = (fanout + 1) / 2;
+        readOnly = false;
+        clear();
+    }
+
+    private BPlusTreeSkuIndex(BPlusTreeSkuIndex index) {
+        fanout = index.fanout;
+        minLeafEntries = index.minLeafEntries;
+        minChildren = index.minChildren;
+        root = index.root;
+        size = index.size;
+        generation = index.generation;
+        readOnly = true;
+    }
+
+    private void clear() {
+        root = new Leaf(fanout, generation);
+        size = 0;
+    }
+
+    /**
+     * Returns the child at index, first copying it into the current generation if it may be
+     * shared with a snapshot. The parent must already belong to the current generation.
+     */
+    private Node writableChild(Inner parent, int index) {
+        Node child = parent.children[index];
+        if (child.generation != generation) {
+            child = child.copy(generation);
+            parent.children[index] = child;
+        }
+        return child;
+    }
+
+    private void makeRootWritable() {
+        if (root.generation != generation) {
+            root = root.copy(generation);
+        }
+    }
+
+    /**
+     * Returns the maximum number of entries per node.
+     * @return The fanout
+     */
+    public int getFanout() {
+        return fanout;
+    }
+
+    @Override
+    public Product get(String sku) {
+        Leaf leaf = findLeaf(sku);
+        int position = Arrays.binarySearch(leaf.keys, 0, leaf.count, sku);
+        return position >= 0 ? leaf.values[position] : null;
+    }
+
+    @Override
+    public List<Product> getAll(List<String> sortedSkus) {
+        List<Product> result = new ArrayList<>(sortedSkus.size());
+        Leaf leaf = null;
+        for (String sku : sortedSkus) {
+            // Sorted keys often land in the same leaf; only descend again once past it
+            if (leaf == null || leaf.count == 0 || sku.compareTo(leaf.keys[leaf.count - 1]) > 0) {
+                leaf = findLeaf(sku);
+            }
+            int position = Arrays.binarySearch(leaf.keys, 0, leaf.count, sku);
+            result.add(position >= 0 ? leaf.values[position] : null);
+        }
+        return result;
+    }
+
+    private Leaf findLeaf(String sku) {
+        Node node = root;
+        while (node instanceof Inner inner) {
+            node = inner.children[childIndex(inner, sku)];
+        }
+        return (Leaf) node;
+    }
+
+    /**
+     * Returns the child of an inner node that covers the SKU: the number of separators not after it.
+     */
+    private static int childIndex(Inner inner, String sku) {
+        int low = 0;
+        int high = inner.count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (inner.keys[mid].compareTo(sku) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public Product put(Product product) {
+        checkWritable();
+        replaced = null;
+        makeRootWritable();
+        Node right = insert(root, product.getSku(), product);
+        if (right != null) {
+            Inner newRoot = new Inner(fanout, generation);
+            newRoot.keys[0] = promoted;
+            newRoot.children[0] = root;
+            newRoot.children[1] = right;
+            newRoot.count = 1;
+            root = newRoot;
+        }
+        return replaced;
+    }
+
+    /**
+     * Inserts into a subtree.
+     * @return The new right sibling if the node split (its separator is left in promoted), or null
+     */
+    private Node insert(Node node, String sku, Product product) {
+        if (node instanceof Leaf leaf) {
+            int position = Arrays.binarySearch(leaf.keys, 0, leaf.count, sku);
+            if (position >= 0) {
+                replaced = leaf.values[position];
+                leaf.values[position] = product;
+                return null;
+            }
+            position = -position - 1;
+            System.arraycopy(leaf.keys, position, leaf.keys, position + 1, leaf.count - position);
+            System.arraycopy(leaf.values, position, leaf.values, position + 1, leaf.count - position);
+            leaf.keys[position] = sku;
+            leaf.values[position] = product;
+            leaf.count++;
+            size++;
+            return leaf.count > fanout ? splitLeaf(leaf) : null;
+        }
+
+        Inner inner = (Inner) node;
+        int index = childIndex(inner, sku);
+        Node right = insert(writableChild(inner, index), sku, product);
+        if (right == null) {
+            return null;
+        }
+        System.arraycopy(inner.keys, index, inner.keys, index + 1, inner.count - index);
+        System.arraycopy(inner.children, index + 1, inner.children, index + 2, inner.count - index);
+        inner.keys[index] = promoted;
+        inner.children[index + 1] = right;
+        inner.count++;
+        return inner.count + 1 > fanout ? splitInner(inner) : null;
+    }
+
+    private Leaf splitLeaf(Leaf leaf) {
+        Leaf right = new Leaf(fanout, generation);
+        int half = leaf.count / 2;
+        right.count = leaf.count - half;
+        System.arraycopy(leaf.keys, half, right.keys, 0, right.count);
+        System.arraycopy(leaf.values, half, right.values, 0, right.count);
+        Arrays.fill(leaf.keys, half, leaf.count, null);
+        Arrays.fill(leaf.values, half, leaf.count, null);
+        leaf.count = half;
+        promoted = right.keys[0];
+        return right;
+    }
+
+    private Inner splitInner(Inner inner) {
+        // The middle separator moves up; the keys on either side stay with their children
+        Inner right = new Inner(fanout, generation);
+        int middle = inner.count / 2;
+        right.count = inner.count - middle - 1;
+        System.arraycopy(inner.keys, middle + 1, right.keys, 0, right.count);
+        System.arraycopy(inner.children, middle + 1, right.children, 0, right.count + 1);
+        promoted = inner.keys[middle];
+        Arrays.fill(inner.keys, middle, inner.count, null);
+        Arrays.fill(inner.children, middle + 1, inner.count + 1, null);
+        inner.count = middle;
+        return right;
+    }
+
+    @Override
+    public Product remove(String sku) {
+        checkWritable();
+        if (get(sku) == null) {
+            return null; // nothing to copy
+        }
+        makeRootWritable();
+        Product removed = remove(root, sku);
+        if (root instanceof Inner inner && inner.count == 0) {
+            root = inner.children[0];
+        }
+        return removed;
+    }
+
+    private Product remove(Node node, String sku) {
+        if (node instanceof Leaf leaf) {
+            int position = Arrays.binarySearch(leaf.keys, 0, leaf.count, sku);
+            if (position < 0) {
+                return null;
+            }
+            Product removed = leaf.values[position];
+            System.arraycopy(leaf.keys, position + 1, leaf.keys, position, leaf.count - position - 1);
+            System.arraycopy(leaf.values, position + 1, leaf.values, position, leaf.count - position - 1);
+            leaf.count--;
+            leaf.keys[leaf.count] = null;
+            leaf.values[leaf.count] = null;
+            size--;
+            return removed;
+        }
+
+        Inner inner = (Inner) node;
+        int index = childIndex(inner, sku);
+        Product removed = remove(writableChild(inner, index), sku);
+        if (removed != null && underflows(inner.children[index])) {
+            rebalance(inner, index);
+        }
+        return removed;
+    }
+
+    private boolean underflows(Node node) {
+        return node instanceof Leaf ? node.count < minLeafEntries : node.count + 1 < minChildren;
+    }
+
+    private boolean canLend(Node node) {
+        return node instanceof Leaf ? node.count > minLeafEntries : node.count + 1 > minChildren;
+    }
+
+    /**
+     * Fixes an underfull child by borrowing an entry from a sibling, or merging with one.
+     * The right node of a merged pair is always the one dropped, so it is only read; the
+     * other nodes that change are copied first if a snapshot shares them.
+     */
+    private void rebalance(Inner parent, int index) {
+        Node child = parent.children[index];
+        Node left = index > 0 ? parent.children[index - 1] : null;
+        Node right = index < parent.count ? parent.children[index + 1] : null;
+
+        if (left != null && canLend(left)) {
+            borrowFromLeft(parent, index, writableChild(parent, index - 1), child);
+        } else if (right != null && canLend(right)) {
+            borrowFromRight(parent, index, child, writableChild(parent, index + 1));
+        } else if (left != null) {
+            merge(parent, index - 1, writableChild(parent, index - 1), child);
+        } else {
+            merge(parent, index, child, right);
+        }
+    }
+
+    private void borrowFromLeft(Inner parent, int index, Node left, Node child) {
+        if (child instanceof Leaf leaf) {
+            Leaf from = (Leaf) left;
+            System.arraycopy(leaf.keys, 0, leaf.keys, 1, leaf.count);
+            System.arraycopy(leaf.values, 0, leaf.values, 1, leaf.count);
+            from.count--;
+            leaf.keys[0] = from.keys[from.count];
+            leaf.values[0] = from.values[from.count];
+            from.keys[from.count] = null;
+            from.values[from.count] = null;
+            leaf.count++;
+            parent.keys[index - 1] = leaf.keys[0];
+        } else {
+            Inner inner = (Inner) child;
+            Inner from = (Inner) left;
+            System.arraycopy(inner.keys, 0, inner.keys, 1, inner.count);
+            System.arraycopy(inner.children, 0, inner.children, 1, inner.count + 1);
+            inner.keys[0] = parent.keys[index - 1];
+            inner.children[0] = from.children[from.count];
+            inner.count++;
+            parent.keys[index - 1] = from.keys[from.count - 1];
+            from.keys[from.count - 1] = null;
+            from.children[from.count] = null;
+            from.count--;
+        }
+    }
+
+    private void borrowFromRight(Inner parent, int index, Node child, Node right) {
+        if (child instanceof Leaf leaf) {
+            Leaf from = (Leaf) right;
+            leaf.keys[leaf.count] = from.keys[0];
+            leaf.values[leaf.count] = from.values[0];
+            leaf.count++;
+            from.count--;
+            System.arraycopy(from.keys, 1, from.keys, 0, from.count);
+            System.arraycopy(from.values, 1, from.values, 0, from.count);
+            from.keys[from.count] = null;
+            from.values[from.count] = null;
+            parent.keys[index] = from.keys[0];
+        } else {
+            Inner inner = (Inner) child;
+            Inner from = (Inner) right;
+            inner.keys[inner.count] = parent.keys[index];
+            inner.children[inner.count + 1] = from.children[0];
+            inner.count++;
+            parent.keys[index] = from.keys[0];
+            System.arraycopy(from.keys, 1, from.keys, 0, from.count - 1);
+            System.arraycopy(from.children, 1, from.children, 0, from.count);
+            from.keys[from.count - 1] = null;
+            from.children[from.count] = null;
+            from.count--;
+        }
+    }
+
+    /**
+     * Moves everything in right into left and drops right and its separator from the parent.
+     */
+    private void merge(Inner parent, int separator, Node left, Node right) {
+        if (left instanceof Leaf leaf) {
+            Leaf from = (Leaf) right;
+            System.arraycopy(from.keys, 0, leaf.keys, leaf.count, from.count);
+            System.arraycopy(from.values, 0, leaf.values, leaf.count, from.count);
+            leaf.count += from.count;
+        } else {
+            Inner inner = (Inner) left;
+            Inner from = (Inner) right;
+            inner.keys[inner.count] = parent.keys[separator];
+            System.arraycopy(from.keys, 0, inner.keys, inner.count + 1, from.count);
+            System.arraycopy(from.children, 0, inner.children, inner.count + 1, from.count + 1);
+            inner.count += from.count + 1;
+        }
+        System.arraycopy(parent.keys, separator + 1, parent.keys, separator, parent.count - separator - 1);
+        System.arraycopy(parent.children, separator + 2, parent.children, separator + 1, parent.count - separator - 1);
+        parent.count--;
+        parent.keys[parent.count] = null;
+        parent.children[parent.count + 1] = null;
+    }
+
+    /**
+     * Inserts small batches one by one. Larger ones are merged with the current contents
+     * and the tree is rebuilt bottom-up, with leaves and inner nodes filled evenly, in one
+     * linear pass over the sorted entries.
+     */
+    @Override
+    public void putAll(Collection<Product> products) {
+        checkWritable();
+        if ((long) products.size() * MERGE_RATIO < size) {
+            for (Product product : products) {
+                put(product);
+            }
+            return;
+        }
+
+        List<Product> batch = new ArrayList<>(products);
+        batch.sort(null);
+
+        // Keep only the last of each run of equal SKUs, then merge in the current contents
+        List<Product> sorted = new ArrayList<>(size + batch.size());
+        Iterator<Product> existing = iterator();
+        Product current = existing.hasNext() ? existing.next() : null;
+        for (int i = 0; i < batch.size(); i++) {
+            Product product = batch.get(i);
+            if (i + 1 < batch.size() && product.compareTo(batch.get(i + 1)) == 0) {
+                continue;
+            }
+            while (current != null && current.compareTo(product) < 0) {
+                sorted.add(current);
+                current = existing.hasNext() ? existing.next() : null;
+            }
+            if (current != null && current.compareTo(product) == 0) {
+                current = existing.hasNext() ? existing.next() : null;
+            }
+            sorted.add(product);
+        }
+        while (current != null) {
+            sorted.add(current);
+            current = existing.hasNext() ? existing.next() : null;
+        }
+        build(sorted);
+    }
+
+    private void build(List<Product> sorted) {
+        clear();
+        if (sorted.isEmpty()) {
+            return;
+        }
+
+        // Leaves, each with its smallest SKU as the separator for the level above
+        int leafCount = (sorted.size() + fanout - 1) / fanout;
+        List<Node> level = new ArrayList<>(leafCount);
+        List<String> lowKeys = new ArrayList<>(leafCount);
+        for (int i = 0; i < leafCount; i++) {
+            int from = (int) ((long) sorted.size() * i / leafCount);
+            int to = (int) ((long) sorted.size() * (i + 1) / leafCount);
+            Leaf leaf = new Leaf(fanout, generation);
+            for (int j = from; j < to; j++) {
+                leaf.keys[j - from] = sorted.get(j).getSku();
+                leaf.values[j - from] = sorted.get(j);
+            }
+            leaf.count = to - from;
+            level.add(leaf);
+            lowKeys.add(leaf.keys[0]);
+        }
+
+        while (level.size() > 1) {
+            int parentCount = (level.size() + fanout - 1) / fanout;
+            List<Node> parents = new ArrayList<>(parentCount);
+            List<String> parentLowKeys = new ArrayList<>(parentCount);
+            for (int i = 0; i < parentCount; i++) {
+                int from = (int) ((long) level.size() * i / parentCount);
+                int to = (int) ((long) level.size() * (i + 1) / parentCount);
+                Inner inner = new Inner(fanout, generation);
+                for (int j = from; j < to; j++) {
+                    inner.children[j - from] = level.get(j);
+                    if (j > from) {
+                        inner.keys[j - from - 1] = lowKeys.get(j);
+                    }
+                }
+                inner.count = to - from - 1;
+                parents.add(inner);
+                parentLowKeys.add(lowKeys.get(from));
+            }
+            level = parents;
+            lowKeys = parentLowKeys;
+        }
+        root = level.get(0);
+        size = sorted.size();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Product> iterator() {
+        return new LeafIterator(root, null);
+    }
+
+    @Override
+    public Iterator<Product> iteratorAfter(String sku) {
+        return new LeafIterator(root, sku);
+    }
+
+    /**
+     * Reports the entry count, the number of levels, and an average depth equal to the
+     * height, since every lookup reads one node per level.
+     */
+    @Override
+    public TreeStats stats() {
+        int height = 1;
+        for (Node node = root; node instanceof Inner inner; node = inner.children[0]) {
+            height++;
+        }
+        return new TreeStats(size, size == 0 ? 0 : height, size == 0 ? 0.0 : height);
+    }
+
+    /**
+     * Returns a read-only copy that shares every node with this index. This index moves to a
+     * new generation, so it copies a shared node before its next change to it.
+     */
+    @Override
+    public SkuIndex snapshot() {
+        BPlusTreeSkuIndex snapshot = new BPlusTreeSkuIndex(this);
+        generation++;
+        return snapshot;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("SKU index snapshots are read-only");
+        }
+    }
+
+    // Walks the leaves in order, keeping the inner nodes above the current leaf and the child taken in each
+    private static class LeafIterator implements Iterator<Product> {
+        private final Inner[] path;
+        private final int[] childAt;
+        private Leaf leaf;
+        private int position;
+
+        /**
+         * Starts at the first entry, or after the given SKU.
+         */
+        LeafIterator(Node root, String after) {
+            int depth = 0;
+            for (Node node = root; node instanceof Inner inner; node = inner.children[0]) {
+                depth++;
+            }
+            path = new Inner[depth];
+            childAt = new int[depth];
+            Node node = root;
+            for (int i = 0; i < depth; i++) {
+                Inner inner = (Inner) node;
+                path[i] = inner;
+                childAt[i] = after == null ? 0 : childIndex(inner, after);
+                node = inner.children[childAt[i]];
+            }
+            leaf = (Leaf) node;
+            if (after != null) {
+                int found = Arrays.binarySearch(leaf.keys, 0, leaf.count, after);
+                position = found >= 0 ? found + 1 : -found - 1;
+            }
+            skipExhausted();
+        }
+
+        private void skipExhausted() {
+            while (leaf != null && position >= leaf.count) {
+                nextLeaf();
+            }
+        }
+
+        /**
+         * Moves to the leftmost leaf of the next subtree to the right, or past the end.
+         */
+        private void nextLeaf() {
+            int level = path.length - 1;
+            while (level >= 0 && childAt[level] == path[level].count) {
+                level--;
+            }
+            if (level < 0) {
+                leaf = null;
+                return;
+            }
+            Node node = path[level].children[++childAt[level]];
+            for (int i = level + 1; i < path.length; i++) {
+                path[i] = (Inner) node;
+                childAt[i] = 0;
+                node = path[i].children[0];
+            }
+            leaf = (Leaf) node;
+            position = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null;
+        }
+
+        @Override
+        public Product next() {
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            Product product = leaf.values[position++];
+            skipExhausted();
+            return product;
+        }
+    }
+}
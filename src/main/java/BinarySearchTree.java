@@ -1,12 +1,21 @@
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Generic Binary Search Tree implementation.
  * Based on the Binary Search Tree implementation from Java Structures, Chapter 12.
  * @param <E> Type of elements stored in the tree, must implement Comparable
  */
-public class BinarySearchTree<E extends Comparable<E>> {
+public class BinarySearchTree<E extends Comparable<E>> implements Iterable<E> {
 
     // Inner Node class
     protected class Node {
@@ -34,37 +43,157 @@ public class BinarySearchTree<E extends Comparable<E>> {
 
     /**
      * Inserts an element into the tree.
+     * If an equal element already exists it is replaced.
+     * Walks down iteratively so that long (sorted) chains do not overflow the stack.
      * @param value The element to insert
+     * @return The element that was replaced, or null if the value is new
      */
-    public void insert(E value) {
-        root = insert(root, value);
-        size++;
+    public E insert(E value) {
+        if (root == null) {
+            root = new Node(value);
+            size++;
+            return null;
+        }
+
+        Node current = root;
+        while (true) {
+            int compareResult = value.compareTo(current.data);
+
+            if (compareResult < 0) {
+                if (current.left == null) {
+                    current.left = new Node(value);
+                    size++;
+                    return null;
+                }
+                current = current.left;
+            } else if (compareResult > 0) {
+                if (current.right == null) {
+                    current.right = new Node(value);
+                    size++;
+                    return null;
+                }
+                current = current.right;
+            } else {
+                // If the value already exists, we can either replace it or ignore it
+                // Here we replace it
+                E previous = current.data;
+                current.data = value;
+                return previous;
+            }
+        }
     }
 
     /**
-     * Helper method for inserting a value into the tree.
-     * @param node The current node
-     * @param value The value to insert
-     * @return The updated node
+     * Adds a batch of elements at once, rebuilding the tree perfectly balanced.
+     * The batch is sorted (stable, so already sorted input costs a single pass), equal
+     * elements are resolved last-write-wins, and the result is merged with the elements
+     * already in the tree, the batch winning over them. The tree is then rebuilt in one
+     * linear pass, so this is much cheaper than inserting the elements one by one.
+     * @param values The elements to add, in any order
+     */
+    public void bulkLoad(Collection<? extends E> values) {
+        List<E> batch = new ArrayList<>(values);
+        batch.sort(null);
+
+        // Keep only the last of each run of equal elements
+        int distinct = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (i + 1 < batch.size() && batch.get(i).compareTo(batch.get(i + 1)) == 0) {
+                continue;
+            }
+            batch.set(distinct++, batch.get(i));
+        }
+        batch.subList(distinct, batch.size()).clear();
+
+        List<E> sorted = batch;
+        if (root != null) {
+            sorted = new ArrayList<>(size + batch.size());
+            Iterator<E> existing = iterator();
+            E current = existing.hasNext() ? existing.next() : null;
+            for (E value : batch) {
+                while (current != null && current.compareTo(value) < 0) {
+                    sorted.add(current);
+                    current = existing.hasNext() ? existing.next() : null;
+                }
+                if (current != null && current.compareTo(value) == 0) {
+                    current = existing.hasNext() ? existing.next() : null;
+                }
+                sorted.add(value);
+            }
+            while (current != null) {
+                sorted.add(current);
+                current = existing.hasNext() ? existing.next() : null;
+            }
+        }
+
+        root = buildBalanced(sorted);
+        size = sorted.size();
+    }
+
+    /**
+     * Builds a height-optimal tree from distinct elements in ascending order.
+     * @param sorted The elements, in strictly ascending order
+     * @return The root of the new tree
+     */
+    protected Node buildBalanced(List<E> sorted) {
+        return buildBalanced(sorted, 0, sorted.size());
+    }
+
+    private Node buildBalanced(List<E> sorted, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        Node node = new Node(sorted.get(mid));
+        node.left = buildBalanced(sorted, from, mid);
+        node.right = buildBalanced(sorted, mid + 1, to);
+        return node;
+    }
+
+    /**
+     * Removes the element equal to the given value.
+     * @param value The value to remove
+     * @return The element that was removed, or null if it was not in the tree
      */
-    protected Node insert(Node node, E value) {
+    public E delete(E value) {
+        Node parent = null;
+        Node node = root;
+        while (node != null) {
+            int compareResult = value.compareTo(node.data);
+            if (compareResult == 0) {
+                break;
+            }
+            parent = node;
+            node = compareResult < 0 ? node.left : node.right;
+        }
         if (node == null) {
-            return new Node(value);
+            return null;
         }
 
-        int compareResult = value.compareTo(node.data);
+        E removed = node.data;
+        if (node.left != null && node.right != null) {
+            // Move the in-order successor's value up, then unlink the successor instead
+            Node successorParent = node;
+            Node successor = node.right;
+            while (successor.left != null) {
+                successorParent = successor;
+                successor = successor.left;
+            }
+            node.data = successor.data;
+            parent = successorParent;
+            node = successor;
+        }
 
-        if (compareResult < 0) {
-            node.left = insert(node.left, value);
-        } else if (compareResult > 0) {
-            node.right = insert(node.right, value);
+        Node child = node.left != null ? node.left : node.right;
+        if (parent == null) {
+            root = child;
+        } else if (parent.left == node) {
+            parent.left = child;
         } else {
-            // If the value already exists, we can either replace it or ignore it
-            // Here we replace it
-            node.data = value;
+            parent.right = child;
         }
-
-        return node;
+        size--;
+        return removed;
     }
 
     /**
@@ -84,19 +213,41 @@ public class BinarySearchTree<E extends Comparable<E>> {
      * @return The node containing the value if found, null otherwise
      */
     protected Node search(Node node, E value) {
-        if (node == null) {
-            return null;
+        while (node != null) {
+            int compareResult = value.compareTo(node.data);
+
+            if (compareResult < 0) {
+                node = node.left;
+            } else if (compareResult > 0) {
+                node = node.right;
+            } else {
+                return node;
+            }
         }
+        return null;
+    }
 
-        int compareResult = value.compareTo(node.data);
+    /**
+     * Searches for an element by key, without building a probe element to compare against.
+     * @param key The key to search for
+     * @param keyOf Extracts the key of an element; must order elements like their compareTo
+     * @param <K> Type of the key
+     * @return The element with that key if found, null otherwise
+     */
+    public <K extends Comparable<? super K>> E searchByKey(K key, Function<? super E, ? extends K> keyOf) {
+        Node node = root;
+        while (node != null) {
+            int compareResult = key.compareTo(keyOf.apply(node.data));
 
-        if (compareResult < 0) {
-            return search(node.left, value);
-        } else if (compareResult > 0) {
-            return search(node.right, value);
-        } else {
-            return node;
+            if (compareResult < 0) {
+                node = node.left;
+            } else if (compareResult > 0) {
+                node = node.right;
+            } else {
+                return node.data;
+            }
         }
+        return null;
     }
 
     /**
@@ -115,12 +266,75 @@ public class BinarySearchTree<E extends Comparable<E>> {
         return size == 0;
     }
 
+    /**
+     * Returns the height of the tree (number of nodes on the longest root-to-leaf path).
+     * @return The height, 0 for an empty tree
+     */
+    public int height() {
+        if (root == null) {
+            return 0;
+        }
+
+        // Level-by-level walk, so degenerate trees do not overflow the stack
+        int height = 0;
+        ArrayDeque<Node> level = new ArrayDeque<>();
+        level.add(root);
+        while (!level.isEmpty()) {
+            height++;
+            for (int i = level.size(); i > 0; i--) {
+                Node node = level.poll();
+                if (node.left != null) {
+                    level.add(node.left);
+                }
+                if (node.right != null) {
+                    level.add(node.right);
+                }
+            }
+        }
+        return height;
+    }
+
+    /**
+     * Computes the shape of the tree: node count, height and average node depth.
+     * Walks the whole tree, so this is meant for diagnostics rather than hot paths.
+     * @return The statistics
+     */
+    public TreeStats stats() {
+        int count = 0;
+        int height = 0;
+        long depthSum = 0;
+
+        // Depth-first walk with an explicit stack of (node, depth) pairs
+        ArrayDeque<Node> nodes = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        if (root != null) {
+            nodes.push(root);
+            depths.push(1);
+        }
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            int depth = depths.pop();
+            count++;
+            depthSum += depth;
+            height = Math.max(height, depth);
+            if (node.left != null) {
+                nodes.push(node.left);
+                depths.push(depth + 1);
+            }
+            if (node.right != null) {
+                nodes.push(node.right);
+                depths.push(depth + 1);
+            }
+        }
+        return new TreeStats(count, height, count == 0 ? 0.0 : (double) depthSum / count);
+    }
+
     /**
      * Returns a list of all elements in the tree using in-order traversal.
      * @return A list of all elements
      */
     public List<E> inOrder() {
-        List<E> result = new ArrayList<>();
+        List<E> result = new ArrayList<>(size);
         inOrder(root, result);
         return result;
     }
@@ -131,10 +345,88 @@ public class BinarySearchTree<E extends Comparable<E>> {
      * @param result The list to store the results
      */
     protected void inOrder(Node node, List<E> result) {
-        if (node != null) {
-            inOrder(node.left, result);
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
             result.add(node.data);
-            inOrder(node.right, result);
+            node = node.right;
+        }
+    }
+
+    /**
+     * Returns a lazy in-order iterator over the tree.
+     * Only the path to the current element is held in memory, so iterating does not
+     * copy the tree. The tree must not be modified while iterating.
+     * @return The iterator
+     */
+    @Override
+    public Iterator<E> iterator() {
+        InOrderIterator iterator = new InOrderIterator();
+        iterator.pushLeftPath(root);
+        return iterator;
+    }
+
+    /**
+     * Returns a lazy in-order iterator that starts at the given value.
+     * The value does not have to be in the tree.
+     * @param from The value to start from
+     * @param inclusive True to include an element equal to from, false to start after it
+     * @return The iterator
+     */
+    public Iterator<E> iteratorFrom(E from, boolean inclusive) {
+        InOrderIterator iterator = new InOrderIterator();
+        Node node = root;
+        while (node != null) {
+            int compareResult = node.data.compareTo(from);
+            if (compareResult > 0 || (inclusive && compareResult == 0)) {
+                // This node comes after the start; remember it and look for earlier ones
+                iterator.stack.push(node);
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return iterator;
+    }
+
+    /**
+     * Returns a sequential stream over the elements in order, backed by {@link #iterator()}.
+     * @return The stream
+     */
+    public Stream<E> stream() {
+        Spliterator<E> spliterator = Spliterators.spliterator(iterator(), size,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    // In-order iterator that keeps the ancestors still to be visited on a stack
+    protected class InOrderIterator implements Iterator<E> {
+        protected final ArrayDeque<Node> stack = new ArrayDeque<>();
+
+        protected void pushLeftPath(Node node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack.pop();
+            pushLeftPath(node.right);
+            return node.data;
         }
     }
-}
\ No newline at end of file
+}
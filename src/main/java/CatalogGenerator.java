@@ -0,0 +1,279 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic product catalogs for benchmarks and scale tests.
+ * The same settings, seed and row count always produce the same rows. Besides the SKU order,
+ * generated files can mimic the rough edges of real scrapes: skewed category popularity,
+ * product names that need CSV quoting, and malformed lines the loaders have to reject.
+ *
+ * Usage: java CatalogGenerator &lt;rows&gt; &lt;random|sorted|skewed&gt; &lt;output.csv&gt; [seed]
+ *        [--category-skew=EXPONENT] [--quoted=RATE] [--malformed=RATE]
+ */
+public class CatalogGenerator {
+    public enum Distribution {
+        RANDOM, // distinct SKUs in random order
+        SORTED, // distinct SKUs in ascending order, like a catalog export
+        SKEWED // a few hot SKUs are repeated often, so later rows update earlier ones
+    }
+
+    public static final String HEADER = "CATEGORY,DATE_SCRAPED,SORT_BY,RUN_START_DATE,SUBCATEGORY,SHIPPING_LOCATION,SKU,COUNTRY,BRAND,PRICE_RETAIL,PRICE_CURRENT,SELLER,PRODUCT_URL,CURRENCY,BREADCRUMBS,DEPARTMENT,PROMOTION,BESTSELLER_RANK,PRODUCT_NAME,WEBSITE_URL";
+
+    private static final String[] CATEGORIES = {
+            "Electronics", "Appliances", "Furniture", "Toys", "Kitchen", "Garden", "Sports", "Books",
+            "Clothing", "Beauty", "Automotive", "Office", "Pets", "Health", "Music", "Tools"
+    };
+    private static final String[] BRANDS = {
+            "Samsung", "LG", "Sony", "Philips", "Bosch", "Whirlpool", "Oster", "Mabe", "Hisense", "Lenovo"
+    };
+    private static final String[] NOUNS = {
+            "Washing Machine", "Smart TV", "Refrigerator", "Microwave", "Blender", "Laptop", "Chair", "Desk",
+            "Lamp", "Headphones", "Speaker", "Vacuum Cleaner", "Coffee Maker", "Air Fryer", "Monitor", "Drill"
+    };
+    private static final String[] ADJECTIVES = {
+            "Pro", "Mini", "Max", "Compact", "Deluxe", "Ultra", "Classic", "Eco", "Plus", "Slim"
+    };
+
+    public static final double DEFAULT_CATEGORY_SKEW = 2.0;
+
+    private final Distribution distribution;
+    private final long seed;
+    private final double categorySkew;
+    private final double quotedRate;
+    private final double malformedRate;
+
+    /**
+     * Constructs a generator with the default category skew, no quoted names and no malformed lines.
+     * @param distribution How SKUs are laid out across the rows
+     * @param seed Seed for every random choice
+     */
+    public CatalogGenerator(Distribution distribution, long seed) {
+        this(distribution, seed, DEFAULT_CATEGORY_SKEW, 0, 0);
+    }
+
+    private CatalogGenerator(Distribution distribution, long seed, double categorySkew, double quotedRate, double malformedRate) {
+        if (categorySkew < 1) {
+            throw new IllegalArgumentException("Category skew must be at least 1: " + categorySkew);
+        }
+        checkRate(quotedRate);
+        checkRate(malformedRate);
+        this.distribution = distribution;
+        this.seed = seed;
+        this.categorySkew = categorySkew;
+        this.quotedRate = quotedRate;
+        this.malformedRate = malformedRate;
+    }
+
+    private static void checkRate(double rate) {
+        if (!(rate >= 0 && rate <= 1)) {
+            throw new IllegalArgumentException("Rate must be between 0 and 1: " + rate);
+        }
+    }
+
+    /**
+     * Returns a copy with a different category popularity.
+     * @param categorySkew Exponent applied to a uniform draw: 1 spreads rows evenly over the
+     *                     categories, larger values crowd them into the first few
+     * @return The new generator
+     */
+    public CatalogGenerator withCategorySkew(double categorySkew) {
+        return new CatalogGenerator(distribution, seed, categorySkew, quotedRate, malformedRate);
+    }
+
+    /**
+     * Returns a copy in which some product names contain commas and quotes, so their CSV
+     * fields have to be quoted and escaped.
+     * @param quotedRate Fraction of rows with such a name
+     * @return The new generator
+     */
+    public CatalogGenerator withQuotedNames(double quotedRate) {
+        return new CatalogGenerator(distribution, seed, categorySkew, quotedRate, malformedRate);
+    }
+
+    /**
+     * Returns a copy whose CSV files also contain malformed lines (truncated rows and scraper
+     * error pages) between the rows. Malformed lines are extra: they do not count as rows.
+     * @param malformedRate Chance of a malformed line after each row
+     * @return The new generator
+     */
+    public CatalogGenerator withMalformedLines(double malformedRate) {
+        return new CatalogGenerator(distribution, seed, categorySkew, quotedRate, malformedRate);
+    }
+
+    /**
+     * Generates rows lazily, so catalogs larger than the heap can be written out.
+     * @param rows Number of rows to generate
+     * @return An iterator over the rows
+     */
+    public Iterator<Product> iterator(int rows) {
+        SplittableRandom random = new SplittableRandom(seed);
+        // Quoting decisions have their own stream, so enabling them leaves the other columns as they were
+        SplittableRandom quoting = new SplittableRandom(mix(seed + 1));
+        return new Iterator<Product>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return row < rows;
+            }
+
+            @Override
+            public Product next() {
+                if (row >= rows) {
+                    throw new NoSuchElementException();
+                }
+                return product(sku(row++, rows, random), random, quoting.nextDouble() < quotedRate);
+            }
+        };
+    }
+
+    /**
+     * Generates rows into a list.
+     * @param rows Number of rows to generate
+     * @return The rows, in generation order
+     */
+    public List<Product> products(int rows) {
+        List<Product> products = new ArrayList<>(rows);
+        for (Iterator<Product> iterator = iterator(rows); iterator.hasNext(); ) {
+            products.add(iterator.next());
+        }
+        return products;
+    }
+
+    /**
+     * Writes a CSV file with the same columns as the real catalog export.
+     * @param path The file to write
+     * @param rows Number of rows to generate
+     * @return The number of malformed lines written besides the rows
+     * @throws IOException If an I/O error occurs
+     */
+    public long writeCsv(Path path, int rows) throws IOException {
+        SplittableRandom corruption = new SplittableRandom(mix(seed + 2));
+        long malformed = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.write('\n');
+            for (Iterator<Product> iterator = iterator(rows); iterator.hasNext(); ) {
+                Product product = iterator.next();
+                writer.write(toCsvRow(product));
+                writer.write('\n');
+                if (malformedRate > 0 && corruption.nextDouble() < malformedRate) {
+                    writer.write(malformedLine(product, corruption));
+                    writer.write('\n');
+                    malformed++;
+                }
+            }
+        }
+        return malformed;
+    }
+
+    /**
+     * Makes a line no loader should accept: a row cut off after the SKU, as left by an
+     * interrupted scrape, or an error page written where a row should be.
+     */
+    private static String malformedLine(Product product, SplittableRandom random) {
+        if (random.nextBoolean()) {
+            return csvField(product.getCategory()) + ",2024-01-15,Popular,2024-01-15,General,US," + csvField(product.getSku());
+        }
+        return "<html><body>503 Service Unavailable</body></html>";
+    }
+
+    /**
+     * Formats a product as a CSV row in the catalog export layout.
+     * @param product The product
+     * @return The row, without a line terminator
+     */
+    public static String toCsvRow(Product product) {
+        return String.format(Locale.ROOT, "%s,2024-01-15,Popular,2024-01-15,General,US,%s,US,Generic,%.2f,%.2f,Seller,https://example.com/p/%s,USD,Home>%s,Home,None,1,%s,https://example.com",
+                csvField(product.getCategory()), csvField(product.getSku()), product.getPriceRetail(), product.getPriceCurrent(),
+                product.getSku(), product.getCategory(), csvField(product.getProductName()));
+    }
+
+    /**
+     * Quotes a field if it contains a comma, quote or line break, doubling embedded quotes.
+     */
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private String sku(int row, int rows, SplittableRandom random) {
+        switch (distribution) {
+            case SORTED:
+                return String.format("SKU%010d", row);
+            case SKEWED:
+                // Power-law: most rows hit the first few percent of a smaller key space
+                int distinct = Math.max(1, rows / 4);
+                return String.format("SKU%010d", (int) (distinct * Math.pow(random.nextDouble(), 4)));
+            default:
+                // A bijective mix of the row number gives distinct SKUs in random order
+                return String.format("SKU%016X", mix(row ^ seed));
+        }
+    }
+
+    private Product product(String sku, SplittableRandom random, boolean quoted) {
+        String brand = BRANDS[random.nextInt(BRANDS.length)];
+        String noun = NOUNS[random.nextInt(NOUNS.length)];
+        String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+        int size = 100 + random.nextInt(900);
+        // Scraped names often carry a comma and an inch mark, as in: LG Monitor, Slim 27"
+        String name = quoted
+                ? brand + " " + noun + ", " + adjective + " " + size % 100 + "\""
+                : brand + " " + noun + " " + adjective + " " + size;
+        // Category popularity is skewed too, as in real catalogs
+        String category = CATEGORIES[(int) (CATEGORIES.length * Math.pow(random.nextDouble(), categorySkew))];
+        double retail = (100 + random.nextInt(200_000)) / 100.0;
+        double current = Math.round(retail * (50 + random.nextInt(51))) / 100.0;
+        return new Product(sku, retail, current, name, category);
+    }
+
+    // Finalizer of SplitMix64, a bijection on 64-bit values
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: java CatalogGenerator <rows> <random|sorted|skewed> <output.csv> [seed]"
+                    + " [--category-skew=EXPONENT] [--quoted=RATE] [--malformed=RATE]");
+            System.exit(1);
+        }
+        int rows = Integer.parseInt(args[0]);
+        Distribution distribution = Distribution.valueOf(args[1].toUpperCase(Locale.ROOT));
+        long seed = 42;
+        double categorySkew = DEFAULT_CATEGORY_SKEW;
+        double quotedRate = 0;
+        double malformedRate = 0;
+        for (int i = 3; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--category-skew=")) {
+                categorySkew = Double.parseDouble(arg.substring("--category-skew=".length()));
+            } else if (arg.startsWith("--quoted=")) {
+                quotedRate = Double.parseDouble(arg.substring("--quoted=".length()));
+            } else if (arg.startsWith("--malformed=")) {
+                malformedRate = Double.parseDouble(arg.substring("--malformed=".length()));
+            } else {
+                seed = Long.parseLong(arg);
+            }
+        }
+
+        long start = System.nanoTime();
+        long malformed = new CatalogGenerator(distribution, seed, categorySkew, quotedRate, malformedRate)
+                .writeCsv(Path.of(args[2]), rows);
+        System.out.printf("Wrote %d %s rows and %d malformed lines to %s in %.1f s%n", rows, distribution, malformed, args[2],
+                (System.nanoTime() - start) / 1e9);
+    }
+}
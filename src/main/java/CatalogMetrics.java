@@ -0,0 +1,141 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Runtime metrics of a product catalog: ingest throughput, SKU lookup latency and the
+ * shape of the SKU tree. Counters are striped ({@link LongAdder}) and latencies go into
+ * a {@link LatencyHistogram}, so recording costs a few nanoseconds and never blocks.
+ * Tree statistics walk the tree and are only computed when asked for.
+ */
+public class CatalogMetrics implements CatalogMetricsMXBean {
+    public static final String DEFAULT_OBJECT_NAME = "HT7:type=CatalogMetrics";
+
+    private final LongAdder rowsLoaded = new LongAdder();
+    private final LongAdder rowsRejected = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder lookupMisses = new LongAdder();
+    private final LatencyHistogram lookupLatency = new LatencyHistogram();
+    private final Supplier<TreeStats> treeStats;
+
+    /**
+     * Constructs empty metrics.
+     * @param treeStats Computes the current tree statistics on demand
+     */
+    public CatalogMetrics(Supplier<TreeStats> treeStats) {
+        this.treeStats = treeStats;
+    }
+
+    /**
+     * Records a completed CSV load.
+     * @param report The load summary
+     */
+    public void recordLoad(LoadReport report) {
+        rowsLoaded.add(report.getRowsLoaded());
+        rowsRejected.add(report.getRowsRejected());
+        loadNanos.add(report.getElapsedNanos());
+    }
+
+    /**
+     * Records one SKU lookup.
+     * @param nanos How long the lookup took
+     * @param found True if a product was found
+     */
+    public void recordLookup(long nanos, boolean found) {
+        lookupLatency.record(nanos);
+        if (!found) {
+            lookupMisses.increment();
+        }
+    }
+
+    @Override
+    public long getRowsLoaded() {
+        return rowsLoaded.sum();
+    }
+
+    @Override
+    public long getRowsRejected() {
+        return rowsRejected.sum();
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        long nanos = loadNanos.sum();
+        return nanos == 0 ? 0.0 : (rowsLoaded.sum() + rowsRejected.sum()) * 1_000_000_000.0 / nanos;
+    }
+
+    @Override
+    public long getLookupCount() {
+        return lookupLatency.getCount();
+    }
+
+    @Override
+    public long getLookupMisses() {
+        return lookupMisses.sum();
+    }
+
+    @Override
+    public double getLookupMeanMicros() {
+        return lookupLatency.getMean() / 1000.0;
+    }
+
+    @Override
+    public double getLookupP50Micros() {
+        return lookupLatency.getValueAtPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getLookupP99Micros() {
+        return lookupLatency.getValueAtPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getLookupP999Micros() {
+        return lookupLatency.getValueAtPercentile(99.9) / 1000.0;
+    }
+
+    @Override
+    public double getLookupMaxMicros() {
+        return lookupLatency.getMax() / 1000.0;
+    }
+
+    @Override
+    public TreeStats getTreeStats() {
+        return treeStats.get();
+    }
+
+    @Override
+    public void resetLookups() {
+        lookupLatency.reset();
+        lookupMisses.reset();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server.
+     * @param name The JMX object name, e.g. {@link #DEFAULT_OBJECT_NAME}
+     * @return The registered name
+     * @throws JMException If the name is invalid or already registered
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Formats every metric as human-readable text.
+     * @return The text dump
+     */
+    public String dump() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("Ingest:  %d rows loaded, %d rejected, %.0f rows/sec%n",
+                getRowsLoaded(), getRowsRejected(), getRowsPerSecond()));
+        text.append(String.format("Lookups: %d (%d misses), mean %.2f us, p50 %.2f us, p99 %.2f us, p99.9 %.2f us, max %.2f us%n",
+                getLookupCount(), getLookupMisses(), getLookupMeanMicros(), getLookupP50Micros(),
+                getLookupP99Micros(), getLookupP999Micros(), getLookupMaxMicros()));
+        text.append("Tree:    ").append(getTreeStats());
+        return text.toString();
+    }
+}
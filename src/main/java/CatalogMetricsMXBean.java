@@ -0,0 +1,29 @@
+/**
+ * Management interface of {@link CatalogMetrics}, for JMX clients such as JConsole.
+ * Latencies are in microseconds.
+ */
+public interface CatalogMetricsMXBean {
+    long getRowsLoaded();
+
+    long getRowsRejected();
+
+    double getRowsPerSecond();
+
+    long getLookupCount();
+
+    long getLookupMisses();
+
+    double getLookupMeanMicros();
+
+    double getLookupP50Micros();
+
+    double getLookupP99Micros();
+
+    double getLookupP999Micros();
+
+    double getLookupMaxMicros();
+
+    TreeStats getTreeStats();
+
+    void resetLookups();
+}
@@ -0,0 +1,178 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Facet index of products by category. Each category keeps its own {@link PriceIndex},
+ * so per-category counts are O(1) and per-category top-K and price range queries only
+ * touch the products of that category.
+ */
+public class CategoryIndex {
+    private final Map<String, PriceIndex> categories;
+    private final boolean readOnly;
+
+    /**
+     * Constructs an empty category index.
+     */
+    public CategoryIndex() {
+        this(new HashMap<>(), false);
+    }
+
+    private CategoryIndex(Map<String, PriceIndex> categories, boolean readOnly) {
+        this.categories = categories;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Adds a product under its category.
+     * @param product The product to add
+     */
+    public void add(Product product) {
+        checkWritable();
+        categories.computeIfAbsent(product.getCategory(), category -> new PriceIndex()).add(product);
+    }
+
+    /**
+     * Adds a batch of products, filling the categories in parallel.
+     * @param products The products to add, at most one per SKU
+     */
+    public void addAll(Collection<Product> products) {
+        checkWritable();
+        Map<String, List<Product>> byCategory = new HashMap<>();
+        for (Product product : products) {
+            byCategory.computeIfAbsent(product.getCategory(), category -> new ArrayList<>()).add(product);
+        }
+        for (String category : byCategory.keySet()) {
+            categories.computeIfAbsent(category, key -> new PriceIndex());
+        }
+        byCategory.entrySet().parallelStream()
+                .forEach(entry -> categories.get(entry.getKey()).addAll(entry.getValue()));
+    }
+
+    /**
+     * Removes a product from its category, dropping the category once it is empty.
+     * @param product The product to remove (matched by category, price and SKU)
+     */
+    public void remove(Product product) {
+        checkWritable();
+        PriceIndex index = categories.get(product.getCategory());
+        if (index != null) {
+            index.remove(product);
+            if (index.size() == 0) {
+                categories.remove(product.getCategory());
+            }
+        }
+    }
+
+    /**
+     * Removes every product from the index.
+     */
+    public void clear() {
+        checkWritable();
+        categories.clear();
+    }
+
+    /**
+     * Returns a read-only view of the index as it is now. Each category's price index is
+     * snapshotted in O(1), so this costs O(categories).
+     * @return The snapshot; its add, remove and clear throw UnsupportedOperationException
+     */
+    public CategoryIndex snapshot() {
+        Map<String, PriceIndex> copy = new HashMap<>(categories.size() * 4 / 3 + 1);
+        for (Map.Entry<String, PriceIndex> entry : categories.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return new CategoryIndex(copy, true);
+    }
+
+    /**
+     * Returns the number of products in a category.
+     * @param category The category
+     * @return The number of products, 0 for an unknown category
+     */
+    public int count(String category) {
+        PriceIndex index = categories.get(category);
+        return index == null ? 0 : index.size();
+    }
+
+    /**
+     * Returns the number of products in every category, largest first.
+     * @return The counts by category
+     */
+    public Map<String, Integer> counts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<String, PriceIndex> entry : categories.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().size());
+        }
+        return sortByCount(counts);
+    }
+
+    /**
+     * Counts the products of each category in a result set, for example a name search.
+     * @param products The products to count
+     * @return The counts by category, largest first
+     */
+    public static Map<String, Integer> facetCounts(Iterable<Product> products) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Product product : products) {
+            counts.merge(product.getCategory(), 1, Integer::sum);
+        }
+        return sortByCount(counts);
+    }
+
+    /**
+     * Returns the k cheapest products of a category, cheapest first.
+     * @param category The category
+     * @param k The number of products to return
+     * @return Up to k products
+     */
+    public List<Product> cheapest(String category, int k) {
+        PriceIndex index = categories.get(category);
+        return index == null ? List.of() : index.cheapest(k);
+    }
+
+    /**
+     * Returns the k most expensive products of a category, most expensive first.
+     * @param category The category
+     * @param k The number of products to return
+     * @return Up to k products
+     */
+    public List<Product> mostExpensive(String category, int k) {
+        PriceIndex index = categories.get(category);
+        return index == null ? List.of() : index.mostExpensive(k);
+    }
+
+    /**
+     * Returns the products of a category whose current price lies in [min, max], cheapest first.
+     * @param category The category
+     * @param min The lowest price, inclusive
+     * @param max The highest price, inclusive
+     * @return The matching products
+     */
+    public List<Product> range(String category, double min, double max) {
+        PriceIndex index = categories.get(category);
+        return index == null ? List.of() : index.range(min, max);
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Category index snapshots are read-only");
+        }
+    }
+
+    private static Map<String, Integer> sortByCount(Map<String, Integer> counts) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        Map<String, Integer> sorted = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+        return Collections.unmodifiableMap(sorted);
+    }
+}
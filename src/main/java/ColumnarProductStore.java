@@ -0,0 +1,298 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact, read-only product catalog stored as parallel arrays (struct of arrays).
+ * Prices live in double arrays, categories are dictionary-encoded as ints, and SKUs and
+ * names are packed into one shared char buffer. Rows are kept in SKU order, so lookups
+ * are a binary search over the buffer. Product objects are only created on demand.
+ */
+public class ColumnarProductStore {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int size;
+    private final char[] text; // SKU then name of every row, back to back
+    private final int[] offsets; // offsets[2r] = SKU start, offsets[2r + 1] = name start, offsets[2r + 2] = next row
+    private final double[] pricesRetail;
+    private final double[] pricesCurrent;
+    private final int[] categoryCodes;
+    private final String[] categories; // category dictionary, indexed by code
+
+    private ColumnarProductStore(Builder builder) {
+        size = builder.size;
+        text = Arrays.copyOf(builder.text, builder.textLength);
+        offsets = Arrays.copyOf(builder.offsets, 2 * size + 1);
+        pricesRetail = Arrays.copyOf(builder.pricesRetail, size);
+        pricesCurrent = Arrays.copyOf(builder.pricesCurrent, size);
+        categoryCodes = Arrays.copyOf(builder.categoryCodes, size);
+        categories = new String[builder.categoryCodeOf.size()];
+        for (Map.Entry<String, Integer> entry : builder.categoryCodeOf.entrySet()) {
+            categories[entry.getValue()] = entry.getKey();
+        }
+    }
+
+    /**
+     * Builds a store from products given in strictly ascending SKU order
+     * (for example the in-order traversal of the product tree).
+     * @param products The products, in SKU order
+     * @return The store
+     * @throws IllegalArgumentException If the products are not in ascending SKU order
+     */
+    public static ColumnarProductStore from(Iterable<Product> products) {
+        Builder builder = new Builder();
+        for (Product product : products) {
+            builder.add(product);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of products in the store.
+     * @return The number of products
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the row holding the given SKU.
+     * @param sku The SKU to search for
+     * @return The row index, or -1 if the SKU is not in the store
+     */
+    public int find(String sku) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int compareResult = compareSku(mid, sku);
+            if (compareResult < 0) {
+                low = mid + 1;
+            } else if (compareResult > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Searches for a product by SKU and returns a view of it.
+     * @param sku The SKU to search for
+     * @return A view of the product if found, null otherwise
+     */
+    public ProductView searchBySKU(String sku) {
+        int row = find(sku);
+        return row < 0 ? null : new ProductView(this, row);
+    }
+
+    /**
+     * Returns a lightweight view of a row. The view holds only the store and the row index.
+     * @param row The row index
+     * @return The view
+     */
+    public ProductView view(int row) {
+        checkRow(row);
+        return new ProductView(this, row);
+    }
+
+    /**
+     * Materializes a row as a regular product.
+     * @param row The row index
+     * @return The product
+     */
+    public Product toProduct(int row) {
+        return new Product(sku(row), priceRetail(row), priceCurrent(row), productName(row), category(row));
+    }
+
+    // Column accessors
+    public String sku(int row) {
+        checkRow(row);
+        return new String(text, offsets[2 * row], offsets[2 * row + 1] - offsets[2 * row]);
+    }
+
+    public String productName(int row) {
+        checkRow(row);
+        return new String(text, offsets[2 * row + 1], offsets[2 * row + 2] - offsets[2 * row + 1]);
+    }
+
+    public String category(int row) {
+        checkRow(row);
+        return categories[categoryCodes[row]];
+    }
+
+    public int categoryCode(int row) {
+        checkRow(row);
+        return categoryCodes[row];
+    }
+
+    public double priceRetail(int row) {
+        checkRow(row);
+        return pricesRetail[row];
+    }
+
+    public double priceCurrent(int row) {
+        checkRow(row);
+        return pricesCurrent[row];
+    }
+
+    /**
+     * Returns the number of distinct categories.
+     * @return The dictionary size
+     */
+    public int categoryCount() {
+        return categories.length;
+    }
+
+    /**
+     * Estimates the heap used by the store's arrays and category dictionary
+     * (assuming 16-byte array headers and compact Latin-1 category strings).
+     * @return The estimated size in bytes
+     */
+    public long estimatedHeapBytes() {
+        long bytes = 16 + 2L * text.length;
+        bytes += 16 + 4L * offsets.length;
+        bytes += 2 * (16 + 8L * size);
+        bytes += 16 + 4L * size;
+        bytes += 16 + 4L * categories.length;
+        for (String category : categories) {
+            bytes += 24 + 16 + category.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Compares the SKU stored in a row with the given SKU, without allocating.
+     */
+    private int compareSku(int row, String sku) {
+        int start = offsets[2 * row];
+        int length = offsets[2 * row + 1] - start;
+        int limit = Math.min(length, sku.length());
+        for (int i = 0; i < limit; i++) {
+            int difference = text[start + i] - sku.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - sku.length();
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + size);
+        }
+    }
+
+    /**
+     * Flyweight view of one row. Getters read straight from the store's columns.
+     */
+    public static class ProductView {
+        private final ColumnarProductStore store;
+        private final int row;
+
+        private ProductView(ColumnarProductStore store, int row) {
+            this.store = store;
+            this.row = row;
+        }
+
+        // Getters
+        public int getRow() {
+            return row;
+        }
+
+        public String getSku() {
+            return store.sku(row);
+        }
+
+        public double getPriceRetail() {
+            return store.priceRetail(row);
+        }
+
+        public double getPriceCurrent() {
+            return store.priceCurrent(row);
+        }
+
+        public String getProductName() {
+            return store.productName(row);
+        }
+
+        public String getCategory() {
+            return store.category(row);
+        }
+
+        public Product toProduct() {
+            return store.toProduct(row);
+        }
+
+        @Override
+        public String toString() {
+            return toProduct().toString();
+        }
+    }
+
+    /**
+     * Accumulates rows in SKU order.
+     */
+    public static class Builder {
+        private int size;
+        private char[] text = new char[INITIAL_CAPACITY * 32];
+        private int textLength;
+        private int[] offsets = new int[2 * INITIAL_CAPACITY + 1];
+        private double[] pricesRetail = new double[INITIAL_CAPACITY];
+        private double[] pricesCurrent = new double[INITIAL_CAPACITY];
+        private int[] categoryCodes = new int[INITIAL_CAPACITY];
+        private final Map<String, Integer> categoryCodeOf = new HashMap<>();
+        private String lastSku;
+
+        /**
+         * Appends a product. Products must be added in strictly ascending SKU order.
+         * @param product The product to add
+         * @return This builder
+         */
+        public Builder add(Product product) {
+            String sku = product.getSku();
+            if (lastSku != null && lastSku.compareTo(sku) >= 0) {
+                throw new IllegalArgumentException("Products must be added in ascending SKU order: " + sku + " after " + lastSku);
+            }
+            lastSku = sku;
+
+            if (size == pricesCurrent.length) {
+                int capacity = size * 2;
+                offsets = Arrays.copyOf(offsets, 2 * capacity + 1);
+                pricesRetail = Arrays.copyOf(pricesRetail, capacity);
+                pricesCurrent = Arrays.copyOf(pricesCurrent, capacity);
+                categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+            }
+
+            offsets[2 * size] = textLength;
+            append(sku);
+            offsets[2 * size + 1] = textLength;
+            append(product.getProductName());
+            offsets[2 * size + 2] = textLength;
+
+            pricesRetail[size] = product.getPriceRetail();
+            pricesCurrent[size] = product.getPriceCurrent();
+            categoryCodes[size] = categoryCodeOf.computeIfAbsent(product.getCategory(), category -> categoryCodeOf.size());
+            size++;
+            return this;
+        }
+
+        private void append(String value) {
+            int needed = textLength + value.length();
+            if (needed > text.length) {
+                text = Arrays.copyOf(text, Math.max(needed, text.length * 2));
+            }
+            value.getChars(0, value.length(), text, textLength);
+            textLength = needed;
+        }
+
+        /**
+         * Builds the store, trimming all columns to size.
+         * @return The store
+         */
+        public ColumnarProductStore build() {
+            return new ColumnarProductStore(this);
+        }
+    }
+}
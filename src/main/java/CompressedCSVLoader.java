@@ -0,0 +1,281 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parses a compressed CSV file without decompressing it to disk first.
+ * The work is pipelined: a decompressor thread fills large blocks, a chunker thread cuts
+ * them into newline-aligned chunks, and parse workers decode and parse the chunks in
+ * parallel. The stages are connected by bounded queues, so a slow stage holds back the
+ * ones before it instead of letting decompressed data pile up in memory. Parsed chunks
+ * are handed back in file order, like {@link ParallelCSVLoader}.
+ *
+ * Gzip is decompressed with the JDK. Zstandard files are recognized but rejected, since
+ * the JDK has no zstd decoder. Uncompressed input is accepted as well.
+ */
+public class CompressedCSVLoader {
+    private static final int BLOCK_SIZE = 4 << 20; // decompressed bytes per block
+    private static final int INPUT_BUFFER_SIZE = 1 << 16;
+    private static final int QUEUE_CAPACITY = 4; // blocks waiting between decompressor and chunker
+
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1f, (byte) 0x8b};
+    private static final byte[] ZSTD_MAGIC = {(byte) 0x28, (byte) 0xb5, (byte) 0x2f, (byte) 0xfd};
+
+    // A block of decompressed bytes, the end-of-input marker, or a decompression failure
+    private static class Block {
+        static final Block END = new Block(null, 0, null);
+
+        final byte[] bytes;
+        final int length;
+        final IOException error;
+
+        Block(byte[] bytes, int length, IOException error) {
+            this.bytes = bytes;
+            this.length = length;
+            this.error = error;
+        }
+    }
+
+    private final int threads;
+
+    /**
+     * Creates a loader that uses one parse worker per available processor.
+     */
+    public CompressedCSVLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a loader with a fixed number of parse workers.
+     * @param threads Number of parse workers
+     */
+    public CompressedCSVLoader(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Checks whether a file starts with a gzip or zstd header.
+     * @param filePath The file
+     * @return True if the file is compressed
+     * @throws IOException If the file cannot be read
+     */
+    public static boolean isCompressed(Path filePath) throws IOException {
+        byte[] head = new byte[ZSTD_MAGIC.length];
+        int read;
+        try (InputStream in = Files.newInputStream(filePath)) {
+            read = in.readNBytes(head, 0, head.length);
+        }
+        return startsWith(head, read, GZIP_MAGIC) || startsWith(head, read, ZSTD_MAGIC);
+    }
+
+    /**
+     * Parses every data row of a compressed file. Column positions are taken from the header line.
+     * @param filePath Path to the compressed (or plain) CSV file
+     * @return The parsed chunks, in file order
+     * @throws IOException If an I/O error occurs, the file is corrupt or zstd-compressed,
+     *                     or the header is missing required columns
+     */
+    public List<ParallelCSVLoader.Chunk> parse(Path filePath) throws IOException {
+        try (InputStream in = Files.newInputStream(filePath)) {
+            return parse(in, filePath.toString());
+        }
+    }
+
+    /**
+     * Parses every data row of a compressed stream, for example one read from the network.
+     * @param input The compressed (or plain) CSV data; not closed
+     * @param name Name of the input, for error messages
+     * @return The parsed chunks, in input order
+     * @throws IOException If an I/O error occurs, the data is corrupt or zstd-compressed,
+     *                     or the header is missing required columns
+     */
+    public List<ParallelCSVLoader.Chunk> parse(InputStream input, String name) throws IOException {
+        InputStream in = decompressed(new BufferedInputStream(input, INPUT_BUFFER_SIZE), name);
+        BlockingQueue<Block> blocks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        // Enough chunks in flight to keep every worker busy, and no more
+        BlockingQueue<Future<ParallelCSVLoader.Chunk>> parsed = new ArrayBlockingQueue<>(2 * threads);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+
+        Thread decompressor = new Thread(() -> decompress(in, blocks), "csv-decompress");
+        Thread chunker = new Thread(() -> chunk(blocks, parsed, workers), "csv-chunk");
+        decompressor.setDaemon(true);
+        chunker.setDaemon(true);
+        decompressor.start();
+        chunker.start();
+
+        try {
+            List<ParallelCSVLoader.Chunk> chunks = new ArrayList<>();
+            while (true) {
+                Future<ParallelCSVLoader.Chunk> future = parsed.take();
+                ParallelCSVLoader.Chunk chunk = future.get();
+                if (chunk == null) {
+                    return chunks;
+                }
+                chunks.add(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + name, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException(name + ": " + cause.getMessage(), cause);
+            }
+            throw new IOException("Error loading " + name, cause);
+        } finally {
+            // On failure, unblock and stop the other stages
+            decompressor.interrupt();
+            chunker.interrupt();
+            workers.shutdownNow();
+        }
+    }
+
+    private static InputStream decompressed(InputStream in, String name) throws IOException {
+        in.mark(ZSTD_MAGIC.length);
+        byte[] head = in.readNBytes(ZSTD_MAGIC.length);
+        in.reset();
+        if (startsWith(head, head.length, GZIP_MAGIC)) {
+            return new GZIPInputStream(in, INPUT_BUFFER_SIZE);
+        }
+        if (startsWith(head, head.length, ZSTD_MAGIC)) {
+            throw new IOException(name + " is zstd-compressed, which is not supported; recompress it with gzip");
+        }
+        return in;
+    }
+
+    private static boolean startsWith(byte[] bytes, int length, byte[] prefix) {
+        return length >= prefix.length && Arrays.equals(bytes, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    /**
+     * Decompressor stage: fills blocks and queues them, ending with {@link Block#END}.
+     */
+    private static void decompress(InputStream in, BlockingQueue<Block> blocks) {
+        try {
+            while (true) {
+                byte[] bytes = new byte[BLOCK_SIZE];
+                int length = in.readNBytes(bytes, 0, bytes.length);
+                if (length > 0) {
+                    blocks.put(new Block(bytes, length, null));
+                }
+                if (length < bytes.length) {
+                    blocks.put(Block.END);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            try {
+                blocks.put(new Block(null, 0, e));
+            } catch (InterruptedException interrupted) {
+                // The consumer gave up; nobody is waiting for the error
+            }
+        } catch (InterruptedException e) {
+            // The consumer gave up; stop decompressing
+        }
+    }
+
+    /**
+     * Chunker stage: reads the header, cuts the blocks at their last newline (carrying the
+     * partial line over to the next chunk), and hands each chunk to a parse worker.
+     * Ends the queue of results with a chunk future completing to null.
+     */
+    private void chunk(BlockingQueue<Block> blocks, BlockingQueue<Future<ParallelCSVLoader.Chunk>> parsed, ExecutorService workers) {
+        try {
+            ProductCsvParser parser = null;
+            byte[] carry = new byte[0];
+            while (true) {
+                Block block = blocks.take();
+                if (block.error != null) {
+                    parsed.put(CompletableFuture.failedFuture(block.error));
+                    return;
+                }
+                boolean end = block == Block.END;
+
+                byte[] bytes = carry;
+                int length = carry.length;
+                if (!end) {
+                    bytes = Arrays.copyOf(carry, carry.length + block.length);
+                    System.arraycopy(block.bytes, 0, bytes, carry.length, block.length);
+                    length = bytes.length;
+                }
+
+                int start = 0;
+                if (parser == null) {
+                    int headerEnd = indexOf(bytes, 0, length, (byte) '\n');
+                    if (headerEnd < 0 && !end) {
+                        carry = bytes; // header still incomplete
+                        continue;
+                    }
+                    if (headerEnd < 0) {
+                        headerEnd = length;
+                    }
+                    if (length == 0) {
+                        parsed.put(CompletableFuture.completedFuture(null)); // empty input
+                        return;
+                    }
+                    String header = new String(bytes, 0, headerEnd, StandardCharsets.UTF_8).stripTrailing();
+                    try {
+                        parser = ProductCsvParser.fromHeader(header);
+                    } catch (IllegalArgumentException e) {
+                        parsed.put(CompletableFuture.failedFuture(new IOException(e.getMessage(), e)));
+                        return;
+                    }
+                    start = Math.min(length, headerEnd + 1);
+                }
+
+                // At the end everything left is one last chunk; otherwise stop after the last newline
+                int cut = end ? length : lastIndexOf(bytes, start, length, (byte) '\n') + 1;
+                if (cut > start) {
+                    ByteBuffer chunk = ByteBuffer.wrap(bytes, start, cut - start);
+                    ProductCsvParser rowParser = parser;
+                    parsed.put(workers.submit(() -> ParallelCSVLoader.parseChunk(chunk, rowParser)));
+                } else {
+                    cut = start;
+                }
+                if (end) {
+                    parsed.put(CompletableFuture.completedFuture(null));
+                    return;
+                }
+                carry = Arrays.copyOfRange(bytes, cut, length);
+            }
+        } catch (InterruptedException e) {
+            // The consumer gave up; stop chunking
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] bytes, int from, int to, byte value) {
+        for (int i = to - 1; i >= from; i--) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return from - 1;
+    }
+}
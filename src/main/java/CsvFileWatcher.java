@@ -0,0 +1,137 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Background refresher that watches a CSV file and applies its changes to a product manager.
+ * Bursts of file events (for example a scraper writing in several steps) are coalesced, and
+ * each refresh only applies the delta through {@link ProductManager#refreshFromCSV(String)}.
+ *
+ * Refreshes run on the watcher thread. The product manager publishes each one as a whole,
+ * so other threads can keep querying it while a refresh is applied.
+ */
+public class CsvFileWatcher implements Closeable {
+    private static final long DEFAULT_QUIET_PERIOD_MILLIS = 500;
+
+    private final ProductManager productManager;
+    private final Path csvPath;
+    private final Consumer<RefreshReport> listener;
+    private final long quietPeriodMillis;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * Starts watching a CSV file.
+     * @param productManager The product manager to refresh
+     * @param csvPath The CSV file to watch
+     * @param listener Called with every refresh that changed something or failed
+     * @throws IOException If the watch service cannot be created
+     */
+    public CsvFileWatcher(ProductManager productManager, Path csvPath, Consumer<RefreshReport> listener) throws IOException {
+        this(productManager, csvPath, listener, DEFAULT_QUIET_PERIOD_MILLIS);
+    }
+
+    /**
+     * Starts watching a CSV file.
+     * @param productManager The product manager to refresh
+     * @param csvPath The CSV file to watch
+     * @param listener Called with every refresh that changed something or failed
+     * @param quietPeriodMillis How long the file must stay quiet before refreshing
+     * @throws IOException If the watch service cannot be created
+     */
+    public CsvFileWatcher(ProductManager productManager, Path csvPath, Consumer<RefreshReport> listener, long quietPeriodMillis) throws IOException {
+        this.productManager = productManager;
+        this.csvPath = csvPath.toAbsolutePath().normalize();
+        this.listener = listener;
+        this.quietPeriodMillis = quietPeriodMillis;
+
+        watchService = FileSystems.getDefault().newWatchService();
+        this.csvPath.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        thread = new Thread(this::run, "csv-watcher-" + this.csvPath.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean relevant = drain(key);
+
+                // Wait until the file has been quiet for a while before refreshing
+                while (true) {
+                    WatchKey next = watchService.poll(quietPeriodMillis, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    relevant |= drain(next);
+                }
+
+                if (relevant) {
+                    refresh();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed; let the thread end
+        }
+    }
+
+    /**
+     * Consumes the events of a key and resets it.
+     * @return True if any event concerned the watched file
+     */
+    private boolean drain(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || (context instanceof Path && csvPath.getFileName().equals(context))) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    /**
+     * Applies the file's changes and reports them; a failure is reported to the listener
+     * too, and the watcher keeps running so a later fix of the file is picked up.
+     */
+    private void refresh() {
+        long start = System.nanoTime();
+        RefreshReport report;
+        try {
+            report = productManager.refreshFromCSV(csvPath.toString());
+        } catch (IOException | RuntimeException e) {
+            report = RefreshReport.failed(e, System.nanoTime() - start);
+        }
+        if (report.hasChanges() || report.getMode() == RefreshReport.Mode.FAILED) {
+            listener.accept(report);
+        }
+    }
+
+    /**
+     * Stops watching and waits for the watcher thread to finish.
+     * @throws IOException If the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Remembers how far into a CSV file rows have been applied, so a later refresh can
+ * tell whether the file was only appended to and, if so, read just the new rows.
+ * The prefix before the recorded offset is checksummed in 1 MB blocks. Each check reads
+ * the first and last block and a few strided blocks, rotating through the rest, so an
+ * append-only refresh costs O(appended rows) rather than O(file). Every
+ * {@value #FULL_CHECK_INTERVAL}th check reads the whole prefix, so a rewrite in the middle
+ * of the file is noticed within that many refreshes at the latest.
+ *
+ * Not thread-safe: checks advance a counter. {@link ProductManager} uses it under its lock.
+ */
+public class CsvIngestState {
+    static final int BLOCK_SIZE = 1 << 20; // the prefix is checksummed per 1 MB block
+    static final int SAMPLED_BLOCKS = 8; // strided blocks checked each time, besides the first and last
+    static final int FULL_CHECK_INTERVAL = 32; // every 32nd check reads the whole prefix
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    private final Path path;
+    private final long offset;
+    private final long[] blockCrcs; // CRC32C of each block of [0, offset), the last one possibly partial
+    private final ProductCsvParser parser;
+    private int checks;
+
+    private CsvIngestState(Path path, long offset, long[] blockCrcs, ProductCsvParser parser, int checks) {
+        this.path = path;
+        this.offset = offset;
+        this.blockCrcs = blockCrcs;
+        this.parser = parser;
+        this.checks = checks;
+    }
+
+    /**
+     * Records the state of a file whose complete lines up to the given size have been applied.
+     * @param path The CSV file
+     * @param channel An open channel on the file
+     * @param size The file size when the rows were read
+     * @return The state, or null if the file has no complete header line
+     * @throws IOException If an I/O error occurs
+     */
+    public static CsvIngestState capture(Path path, FileChannel channel, long size) throws IOException {
+        long headerEnd = nextLineStart(channel, 0, size);
+        if (headerEnd == 0 || headerEnd > size || read(channel, headerEnd - 1, 1)[0] != '\n') {
+            return null;
+        }
+        byte[] header = read(channel, 0, (int) Math.min(headerEnd, Integer.MAX_VALUE));
+        ProductCsvParser parser;
+        try {
+            parser = ProductCsvParser.fromHeader(new String(header, StandardCharsets.UTF_8).stripTrailing());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+
+        long offset = Math.max(headerEnd, lastLineEnd(channel, headerEnd, size));
+        return new CsvIngestState(path.toAbsolutePath().normalize(), offset, blockCrcs(channel, new long[0], 0, offset), parser, 0);
+    }
+
+    /**
+     * Returns the state after the rows in [offset, newOffset) have been applied.
+     * Only the new range and the partial block before it are read.
+     * @param channel An open channel on the file
+     * @param newOffset Offset just past the last applied line
+     * @return The new state
+     * @throws IOException If an I/O error occurs
+     */
+    public CsvIngestState advance(FileChannel channel, long newOffset) throws IOException {
+        return new CsvIngestState(path, newOffset, blockCrcs(channel, blockCrcs, offset, newOffset), parser, checks);
+    }
+
+    /**
+     * Checks whether the file still starts with the bytes this state was captured from,
+     * meaning anything past the offset was appended. Reads a sample of the prefix blocks,
+     * or all of them on every {@value #FULL_CHECK_INTERVAL}th check.
+     * @param path The CSV file
+     * @param channel An open channel on the file
+     * @return True if the file was only appended to, as far as the blocks read show
+     * @throws IOException If an I/O error occurs
+     */
+    public boolean isAppendOnly(Path path, FileChannel channel) throws IOException {
+        if (!this.path.equals(path.toAbsolutePath().normalize()) || channel.size() < offset) {
+            return false;
+        }
+        int blocks = blockCrcs.length;
+        checks++;
+        if (checks % FULL_CHECK_INTERVAL == 0) {
+            for (int b = 0; b < blocks; b++) {
+                if (!blockMatches(channel, b)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // The header and the rows just before the offset are the likeliest to be rewritten
+        if (!blockMatches(channel, 0) || !blockMatches(channel, blocks - 1)) {
+            return false;
+        }
+        // Shift the strided sample by one block per check, so consecutive checks cover every block
+        int stride = Math.max(1, blocks / SAMPLED_BLOCKS);
+        for (int b = checks % stride; b < blocks; b += stride) {
+            if (!blockMatches(channel, b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean blockMatches(FileChannel channel, int block) throws IOException {
+        long from = (long) block * BLOCK_SIZE;
+        return crc(channel, from, Math.min(offset, from + BLOCK_SIZE)) == blockCrcs[block];
+    }
+
+    /**
+     * Extends block checksums of [0, from) to [0, to), recomputing the partial block at from.
+     */
+    private static long[] blockCrcs(FileChannel channel, long[] previous, long from, long to) throws IOException {
+        int blocks = (int) ((to + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        long[] crcs = Arrays.copyOf(previous, blocks);
+        for (int b = (int) (from / BLOCK_SIZE); b < blocks; b++) {
+            long start = (long) b * BLOCK_SIZE;
+            crcs[b] = crc(channel, start, Math.min(to, start + BLOCK_SIZE));
+        }
+        return crcs;
+    }
+
+    // Getters
+    public long getOffset() {
+        return offset;
+    }
+
+    public ProductCsvParser getParser() {
+        return parser;
+    }
+
+    /**
+     * Finds the offset just past the last newline in [from, to).
+     * @return The offset, or from if there is no newline in the range
+     */
+    static long lastLineEnd(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long end = to;
+        while (end > from) {
+            int length = (int) Math.min(SCAN_BUFFER_SIZE, end - from);
+            long start = end - length;
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+                // keep reading until the block is complete
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return from;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position < end) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return end;
+    }
+
+    /**
+     * Computes the CRC32C of the bytes in [from, to), at most one block.
+     */
+    private static long crc(FileChannel channel, long from, long to) throws IOException {
+        CRC32C crc = new CRC32C();
+        if (to > from) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from));
+        }
+        return crc.getValue();
+    }
+
+    private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Summary of a CSV load: how many rows were accepted or rejected and how long it took.
+ */
+public class LoadReport {
+    private final long rowsLoaded;
+    private final long rowsRejected;
+    private final long elapsedNanos;
+
+    public LoadReport(long rowsLoaded, long rowsRejected, long elapsedNanos) {
+        this.rowsLoaded = rowsLoaded;
+        this.rowsRejected = rowsRejected;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Getters
+    public long getRowsLoaded() {
+        return rowsLoaded;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the ingest throughput, counting both accepted and rejected rows.
+     * @return Rows processed per second
+     */
+    public double getRowsPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0.0;
+        }
+        return (rowsLoaded + rowsRejected) * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows loaded, %d rejected in %.1f ms (%.0f rows/sec)",
+                rowsLoaded, rowsRejected, elapsedNanos / 1_000_000.0, getRowsPerSecond());
+    }
+}
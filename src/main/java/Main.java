@@ -1,10 +1,18 @@
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.Scanner;
+import javax.management.JMException;
 
 public class Main {
     public static void main(String[] args) {
         ProductManager productManager = new ProductManager();
+        CatalogMetrics metrics = productManager.enableMetrics();
+        try {
+            metrics.register(CatalogMetrics.DEFAULT_OBJECT_NAME);
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBean: " + e.getMessage());
+        }
         Scanner scanner = new Scanner(System.in);
 
         System.out.println("Product Search Program");
@@ -12,18 +20,50 @@ public class Main {
 
         // Usar datos.csv por defecto
         String filePath = "datos.csv";
+        String snapshotPath = filePath + ".snapshot";
         System.out.println("Usando el archivo: " + filePath);
 
-        // Load the products
+        // Load the products, from the snapshot if it is still current
         try {
             System.out.println("Loading products...");
-            productManager.loadProductsFromCSV(filePath);
-            System.out.println("Loaded " + productManager.getProductCount() + " products.");
+            long start = System.nanoTime();
+            if (productManager.loadSnapshot(snapshotPath, filePath)) {
+                System.out.printf("Loaded %d products from snapshot in %.1f ms.%n",
+                        productManager.getProductCount(), (System.nanoTime() - start) / 1_000_000.0);
+            } else {
+                LoadReport report = productManager.loadProductsFromCSVParallel(filePath);
+                System.out.println("Loaded " + productManager.getProductCount() + " products.");
+                System.out.println(report);
+                try {
+                    productManager.saveSnapshot(snapshotPath, filePath);
+                } catch (IOException | IllegalStateException e) {
+                    System.err.println("Could not save snapshot: " + e.getMessage());
+                }
+            }
         } catch (IOException e) {
             System.err.println("Error loading products: " + e.getMessage());
             return;
         }
 
+        // With --server [port], serve the catalog over HTTP instead of showing the menu
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = 8080;
+            if (args.length > 1) {
+                try {
+                    port = Integer.parseInt(args[1]);
+                } catch (NumberFormatException e) {
+                    port = -1;
+                }
+                if (port < 0 || port > 65535) {
+                    System.err.println("Invalid port: " + args[1]);
+                    System.err.println("Usage: java Main [--server [port]]");
+                    return;
+                }
+            }
+            serve(productManager, port);
+            return;
+        }
+
         // Main loop
         boolean running = true;
         while (running) {
@@ -31,7 +71,9 @@ public class Main {
             System.out.println("1. Search for a product by SKU");
             System.out.println("2. List products by price (ascending)");
             System.out.println("3. List products by price (descending)");
-            System.out.println("4. Exit");
+            System.out.println("4. Search products by name");
+            System.out.println("5. Show metrics");
+            System.out.println("6. Exit");
             System.out.print("Enter your choice: ");
 
             String choice = scanner.nextLine();
@@ -47,6 +89,13 @@ public class Main {
                     listProducts(productManager, false);
                     break;
                 case "4":
+                    searchByName(productManager, scanner);
+                    break;
+                case "5":
+                    System.out.println();
+                    System.out.println(metrics.dump());
+                    break;
+                case "6":
                     running = false;
                     break;
                 default:
@@ -57,6 +106,25 @@ public class Main {
         scanner.close();
     }
 
+    /**
+     * Serves the catalog over HTTP until the process is stopped.
+     * @param productManager The product manager
+     * @param port The port to listen on
+     */
+    private static void serve(ProductManager productManager, int port) {
+        try {
+            ProductHttpServer server = new ProductHttpServer(productManager, new InetSocketAddress(port));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            server.start();
+            System.out.println("Serving products on http://localhost:" + server.getPort() + "/products/{sku}");
+            Thread.currentThread().join();
+        } catch (IOException e) {
+            System.err.println("Could not start server: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Handles the product search functionality.
      * @param productManager The product manager
@@ -80,23 +148,60 @@ public class Main {
         }
     }
 
+    /**
+     * Handles the product name search functionality.
+     * @param productManager The product manager
+     * @param scanner The scanner for user input
+     */
+    private static void searchByName(ProductManager productManager, Scanner scanner) {
+        System.out.print("Enter words from the product name: ");
+        String query = scanner.nextLine();
+
+        List<Product> products = productManager.searchByNamePrefix(query, 20);
+        if (products.isEmpty()) {
+            System.out.println("No products found.");
+            List<String> suggestions = productManager.autocomplete(query, 5);
+            if (!suggestions.isEmpty()) {
+                System.out.println("Did you mean: " + String.join(", ", suggestions));
+            }
+            return;
+        }
+
+        System.out.println("\nMatching products:");
+        printProducts(products);
+    }
+
     /**
      * Lists the products sorted by price.
      * @param productManager The product manager
      * @param ascending True for ascending order, false for descending
      */
     private static void listProducts(ProductManager productManager, boolean ascending) {
+        // Show only first 20 products to avoid flooding the console
+        int limit = 20;
         List<Product> products;
 
         if (ascending) {
             System.out.println("\nProducts sorted by price (ascending):");
-            products = productManager.listProductsByPriceAscending();
+            products = productManager.cheapest(limit);
         } else {
             System.out.println("\nProducts sorted by price (descending):");
-            products = productManager.listProductsByPriceDescending();
+            products = productManager.mostExpensive(limit);
         }
 
-        int count = 0;
+        printProducts(products);
+
+        int remaining = productManager.getProductCount() - products.size();
+        if (remaining > 0) {
+            System.out.println("... and " + remaining + " more products.");
+        }
+    }
+
+    /**
+     * Prints one line per product.
+     * @param products The products to print
+     */
+    private static void printProducts(List<Product> products) {
         for (Product product : products) {
             System.out.printf("%-20s | %-40s | $%-10.2f | $%-10.2f | %s%n",
                     product.getSku(),
@@ -104,13 +209,6 @@ public class Main {
                     product.getPriceRetail(),
                     product.getPriceCurrent(),
                     product.getCategory());
-
-            count++;
-            // Show only first 20 products to avoid flooding the console
-            if (count >= 20) {
-                System.out.println("... and " + (products.size() - 20) + " more products.");
-                break;
-            }
         }
     }
 
@@ -0,0 +1,642 @@
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only product catalog stored outside the Java heap, in a {@link MemorySegment}.
+ * Each product is a fixed-width record (prices, category code, and the offset of its SKU
+ * and name in a UTF-8 string arena), and the records are sorted by SKU, so they double as
+ * the SKU index: lookups are a binary search over the segment. A second section holds the
+ * rows in price order for listings. Only the category dictionary lives on the heap, so the
+ * garbage collector has almost nothing to trace however large the catalog is.
+ *
+ * The segment is laid out exactly like the file written by {@link #write(Path)}, so
+ * {@link #open(Path)} just maps the file and the page cache holds the catalog.
+ *
+ * Layout: a 64-byte header, the records, the price order (int rows), the string arena,
+ * and the category dictionary (int byte length and UTF-8 bytes per category).
+ */
+public class OffHeapProductStore implements Iterable<OffHeapProductStore.ProductView>, AutoCloseable {
+    private static final long MAGIC = 0x4854374F46464831L; // "HT7OFFH1"
+    private static final int HEADER_SIZE = 64;
+
+    // Header fields
+    private static final long ROWS = 8;
+    private static final long CATEGORY_COUNT = 12;
+    private static final long PRICE_ORDER_START = 16;
+    private static final long TEXT_START = 24;
+    private static final long CATEGORIES_START = 32;
+    private static final long TOTAL_SIZE = 40;
+
+    // Record fields
+    private static final int RECORD_SIZE = 40;
+    private static final long TEXT_OFFSET = 0; // long: SKU start in the arena, the name follows it
+    private static final long SKU_LENGTH = 8; // int: SKU bytes
+    private static final long NAME_LENGTH = 12; // int: name bytes
+    private static final long PRICE_RETAIL = 16; // double
+    private static final long PRICE_CURRENT = 24; // double
+    private static final long CATEGORY_CODE = 32; // int, then 4 bytes of padding
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED;
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED;
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE_UNALIGNED;
+
+    private final MemorySegment segment;
+    private final Arena ownedArena; // closed with the store, or null if the caller owns the arena
+    private final int size;
+    private final long priceOrderStart;
+    private final long textStart;
+    private final String[] categories;
+
+    private OffHeapProductStore(MemorySegment segment, Arena ownedArena) {
+        this.segment = segment;
+        this.ownedArena = ownedArena;
+        size = segment.get(INT, ROWS);
+        priceOrderStart = segment.get(LONG, PRICE_ORDER_START);
+        textStart = segment.get(LONG, TEXT_START);
+
+        categories = new String[segment.get(INT, CATEGORY_COUNT)];
+        long position = segment.get(LONG, CATEGORIES_START);
+        for (int i = 0; i < categories.length; i++) {
+            int length = segment.get(INT, position);
+            categories[i] = readString(position + 4, length);
+            position += 4 + length;
+        }
+    }
+
+    /**
+     * Builds a store in its own shared arena from products given in strictly ascending
+     * SKU order, for example the products of a {@link SkuIndex}.
+     * @param products The products, in SKU order
+     * @return The store; close it to free the memory
+     * @throws IllegalArgumentException If the products are not in ascending SKU order
+     */
+    public static OffHeapProductStore from(Iterable<Product> products) {
+        Builder builder = new Builder();
+        for (Product product : products) {
+            builder.add(product);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Maps a store written by {@link #write(Path)}. Nothing is copied onto the heap
+     * except the category dictionary, but every record is bounds-checked once, so a
+     * truncated or corrupt file fails here rather than on some later read.
+     * @param path The file
+     * @return The store; close it to unmap the file
+     * @throws IOException If the file cannot be mapped or is not a valid store
+     */
+    public static OffHeapProductStore open(Path path) throws IOException {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MemorySegment mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            checkHeader(mapped, path);
+            checkBody(mapped, path);
+            return new OffHeapProductStore(mapped, arena);
+        } catch (IOException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    private static void checkHeader(MemorySegment segment, Path path) throws IOException {
+        if (segment.byteSize() < HEADER_SIZE || segment.get(LONG, 0) != MAGIC) {
+            throw new IOException("Not an off-heap product store: " + path);
+        }
+        int rows = segment.get(INT, ROWS);
+        long priceOrderStart = segment.get(LONG, PRICE_ORDER_START);
+        long textStart = segment.get(LONG, TEXT_START);
+        long categoriesStart = segment.get(LONG, CATEGORIES_START);
+        if (rows < 0 || segment.get(LONG, TOTAL_SIZE) != segment.byteSize()
+                || priceOrderStart != HEADER_SIZE + (long) RECORD_SIZE * rows
+                || textStart != priceOrderStart + 4L * rows
+                || categoriesStart < textStart || categoriesStart > segment.byteSize()) {
+            throw new IOException("Corrupt off-heap product store header: " + path);
+        }
+    }
+
+    /**
+     * Checks that every offset and length in the file stays inside its section: the
+     * category dictionary, each record's text and category code, and the price order, which
+     * must list every row once. Reads the whole file once; accessors then never go out of bounds.
+     */
+    private static void checkBody(MemorySegment segment, Path path) throws IOException {
+        int rows = segment.get(INT, ROWS);
+        int categoryCount = segment.get(INT, CATEGORY_COUNT);
+        long priceOrderStart = segment.get(LONG, PRICE_ORDER_START);
+        long textStart = segment.get(LONG, TEXT_START);
+        long categoriesStart = segment.get(LONG, CATEGORIES_START);
+        long textLength = categoriesStart - textStart;
+
+        long position = categoriesStart;
+        for (int i = 0; i < categoryCount; i++) {
+            if (position + 4 > segment.byteSize()) {
+                throw new IOException("Category dictionary runs past the end of " + path);
+            }
+            int length = segment.get(INT, position);
+            if (length < 0 || position + 4 + length > segment.byteSize()) {
+                throw new IOException("Corrupt category " + i + " in " + path);
+            }
+            position += 4 + length;
+        }
+        if (categoryCount < 0 || position != segment.byteSize()) {
+            throw new IOException("Corrupt category dictionary in " + path);
+        }
+
+        for (int row = 0; row < rows; row++) {
+            long record = HEADER_SIZE + (long) RECORD_SIZE * row;
+            long textOffset = segment.get(LONG, record + TEXT_OFFSET);
+            int skuLength = segment.get(INT, record + SKU_LENGTH);
+            int nameLength = segment.get(INT, record + NAME_LENGTH);
+            int categoryCode = segment.get(INT, record + CATEGORY_CODE);
+            if (textOffset < 0 || skuLength < 0 || nameLength < 0
+                    || textOffset + skuLength + nameLength > textLength
+                    || categoryCode < 0 || categoryCode >= categoryCount) {
+                throw new IOException("Corrupt record " + row + " in " + path);
+            }
+        }
+
+        BitSet listed = new BitSet(rows);
+        for (int i = 0; i < rows; i++) {
+            int row = segment.get(INT, priceOrderStart + 4L * i);
+            if (row < 0 || row >= rows || listed.get(row)) {
+                throw new IOException("Corrupt price order at position " + i + " in " + path);
+            }
+            listed.set(row);
+        }
+    }
+
+    /**
+     * Writes the store to a file that {@link #open(Path)} can map.
+     * @param path The file to write
+     * @throws IOException If an I/O error occurs
+     */
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Arena arena = Arena.ofConfined()) {
+            MemorySegment mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segment.byteSize(), arena);
+            MemorySegment.copy(segment, 0, mapped, 0, segment.byteSize());
+            mapped.force();
+        }
+    }
+
+    /**
+     * Frees the memory (or unmaps the file) if the store owns its arena.
+     * The store and its views must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (ownedArena != null) {
+            ownedArena.close();
+        }
+    }
+
+    /**
+     * Returns the number of products in the store.
+     * @return The number of products
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the size of the store outside the heap.
+     * @return The size in bytes
+     */
+    public long byteSize() {
+        return segment.byteSize();
+    }
+
+    /**
+     * Finds the row holding the given SKU.
+     * @param sku The SKU to search for
+     * @return The row index, or -1 if the SKU is not in the store
+     */
+    public int find(String sku) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int compareResult = compareSku(mid, sku);
+            if (compareResult < 0) {
+                low = mid + 1;
+            } else if (compareResult > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Searches for a product by SKU and returns a view of it.
+     * @param sku The SKU to search for
+     * @return A view of the product if found, null otherwise
+     */
+    public ProductView searchBySKU(String sku) {
+        int row = find(sku);
+        return row < 0 ? null : new ProductView(this, row);
+    }
+
+    /**
+     * Returns a lightweight view of a row. The view holds only the store and the row index.
+     * @param row The row index
+     * @return The view
+     */
+    public ProductView view(int row) {
+        record(row); // bounds check
+        return new ProductView(this, row);
+    }
+
+    /**
+     * Materializes a row as a regular product.
+     * @param row The row index
+     * @return The product
+     */
+    public Product toProduct(int row) {
+        return new Product(sku(row), priceRetail(row), priceCurrent(row), productName(row), category(row));
+    }
+
+    /**
+     * Iterates the products in SKU order.
+     * @return The iterator
+     */
+    @Override
+    public Iterator<ProductView> iterator() {
+        return new ViewIterator(false);
+    }
+
+    /**
+     * Iterates the products from cheapest to most expensive, ties in SKU order.
+     * @return The iterator
+     */
+    public Iterator<ProductView> priceAscending() {
+        return new ViewIterator(true);
+    }
+
+    /**
+     * Iterates the products from most expensive to cheapest, ties in SKU order like
+     * {@link PriceIndex#descendingIterator()}.
+     * @return The iterator
+     */
+    public Iterator<ProductView> priceDescending() {
+        return new PriceDescendingIterator();
+    }
+
+    // Column accessors
+    public String sku(int row) {
+        long record = record(row);
+        return readString(textStart + segment.get(LONG, record + TEXT_OFFSET), segment.get(INT, record + SKU_LENGTH));
+    }
+
+    public String productName(int row) {
+        long record = record(row);
+        long start = textStart + segment.get(LONG, record + TEXT_OFFSET) + segment.get(INT, record + SKU_LENGTH);
+        return readString(start, segment.get(INT, record + NAME_LENGTH));
+    }
+
+    public String category(int row) {
+        return categories[categoryCode(row)];
+    }
+
+    public int categoryCode(int row) {
+        return segment.get(INT, record(row) + CATEGORY_CODE);
+    }
+
+    public double priceRetail(int row) {
+        return segment.get(DOUBLE, record(row) + PRICE_RETAIL);
+    }
+
+    public double priceCurrent(int row) {
+        return segment.get(DOUBLE, record(row) + PRICE_CURRENT);
+    }
+
+    /**
+     * Returns the number of distinct categories.
+     * @return The dictionary size
+     */
+    public int categoryCount() {
+        return categories.length;
+    }
+
+    /**
+     * Compares the SKU stored in a row with the given SKU like {@link String#compareTo}.
+     * ASCII SKUs are compared byte by byte without allocating.
+     */
+    private int compareSku(int row, String sku) {
+        long record = record(row);
+        long start = textStart + segment.get(LONG, record + TEXT_OFFSET);
+        int length = segment.get(INT, record + SKU_LENGTH);
+        int limit = Math.min(length, sku.length());
+        for (int i = 0; i < limit; i++) {
+            int stored = segment.get(ValueLayout.JAVA_BYTE, start + i);
+            char probe = sku.charAt(i);
+            if (stored < 0 || probe >= 0x80) {
+                // Non-ASCII: UTF-8 byte order differs from UTF-16 order, so compare decoded
+                return readString(start, length).compareTo(sku);
+            }
+            if (stored != probe) {
+                return stored - probe;
+            }
+        }
+        // All bytes compared so far were single characters, so the byte length decides
+        return length - sku.length();
+    }
+
+    private String readString(long offset, int length) {
+        byte[] bytes = new byte[length];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, offset, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long record(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + size);
+        }
+        return HEADER_SIZE + (long) RECORD_SIZE * row;
+    }
+
+    // Walks the rows in SKU order or in ascending price order
+    private class ViewIterator implements Iterator<ProductView> {
+        private final boolean byPrice;
+        private int position;
+
+        ViewIterator(boolean byPrice) {
+            this.byPrice = byPrice;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < size;
+        }
+
+        @Override
+        public ProductView next() {
+            if (position >= size) {
+                throw new NoSuchElementException();
+            }
+            int index = position++;
+            int row = byPrice ? segment.get(INT, priceOrderStart + 4L * index) : index;
+            return new ProductView(OffHeapProductStore.this, row);
+        }
+    }
+
+    // Walks the price order backwards one run of equal prices at a time, each run forwards
+    private class PriceDescendingIterator implements Iterator<ProductView> {
+        private int runStart = size; // price order positions [runStart, runEnd) hold the current run
+        private int runEnd = size;
+        private int position = size;
+
+        @Override
+        public boolean hasNext() {
+            return position < runEnd || runStart > 0;
+        }
+
+        @Override
+        public ProductView next() {
+            if (position >= runEnd) {
+                if (runStart == 0) {
+                    throw new NoSuchElementException();
+                }
+                runEnd = runStart;
+                runStart = firstAtPrice(priceCurrent(rowAt(runEnd - 1)), runEnd - 1);
+                position = runStart;
+            }
+            return new ProductView(OffHeapProductStore.this, rowAt(position++));
+        }
+
+        /**
+         * Binary searches the price order for the first position at or before high with the price.
+         */
+        private int firstAtPrice(double price, int high) {
+            int low = 0;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (Double.compare(priceCurrent(rowAt(mid)), price) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int rowAt(int position) {
+            return segment.get(INT, priceOrderStart + 4L * position);
+        }
+    }
+
+    /**
+     * Flyweight view of one row. Getters read straight from the segment.
+     */
+    public static class ProductView {
+        private final OffHeapProductStore store;
+        private final int row;
+
+        private ProductView(OffHeapProductStore store, int row) {
+            this.store = store;
+            this.row = row;
+        }
+
+        // Getters
+        public int getRow() {
+            return row;
+        }
+
+        public String getSku() {
+            return store.sku(row);
+        }
+
+        public double getPriceRetail() {
+            return store.priceRetail(row);
+        }
+
+        public double getPriceCurrent() {
+            return store.priceCurrent(row);
+        }
+
+        public String getProductName() {
+            return store.productName(row);
+        }
+
+        public String getCategory() {
+            return store.category(row);
+        }
+
+        public Product toProduct() {
+            return store.toProduct(row);
+        }
+
+        @Override
+        public String toString() {
+            return toProduct().toString();
+        }
+    }
+
+    /**
+     * Accumulates rows in SKU order. Records and strings are staged off the heap too, in
+     * segments that grow by doubling; only the price sort needs a temporary int per row.
+     */
+    public static class Builder {
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final Arena staging = Arena.ofAuto(); // freed by the GC once the builder is dropped
+        private MemorySegment records = staging.allocate((long) RECORD_SIZE * INITIAL_CAPACITY, 8);
+        private MemorySegment text = staging.allocate(32L * INITIAL_CAPACITY, 8);
+        private int size;
+        private long textLength;
+        private final Map<String, Integer> categoryCodeOf = new HashMap<>();
+        private String lastSku;
+
+        /**
+         * Appends a product. Products must be added in strictly ascending SKU order.
+         * @param product The product to add
+         * @return This builder
+         */
+        public Builder add(Product product) {
+            String sku = product.getSku();
+            if (lastSku != null && lastSku.compareTo(sku) >= 0) {
+                throw new IllegalArgumentException("Products must be added in ascending SKU order: " + sku + " after " + lastSku);
+            }
+            lastSku = sku;
+
+            byte[] skuBytes = sku.getBytes(StandardCharsets.UTF_8);
+            byte[] nameBytes = product.getProductName().getBytes(StandardCharsets.UTF_8);
+            long record = (long) RECORD_SIZE * size;
+            if (record + RECORD_SIZE > records.byteSize()) {
+                records = grow(records, record + RECORD_SIZE);
+            }
+            if (textLength + skuBytes.length + nameBytes.length > text.byteSize()) {
+                text = grow(text, textLength + skuBytes.length + nameBytes.length);
+            }
+
+            records.set(LONG, record + TEXT_OFFSET, textLength);
+            records.set(INT, record + SKU_LENGTH, skuBytes.length);
+            records.set(INT, record + NAME_LENGTH, nameBytes.length);
+            records.set(DOUBLE, record + PRICE_RETAIL, product.getPriceRetail());
+            records.set(DOUBLE, record + PRICE_CURRENT, product.getPriceCurrent());
+            records.set(INT, record + CATEGORY_CODE, categoryCodeOf.computeIfAbsent(product.getCategory(), category -> categoryCodeOf.size()));
+            MemorySegment.copy(skuBytes, 0, text, ValueLayout.JAVA_BYTE, textLength, skuBytes.length);
+            MemorySegment.copy(nameBytes, 0, text, ValueLayout.JAVA_BYTE, textLength + skuBytes.length, nameBytes.length);
+            textLength += skuBytes.length + nameBytes.length;
+            size++;
+            return this;
+        }
+
+        private MemorySegment grow(MemorySegment current, long needed) {
+            MemorySegment grown = staging.allocate(Math.max(needed, current.byteSize() * 2), 8);
+            MemorySegment.copy(current, 0, grown, 0, current.byteSize());
+            return grown;
+        }
+
+        /**
+         * Builds the store in its own shared arena.
+         * @return The store; close it to free the memory
+         */
+        public OffHeapProductStore build() {
+            Arena arena = Arena.ofShared();
+            try {
+                return new OffHeapProductStore(layOut(arena), arena);
+            } catch (RuntimeException e) {
+                arena.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Builds the store in the given arena, which the caller closes.
+         * @param arena The arena to allocate the store in
+         * @return The store
+         */
+        public OffHeapProductStore build(Arena arena) {
+            return new OffHeapProductStore(layOut(arena), null);
+        }
+
+        private MemorySegment layOut(Arena arena) {
+            String[] categories = new String[categoryCodeOf.size()];
+            for (Map.Entry<String, Integer> entry : categoryCodeOf.entrySet()) {
+                categories[entry.getValue()] = entry.getKey();
+            }
+            long categoriesLength = 0;
+            byte[][] categoryBytes = new byte[categories.length][];
+            for (int i = 0; i < categories.length; i++) {
+                categoryBytes[i] = categories[i].getBytes(StandardCharsets.UTF_8);
+                categoriesLength += 4 + categoryBytes[i].length;
+            }
+
+            long recordsLength = (long) RECORD_SIZE * size;
+            long priceOrderStart = HEADER_SIZE + recordsLength;
+            long textStart = priceOrderStart + 4L * size;
+            long categoriesStart = textStart + textLength;
+            long totalSize = categoriesStart + categoriesLength;
+
+            MemorySegment segment = arena.allocate(totalSize, 8);
+            segment.set(LONG, 0, MAGIC);
+            segment.set(INT, ROWS, size);
+            segment.set(INT, CATEGORY_COUNT, categories.length);
+            segment.set(LONG, PRICE_ORDER_START, priceOrderStart);
+            segment.set(LONG, TEXT_START, textStart);
+            segment.set(LONG, CATEGORIES_START, categoriesStart);
+            segment.set(LONG, TOTAL_SIZE, totalSize);
+            MemorySegment.copy(records, 0, segment, HEADER_SIZE, recordsLength);
+            MemorySegment.copy(text, 0, segment, textStart, textLength);
+
+            int[] priceOrder = priceOrder();
+            MemorySegment.copy(priceOrder, 0, segment, INT, priceOrderStart, size);
+
+            long position = categoriesStart;
+            for (byte[] bytes : categoryBytes) {
+                segment.set(INT, position, bytes.length);
+                MemorySegment.copy(bytes, 0, segment, ValueLayout.JAVA_BYTE, position + 4, bytes.length);
+                position += 4 + bytes.length;
+            }
+            return segment;
+        }
+
+        /**
+         * Sorts the rows by current price with a bottom-up merge sort. Rows are in SKU
+         * order, so breaking ties by row number breaks them by SKU like {@link PriceIndex}.
+         */
+        private int[] priceOrder() {
+            int[] rows = new int[size];
+            for (int i = 0; i < size; i++) {
+                rows[i] = i;
+            }
+            int[] buffer = new int[size];
+            for (int width = 1; width < size; width *= 2) {
+                for (int from = 0; from < size - width; from += 2 * width) {
+                    int middle = from + width;
+                    int to = (int) Math.min((long) from + 2 * width, size);
+                    int left = from;
+                    int right = middle;
+                    for (int out = from; out < to; out++) {
+                        if (right >= to || (left < middle && Double.compare(priceOf(rows[left]), priceOf(rows[right])) <= 0)) {
+                            buffer[out] = rows[left++];
+                        } else {
+                            buffer[out] = rows[right++];
+                        }
+                    }
+                    System.arraycopy(buffer, from, rows, from, to - from);
+                }
+            }
+            return rows;
+        }
+
+        private double priceOf(int row) {
+            return records.get(DOUBLE, (long) RECORD_SIZE * row + PRICE_CURRENT);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+import java.util.List;
+
+/**
+ * One page of a listing, plus the cursor to fetch the next page.
+ */
+public class Page {
+    private final List<Product> products;
+    private final String nextCursor;
+
+    public Page(List<Product> products, String nextCursor) {
+        this.products = products;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    /**
+     * Returns the opaque cursor for the next page.
+     * @return The cursor, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Checks if there are more products after this page.
+     * @return True if there is a next page
+     */
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,112 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque, resumable position in a listing.
+ * A cursor remembers the last product returned (its SKU, and its price for price-ordered
+ * listings) rather than an offset, so it stays valid while products are added or removed.
+ */
+public class PageCursor {
+    public enum Order {
+        SKU, PRICE_ASCENDING, PRICE_DESCENDING
+    }
+
+    private static final char SEPARATOR = '\u0000';
+
+    private final Order order;
+    private final double price;
+    private final String sku;
+
+    private PageCursor(Order order, double price, String sku) {
+        this.order = order;
+        this.price = price;
+        this.sku = sku;
+    }
+
+    /**
+     * Creates a cursor positioned after the given SKU in SKU order.
+     * @param sku The last SKU already seen
+     * @return The encoded cursor
+     */
+    public static String afterSku(String sku) {
+        return new PageCursor(Order.SKU, 0, sku).encode();
+    }
+
+    /**
+     * Creates a cursor positioned after the given product in price order.
+     * @param order PRICE_ASCENDING or PRICE_DESCENDING
+     * @param price The price of the last product already seen
+     * @param sku The SKU of the last product already seen
+     * @return The encoded cursor
+     */
+    public static String afterPrice(Order order, double price, String sku) {
+        if (order == Order.SKU) {
+            throw new IllegalArgumentException("Use afterSku for SKU-ordered listings");
+        }
+        return new PageCursor(order, price, sku).encode();
+    }
+
+    /**
+     * Creates a cursor positioned after the given product.
+     * @param order The listing order
+     * @param product The last product already seen
+     * @return The encoded cursor
+     */
+    static String after(Order order, Product product) {
+        return new PageCursor(order, product.getPriceCurrent(), product.getSku()).encode();
+    }
+
+    /**
+     * Decodes a cursor and checks that it belongs to a listing with the given order.
+     * @param cursor The encoded cursor
+     * @param expected The order of the listing being paged
+     * @return The decoded cursor
+     * @throws IllegalArgumentException If the cursor is malformed or belongs to another order
+     */
+    static PageCursor decode(String cursor, Order expected) {
+        String text;
+        try {
+            text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed page cursor: " + cursor, e);
+        }
+
+        int first = text.indexOf(SEPARATOR);
+        int second = first < 0 ? -1 : text.indexOf(SEPARATOR, first + 1);
+        if (second < 0) {
+            throw new IllegalArgumentException("Malformed page cursor: " + cursor);
+        }
+
+        Order order;
+        double price;
+        try {
+            order = Order.valueOf(text.substring(0, first));
+            price = Double.longBitsToDouble(Long.parseUnsignedLong(text.substring(first + 1, second), 16));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed page cursor: " + cursor, e);
+        }
+        if (order != expected) {
+            throw new IllegalArgumentException("Page cursor is for " + order + " order, not " + expected);
+        }
+        return new PageCursor(order, price, text.substring(second + 1));
+    }
+
+    private String encode() {
+        // The price is stored as raw bits so it round-trips exactly
+        String text = order.name() + SEPARATOR + Long.toHexString(Double.doubleToLongBits(price)) + SEPARATOR + sku;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Getters
+    public Order getOrder() {
+        return order;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public String getSku() {
+        return sku;
+    }
+}
@@ -0,0 +1,214 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses a CSV file in parallel.
+ * The file is memory-mapped and split into newline-aligned chunks, each chunk is parsed
+ * on its own worker, and the parsed rows are handed back in file order so the caller can
+ * apply them with the same last-write-wins semantics as a sequential read.
+ */
+public class ParallelCSVLoader {
+    private static final int MIN_CHUNK_SIZE = 1 << 20; // 1 MB
+    private static final int MAX_CHUNK_SIZE = 64 << 20; // 64 MB, well below the 2 GB mapping limit
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    /**
+     * The parsed rows of one chunk, in file order.
+     */
+    public static class Chunk {
+        private final List<Product> products;
+        private final long rejected;
+
+        public Chunk(List<Product> products, long rejected) {
+            this.products = products;
+            this.rejected = rejected;
+        }
+
+        public List<Product> getProducts() {
+            return products;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+    }
+
+    private final int threads;
+
+    /**
+     * Creates a loader that uses one worker per available processor.
+     */
+    public ParallelCSVLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a loader with a fixed number of workers.
+     * @param threads Number of parse workers
+     */
+    public ParallelCSVLoader(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Parses every data row of the file. Column positions are taken from the header line.
+     * @param filePath Path to the CSV file
+     * @return The parsed chunks, in file order
+     * @throws IOException If an I/O error occurs or the header is missing required columns
+     */
+    public List<Chunk> parse(Path filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long dataStart = nextLineStart(channel, 0, fileSize);
+            if (dataStart == 0) {
+                return new ArrayList<>();
+            }
+            ProductCsvParser parser = readHeader(channel, dataStart);
+            List<long[]> ranges = splitIntoChunks(channel, dataStart, fileSize);
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, ranges.size())));
+            try {
+                List<Future<Chunk>> futures = new ArrayList<>(ranges.size());
+                for (long[] range : ranges) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+                    futures.add(executor.submit(() -> parseChunk(buffer, parser)));
+                }
+
+                List<Chunk> chunks = new ArrayList<>(futures.size());
+                for (Future<Chunk> future : futures) {
+                    chunks.add(future.get());
+                }
+                return chunks;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading " + filePath, e);
+            } catch (ExecutionException e) {
+                throw new IOException("Error loading " + filePath, e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Builds a parser from the header line occupying [0, headerEnd).
+     * @param channel The file channel
+     * @param headerEnd Offset just past the header line
+     * @return The parser
+     * @throws IOException If an I/O error occurs or the header is missing required columns
+     */
+    private static ProductCsvParser readHeader(FileChannel channel, long headerEnd) throws IOException {
+        if (headerEnd > MAX_CHUNK_SIZE) {
+            throw new IOException("CSV header line is too long");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) headerEnd);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // keep reading until the whole header is in the buffer
+        }
+        buffer.flip();
+        String header = StandardCharsets.UTF_8.decode(buffer).toString().stripTrailing();
+        try {
+            return ProductCsvParser.fromHeader(header);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Splits [start, end) into ranges that each begin at the start of a line.
+     * @param channel The file channel
+     * @param start Offset of the first data line
+     * @param end File size
+     * @return List of {from, to} offset pairs
+     * @throws IOException If an I/O error occurs
+     */
+    private List<long[]> splitIntoChunks(FileChannel channel, long start, long end) throws IOException {
+        long target = (end - start) / (threads * 4L);
+        target = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, target));
+
+        List<long[]> ranges = new ArrayList<>();
+        long from = start;
+        while (from < end) {
+            long to = from + target >= end ? end : nextLineStart(channel, from + target, end);
+            ranges.add(new long[]{from, to});
+            from = to;
+        }
+        return ranges;
+    }
+
+    /**
+     * Finds the offset just past the next newline at or after the given position.
+     * @param channel The file channel
+     * @param position Where to start looking
+     * @param end File size
+     * @return Offset of the next line start, or end if there is none
+     * @throws IOException If an I/O error occurs
+     */
+    private static long nextLineStart(FileChannel channel, long position, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position < end) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return end;
+    }
+
+    /**
+     * Parses all lines of one chunk.
+     * @param buffer The chunk, made of whole lines
+     * @param parser The row parser
+     * @return The parsed chunk
+     */
+    static Chunk parseChunk(ByteBuffer buffer, ProductCsvParser parser) {
+        // One decode per chunk; lines are then cut out of the decoded text
+        String text = StandardCharsets.UTF_8.decode(buffer).toString();
+        List<Product> products = new ArrayList<>();
+        long rejected = 0;
+
+        int lineStart = 0;
+        int length = text.length();
+        while (lineStart < length) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = length;
+            }
+            int contentEnd = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+            try {
+                Product product = parser.parse(text, lineStart, contentEnd);
+                if (product != null) {
+                    products.add(product);
+                } else {
+                    rejected++;
+                }
+            } catch (Exception e) {
+                rejected++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return new Chunk(products, rejected);
+    }
+}
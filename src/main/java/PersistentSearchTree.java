@@ -0,0 +1,485 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Immutable, balanced (AVL) binary search tree.
+ * Updates never modify existing nodes: they copy the path from the root to the changed
+ * node and return a new tree that shares every other node with the old one. Any number
+ * of threads can therefore read a tree while a writer derives the next version.
+ * @param <E> Type of elements stored in the tree, must implement Comparable
+ */
+public final class PersistentSearchTree<E extends Comparable<E>> implements Iterable<E> {
+
+    // Immutable node; the height is cached for rebalancing
+    private static final class Node<E> {
+        final E data;
+        final Node<E> left;
+        final Node<E> right;
+        final int height;
+
+        Node(E data, Node<E> left, Node<E> right) {
+            this.data = data;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+        }
+    }
+
+    private static final PersistentSearchTree<?> EMPTY = new PersistentSearchTree<>(null, 0);
+
+    private final Node<E> root;
+    private final int size;
+
+    private PersistentSearchTree(Node<E> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty tree.
+     * @param <E> Type of elements stored in the tree
+     * @return The empty tree
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends Comparable<E>> PersistentSearchTree<E> empty() {
+        return (PersistentSearchTree<E>) EMPTY;
+    }
+
+    /**
+     * Builds a perfectly balanced tree from elements in strictly ascending order in O(n).
+     * @param sorted The elements, in ascending order without duplicates
+     * @param <E> Type of elements stored in the tree
+     * @return The tree
+     * @throws IllegalArgumentException If the elements are not strictly ascending
+     */
+    public static <E extends Comparable<E>> PersistentSearchTree<E> fromSorted(List<E> sorted) {
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i - 1).compareTo(sorted.get(i)) >= 0) {
+                throw new IllegalArgumentException("Elements must be in strictly ascending order");
+            }
+        }
+        return new PersistentSearchTree<>(build(sorted, 0, sorted.size()), sorted.size());
+    }
+
+    private static <E> Node<E> build(List<E> sorted, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        return new Node<>(sorted.get(mid), build(sorted, from, mid), build(sorted, mid + 1, to));
+    }
+
+    /**
+     * Returns a tree that also contains the value, replacing an equal element if present.
+     * This tree is not modified. Walks down iteratively, then copies the path back up.
+     * @param value The element to insert
+     * @return The new tree
+     */
+    public PersistentSearchTree<E> insert(E value) {
+        Node<E>[] path = newPath();
+        boolean[] wentLeft = new boolean[path.length];
+        int depth = 0;
+        Node<E> node = root;
+        while (node != null) {
+            int compareResult = value.compareTo(node.data);
+            if (compareResult == 0) {
+                // Same position, same shape: only the path needs copying
+                Node<E> replaced = new Node<>(value, node.left, node.right);
+                return new PersistentSearchTree<>(rebuild(path, wentLeft, 0, depth, replaced), size);
+            }
+            path[depth] = node;
+            wentLeft[depth] = compareResult < 0;
+            depth++;
+            node = compareResult < 0 ? node.left : node.right;
+        }
+        Node<E> leaf = new Node<>(value, null, null);
+        return new PersistentSearchTree<>(rebuild(path, wentLeft, 0, depth, leaf), size + 1);
+    }
+
+    /**
+     * Returns a tree without the element equal to the value. This tree is not modified.
+     * Walks down iteratively, then copies and rebalances the path back up.
+     * @param value The element to remove
+     * @return The new tree, or this tree if the value was not present
+     */
+    public PersistentSearchTree<E> remove(E value) {
+        Node<E>[] path = newPath();
+        boolean[] wentLeft = new boolean[path.length];
+        int depth = 0;
+        Node<E> node = root;
+        while (node != null) {
+            int compareResult = value.compareTo(node.data);
+            if (compareResult == 0) {
+                break;
+            }
+            path[depth] = node;
+            wentLeft[depth] = compareResult < 0;
+            depth++;
+            node = compareResult < 0 ? node.left : node.right;
+        }
+        if (node == null) {
+            return this;
+        }
+
+        Node<E> subtree;
+        if (node.left == null) {
+            subtree = node.right;
+        } else if (node.right == null) {
+            subtree = node.left;
+        } else {
+            // Replace with the smallest element of the right subtree, unlinking it on the way back up
+            int found = depth;
+            path[depth] = node;
+            wentLeft[depth] = false;
+            depth++;
+            Node<E> successor = node.right;
+            while (successor.left != null) {
+                path[depth] = successor;
+                wentLeft[depth] = true;
+                depth++;
+                successor = successor.left;
+            }
+            Node<E> right = rebuild(path, wentLeft, found + 1, depth, successor.right);
+            subtree = balance(successor.data, node.left, right);
+            depth = found;
+        }
+        return new PersistentSearchTree<>(rebuild(path, wentLeft, 0, depth, subtree), size - 1);
+    }
+
+    // Room for the longest path from the root; AVL trees stay within 1.45 log2(n) levels
+    @SuppressWarnings("unchecked")
+    private Node<E>[] newPath() {
+        return (Node<E>[]) new Node<?>[height(root) + 1];
+    }
+
+    /**
+     * Copies path[from, to) bottom-up onto the new subtree, rebalancing each copy.
+     */
+    private static <E> Node<E> rebuild(Node<E>[] path, boolean[] wentLeft, int from, int to, Node<E> subtree) {
+        for (int i = to - 1; i >= from; i--) {
+            Node<E> parent = path[i];
+            subtree = wentLeft[i] ? balance(parent.data, subtree, parent.right) : balance(parent.data, parent.left, subtree);
+        }
+        return subtree;
+    }
+
+    /**
+     * Creates a node, applying a single or double rotation if the subtrees differ in height by two.
+     */
+    private static <E> Node<E> balance(E data, Node<E> left, Node<E> right) {
+        int difference = height(left) - height(right);
+        if (difference > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.data, left.left, new Node<>(data, left.right, right));
+            }
+            return new Node<>(left.right.data,
+                    new Node<>(left.data, left.left, left.right.left),
+                    new Node<>(data, left.right.right, right));
+        }
+        if (difference < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.data, new Node<>(data, left, right.left), right.right);
+            }
+            return new Node<>(right.left.data,
+                    new Node<>(data, left, right.left.left),
+                    new Node<>(right.data, right.left.right, right.right));
+        }
+        return new Node<>(data, left, right);
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * Searches for a value in the tree.
+     * @param value The value to search for
+     * @return The stored element if found, null otherwise
+     */
+    public E search(E value) {
+        Node<E> node = root;
+        while (node != null) {
+            int compareResult = value.compareTo(node.data);
+            if (compareResult < 0) {
+                node = node.left;
+            } else if (compareResult > 0) {
+                node = node.right;
+            } else {
+                return node.data;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Searches for an element by key, without building a probe element to compare against.
+     * @param key The key to search for
+     * @param keyOf Extracts the key of an element; must order elements like their compareTo
+     * @param <K> Type of the key
+     * @return The element with that key if found, null otherwise
+     */
+    public <K extends Comparable<? super K>> E searchByKey(K key, Function<? super E, ? extends K> keyOf) {
+        Node<E> node = root;
+        while (node != null) {
+            int compareResult = key.compareTo(keyOf.apply(node.data));
+            if (compareResult < 0) {
+                node = node.left;
+            } else if (compareResult > 0) {
+                node = node.right;
+            } else {
+                return node.data;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks up many keys in one coordinated descent instead of one walk from the root per key.
+     * At each node the sorted keys are split into those that go left, those that match and
+     * those that go right, so every node is visited at most once for the whole batch.
+     * @param sortedKeys The keys to look up, in ascending order (duplicates allowed)
+     * @param keyOf Extracts the key of an element; must order elements like their compareTo
+     * @param <K> Type of the key
+     * @return The element found for each key, at the same position, or null where there is none
+     */
+    public <K extends Comparable<? super K>> List<E> searchAllByKey(List<? extends K> sortedKeys, Function<? super E, ? extends K> keyOf) {
+        List<E> result = new ArrayList<>(Collections.nCopies(sortedKeys.size(), null));
+        if (root == null || sortedKeys.isEmpty()) {
+            return result;
+        }
+
+        // Pending (node, first key, end key) triples, the key ranges packed in one int array
+        ArrayDeque<Node<E>> nodes = new ArrayDeque<>();
+        int[] ranges = new int[64];
+        int depth = 0;
+        nodes.push(root);
+        ranges[0] = 0;
+        ranges[1] = sortedKeys.size();
+        depth++;
+        while (depth > 0) {
+            Node<E> node = nodes.pop();
+            depth--;
+            int from = ranges[2 * depth];
+            int to = ranges[2 * depth + 1];
+            if (to - from == 1) {
+                // A single key left: finish with a plain descent from here
+                K key = sortedKeys.get(from);
+                while (node != null) {
+                    int compareResult = key.compareTo(keyOf.apply(node.data));
+                    if (compareResult == 0) {
+                        result.set(from, node.data);
+                        break;
+                    }
+                    node = compareResult < 0 ? node.left : node.right;
+                }
+                continue;
+            }
+
+            K key = keyOf.apply(node.data);
+            int lower = bound(sortedKeys, from, to, key, false);
+            int upper = bound(sortedKeys, lower, to, key, true);
+            for (int i = lower; i < upper; i++) {
+                result.set(i, node.data);
+            }
+            if (2 * depth + 4 > ranges.length) {
+                ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            }
+            if (lower > from && node.left != null) {
+                nodes.push(node.left);
+                ranges[2 * depth] = from;
+                ranges[2 * depth + 1] = lower;
+                depth++;
+            }
+            if (upper < to && node.right != null) {
+                nodes.push(node.right);
+                ranges[2 * depth] = upper;
+                ranges[2 * depth + 1] = to;
+                depth++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first index in [from, to) whose key is at least (or, if strict, greater than) the given key.
+     */
+    private static <K extends Comparable<? super K>> int bound(List<? extends K> sortedKeys, int from, int to, K key, boolean strict) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            int compareResult = sortedKeys.get(mid).compareTo(key);
+            if (compareResult < 0 || (strict && compareResult == 0)) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Returns the number of elements in the tree.
+     * @return The number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the tree is empty.
+     * @return True if the tree is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the height of the tree.
+     * @return The height, 0 for an empty tree
+     */
+    public int height() {
+        return height(root);
+    }
+
+    /**
+     * Returns a list of all elements in the tree using in-order traversal.
+     * @return A list of all elements
+     */
+    public List<E> inOrder() {
+        List<E> result = new ArrayList<>(size);
+        for (E element : this) {
+            result.add(element);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the shape of the tree, counting the root as depth 1.
+     * @return The statistics
+     */
+    public TreeStats stats() {
+        int height = 0;
+        long depthSum = 0;
+        ArrayDeque<Node<E>> nodes = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        if (root != null) {
+            nodes.push(root);
+            depths.push(1);
+        }
+        while (!nodes.isEmpty()) {
+            Node<E> node = nodes.pop();
+            int depth = depths.pop();
+            depthSum += depth;
+            height = Math.max(height, depth);
+            if (node.left != null) {
+                nodes.push(node.left);
+                depths.push(depth + 1);
+            }
+            if (node.right != null) {
+                nodes.push(node.right);
+                depths.push(depth + 1);
+            }
+        }
+        return new TreeStats(size, height, size == 0 ? 0.0 : (double) depthSum / size);
+    }
+
+    /**
+     * Returns a lazy in-order iterator. Since the tree is immutable, iteration is always consistent.
+     * @return The iterator
+     */
+    @Override
+    public Iterator<E> iterator() {
+        PathIterator<E> iterator = new PathIterator<>(false);
+        iterator.pushPath(root);
+        return iterator;
+    }
+
+    /**
+     * Returns a lazy in-order iterator that starts at the given value, which does not have to be in the tree.
+     * @param from The value to start from
+     * @param inclusive True to include an element equal to from, false to start after it
+     * @return The iterator
+     */
+    public Iterator<E> iteratorFrom(E from, boolean inclusive) {
+        PathIterator<E> iterator = new PathIterator<>(false);
+        for (Node<E> node = root; node != null; ) {
+            int compareResult = node.data.compareTo(from);
+            if (compareResult > 0 || (inclusive && compareResult == 0)) {
+                // This node comes after the start; remember it and look for earlier ones
+                iterator.stack.push(node);
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return iterator;
+    }
+
+    /**
+     * Returns a lazy iterator from the largest element to the smallest.
+     * @return The iterator
+     */
+    public Iterator<E> descendingIterator() {
+        PathIterator<E> iterator = new PathIterator<>(true);
+        iterator.pushPath(root);
+        return iterator;
+    }
+
+    /**
+     * Returns a lazy iterator from the given value down to the smallest element.
+     * The value does not have to be in the tree.
+     * @param from The value to start from
+     * @param inclusive True to include an element equal to from, false to start below it
+     * @return The iterator
+     */
+    public Iterator<E> descendingIteratorFrom(E from, boolean inclusive) {
+        PathIterator<E> iterator = new PathIterator<>(true);
+        for (Node<E> node = root; node != null; ) {
+            int compareResult = node.data.compareTo(from);
+            if (compareResult < 0 || (inclusive && compareResult == 0)) {
+                iterator.stack.push(node);
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return iterator;
+    }
+
+    // Walks the tree in order, or in reverse, keeping the ancestors still to be visited on a stack
+    private static final class PathIterator<E> implements Iterator<E> {
+        final ArrayDeque<Node<E>> stack = new ArrayDeque<>();
+        private final boolean descending;
+
+        PathIterator(boolean descending) {
+            this.descending = descending;
+        }
+
+        void pushPath(Node<E> node) {
+            while (node != null) {
+                stack.push(node);
+                node = descending ? node.right : node.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<E> node = stack.pop();
+            pushPath(descending ? node.left : node.right);
+            return node.data;
+        }
+    }
+}
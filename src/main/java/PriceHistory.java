@@ -0,0 +1,406 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Current-price history per SKU, built from the DATE_SCRAPED of every loaded row.
+ * A version is the price observed on one day; a later row for the same SKU and day
+ * replaces the earlier one.
+ *
+ * Each SKU's versions are stored as varint-encoded day and zigzag price-in-cents deltas in
+ * a single byte array, two bytes per version when the price is unchanged. Every
+ * {@link #CHECKPOINT_INTERVAL}th version is kept as an absolute checkpoint, so an as-of
+ * lookup is a binary search over checkpoints followed by a short forward decode.
+ *
+ * Not thread-safe; {@link ProductManager} updates it together with its other indexes.
+ */
+public class PriceHistory {
+    static final int CHECKPOINT_INTERVAL = 16;
+
+    private final Map<String, Series> series = new HashMap<>();
+    private long versionCount;
+
+    /**
+     * A price drop between two dates.
+     */
+    public static class PriceDrop {
+        private final String sku;
+        private final double priceBefore;
+        private final double priceAfter;
+
+        public PriceDrop(String sku, double priceBefore, double priceAfter) {
+            this.sku = sku;
+            this.priceBefore = priceBefore;
+            this.priceAfter = priceAfter;
+        }
+
+        // Getters
+        public String getSku() {
+            return sku;
+        }
+
+        public double getPriceBefore() {
+            return priceBefore;
+        }
+
+        public double getPriceAfter() {
+            return priceAfter;
+        }
+
+        public double getDrop() {
+            return priceBefore - priceAfter;
+        }
+
+        @Override
+        public String toString() {
+            return sku + ": " + priceBefore + " -> " + priceAfter;
+        }
+    }
+
+    /**
+     * Records the current price of a product on its scrape day.
+     * Products without a scrape day are ignored.
+     * @param product The product
+     */
+    public void record(Product product) {
+        if (product.getScrapeDay() != Product.NO_DATE) {
+            record(product.getSku(), product.getScrapeDay(), product.getPriceCurrent());
+        }
+    }
+
+    /**
+     * Records a price observation. Observations normally arrive in day order; an older one
+     * is merged in at the cost of re-encoding that SKU's history.
+     * @param sku The SKU
+     * @param day Days since 1970-01-01
+     * @param price The price on that day
+     */
+    public void record(String sku, int day, double price) {
+        Series history = series.computeIfAbsent(sku, key -> new Series());
+        int before = history.count;
+        history.record(day, Math.round(price * 100));
+        versionCount += history.count - before;
+    }
+
+    /**
+     * Looks up the price a SKU had on a date: the latest version on or before it.
+     * @param sku The SKU
+     * @param date The date
+     * @return The price, or NaN if the SKU had not been seen by that date
+     */
+    public double priceAsOf(String sku, LocalDate date) {
+        Series history = series.get(sku);
+        if (history == null) {
+            return Double.NaN;
+        }
+        long cents = history.centsAsOf((int) date.toEpochDay());
+        return cents == Long.MIN_VALUE ? Double.NaN : cents / 100.0;
+    }
+
+    /**
+     * Finds the largest price drops between two dates, comparing each SKU's price as of
+     * {@code from} with its price as of {@code to}. SKUs first seen after {@code from} are skipped.
+     * @param from Start of the window
+     * @param to End of the window
+     * @param k Maximum number of drops to return
+     * @return The drops, largest first (ties by SKU)
+     */
+    public List<PriceDrop> biggestDrops(LocalDate from, LocalDate to, int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+
+        // The head is the weakest of the k best drops so far
+        Comparator<Candidate> ranking = Comparator.<Candidate>comparingLong(candidate -> candidate.drop)
+                .thenComparing(candidate -> candidate.sku, Comparator.reverseOrder());
+        PriorityQueue<Candidate> best = new PriorityQueue<>(k + 1, ranking);
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            Series history = entry.getValue();
+            long before = history.centsAsOf(fromDay);
+            if (before == Long.MIN_VALUE) {
+                continue;
+            }
+            long after = history.centsAsOf(toDay);
+            if (after >= before) {
+                continue;
+            }
+            Candidate candidate = new Candidate(entry.getKey(), before, after);
+            if (best.size() < k) {
+                best.add(candidate);
+            } else if (ranking.compare(candidate, best.peek()) > 0) {
+                best.poll();
+                best.add(candidate);
+            }
+        }
+
+        List<Candidate> ranked = new ArrayList<>(best);
+        ranked.sort(ranking.reversed());
+        List<PriceDrop> drops = new ArrayList<>(ranked.size());
+        for (Candidate candidate : ranked) {
+            drops.add(new PriceDrop(candidate.sku, candidate.before / 100.0, candidate.after / 100.0));
+        }
+        return drops;
+    }
+
+    private static class Candidate {
+        final String sku;
+        final long before;
+        final long after;
+        final long drop;
+
+        Candidate(String sku, long before, long after) {
+            this.sku = sku;
+            this.before = before;
+            this.after = after;
+            this.drop = before - after;
+        }
+    }
+
+    /**
+     * Returns the number of versions recorded for a SKU.
+     * @param sku The SKU
+     * @return The number of versions, 0 if the SKU has no history
+     */
+    public int getVersionCount(String sku) {
+        Series history = series.get(sku);
+        return history == null ? 0 : history.count;
+    }
+
+    /**
+     * Returns the number of versions across all SKUs.
+     * @return The number of versions
+     */
+    public long getVersionCount() {
+        return versionCount;
+    }
+
+    /**
+     * Returns the number of SKUs with a history.
+     * @return The number of SKUs
+     */
+    public int getSkuCount() {
+        return series.size();
+    }
+
+    /**
+     * Returns the bytes allocated for encoded versions and checkpoints, excluding the
+     * per-SKU map entry and object headers.
+     * @return The number of bytes
+     */
+    public long getEncodedBytes() {
+        long bytes = 0;
+        for (Series history : series.values()) {
+            bytes += history.data.length + 8L * history.checkpoints.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Releases spare capacity in every SKU's arrays, for example after a bulk load.
+     */
+    public void trimToSize() {
+        for (Series history : series.values()) {
+            history.trimToSize();
+        }
+    }
+
+    /**
+     * The versions of one SKU, oldest first.
+     * Version i is a checkpoint when i % CHECKPOINT_INTERVAL == 0; every other version is a
+     * record in data holding varint(day delta) followed by varint(zigzag(cents delta)).
+     */
+    static final class Series {
+        private static final byte[] NO_DATA = new byte[0];
+
+        byte[] data = NO_DATA;
+        int length; // bytes of data in use
+        long[] checkpoints = new long[3]; // {day, cents, offset of the next record} per checkpoint
+        int count;
+        private int lastDay;
+        private long lastCents;
+        private int lastRecord = -1; // offset of the last record, or -1 if the last version is a checkpoint
+
+        void record(int day, long cents) {
+            if (count == 0 || day > lastDay) {
+                append(day, cents);
+            } else if (day == lastDay) {
+                replaceLast(cents);
+            } else {
+                insertOlder(day, cents);
+            }
+        }
+
+        /**
+         * Finds the latest version on or before a day.
+         * @return The price in cents, or Long.MIN_VALUE if the first version is later
+         */
+        long centsAsOf(int day) {
+            if (count == 0 || day < checkpoints[0]) {
+                return Long.MIN_VALUE;
+            }
+            if (day >= lastDay) {
+                return lastCents;
+            }
+
+            // Last checkpoint on or before the day
+            int low = 0;
+            int high = (count - 1) / CHECKPOINT_INTERVAL;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (checkpoints[3 * middle] <= day) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+
+            long currentDay = checkpoints[3 * low];
+            long cents = checkpoints[3 * low + 1];
+            int position = (int) checkpoints[3 * low + 2];
+            int end = Math.min(count, (low + 1) * CHECKPOINT_INTERVAL);
+            for (int version = low * CHECKPOINT_INTERVAL + 1; version < end; version++) {
+                currentDay += readVarint(data, position);
+                if (currentDay > day) {
+                    break;
+                }
+                position = skipVarint(data, position);
+                cents += unzigzag(readVarint(data, position));
+                position = skipVarint(data, position);
+            }
+            return cents;
+        }
+
+        private void append(int day, long cents) {
+            if (count % CHECKPOINT_INTERVAL == 0) {
+                int slot = 3 * (count / CHECKPOINT_INTERVAL);
+                if (slot == checkpoints.length) {
+                    checkpoints = Arrays.copyOf(checkpoints, 2 * checkpoints.length);
+                }
+                checkpoints[slot] = day;
+                checkpoints[slot + 1] = cents;
+                checkpoints[slot + 2] = length;
+                lastRecord = -1;
+            } else {
+                lastRecord = length;
+                writeRecord(day - lastDay, cents - lastCents);
+            }
+            lastDay = day;
+            lastCents = cents;
+            count++;
+        }
+
+        private void replaceLast(long cents) {
+            if (lastRecord < 0) {
+                checkpoints[3 * ((count - 1) / CHECKPOINT_INTERVAL) + 1] = cents;
+            } else {
+                // Recover the previous price from the last record's delta, then rewrite the record
+                long dayDelta = readVarint(data, lastRecord);
+                long previousCents = lastCents - unzigzag(readVarint(data, skipVarint(data, lastRecord)));
+                length = lastRecord;
+                writeRecord(dayDelta, cents - previousCents);
+            }
+            lastCents = cents;
+        }
+
+        /**
+         * Merges in an observation older than the last version by decoding and re-encoding
+         * the whole series; scrapes normally arrive in day order, so this is rare.
+         */
+        private void insertOlder(int day, long cents) {
+            long[] days = new long[count + 1];
+            long[] prices = new long[count + 1];
+            int size = 0;
+            boolean placed = false;
+            for (int checkpoint = 0; checkpoint * CHECKPOINT_INTERVAL < count; checkpoint++) {
+                long currentDay = checkpoints[3 * checkpoint];
+                long currentCents = checkpoints[3 * checkpoint + 1];
+                int position = (int) checkpoints[3 * checkpoint + 2];
+                int end = Math.min(count, (checkpoint + 1) * CHECKPOINT_INTERVAL);
+                for (int version = checkpoint * CHECKPOINT_INTERVAL; version < end; version++) {
+                    if (version > checkpoint * CHECKPOINT_INTERVAL) {
+                        currentDay += readVarint(data, position);
+                        position = skipVarint(data, position);
+                        currentCents += unzigzag(readVarint(data, position));
+                        position = skipVarint(data, position);
+                    }
+                    if (!placed && day <= currentDay) {
+                        days[size] = day;
+                        prices[size++] = cents;
+                        placed = true;
+                        if (day == currentDay) {
+                            continue;
+                        }
+                    }
+                    days[size] = currentDay;
+                    prices[size++] = currentCents;
+                }
+            }
+
+            data = NO_DATA;
+            length = 0;
+            checkpoints = new long[3];
+            count = 0;
+            for (int i = 0; i < size; i++) {
+                append((int) days[i], prices[i]);
+            }
+        }
+
+        private void writeRecord(long dayDelta, long centsDelta) {
+            // Two varints of a long take at most 20 bytes
+            if (length + 20 > data.length) {
+                data = Arrays.copyOf(data, Math.max(length + 20, data.length * 3 / 2));
+            }
+            length = writeVarint(data, length, dayDelta);
+            length = writeVarint(data, length, (centsDelta << 1) ^ (centsDelta >> 63));
+        }
+
+        void trimToSize() {
+            if (data.length > length) {
+                data = length == 0 ? NO_DATA : Arrays.copyOf(data, length);
+            }
+            int used = 3 * ((count + CHECKPOINT_INTERVAL - 1) / CHECKPOINT_INTERVAL);
+            if (checkpoints.length > used) {
+                checkpoints = Arrays.copyOf(checkpoints, used);
+            }
+        }
+    }
+
+    private static int writeVarint(byte[] data, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            data[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readVarint(byte[] data, int position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static int skipVarint(byte[] data, int position) {
+        while (data[position++] < 0) {
+            // continuation bit set
+        }
+        return position;
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,325 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Secondary index of products ordered by current price, with SKU as the tiebreaker.
+ * Kept up to date incrementally, so price listings, ranges and top-K queries cost
+ * O(log n + k) instead of re-sorting the whole catalog.
+ *
+ * Products are grouped into runs of equal price, each run in SKU order, so both
+ * directions list ties in SKU order without buffering a run.
+ *
+ * Runs are kept in a {@link PersistentSearchTree}, and so are the products of a shared
+ * price, so {@link #snapshot()} is O(1) and later updates never show through it.
+ */
+public class PriceIndex {
+    // Orders by current price, then by SKU so that every product has a unique position
+    public static final Comparator<Product> BY_PRICE = Comparator
+            .comparingDouble(Product::getPriceCurrent)
+            .thenComparing(Product::getSku);
+
+    private PersistentSearchTree<PriceRun> runs;
+    private int size;
+    private final boolean readOnly;
+
+    /**
+     * Constructs an empty price index.
+     */
+    public PriceIndex() {
+        this(PersistentSearchTree.empty(), 0, false);
+    }
+
+    private PriceIndex(PersistentSearchTree<PriceRun> runs, int size, boolean readOnly) {
+        this.runs = runs;
+        this.size = size;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Adds a product to the index.
+     * @param product The product to add
+     */
+    public void add(Product product) {
+        checkWritable();
+        double price = product.getPriceCurrent();
+        PriceRun run = runs.searchByKey(price, PriceRun::getPrice);
+        if (run == null) {
+            runs = runs.insert(new PriceRun(price, product));
+            size++;
+        } else if (run.products instanceof Product single) {
+            if (single.compareTo(product) != 0) {
+                runs = runs.insert(new PriceRun(price, PersistentSearchTree.<Product>empty().insert(single).insert(product)));
+                size++;
+            }
+        } else {
+            PersistentSearchTree<Product> shared = run.shared();
+            if (shared.search(product) == null) {
+                runs = runs.insert(new PriceRun(price, shared.insert(product)));
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Adds a batch of products. Into an empty index they are sorted in parallel and the
+     * runs built bottom-up in O(n); otherwise they are added one by one.
+     * @param products The products to add, at most one per SKU
+     */
+    public void addAll(Collection<Product> products) {
+        checkWritable();
+        if (size > 0) {
+            for (Product product : products) {
+                add(product);
+            }
+            return;
+        }
+
+        Product[] sorted = products.toArray(new Product[0]);
+        Arrays.parallelSort(sorted, BY_PRICE);
+        List<PriceRun> built = new ArrayList<>();
+        for (int start = 0; start < sorted.length; ) {
+            double price = sorted[start].getPriceCurrent();
+            int end = start + 1;
+            while (end < sorted.length && Double.compare(sorted[end].getPriceCurrent(), price) == 0) {
+                end++;
+            }
+            built.add(new PriceRun(price, end - start == 1 ? sorted[start]
+                    : PersistentSearchTree.fromSorted(Arrays.asList(sorted).subList(start, end))));
+            start = end;
+        }
+        runs = PersistentSearchTree.fromSorted(built);
+        size = sorted.length;
+    }
+
+    /**
+     * Removes a product from the index.
+     * @param product The product to remove (matched by price and SKU)
+     */
+    public void remove(Product product) {
+        checkWritable();
+        double price = product.getPriceCurrent();
+        PriceRun run = runs.searchByKey(price, PriceRun::getPrice);
+        if (run == null) {
+            return;
+        }
+        if (run.products instanceof Product single) {
+            if (single.compareTo(product) == 0) {
+                runs = runs.remove(run);
+                size--;
+            }
+            return;
+        }
+        PersistentSearchTree<Product> shared = run.shared();
+        if (shared.search(product) != null) {
+            shared = shared.remove(product);
+            runs = runs.insert(new PriceRun(price, shared.size() == 1 ? shared.iterator().next() : shared));
+            size--;
+        }
+    }
+
+    /**
+     * Removes every product from the index.
+     */
+    public void clear() {
+        checkWritable();
+        runs = PersistentSearchTree.empty();
+        size = 0;
+    }
+
+    /**
+     * Returns a read-only view of the index as it is now, in O(1). Later updates to this
+     * index do not show through it.
+     * @return The snapshot; its add, remove and clear throw UnsupportedOperationException
+     */
+    public PriceIndex snapshot() {
+        return new PriceIndex(runs, size, true);
+    }
+
+    /**
+     * Returns the number of indexed products.
+     * @return The number of products
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the products whose current price lies in [min, max], cheapest first.
+     * @param min The lowest price, inclusive
+     * @param max The highest price, inclusive
+     * @return The matching products
+     */
+    public List<Product> range(double min, double max) {
+        List<Product> result = new ArrayList<>();
+        if (min > max) {
+            return result;
+        }
+        Iterator<PriceRun> iterator = runs.iteratorFrom(PriceRun.probe(min), true);
+        while (iterator.hasNext()) {
+            PriceRun run = iterator.next();
+            if (Double.compare(run.price, max) > 0) {
+                break;
+            }
+            run.iterator().forEachRemaining(result::add);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the k cheapest products, cheapest first.
+     * @param k The number of products to return
+     * @return Up to k products
+     */
+    public List<Product> cheapest(int k) {
+        return take(ascendingIterator(), k);
+    }
+
+    /**
+     * Returns the k most expensive products, most expensive first.
+     * @param k The number of products to return
+     * @return Up to k products
+     */
+    public List<Product> mostExpensive(int k) {
+        return take(descendingIterator(), k);
+    }
+
+    /**
+     * Iterates the products from cheapest to most expensive, ties in SKU order.
+     * @return The iterator
+     */
+    public Iterator<Product> ascendingIterator() {
+        return new RunIterator(Collections.emptyIterator(), runs.iterator());
+    }
+
+    /**
+     * Iterates the products from most expensive to cheapest.
+     * Products with the same price are still returned in SKU order.
+     * @return The iterator
+     */
+    public Iterator<Product> descendingIterator() {
+        return new RunIterator(Collections.emptyIterator(), runs.descendingIterator());
+    }
+
+    /**
+     * Iterates, cheapest first, the products that come after the given price and SKU.
+     * @param price The price of the last product already seen
+     * @param sku The SKU of the last product already seen
+     * @return The iterator
+     */
+    public Iterator<Product> ascendingIteratorAfter(double price, String sku) {
+        return new RunIterator(restOfRun(price, sku), runs.iteratorFrom(PriceRun.probe(price), false));
+    }
+
+    /**
+     * Iterates, most expensive first, the products that come after the given price and SKU
+     * in {@link #descendingIterator()} order.
+     * @param price The price of the last product already seen
+     * @param sku The SKU of the last product already seen
+     * @return The iterator
+     */
+    public Iterator<Product> descendingIteratorAfter(double price, String sku) {
+        return new RunIterator(restOfRun(price, sku), runs.descendingIteratorFrom(PriceRun.probe(price), false));
+    }
+
+    /**
+     * Iterates the products with exactly the given price whose SKU comes after the given one.
+     */
+    private Iterator<Product> restOfRun(double price, String sku) {
+        PriceRun run = runs.searchByKey(price, PriceRun::getPrice);
+        if (run == null) {
+            return Collections.emptyIterator();
+        }
+        if (run.products instanceof Product single) {
+            return single.getSku().compareTo(sku) > 0 ? List.of(single).iterator() : Collections.emptyIterator();
+        }
+        return run.shared().iteratorFrom(new Product(sku, 0, price, "", ""), false);
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Price index snapshots are read-only");
+        }
+    }
+
+    private static List<Product> take(Iterator<Product> iterator, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        List<Product> result = new ArrayList<>(Math.min(k, 1024));
+        while (result.size() < k && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    /**
+     * The products sharing one price: a single Product, or a tree of them in SKU order
+     * once the price is shared. Runs are ordered by price alone.
+     */
+    private static final class PriceRun implements Comparable<PriceRun> {
+        final double price;
+        final Object products;
+
+        PriceRun(double price, Object products) {
+            this.price = price;
+            this.products = products;
+        }
+
+        static PriceRun probe(double price) {
+            return new PriceRun(price, null);
+        }
+
+        Double getPrice() {
+            return price;
+        }
+
+        @SuppressWarnings("unchecked")
+        PersistentSearchTree<Product> shared() {
+            return (PersistentSearchTree<Product>) products;
+        }
+
+        Iterator<Product> iterator() {
+            return products instanceof Product single ? List.of(single).iterator() : shared().iterator();
+        }
+
+        @Override
+        public int compareTo(PriceRun other) {
+            return Double.compare(price, other.price);
+        }
+    }
+
+    /**
+     * Lists a partial first run, then whole runs in the order given, each in SKU order.
+     */
+    private static class RunIterator implements Iterator<Product> {
+        private final Iterator<PriceRun> runs;
+        private Iterator<Product> current;
+
+        RunIterator(Iterator<Product> first, Iterator<PriceRun> runs) {
+            this.runs = runs;
+            this.current = first;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && runs.hasNext()) {
+                current = runs.next().iterator();
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public Product next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+}
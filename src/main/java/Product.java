@@ -1,16 +1,25 @@
 public class Product implements Comparable<Product> {
+    // Scrape day of a product whose source row had no (valid) DATE_SCRAPED
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
     private String sku;
     private double priceRetail;
     private double priceCurrent;
     private String productName;
     private String category;
+    private int scrapeDay; // days since 1970-01-01
 
     public Product(String sku, double priceRetail, double priceCurrent, String productName, String category) {
+        this(sku, priceRetail, priceCurrent, productName, category, NO_DATE);
+    }
+
+    public Product(String sku, double priceRetail, double priceCurrent, String productName, String category, int scrapeDay) {
         this.sku = sku;
         this.priceRetail = priceRetail;
         this.priceCurrent = priceCurrent;
         this.productName = productName;
         this.category = category;
+        this.scrapeDay = scrapeDay;
     }
 
     // Getters
@@ -34,6 +43,10 @@ public class Product implements Comparable<Product> {
         return category;
     }
 
+    public int getScrapeDay() {
+        return scrapeDay;
+    }
+
     // For sorting by SKU in the BST
     @Override
     public int compareTo(Product other) {
@@ -0,0 +1,366 @@
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns CSV rows into products.
+ * Rows are tokenized character by character following RFC 4180 quoting rules, and only the
+ * columns a product needs are materialized as Strings. Column positions come from the header
+ * row, so reordered or extended exports keep working. DATE_SCRAPED is optional; when present,
+ * it becomes the product's scrape day.
+ */
+public class ProductCsvParser {
+    public static final String CATEGORY = "CATEGORY";
+    public static final String SKU = "SKU";
+    public static final String PRICE_RETAIL = "PRICE_RETAIL";
+    public static final String PRICE_CURRENT = "PRICE_CURRENT";
+    public static final String PRODUCT_NAME = "PRODUCT_NAME";
+    public static final String DATE_SCRAPED = "DATE_SCRAPED";
+
+    // Column slots, in the order they are stored while tokenizing
+    private static final int CATEGORY_SLOT = 0;
+    private static final int SKU_SLOT = 1;
+    private static final int PRICE_RETAIL_SLOT = 2;
+    private static final int PRICE_CURRENT_SLOT = 3;
+    private static final int PRODUCT_NAME_SLOT = 4;
+    private static final int DATE_SCRAPED_SLOT = 5;
+    private static final int SLOT_COUNT = 6;
+
+    // Largest mantissa that is still an exact double
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Per-thread field bounds, so parsing a row allocates only the Strings and the Product.
+    // Thread-local rather than per parser because ParallelCSVLoader shares one parser across workers.
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static final class Scratch {
+        // bounds[3 * slot] = start, bounds[3 * slot + 1] = end, bounds[3 * slot + 2] = quote flags
+        final int[] bounds = new int[3 * SLOT_COUNT];
+        final int[] field = new int[3];
+    }
+
+    private final int[] slotOfColumn; // column index -> slot, or -1 if the column is not needed
+    private final boolean hasDateScraped;
+
+    /**
+     * Creates a parser for the standard scrape layout:
+     * CATEGORY,DATE_SCRAPED,SORT_BY,RUN_START_DATE,SUBCATEGORY,SHIPPING_LOCATION,SKU,COUNTRY,BRAND,PRICE_RETAIL,PRICE_CURRENT,SELLER,PRODUCT_URL,CURRENCY,BREADCRUMBS,DEPARTMENT,PROMOTION,BESTSELLER_RANK,PRODUCT_NAME,WEBSITE_URL
+     */
+    public ProductCsvParser() {
+        this(new int[]{0, 6, 9, 10, 18, 1});
+    }
+
+    /**
+     * Creates a parser with explicit column positions.
+     * @param categoryColumn Index of the category column
+     * @param skuColumn Index of the SKU column
+     * @param priceRetailColumn Index of the retail price column
+     * @param priceCurrentColumn Index of the current price column
+     * @param productNameColumn Index of the product name column
+     */
+    public ProductCsvParser(int categoryColumn, int skuColumn, int priceRetailColumn, int priceCurrentColumn, int productNameColumn) {
+        this(new int[]{categoryColumn, skuColumn, priceRetailColumn, priceCurrentColumn, productNameColumn, -1});
+    }
+
+    /**
+     * Creates a parser from column positions indexed by slot; DATE_SCRAPED may be -1.
+     */
+    private ProductCsvParser(int[] columns) {
+        int lastColumn = 0;
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            if (columns[slot] < 0 && slot != DATE_SCRAPED_SLOT) {
+                throw new IllegalArgumentException("Column index must not be negative: " + columns[slot]);
+            }
+            lastColumn = Math.max(lastColumn, columns[slot]);
+        }
+        hasDateScraped = columns[DATE_SCRAPED_SLOT] >= 0;
+
+        slotOfColumn = new int[lastColumn + 1];
+        Arrays.fill(slotOfColumn, -1);
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            if (columns[slot] < 0) {
+                continue;
+            }
+            if (slotOfColumn[columns[slot]] != -1) {
+                throw new IllegalArgumentException("Column " + columns[slot] + " is mapped twice");
+            }
+            slotOfColumn[columns[slot]] = slot;
+        }
+    }
+
+    /**
+     * Creates a parser whose column positions are taken from a header row.
+     * Column names are matched case-insensitively.
+     * @param headerLine The header row
+     * @return The parser
+     * @throws IllegalArgumentException If a required column is missing
+     */
+    public static ProductCsvParser fromHeader(CharSequence headerLine) {
+        // Tokenize the header with the same rules, treating every column as needed
+        List<String> names = new ArrayList<>();
+        int position = 0;
+        int length = headerLine.length();
+        // Skip a UTF-8 byte order mark if present
+        if (length > 0 && headerLine.charAt(0) == '\uFEFF') {
+            position = 1;
+        }
+        while (true) {
+            int[] bounds = new int[3];
+            position = nextField(headerLine, position, length, bounds);
+            names.add(materialize(headerLine, bounds).trim().toUpperCase(Locale.ROOT));
+            if (position > length) {
+                break;
+            }
+        }
+
+        return new ProductCsvParser(new int[]{
+                requireColumn(names, CATEGORY),
+                requireColumn(names, SKU),
+                requireColumn(names, PRICE_RETAIL),
+                requireColumn(names, PRICE_CURRENT),
+                requireColumn(names, PRODUCT_NAME),
+                names.indexOf(DATE_SCRAPED)});
+    }
+
+    /**
+     * Tells whether parsed products carry the day they were scraped.
+     * @return True if the layout has a DATE_SCRAPED column
+     */
+    public boolean hasDateScraped() {
+        return hasDateScraped;
+    }
+
+    private static int requireColumn(List<String> names, String name) {
+        int index = names.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Missing column in CSV header: " + name);
+        }
+        return index;
+    }
+
+    /**
+     * Parses a product from a CSV line.
+     * @param line The CSV line
+     * @return The parsed product, or null if the line does not have all required columns
+     */
+    public Product parse(CharSequence line) {
+        return parse(line, 0, line.length());
+    }
+
+    /**
+     * Parses a product from a range of characters holding one CSV row.
+     * Only the required columns are materialized; the rest of the row is skipped.
+     * @param text The text containing the row
+     * @param start Index of the first character of the row
+     * @param end Index just past the last character of the row
+     * @return The parsed product, or null if the row does not have all required columns
+     */
+    public Product parse(CharSequence text, int start, int end) {
+        // Every slot read below is overwritten first, so the scratch needs no clearing
+        Scratch scratch = SCRATCH.get();
+        int[] bounds = scratch.bounds;
+        int[] field = scratch.field;
+        int position = start;
+        int lastColumn = slotOfColumn.length - 1;
+
+        for (int column = 0; column <= lastColumn; column++) {
+            if (position > end) {
+                // The row ended before all required columns were seen
+                return null;
+            }
+            position = nextField(text, position, end, field);
+            int slot = slotOfColumn[column];
+            if (slot >= 0) {
+                System.arraycopy(field, 0, bounds, 3 * slot, 3);
+            }
+        }
+
+        String category = materialize(text, bounds, CATEGORY_SLOT);
+        String sku = materialize(text, bounds, SKU_SLOT);
+        double priceRetail = parsePrice(text, bounds[3 * PRICE_RETAIL_SLOT], bounds[3 * PRICE_RETAIL_SLOT + 1]);
+        double priceCurrent = parsePrice(text, bounds[3 * PRICE_CURRENT_SLOT], bounds[3 * PRICE_CURRENT_SLOT + 1]);
+        String productName = materialize(text, bounds, PRODUCT_NAME_SLOT);
+        int scrapeDay = hasDateScraped
+                ? parseDay(text, bounds[3 * DATE_SCRAPED_SLOT], bounds[3 * DATE_SCRAPED_SLOT + 1])
+                : Product.NO_DATE;
+
+        return new Product(sku, priceRetail, priceCurrent, productName, category, scrapeDay);
+    }
+
+    /**
+     * Finds the bounds of the field starting at the given position.
+     * @param text The text being tokenized
+     * @param position Start of the field
+     * @param end End of the row
+     * @param field Receives {start, end, flags}: flags is 0 for a plain field, 1 for a quoted
+     *              field and 2 for a quoted field containing escaped ("") quotes
+     * @return Start of the next field, or end + 1 if this was the last field of the row
+     */
+    private static int nextField(CharSequence text, int position, int end, int[] field) {
+        if (position < end && text.charAt(position) == '"') {
+            int contentStart = position + 1;
+            int i = contentStart;
+            int flags = 1;
+            while (i < end) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    if (i + 1 < end && text.charAt(i + 1) == '"') {
+                        flags = 2;
+                        i += 2;
+                        continue;
+                    }
+                    break;
+                }
+                i++;
+            }
+            field[0] = contentStart;
+            field[1] = Math.min(i, end);
+            field[2] = flags;
+
+            // Be lenient about stray characters between the closing quote and the delimiter
+            while (i < end && text.charAt(i) != ',') {
+                i++;
+            }
+            return i + 1;
+        }
+
+        int i = position;
+        while (i < end && text.charAt(i) != ',') {
+            i++;
+        }
+        field[0] = position;
+        field[1] = i;
+        field[2] = 0;
+        return i + 1;
+    }
+
+    private static String materialize(CharSequence text, int[] bounds, int slot) {
+        return materialize(text, bounds[3 * slot], bounds[3 * slot + 1], bounds[3 * slot + 2]);
+    }
+
+    private static String materialize(CharSequence text, int[] field) {
+        return materialize(text, field[0], field[1], field[2]);
+    }
+
+    private static String materialize(CharSequence text, int start, int end, int flags) {
+        if (flags != 2) {
+            return text.subSequence(start, end).toString();
+        }
+
+        // Unescape doubled quotes
+        StringBuilder builder = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            builder.append(c);
+            if (c == '"' && i + 1 < end && text.charAt(i + 1) == '"') {
+                i++;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Parses a price from a range of characters, ignoring everything except digits and the
+     * decimal point (so "$1,299.00" reads as 1299.0). Prices that are not valid numbers parse as 0.0.
+     * @param text The text containing the price
+     * @param start Index of the first character
+     * @param end Index just past the last character
+     * @return The parsed price
+     */
+    static double parsePrice(CharSequence text, int start, int end) {
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenPoint = false;
+
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+                    return parsePriceSlow(text, start, end);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (seenPoint) {
+                    scale++;
+                }
+            } else if (c == '.') {
+                if (seenPoint) {
+                    return parsePriceSlow(text, start, end);
+                }
+                seenPoint = true;
+            }
+        }
+
+        if (digits == 0 || scale >= POWERS_OF_TEN.length) {
+            return parsePriceSlow(text, start, end);
+        }
+        // Both operands are exact, so the division is correctly rounded like Double.parseDouble
+        return mantissa / POWERS_OF_TEN[scale];
+    }
+
+    /**
+     * Parses a date that starts with yyyy-MM-dd, ignoring any time of day after it
+     * (so "2024-01-15 08:30:00" reads as 2024-01-15).
+     * @param text The text containing the date
+     * @param start Index of the first character
+     * @param end Index just past the last character
+     * @return Days since 1970-01-01, or {@link Product#NO_DATE} if the field is not a valid date
+     */
+    static int parseDay(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) == ' ') {
+            start++;
+        }
+        if (end - start < 10 || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-') {
+            return Product.NO_DATE;
+        }
+        int year = digits(text, start, 4);
+        int month = digits(text, start + 5, 2);
+        int day = digits(text, start + 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            return Product.NO_DATE;
+        }
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return Product.NO_DATE;
+        }
+    }
+
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Fallback for prices the fast path cannot represent exactly.
+     */
+    private static double parsePriceSlow(CharSequence text, int start, int end) {
+        StringBuilder cleanedPrice = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if ((c >= '0' && c <= '9') || c == '.') {
+                cleanedPrice.append(c);
+            }
+        }
+        try {
+            return Double.parseDouble(cleanedPrice.toString());
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP/JSON query service over a loaded {@link ProductManager}, built on the JDK's HttpServer.
+ * Every request runs on its own virtual thread. Responses are written as they are produced,
+ * so long listings are never buffered in full.
+ *
+ * Endpoints:
+ *   GET  /products/{sku}                         one product, or 404
+ *   GET  /products?skus=A,B,C                    batch lookup
+ *   POST /products                               batch lookup, one SKU per line in the body
+ *   GET  /listing/price?order=asc|desc&amp;limit=N&amp;cursor=C   price-sorted page
+ *
+ * Requests read the product manager's latest published snapshot without locking, so it
+ * can be reloaded or refreshed, for example by a {@link CsvFileWatcher}, while serving.
+ * A batch or a listing page comes from a single snapshot.
+ */
+public class ProductHttpServer implements Closeable {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int MAX_BODY_BYTES = MAX_BATCH_SIZE * 128; // bounds what a POST batch may buffer
+
+    private final ProductManager productManager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server bound to the given address. Call {@link #start()} to accept requests.
+     * @param productManager The catalog to serve
+     * @param address The address to bind; port 0 picks a free port
+     * @throws IOException If the address cannot be bound
+     */
+    public ProductHttpServer(ProductManager productManager, InetSocketAddress address) throws IOException {
+        this.productManager = productManager;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/products", this::handleProducts);
+        server.createContext("/listing/price", this::handlePriceListing);
+    }
+
+    /**
+     * Starts accepting requests in the background.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     * @return The port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits for the ones in progress.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+
+    private void handleProducts(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+
+            if (path.length() > "/products/".length() && path.startsWith("/products/")) {
+                if (!method.equals("GET")) {
+                    sendError(exchange, 405, "Method not allowed");
+                    return;
+                }
+                Product product = lookup(path.substring("/products/".length()));
+                if (product == null) {
+                    sendError(exchange, 404, "Product not found");
+                    return;
+                }
+                try (Writer writer = startJson(exchange, 200)) {
+                    writeProduct(writer, product);
+                }
+                return;
+            }
+
+            if (!path.equals("/products") && !path.equals("/products/")) {
+                sendError(exchange, 404, "Not found");
+                return;
+            }
+
+            List<String> skus;
+            if (method.equals("GET")) {
+                String parameter = queryParameters(exchange).get("skus");
+                skus = parameter == null || parameter.isEmpty() ? List.of() : List.of(parameter.split(","));
+            } else if (method.equals("POST")) {
+                // Refuse oversized bodies before reading them, and never buffer more than the cap
+                String declared = exchange.getRequestHeaders().getFirst("Content-Length");
+                long length;
+                try {
+                    length = declared == null ? 0 : Long.parseLong(declared.trim());
+                } catch (NumberFormatException e) {
+                    length = -1;
+                }
+                if (length < 0) {
+                    sendError(exchange, 400, "Content-Length must be a non-negative number");
+                    return;
+                }
+                byte[] body = length > MAX_BODY_BYTES ? null : exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+                if (body == null || body.length > MAX_BODY_BYTES) {
+                    sendError(exchange, 413, "At most " + MAX_BODY_BYTES + " bytes per batch");
+                    return;
+                }
+                skus = readLines(body, MAX_BATCH_SIZE + 1);
+            } else {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            if (skus.size() > MAX_BATCH_SIZE) {
+                sendError(exchange, 400, "At most " + MAX_BATCH_SIZE + " SKUs per batch");
+                return;
+            }
+            writeBatch(exchange, skus);
+        }
+    }
+
+    private void handlePriceListing(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            Map<String, String> parameters = queryParameters(exchange);
+            String order = parameters.getOrDefault("order", "asc");
+            String cursor = parameters.get("cursor");
+
+            int limit;
+            try {
+                limit = Integer.parseInt(parameters.getOrDefault("limit", String.valueOf(DEFAULT_PAGE_SIZE)));
+            } catch (NumberFormatException e) {
+                sendError(exchange, 400, "limit must be a number");
+                return;
+            }
+            if (limit < 1) {
+                sendError(exchange, 400, "limit must be at least 1");
+                return;
+            }
+
+            PageCursor.Order cursorOrder;
+            Iterator<Product> iterator;
+            try {
+                if (order.equals("asc")) {
+                    cursorOrder = PageCursor.Order.PRICE_ASCENDING;
+                    iterator = productManager.priceAscendingFrom(cursor);
+                } else if (order.equals("desc")) {
+                    cursorOrder = PageCursor.Order.PRICE_DESCENDING;
+                    iterator = productManager.priceDescendingFrom(cursor);
+                } else {
+                    sendError(exchange, 400, "order must be asc or desc");
+                    return;
+                }
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+
+            try (Writer writer = startJson(exchange, 200)) {
+                writer.write("{\"products\":[");
+                Product last = null;
+                int written = 0;
+                while (written < limit && iterator.hasNext()) {
+                    if (written > 0) {
+                        writer.write(',');
+                    }
+                    last = iterator.next();
+                    writeProduct(writer, last);
+                    written++;
+                }
+                writer.write("],\"nextCursor\":");
+                if (last != null && iterator.hasNext()) {
+                    writeString(writer, PageCursor.afterPrice(cursorOrder, last.getPriceCurrent(), last.getSku()));
+                } else {
+                    writer.write("null");
+                }
+                writer.write('}');
+            }
+        }
+    }
+
+    private void writeBatch(HttpExchange exchange, List<String> skus) throws IOException {
+        List<String> keys = new ArrayList<>(skus.size());
+        for (String sku : skus) {
+            keys.add(sku.strip());
+        }
+        List<Product> found = productManager.searchBySKUs(keys);
+
+        List<String> missing = new ArrayList<>();
+        try (Writer writer = startJson(exchange, 200)) {
+            writer.write("{\"products\":[");
+            boolean first = true;
+            for (int i = 0; i < keys.size(); i++) {
+                Product product = found.get(i);
+                if (product == null) {
+                    missing.add(keys.get(i));
+                    continue;
+                }
+                if (!first) {
+                    writer.write(',');
+                }
+                writeProduct(writer, product);
+                first = false;
+            }
+            writer.write("],\"missing\":[");
+            for (int i = 0; i < missing.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeString(writer, missing.get(i));
+            }
+            writer.write("]}");
+        }
+    }
+
+    private Product lookup(String sku) {
+        return productManager.searchBySKU(sku);
+    }
+
+    private static Writer startJson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        // Length 0 means chunked transfer encoding, so the body can be streamed
+        exchange.sendResponseHeaders(status, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 8192);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        try (Writer writer = startJson(exchange, status)) {
+            writer.write("{\"error\":");
+            writeString(writer, message);
+            writer.write('}');
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            parameters.put(name, value);
+        }
+        return parameters;
+    }
+
+    /**
+     * Splits a body into its non-blank lines, stopping once there are limit of them.
+     */
+    private static List<String> readLines(byte[] body, int limit) {
+        List<String> lines = new ArrayList<>();
+        String text = new String(body, StandardCharsets.UTF_8);
+        int start = 0;
+        while (start < text.length() && lines.size() < limit) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            String line = text.substring(start, end);
+            if (!line.isBlank()) {
+                lines.add(line);
+            }
+            start = end + 1;
+        }
+        return lines;
+    }
+
+    /**
+     * Writes a product as a JSON object.
+     * @param writer Where to write
+     * @param product The product
+     * @throws IOException If an I/O error occurs
+     */
+    static void writeProduct(Writer writer, Product product) throws IOException {
+        writer.write("{\"sku\":");
+        writeString(writer, product.getSku());
+        writer.write(",\"name\":");
+        writeString(writer, product.getProductName());
+        writer.write(",\"category\":");
+        writeString(writer, product.getCategory());
+        writer.write(",\"priceRetail\":");
+        writer.write(Double.toString(product.getPriceRetail()));
+        writer.write(",\"priceCurrent\":");
+        writer.write(Double.toString(product.getPriceCurrent()));
+        writer.write('}');
+    }
+
+    /**
+     * Writes a JSON string literal, escaping quotes, backslashes and control characters.
+     * @param writer Where to write
+     * @param value The string
+     * @throws IOException If an I/O error occurs
+     */
+    static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -1,83 +1,510 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.Collections;
-import java.util.Comparator;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * Product catalog indexed by SKU, price, name and category.
+ *
+ * Thread-safe. Loads, refreshes and deletes are serialized on this object and applied to
+ * the indexes in place; when one completes, read-only snapshots of all the indexes are
+ * published together through an atomic reference. Queries, including lazy streams and
+ * pages, read the latest published snapshot without locking, so they never wait for a
+ * reload and never see one half-applied.
+ */
 public class ProductManager {
-    private BinarySearchTree<Product> productTree;
+    private static final long REFRESH_WINDOW = 64 << 20; // bytes of appended rows decoded at a time
+    private static final int PARALLEL_BATCH_THRESHOLD = 1 << 16; // batch lookups split across threads above this
 
+    // Written only while holding this object's monitor
+    private final SkuIndex skuIndex;
+    private final PriceIndex priceIndex;
+    private final ProductNameIndex nameIndex;
+    private final CategoryIndex categoryIndex;
+    private CsvIngestState ingestState; // how far the last loaded CSV has been applied
+    private Path sourcePath; // the CSV the catalog holds exactly, or null if it holds no single file
+    private ProductSnapshot.Source source; // fingerprint of that CSV, taken before it was read
+
+    private final AtomicReference<Catalog> current; // what queries read
+    private volatile CatalogMetrics metrics; // null unless enabled
+    private volatile SkuLookupCache lookupCache; // null unless enabled
+    private volatile PriceHistory priceHistory; // null unless enabled
+
+    // Snapshots of every index taken after the same update, and the CSV they reflect; never modified
+    private static final class Catalog {
+        final SkuIndex skus;
+        final PriceIndex prices;
+        final ProductNameIndex names;
+        final CategoryIndex categories;
+        final Path sourcePath;
+        final ProductSnapshot.Source source;
+
+        Catalog(SkuIndex skus, PriceIndex prices, ProductNameIndex names, CategoryIndex categories,
+                Path sourcePath, ProductSnapshot.Source source) {
+            this.skus = skus;
+            this.prices = prices;
+            this.names = names;
+            this.categories = categories;
+            this.sourcePath = sourcePath;
+            this.source = source;
+        }
+    }
+
+    /**
+     * Constructs an empty product manager on a single balanced tree.
+     */
     public ProductManager() {
-        productTree = new BinarySearchTree<>();
+        this(new TreeSkuIndex());
+    }
+
+    /**
+     * Constructs an empty product manager on the given SKU index, for example a
+     * {@link ShardedSkuIndex} to build large catalogs on several cores, a
+     * {@link BPlusTreeSkuIndex} for faster lookups and scans, or a
+     * {@link RadixTreeSkuIndex} for SKU-length lookups and prefix queries.
+     * @param skuIndex An empty SKU index
+     */
+    public ProductManager(SkuIndex skuIndex) {
+        this.skuIndex = skuIndex;
+        priceIndex = new PriceIndex();
+        nameIndex = new ProductNameIndex();
+        categoryIndex = new CategoryIndex();
+        current = new AtomicReference<>(snapshotIndexes());
     }
 
     /**
      * Loads products from a CSV file into the BST.
+     * Gzip-compressed files are detected and loaded with {@link #loadProductsFromCompressedCSV(String, int)}.
      * @param filePath Path to the CSV file
+     * @return A summary of the load
      * @throws IOException If an I/O error occurs
      */
-    public void loadProductsFromCSV(String filePath) throws IOException {
+    public synchronized LoadReport loadProductsFromCSV(String filePath) throws IOException {
+        if (CompressedCSVLoader.isCompressed(Path.of(filePath))) {
+            return loadProductsFromCompressedCSV(filePath, Runtime.getRuntime().availableProcessors());
+        }
+        long start = System.nanoTime();
+        long loaded = 0;
+        long rejected = 0;
+        fingerprintSource(filePath);
+        CsvIngestState state = captureIngestState(filePath);
         BufferedReader reader = new BufferedReader(new FileReader(filePath));
         String line;
 
-        // Skip the header line
+        // The header line tells us where each column is
         line = reader.readLine();
+        if (line == null) {
+            reader.close();
+            return new LoadReport(0, 0, System.nanoTime() - start);
+        }
+        ProductCsvParser parser;
+        try {
+            parser = ProductCsvParser.fromHeader(line);
+        } catch (IllegalArgumentException e) {
+            reader.close();
+            throw new IOException(e.getMessage(), e);
+        }
 
+        List<Product> products = new ArrayList<>();
         while ((line = reader.readLine()) != null) {
             try {
-                Product product = parseProductFromCSV(line);
+                Product product = parser.parse(line);
                 if (product != null) {
-                    productTree.insert(product);
+                    products.add(product);
+                    loaded++;
+                } else {
+                    rejected++;
                 }
             } catch (Exception e) {
-                System.err.println("Error parsing line: " + line);
-                System.err.println(e.getMessage());
+                rejected++;
             }
         }
 
         reader.close();
+        addProducts(products);
+        ingestState = state;
+        return recordLoad(new LoadReport(loaded, rejected, System.nanoTime() - start));
+    }
+
+    /**
+     * Loads products from a CSV file using one parse worker per available processor.
+     * The file is memory-mapped and parsed in newline-aligned chunks; rows are inserted
+     * in file order, so the result is identical to {@link #loadProductsFromCSV(String)}.
+     * @param filePath Path to the CSV file
+     * @return A summary of the load
+     * @throws IOException If an I/O error occurs
+     */
+    public LoadReport loadProductsFromCSVParallel(String filePath) throws IOException {
+        return loadProductsFromCSVParallel(filePath, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Loads products from a CSV file using a fixed number of parse workers.
+     * Gzip-compressed files are detected and loaded with {@link #loadProductsFromCompressedCSV(String, int)}.
+     * @param filePath Path to the CSV file
+     * @param threads Number of parse workers
+     * @return A summary of the load
+     * @throws IOException If an I/O error occurs
+     */
+    public synchronized LoadReport loadProductsFromCSVParallel(String filePath, int threads) throws IOException {
+        if (CompressedCSVLoader.isCompressed(Path.of(filePath))) {
+            return loadProductsFromCompressedCSV(filePath, threads);
+        }
+        long start = System.nanoTime();
+        fingerprintSource(filePath);
+        CsvIngestState state = captureIngestState(filePath);
+        List<ParallelCSVLoader.Chunk> chunks = new ParallelCSVLoader(threads).parse(Path.of(filePath));
+        LoadReport report = addChunks(chunks, start);
+        ingestState = state;
+        return report;
     }
 
     /**
-     * Parses a product from a CSV line.
-     * @param line The CSV line
-     * @return The parsed product
+     * Loads products from a gzip-compressed CSV file without decompressing it to disk.
+     * Decompression, line chunking and parsing run as a pipeline on separate threads.
+     * Later refreshes of a compressed file always reparse and diff it.
+     * @param filePath Path to the compressed CSV file
+     * @param threads Number of parse workers
+     * @return A summary of the load
+     * @throws IOException If an I/O error occurs, or the file is corrupt or zstd-compressed
      */
-    private Product parseProductFromCSV(String line) {
-        String[] fields = line.split(",");
+    public synchronized LoadReport loadProductsFromCompressedCSV(String filePath, int threads) throws IOException {
+        long start = System.nanoTime();
+        fingerprintSource(filePath);
+        List<ParallelCSVLoader.Chunk> chunks = new CompressedCSVLoader(threads).parse(Path.of(filePath));
+        LoadReport report = addChunks(chunks, start);
+        // Appends cannot be detected in compressed bytes
+        ingestState = null;
+        return report;
+    }
 
-        // Make sure we have enough fields
-        if (fields.length < 20) {
-            return null;
+    private LoadReport addChunks(List<ParallelCSVLoader.Chunk> chunks, long start) {
+        long loaded = 0;
+        long rejected = 0;
+        // Concatenate in file order, so later rows still win for duplicate SKUs
+        List<Product> products = new ArrayList<>();
+        for (ParallelCSVLoader.Chunk chunk : chunks) {
+            products.addAll(chunk.getProducts());
+            loaded += chunk.getProducts().size();
+            rejected += chunk.getRejected();
         }
+        addProducts(products);
+        return recordLoad(new LoadReport(loaded, rejected, System.nanoTime() - start));
+    }
 
-        // Extract the required fields based on your CSV structure
-        // CATEGORY,DATE_SCRAPED,SORT_BY,RUN_START_DATE,SUBCATEGORY,SHIPPING_LOCATION,SKU,COUNTRY,BRAND,PRICE_RETAIL,PRICE_CURRENT,SELLER,PRODUCT_URL,CURRENCY,BREADCRUMBS,DEPARTMENT,PROMOTION,BESTSELLER_RANK,PRODUCT_NAME,WEBSITE_URL
+    /**
+     * Brings the catalog up to date with a CSV file that may have changed since it was loaded.
+     * If the file was only appended to since the last load or refresh, just the new rows are
+     * read and upserted. Otherwise the file is reparsed and diffed by SKU: changed and new
+     * products are upserted and products no longer in the file are deleted. Either way only
+     * the delta is applied to the indexes.
+     * @param filePath Path to the CSV file
+     * @return What changed
+     * @throws IOException If an I/O error occurs
+     */
+    public synchronized RefreshReport refreshFromCSV(String filePath) throws IOException {
+        long start = System.nanoTime();
+        Path path = Path.of(filePath);
 
-        String category = fields[0];
-        String sku = fields[6];
-        double priceRetail = parsePrice(fields[9]);
-        double priceCurrent = parsePrice(fields[10]);
-        String productName = fields[18];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (ingestState != null && ingestState.isAppendOnly(path, channel)) {
+                long end = CsvIngestState.lastLineEnd(channel, ingestState.getOffset(), size);
+                if (end == ingestState.getOffset()) {
+                    return new RefreshReport(RefreshReport.Mode.UNCHANGED, List.of(), List.of(), System.nanoTime() - start);
+                }
 
-        return new Product(sku, priceRetail, priceCurrent, productName, category);
+                List<Product> upserted = readAppendedRows(channel, ingestState.getOffset(), end, ingestState.getParser());
+                recordPrices(upserted);
+                // Fingerprinting would hash the whole file; a snapshot needs a full load or diff
+                sourcePath = null;
+                source = null;
+                for (Product product : upserted) {
+                    addProduct(product);
+                }
+                publish(upserted.stream().map(Product::getSku).toList());
+                ingestState = ingestState.advance(channel, end);
+                return new RefreshReport(RefreshReport.Mode.APPENDED, upserted, List.of(), System.nanoTime() - start);
+            }
+
+            // Rewritten, compressed or never loaded: reparse and diff by SKU
+            boolean compressed = CompressedCSVLoader.isCompressed(path);
+            ProductSnapshot.Source before = ProductSnapshot.Source.of(path);
+            CsvIngestState state = compressed ? null : CsvIngestState.capture(path, channel, size);
+            List<ParallelCSVLoader.Chunk> chunks = compressed ? new CompressedCSVLoader().parse(path) : new ParallelCSVLoader().parse(path);
+            Map<String, Product> latest = new HashMap<>();
+            for (ParallelCSVLoader.Chunk chunk : chunks) {
+                recordPrices(chunk.getProducts());
+                for (Product product : chunk.getProducts()) {
+                    latest.put(product.getSku(), product);
+                }
+            }
+
+            List<String> deleted = new ArrayList<>();
+            for (Product product : skuIndex) {
+                Product replacement = latest.get(product.getSku());
+                if (replacement == null) {
+                    deleted.add(product.getSku());
+                } else if (sameContent(product, replacement)) {
+                    latest.remove(product.getSku());
+                }
+            }
+            List<Product> upserted = new ArrayList<>(latest.values());
+            upserted.sort(null);
+
+            List<String> changed = new ArrayList<>(deleted);
+            for (String sku : deleted) {
+                remove(sku);
+            }
+            for (Product product : upserted) {
+                addProduct(product);
+                changed.add(product.getSku());
+            }
+            // After the diff the catalog holds exactly the file as it was read
+            sourcePath = path.toAbsolutePath().normalize();
+            source = before;
+            publish(changed);
+            ingestState = state;
+            return new RefreshReport(RefreshReport.Mode.FULL_DIFF, upserted, deleted, System.nanoTime() - start);
+        }
     }
 
     /**
-     * Parses a price from a string.
-     * @param priceStr The price string
-     * @return The parsed price
+     * Parses the complete lines in [from, to), reading at most 64 MB at a time.
      */
-    private double parsePrice(String priceStr) {
-        try {
-            // Remove any non-numeric characters except the decimal point
-            String cleanedPrice = priceStr.replaceAll("[^0-9.]", "");
-            return Double.parseDouble(cleanedPrice);
-        } catch (NumberFormatException e) {
-            System.err.println("Error parsing price: " + priceStr);
-            return 0.0;
+    private static List<Product> readAppendedRows(FileChannel channel, long from, long to, ProductCsvParser parser) throws IOException {
+        List<Product> products = new ArrayList<>();
+        long position = from;
+        while (position < to) {
+            long end = to;
+            if (end - position > REFRESH_WINDOW) {
+                end = CsvIngestState.lastLineEnd(channel, position, position + REFRESH_WINDOW);
+                if (end == position) {
+                    end = to;
+                }
+            }
+
+            String text = StandardCharsets.UTF_8.decode(channel.map(FileChannel.MapMode.READ_ONLY, position, end - position)).toString();
+            int lineStart = 0;
+            while (lineStart < text.length()) {
+                int lineEnd = text.indexOf('\n', lineStart);
+                if (lineEnd < 0) {
+                    lineEnd = text.length();
+                }
+                int contentEnd = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                try {
+                    Product product = parser.parse(text, lineStart, contentEnd);
+                    if (product != null) {
+                        products.add(product);
+                    }
+                } catch (Exception e) {
+                    // Malformed row; skip it like the loaders do
+                }
+                lineStart = lineEnd + 1;
+            }
+            position = end;
+        }
+        return products;
+    }
+
+    private static boolean sameContent(Product a, Product b) {
+        return a.getSku().equals(b.getSku())
+                && Double.compare(a.getPriceRetail(), b.getPriceRetail()) == 0
+                && Double.compare(a.getPriceCurrent(), b.getPriceCurrent()) == 0
+                && a.getProductName().equals(b.getProductName())
+                && a.getCategory().equals(b.getCategory())
+                && a.getScrapeDay() == b.getScrapeDay();
+    }
+
+    /**
+     * Records the current end of a CSV file before it is read, so a later refresh knows
+     * where to resume. Rows appended while loading are simply applied again, which is harmless.
+     */
+    private static CsvIngestState captureIngestState(String filePath) throws IOException {
+        Path path = Path.of(filePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return CsvIngestState.capture(path, channel, channel.size());
+        }
+    }
+
+    /**
+     * Fingerprints a CSV before it is read, for {@link #saveSnapshot(String, String)}. A file
+     * rewritten while it is parsed then leaves a snapshot stamped with the old contents, which
+     * the next start finds stale. Loading into a non-empty catalog mixes files, so nothing is
+     * fingerprinted and no snapshot can be saved.
+     */
+    private void fingerprintSource(String filePath) throws IOException {
+        Path path = Path.of(filePath);
+        if (skuIndex.size() == 0) {
+            sourcePath = path.toAbsolutePath().normalize();
+            source = ProductSnapshot.Source.of(path);
+        } else {
+            sourcePath = null;
+            source = null;
+        }
+    }
+
+    /**
+     * Loads products from a binary snapshot, if it is still current for the given CSV.
+     * @param snapshotPath Path to the snapshot file
+     * @param csvPath Path to the CSV file the snapshot was built from
+     * @return True if the snapshot was loaded, false if it is missing, stale or corrupt
+     * @throws IOException If an I/O error occurs
+     */
+    public synchronized boolean loadSnapshot(String snapshotPath, String csvPath) throws IOException {
+        // Captured before validating, so a CSV changed in between is caught by the next refresh
+        CsvIngestState state = captureIngestState(csvPath);
+        ProductSnapshot.Contents contents = ProductSnapshot.readContents(Path.of(snapshotPath), Path.of(csvPath));
+        if (contents == null) {
+            return false;
+        }
+        boolean empty = skuIndex.size() == 0;
+        sourcePath = empty ? Path.of(csvPath).toAbsolutePath().normalize() : null;
+        source = empty ? contents.getSource() : null;
+        addProducts(contents.getProducts());
+        ingestState = state;
+        return true;
+    }
+
+    /**
+     * Saves the current catalog as a binary snapshot of the given CSV file. The snapshot
+     * records the fingerprint the CSV had when it was read, not when it is saved.
+     * @param snapshotPath Path to the snapshot file
+     * @param csvPath Path to the CSV file the products were loaded from
+     * @throws IOException If an I/O error occurs
+     * @throws IllegalStateException If the catalog does not hold exactly that CSV as it was
+     *         read, for example after loading a second file, an appending refresh or a delete
+     */
+    public void saveSnapshot(String snapshotPath, String csvPath) throws IOException {
+        Catalog catalog = current.get();
+        if (catalog.source == null || !catalog.sourcePath.equals(Path.of(csvPath).toAbsolutePath().normalize())) {
+            throw new IllegalStateException("Catalog does not hold " + csvPath + " as loaded; reload it before saving a snapshot");
+        }
+        ProductSnapshot.write(Path.of(snapshotPath), catalog.skus, catalog.skus.size(), catalog.source);
+    }
+
+    /**
+     * Adds a batch of products with a single bulk build of the SKU index and publishes it;
+     * later products win over earlier ones with the same SKU, as with repeated
+     * {@link #addProduct(Product)}. The secondary indexes only change for the batch:
+     * the products it replaces are removed and its products added.
+     */
+    private void addProducts(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        recordPrices(products);
+        Map<String, Product> latest = new HashMap<>(products.size() * 4 / 3 + 1);
+        for (Product product : products) {
+            latest.put(product.getSku(), product);
+        }
+        List<Product> added = new ArrayList<>(latest.values());
+        List<Product> replaced = List.of();
+        if (skuIndex.size() > 0) {
+            List<String> skus = new ArrayList<>(latest.keySet());
+            skus.sort(null);
+            replaced = skuIndex.getAll(skus);
+        }
+
+        skuIndex.putAll(products);
+        for (Product previous : replaced) {
+            if (previous != null) {
+                priceIndex.remove(previous);
+                categoryIndex.remove(previous);
+            }
+        }
+        priceIndex.addAll(added);
+        categoryIndex.addAll(added);
+        for (Product product : added) {
+            nameIndex.add(product);
+        }
+        publish(null);
+    }
+
+    /**
+     * Inserts or replaces a product, keeping the secondary indexes in sync. Not published
+     * until the caller calls {@link #publish(Collection)}.
+     * @param product The product to add
+     */
+    private void addProduct(Product product) {
+        Product previous = skuIndex.put(product);
+        if (previous != null) {
+            priceIndex.remove(previous);
+            categoryIndex.remove(previous);
+        }
+        priceIndex.add(product);
+        nameIndex.add(product);
+        categoryIndex.add(product);
+    }
+
+    /**
+     * Deletes a product by SKU.
+     * @param sku The SKU to delete
+     * @return The deleted product, or null if there was no product with that SKU
+     */
+    public synchronized Product deleteBySKU(String sku) {
+        Product removed = remove(sku);
+        if (removed != null) {
+            sourcePath = null;
+            source = null;
+            publish(List.of(sku));
+        }
+        return removed;
+    }
+
+    /**
+     * Deletes a product from every index without publishing the change.
+     */
+    private Product remove(String sku) {
+        Product removed = skuIndex.remove(sku);
+        if (removed != null) {
+            priceIndex.remove(removed);
+            nameIndex.remove(sku);
+            categoryIndex.remove(removed);
+        }
+        return removed;
+    }
+
+    private Catalog snapshotIndexes() {
+        return new Catalog(skuIndex.snapshot(), priceIndex.snapshot(), nameIndex.snapshot(), categoryIndex.snapshot(),
+                sourcePath, source);
+    }
+
+    /**
+     * Makes the indexes as they are now visible to queries, then drops the cached lookups of
+     * the changed SKUs. Invalidating after publishing means a lookup that misses the cache
+     * afterwards reads the new snapshot, and one that loaded from the old snapshot is not cached.
+     * @param changed The SKUs inserted, replaced or deleted, or null if any may have changed
+     */
+    private void publish(Collection<String> changed) {
+        current.set(snapshotIndexes());
+        SkuLookupCache cache = lookupCache;
+        if (cache == null) {
+            return;
+        }
+        if (changed == null) {
+            cache.clear();
+        } else {
+            for (String sku : changed) {
+                cache.invalidate(sku);
+            }
         }
     }
 
@@ -87,9 +514,259 @@ public class ProductManager {
      * @return The product if found, null otherwise
      */
     public Product searchBySKU(String sku) {
-        // Create a dummy product with the given SKU for searching
-        Product dummyProduct = new Product(sku, 0, 0, "", "");
-        return productTree.search(dummyProduct);
+        CatalogMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return lookup(sku);
+        }
+        long start = System.nanoTime();
+        Product product = lookup(sku);
+        metrics.recordLookup(System.nanoTime() - start, product != null);
+        return product;
+    }
+
+    private Product lookup(String sku) {
+        SkuLookupCache cache = lookupCache;
+        // The loader reads the snapshot only once the cache has noted the invalidation count
+        return cache == null ? current.get().skus.get(sku) : cache.get(sku, key -> current.get().skus.get(key));
+    }
+
+    /**
+     * Searches for products whose SKU starts with a prefix.
+     * @param prefix The SKU prefix
+     * @param limit The maximum number of products to return
+     * @return The matching products, in SKU order
+     */
+    public List<Product> searchBySKUPrefix(String prefix, int limit) {
+        return current.get().skus.withPrefix(prefix, limit);
+    }
+
+    /**
+     * Searches for many SKUs at once. The SKUs are sorted and resolved in one coordinated
+     * walk of the tree, which is much cheaper than calling {@link #searchBySKU(String)} in a
+     * loop; very large batches are split across the common ForkJoin pool.
+     * @param skus The SKUs to search for, duplicates allowed
+     * @return The product for each SKU, in input order, with null for every SKU not found
+     */
+    public List<Product> searchBySKUs(Collection<String> skus) {
+        String[] input = skus.toArray(new String[0]);
+        // Sort positions rather than keys, so results map back to input order in one pass
+        int[] order = new int[input.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        sortByKey(order, input, 0, order.length, 0);
+        String[] sorted = new String[input.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = input[order[i]];
+        }
+        List<String> sortedKeys = Arrays.asList(sorted);
+
+        SkuIndex index = current.get().skus; // every slice reads the same snapshot
+        Product[] found = new Product[sorted.length];
+        if (sorted.length < PARALLEL_BATCH_THRESHOLD) {
+            index.getAll(sortedKeys).toArray(found);
+        } else {
+            // Independent slices of the sorted keys; the snapshot is only read
+            int slices = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), sorted.length / PARALLEL_BATCH_THRESHOLD + 1));
+            IntStream.range(0, slices).parallel().forEach(slice -> {
+                int from = (int) ((long) sorted.length * slice / slices);
+                int to = (int) ((long) sorted.length * (slice + 1) / slices);
+                List<Product> products = index.getAll(sortedKeys.subList(from, to));
+                for (int i = from; i < to; i++) {
+                    found[i] = products.get(i - from);
+                }
+            });
+        }
+
+        Product[] result = new Product[input.length];
+        for (int i = 0; i < order.length; i++) {
+            result[order[i]] = found[i];
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Sorts positions by the keys they point to, looking at one character at a time from the
+     * given position (3-way radix quicksort). SKUs often share long prefixes, which a
+     * comparison sort would compare again and again; here each shared character is examined
+     * once per partition, and the positions stay primitive.
+     * @param order The positions to sort, in [low, high)
+     * @param keys The keys, indexed by position
+     * @param position The first character not known to be equal across the range
+     */
+    private static void sortByKey(int[] order, String[] keys, int low, int high, int position) {
+        while (high - low > 1) {
+            if (high - low < 16) {
+                // Insertion sort for small ranges
+                for (int i = low + 1; i < high; i++) {
+                    int current = order[i];
+                    int j = i;
+                    while (j > low && keys[order[j - 1]].compareTo(keys[current]) > 0) {
+                        order[j] = order[j - 1];
+                        j--;
+                    }
+                    order[j] = current;
+                }
+                return;
+            }
+
+            // Median of three as pivot, then split into below / equal / above at this character
+            int a = charAt(keys[order[low]], position);
+            int b = charAt(keys[order[(low + high) >>> 1]], position);
+            int c = charAt(keys[order[high - 1]], position);
+            int pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+            int lt = low;
+            int gt = high;
+            int i = low;
+            while (i < gt) {
+                int character = charAt(keys[order[i]], position);
+                if (character < pivot) {
+                    swap(order, lt++, i++);
+                } else if (character > pivot) {
+                    swap(order, i, --gt);
+                } else {
+                    i++;
+                }
+            }
+            sortByKey(order, keys, low, lt, position);
+            sortByKey(order, keys, gt, high, position);
+            if (pivot < 0) {
+                return; // the middle keys all end here, so they are equal
+            }
+            low = lt;
+            high = gt;
+            position++;
+        }
+    }
+
+    /**
+     * Returns the character at a position, or -1 past the end, so shorter keys sort first.
+     */
+    private static int charAt(String key, int position) {
+        return position < key.length() ? key.charAt(position) : -1;
+    }
+
+    private static void swap(int[] order, int i, int j) {
+        int temporary = order[i];
+        order[i] = order[j];
+        order[j] = temporary;
+    }
+
+    /**
+     * Turns on metrics collection: load throughput, lookup latency and tree shape.
+     * Until this is called, loads and lookups are not instrumented at all.
+     * @return The metrics, shared by later calls
+     */
+    public synchronized CatalogMetrics enableMetrics() {
+        if (metrics == null) {
+            // Tree statistics may be read from a JMX thread; the snapshot needs no lock
+            metrics = new CatalogMetrics(() -> current.get().skus.stats());
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics, if enabled.
+     * @return The metrics, or null if {@link #enableMetrics()} has not been called
+     */
+    public CatalogMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Puts a bounded cache in front of {@link #searchBySKU(String)}, so repeated lookups of
+     * hot SKUs (and of unknown SKUs) skip the tree. Inserts, deletes, refreshes and reloads
+     * keep it consistent. Batch lookups bypass it.
+     *
+     * Off by default: a hit is cheaper than a tree lookup, but a miss costs a tree lookup plus
+     * an insert, so tail latency only improves when almost every lookup hits. Check the
+     * workload with {@code CacheBenchmark} before enabling it.
+     * @param capacity Maximum number of cached SKUs
+     * @return The cache, shared by later calls
+     */
+    public synchronized SkuLookupCache enableLookupCache(int capacity) {
+        if (lookupCache == null) {
+            lookupCache = new SkuLookupCache(capacity);
+        }
+        return lookupCache;
+    }
+
+    /**
+     * Returns the lookup cache, if enabled.
+     * @return The cache, or null if {@link #enableLookupCache(int)} has not been called
+     */
+    public SkuLookupCache getLookupCache() {
+        return lookupCache;
+    }
+
+    /**
+     * Starts keeping the price history of every SKU, seeded with the products already
+     * loaded. Every row with a DATE_SCRAPED loaded or refreshed afterwards is recorded,
+     * including rows superseded by a later row for the same SKU. The history is updated
+     * in place while holding this object's monitor, so readers on other threads should
+     * synchronize on this product manager.
+     * @return The price history, shared by later calls
+     */
+    public synchronized PriceHistory enablePriceHistory() {
+        if (priceHistory == null) {
+            priceHistory = new PriceHistory();
+            recordPrices(skuIndex);
+        }
+        return priceHistory;
+    }
+
+    /**
+     * Returns the price history, if enabled.
+     * @return The price history, or null if {@link #enablePriceHistory()} has not been called
+     */
+    public PriceHistory getPriceHistory() {
+        return priceHistory;
+    }
+
+    private void recordPrices(Iterable<Product> products) {
+        if (priceHistory != null) {
+            for (Product product : products) {
+                priceHistory.record(product);
+            }
+        }
+    }
+
+    private LoadReport recordLoad(LoadReport report) {
+        if (metrics != null) {
+            metrics.recordLoad(report);
+        }
+        return report;
+    }
+
+    /**
+     * Searches for products whose name contains every word of the query.
+     * Matching ignores case and accents; results are ranked by relevance.
+     * @param query The words to search for, e.g. "washing machine"
+     * @param limit Maximum number of results
+     * @return The matching products, best matches first
+     */
+    public List<Product> searchByName(String query, int limit) {
+        return current.get().names.search(query, limit);
+    }
+
+    /**
+     * Searches by name while the user is typing: the last word may be incomplete.
+     * @param query The words typed so far
+     * @param limit Maximum number of results
+     * @return The matching products, best matches first
+     */
+    public List<Product> searchByNamePrefix(String query, int limit) {
+        return current.get().names.searchPrefix(query, limit);
+    }
+
+    /**
+     * Suggests product-name words starting with a prefix, most common first.
+     * @param prefix The beginning of a word
+     * @param limit Maximum number of suggestions
+     * @return The suggested words
+     */
+    public List<String> autocomplete(String prefix, int limit) {
+        return current.get().names.autocomplete(prefix, limit);
     }
 
     /**
@@ -97,10 +774,8 @@ public class ProductManager {
      * @return The sorted list
      */
     public List<Product> listProductsByPriceAscending() {
-        List<Product> products = productTree.inOrder();
-        return products.stream()
-                .sorted(Comparator.comparing(Product::getPriceCurrent))
-                .collect(Collectors.toList());
+        PriceIndex prices = current.get().prices;
+        return prices.cheapest(prices.size());
     }
 
     /**
@@ -108,17 +783,234 @@ public class ProductManager {
      * @return The sorted list
      */
     public List<Product> listProductsByPriceDescending() {
-        List<Product> products = productTree.inOrder();
-        return products.stream()
-                .sorted(Comparator.comparing(Product::getPriceCurrent).reversed())
-                .collect(Collectors.toList());
+        PriceIndex prices = current.get().prices;
+        return prices.mostExpensive(prices.size());
+    }
+
+    /**
+     * Returns the products whose current price lies in [min, max], cheapest first.
+     * @param min The lowest price, inclusive
+     * @param max The highest price, inclusive
+     * @return The matching products
+     */
+    public List<Product> productsInPriceRange(double min, double max) {
+        return current.get().prices.range(min, max);
+    }
+
+    /**
+     * Returns the k cheapest products.
+     * @param k The number of products to return
+     * @return Up to k products, cheapest first
+     */
+    public List<Product> cheapest(int k) {
+        return current.get().prices.cheapest(k);
+    }
+
+    /**
+     * Returns the k most expensive products.
+     * @param k The number of products to return
+     * @return Up to k products, most expensive first
+     */
+    public List<Product> mostExpensive(int k) {
+        return current.get().prices.mostExpensive(k);
+    }
+
+    /**
+     * Returns the number of products in every category.
+     * @return The counts by category, largest first
+     */
+    public Map<String, Integer> categoryCounts() {
+        return current.get().categories.counts();
+    }
+
+    /**
+     * Returns the number of products in a category.
+     * @param category The category
+     * @return The number of products
+     */
+    public int countInCategory(String category) {
+        return current.get().categories.count(category);
+    }
+
+    /**
+     * Counts the products of each category in a result set, for example a name search.
+     * @param products The products to count
+     * @return The counts by category, largest first
+     */
+    public Map<String, Integer> categoryFacets(Iterable<Product> products) {
+        return CategoryIndex.facetCounts(products);
+    }
+
+    /**
+     * Returns the k cheapest products of a category.
+     * @param category The category
+     * @param k The number of products to return
+     * @return Up to k products, cheapest first
+     */
+    public List<Product> cheapestInCategory(String category, int k) {
+        return current.get().categories.cheapest(category, k);
+    }
+
+    /**
+     * Returns the k most expensive products of a category.
+     * @param category The category
+     * @param k The number of products to return
+     * @return Up to k products, most expensive first
+     */
+    public List<Product> mostExpensiveInCategory(String category, int k) {
+        return current.get().categories.mostExpensive(category, k);
+    }
+
+    /**
+     * Returns the products of a category whose current price lies in [min, max].
+     * @param category The category
+     * @param min The lowest price, inclusive
+     * @param max The highest price, inclusive
+     * @return The matching products, cheapest first
+     */
+    public List<Product> productsInPriceRange(String category, double min, double max) {
+        return current.get().categories.range(category, min, max);
+    }
+
+    /**
+     * Returns a lazy stream of all products in SKU order, as of the call.
+     * @return The stream
+     */
+    public Stream<Product> streamBySKU() {
+        return current.get().skus.stream();
+    }
+
+    /**
+     * Returns a lazy stream of all products sorted by price (ascending).
+     * @return The stream
+     */
+    public Stream<Product> streamByPriceAscending() {
+        return toStream(current.get().prices.ascendingIterator());
+    }
+
+    /**
+     * Returns a lazy stream of all products sorted by price (descending).
+     * @return The stream
+     */
+    public Stream<Product> streamByPriceDescending() {
+        return toStream(current.get().prices.descendingIterator());
+    }
+
+    /**
+     * Returns one page of products in SKU order.
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @param pageSize The maximum number of products on the page
+     * @return The page
+     * @throws IllegalArgumentException If the cursor is malformed or from another listing
+     */
+    public Page pageBySKU(String cursor, int pageSize) {
+        SkuIndex skus = current.get().skus;
+        Iterator<Product> iterator;
+        if (cursor == null) {
+            iterator = skus.iterator();
+        } else {
+            PageCursor position = PageCursor.decode(cursor, PageCursor.Order.SKU);
+            iterator = skus.iteratorAfter(position.getSku());
+        }
+        return nextPage(iterator, pageSize, PageCursor.Order.SKU);
+    }
+
+    /**
+     * Returns one page of products sorted by price (ascending).
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @param pageSize The maximum number of products on the page
+     * @return The page
+     * @throws IllegalArgumentException If the cursor is malformed or from another listing
+     */
+    public Page pageByPriceAscending(String cursor, int pageSize) {
+        return nextPage(priceAscendingFrom(cursor), pageSize, PageCursor.Order.PRICE_ASCENDING);
+    }
+
+    /**
+     * Returns one page of products sorted by price (descending).
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @param pageSize The maximum number of products on the page
+     * @return The page
+     * @throws IllegalArgumentException If the cursor is malformed or from another listing
+     */
+    public Page pageByPriceDescending(String cursor, int pageSize) {
+        return nextPage(priceDescendingFrom(cursor), pageSize, PageCursor.Order.PRICE_DESCENDING);
+    }
+
+    /**
+     * Iterates the products sorted by price (ascending), starting after a page cursor.
+     * Nothing is collected, so callers can stream listings of any length; pass the last
+     * product returned to {@link PageCursor#afterPrice} to resume later.
+     * @param cursor A cursor from a price-ascending listing, or null to start at the cheapest
+     * @return The iterator
+     * @throws IllegalArgumentException If the cursor is malformed or from another listing
+     */
+    public Iterator<Product> priceAscendingFrom(String cursor) {
+        PriceIndex prices = current.get().prices;
+        if (cursor == null) {
+            return prices.ascendingIterator();
+        }
+        PageCursor position = PageCursor.decode(cursor, PageCursor.Order.PRICE_ASCENDING);
+        return prices.ascendingIteratorAfter(position.getPrice(), position.getSku());
+    }
+
+    /**
+     * Iterates the products sorted by price (descending), starting after a page cursor.
+     * @param cursor A cursor from a price-descending listing, or null to start at the most expensive
+     * @return The iterator
+     * @throws IllegalArgumentException If the cursor is malformed or from another listing
+     */
+    public Iterator<Product> priceDescendingFrom(String cursor) {
+        PriceIndex prices = current.get().prices;
+        if (cursor == null) {
+            return prices.descendingIterator();
+        }
+        PageCursor position = PageCursor.decode(cursor, PageCursor.Order.PRICE_DESCENDING);
+        return prices.descendingIteratorAfter(position.getPrice(), position.getSku());
+    }
+
+    /**
+     * Collects up to pageSize products and builds the cursor for the following page.
+     */
+    private static Page nextPage(Iterator<Product> iterator, int pageSize, PageCursor.Order order) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1: " + pageSize);
+        }
+        List<Product> products = new ArrayList<>(Math.min(pageSize, 1024));
+        while (products.size() < pageSize && iterator.hasNext()) {
+            products.add(iterator.next());
+        }
+        String nextCursor = iterator.hasNext() ? PageCursor.after(order, products.get(products.size() - 1)) : null;
+        return new Page(products, nextCursor);
+    }
+
+    private static Stream<Product> toStream(Iterator<Product> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Builds a compact, read-only columnar copy of the current catalog.
+     * @return The columnar store
+     */
+    public ColumnarProductStore toColumnarStore() {
+        return ColumnarProductStore.from(current.get().skus);
+    }
+
+    /**
+     * Copies the current catalog outside the Java heap, for example to write it with
+     * {@link OffHeapProductStore#write(java.nio.file.Path)} and serve it mapped.
+     * @return The store; close it to free its memory
+     */
+    public OffHeapProductStore toOffHeapStore() {
+        return OffHeapProductStore.from(current.get().skus);
     }
 
     /**
-     * Returns the number of products in the tree.
+     * Returns the number of products in the catalog.
      * @return The number of products
      */
     public int getProductCount() {
-        return productTree.size();
+        return current.get().skus.size();
     }
 }
\ No newline at end of file
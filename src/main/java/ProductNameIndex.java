@@ -0,0 +1,625 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Inverted index over product names for keyword and prefix search.
+ * Names are split into lowercase, accent-free tokens, and every token maps to a posting
+ * list of the products whose name contains it. Posting lists are stored as delta-encoded
+ * varints with a skip entry every 64 postings, so AND queries jump over the parts of long
+ * lists that cannot match instead of decoding them. Matches are ranked with BM25.
+ *
+ * Replaced and deleted products are only marked as deleted; the index rebuilds itself
+ * once deleted entries outnumber the live ones.
+ *
+ * {@link #snapshot()} freezes the index without copying it. Documents and postings are
+ * only ever appended, so the snapshot just remembers how far they went; the term tree is
+ * persistent, and a posting list header or a chunk of the deleted set is copied the first
+ * time it changes after a snapshot.
+ */
+public class ProductNameIndex {
+    private static final int SKIP_INTERVAL = 64; // postings between skip entries
+    private static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+    private static final int MIN_DELETED_FOR_COMPACTION = 1024;
+    private static final int CHUNK_SHIFT = 16; // docs per chunk of the deleted set, as a power of two
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private PersistentSearchTree<PostingList> terms;
+    private Map<String, Integer> docBySku; // null in snapshots
+    private long[][] deleted; // bitset chunks, null until a doc in the chunk is deleted
+    private int[] deletedGenerations; // generation each chunk was copied in; null in snapshots
+    private Product[] docs; // shared with snapshots, only appended to
+    private int[] docLengths;
+    private int docCount;
+    private int deletedCount;
+    private long totalLength; // tokens in live documents, for the average name length
+    private int generation; // bumped by every snapshot; structures from older generations are shared
+    private final boolean readOnly;
+
+    /**
+     * Constructs an empty name index.
+     */
+    public ProductNameIndex() {
+        readOnly = false;
+        reset();
+    }
+
+    private ProductNameIndex(ProductNameIndex source) {
+        terms = source.terms;
+        deleted = source.deleted.clone();
+        docs = source.docs;
+        docLengths = source.docLengths;
+        docCount = source.docCount;
+        deletedCount = source.deletedCount;
+        totalLength = source.totalLength;
+        readOnly = true;
+    }
+
+    /**
+     * Adds a product, replacing any product already indexed under the same SKU.
+     * @param product The product to add
+     */
+    public void add(Product product) {
+        checkWritable();
+        remove(product.getSku());
+
+        List<String> tokens = tokenize(product.getProductName());
+        if (docCount == docs.length) {
+            docs = Arrays.copyOf(docs, docCount * 2);
+            docLengths = Arrays.copyOf(docLengths, docCount * 2);
+        }
+        int doc = docCount++;
+        docs[doc] = product;
+        docLengths[doc] = tokens.size();
+        totalLength += tokens.size();
+        docBySku.put(product.getSku(), doc);
+
+        // Names are short, so sorting is the cheapest way to count repeated tokens
+        tokens.sort(null);
+        for (int i = 0; i < tokens.size(); ) {
+            int j = i + 1;
+            while (j < tokens.size() && tokens.get(j).equals(tokens.get(i))) {
+                j++;
+            }
+            writablePostings(tokens.get(i)).add(doc, j - i);
+            i = j;
+        }
+    }
+
+    /**
+     * Removes the product with the given SKU.
+     * @param sku The SKU to remove
+     * @return True if a product was removed
+     */
+    public boolean remove(String sku) {
+        checkWritable();
+        Integer doc = docBySku.remove(sku);
+        if (doc == null) {
+            return false;
+        }
+        markDeleted(doc);
+        totalLength -= docLengths[doc];
+        deletedCount++;
+        if (deletedCount >= MIN_DELETED_FOR_COMPACTION && deletedCount > size()) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Removes all products.
+     */
+    public void clear() {
+        checkWritable();
+        reset();
+    }
+
+    /**
+     * Returns a read-only view of the index as it is now. Nothing is copied up front;
+     * later updates to this index copy what they change instead.
+     * @return The snapshot; its add, remove and clear throw UnsupportedOperationException
+     */
+    public ProductNameIndex snapshot() {
+        ProductNameIndex snapshot = new ProductNameIndex(this);
+        generation++;
+        return snapshot;
+    }
+
+    private void reset() {
+        // Fresh structures, so snapshots keep the old ones
+        terms = PersistentSearchTree.empty();
+        docBySku = new HashMap<>();
+        deleted = new long[0][];
+        deletedGenerations = new int[0];
+        docs = new Product[16];
+        docLengths = new int[16];
+        docCount = 0;
+        deletedCount = 0;
+        totalLength = 0;
+    }
+
+    /**
+     * Returns the number of indexed products.
+     * @return The number of products
+     */
+    public int size() {
+        return docCount - deletedCount;
+    }
+
+    /**
+     * Returns the number of distinct tokens in the index.
+     * @return The number of terms
+     */
+    public int termCount() {
+        return terms.size();
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Name index snapshots are read-only");
+        }
+    }
+
+    /**
+     * Returns the posting list of a term for appending, creating it if needed. A list that
+     * a snapshot may see is replaced by a copy of its header; the copy appends to the same
+     * arrays past the end the snapshot knows.
+     */
+    private PostingList writablePostings(String term) {
+        PostingList postings = terms.searchByKey(term, PostingList::getTerm);
+        if (postings == null || postings.generation != generation) {
+            postings = postings == null ? new PostingList(term, generation) : postings.copy(generation);
+            terms = terms.insert(postings);
+        }
+        return postings;
+    }
+
+    private boolean isDeleted(int doc) {
+        int chunk = doc >>> CHUNK_SHIFT;
+        long[] words = chunk < deleted.length ? deleted[chunk] : null;
+        return words != null && (words[(doc & ((1 << CHUNK_SHIFT) - 1)) >>> 6] & (1L << doc)) != 0;
+    }
+
+    /**
+     * Sets a bit of the deleted set, copying its chunk first if a snapshot may share it.
+     */
+    private void markDeleted(int doc) {
+        int chunk = doc >>> CHUNK_SHIFT;
+        if (chunk >= deleted.length) {
+            deleted = Arrays.copyOf(deleted, Math.max(chunk + 1, deleted.length * 2));
+            deletedGenerations = Arrays.copyOf(deletedGenerations, deleted.length);
+        }
+        long[] words = deleted[chunk];
+        if (words == null) {
+            words = new long[1 << (CHUNK_SHIFT - 6)];
+        } else if (deletedGenerations[chunk] != generation) {
+            words = words.clone();
+        }
+        deleted[chunk] = words;
+        deletedGenerations[chunk] = generation;
+        words[(doc & ((1 << CHUNK_SHIFT) - 1)) >>> 6] |= 1L << doc;
+    }
+
+    /**
+     * Finds the products whose name contains every word of the query, best matches first.
+     * @param query The words to search for
+     * @param limit Maximum number of results
+     * @return The matching products, ranked by relevance
+     */
+    public List<Product> search(String query, int limit) {
+        return search(tokenize(query), false, limit);
+    }
+
+    /**
+     * Like {@link #search(String, int)}, but treats the last word as a prefix, for
+     * search-as-you-type: "washing mach" matches "Washing Machine".
+     * @param query The words to search for, the last one possibly incomplete
+     * @param limit Maximum number of results
+     * @return The matching products, ranked by relevance
+     */
+    public List<Product> searchPrefix(String query, int limit) {
+        return search(tokenize(query), true, limit);
+    }
+
+    /**
+     * Suggests completions for a partially typed word, most common first.
+     * @param prefix The beginning of the word
+     * @param limit Maximum number of suggestions
+     * @return Indexed words starting with the prefix
+     */
+    public List<String> autocomplete(String prefix, int limit) {
+        List<String> tokens = tokenize(prefix);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        List<PostingList> matches = prefixRange(tokens.get(tokens.size() - 1));
+
+        // Keep the most frequent terms in a min-heap of size limit
+        Comparator<PostingList> byFrequency = Comparator
+                .comparingInt((PostingList postings) -> postings.count)
+                .thenComparing(PostingList::getTerm, Comparator.reverseOrder());
+        PriorityQueue<PostingList> best = new PriorityQueue<>(byFrequency);
+        for (PostingList postings : matches) {
+            best.add(postings);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<String> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().term);
+        }
+        return result.reversed();
+    }
+
+    /**
+     * Splits text into lowercase tokens of letters and digits, with accents removed.
+     * @param text The text to split
+     * @return The tokens, in order of appearance
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                // Decompose accented letters so the marks can be dropped below
+                text = Normalizer.normalize(text, Normalizer.Form.NFD);
+                break;
+            }
+        }
+
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString().toLowerCase(Locale.ROOT));
+                token.setLength(0);
+            }
+        }
+        if (!token.isEmpty()) {
+            tokens.add(token.toString().toLowerCase(Locale.ROOT));
+        }
+        return tokens;
+    }
+
+    private List<Product> search(List<String> tokens, boolean lastIsPrefix, int limit) {
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        List<DocIterator> clauses = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (lastIsPrefix && i == tokens.size() - 1) {
+                List<PostingList> expansions = prefixRange(tokens.get(i));
+                if (expansions.isEmpty()) {
+                    return List.of();
+                }
+                clauses.add(new PrefixIterator(expansions));
+            } else {
+                PostingList postings = terms.searchByKey(tokens.get(i), PostingList::getTerm);
+                if (postings == null) {
+                    return List.of();
+                }
+                clauses.add(new PostingCursor(postings));
+            }
+        }
+        // Lead with the rarest clause so the others mostly skip
+        clauses.sort(Comparator.comparingLong(DocIterator::cost));
+
+        double averageLength = size() == 0 ? 1 : Math.max(1.0, (double) totalLength / size());
+        Comparator<ScoredDoc> worstFirst = Comparator
+                .comparingDouble((ScoredDoc scored) -> scored.score)
+                .thenComparing((ScoredDoc scored) -> docs[scored.doc].getSku(), Comparator.reverseOrder());
+        PriorityQueue<ScoredDoc> best = new PriorityQueue<>(worstFirst);
+
+        int target = 0;
+        outer:
+        while (true) {
+            int doc = clauses.get(0).advance(target);
+            if (doc == NO_MORE_DOCS) {
+                break;
+            }
+            for (int i = 1; i < clauses.size(); i++) {
+                int other = clauses.get(i).advance(doc);
+                if (other == NO_MORE_DOCS) {
+                    break outer;
+                }
+                if (other != doc) {
+                    target = other;
+                    continue outer;
+                }
+            }
+            target = doc + 1;
+            if (isDeleted(doc)) {
+                continue;
+            }
+
+            double lengthNorm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+            double score = 0;
+            for (DocIterator clause : clauses) {
+                score += clause.score(lengthNorm);
+            }
+            best.add(new ScoredDoc(doc, score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Product> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(docs[best.poll().doc]);
+        }
+        return result.reversed();
+    }
+
+    private List<PostingList> prefixRange(String prefix) {
+        List<PostingList> matches = new ArrayList<>();
+        Iterator<PostingList> iterator = terms.iteratorFrom(new PostingList(prefix, generation), true);
+        while (iterator.hasNext()) {
+            PostingList postings = iterator.next();
+            if (!postings.term.startsWith(prefix)) {
+                break;
+            }
+            matches.add(postings);
+        }
+        return matches;
+    }
+
+    private double idf(PostingList postings) {
+        double n = size();
+        double df = Math.min(postings.count, n);
+        return Math.log(1 + (n - df + 0.5) / (df + 0.5));
+    }
+
+    /**
+     * Rebuilds the index from the live products, dropping deleted entries.
+     */
+    private void compact() {
+        List<Product> live = new ArrayList<>(size());
+        for (int doc = 0; doc < docCount; doc++) {
+            if (!isDeleted(doc)) {
+                live.add(docs[doc]);
+            }
+        }
+        clear();
+        for (Product product : live) {
+            add(product);
+        }
+    }
+
+    // A product and its score while ranking
+    private static final class ScoredDoc {
+        final int doc;
+        final double score;
+
+        ScoredDoc(int doc, double score) {
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+
+    // Postings of one term: (doc delta, term frequency) varint pairs in ascending doc order.
+    // Ordered by term, so the lists themselves form the term dictionary.
+    private static final class PostingList implements Comparable<PostingList> {
+        final String term;
+        final int generation; // index generation this header belongs to
+        byte[] data = new byte[8];
+        int length; // bytes used in data
+        int count; // number of postings
+        int lastDoc = -1;
+        int[] skipDocs = new int[1]; // doc of every SKIP_INTERVAL-th posting
+        int[] skipOffsets = new int[1]; // where that posting starts in data
+
+        PostingList(String term, int generation) {
+            this.term = term;
+            this.generation = generation;
+        }
+
+        String getTerm() {
+            return term;
+        }
+
+        // A header for a later generation over the same arrays; it only writes past their current ends
+        PostingList copy(int generation) {
+            PostingList copy = new PostingList(term, generation);
+            copy.data = data;
+            copy.length = length;
+            copy.count = count;
+            copy.lastDoc = lastDoc;
+            copy.skipDocs = skipDocs;
+            copy.skipOffsets = skipOffsets;
+            return copy;
+        }
+
+        @Override
+        public int compareTo(PostingList other) {
+            return term.compareTo(other.term);
+        }
+
+        void add(int doc, int frequency) {
+            if (count % SKIP_INTERVAL == 0) {
+                int skip = count / SKIP_INTERVAL;
+                if (skip == skipDocs.length) {
+                    skipDocs = Arrays.copyOf(skipDocs, skip * 2);
+                    skipOffsets = Arrays.copyOf(skipOffsets, skip * 2);
+                }
+                skipDocs[skip] = doc;
+                skipOffsets[skip] = length;
+            }
+            writeVarint(doc - lastDoc);
+            writeVarint(frequency);
+            lastDoc = doc;
+            count++;
+        }
+
+        private void writeVarint(int value) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+    }
+
+    // Iterator over the documents matching one query clause, in ascending doc order
+    private interface DocIterator {
+        /**
+         * Moves to the first document at or after the target.
+         * @return That document, or NO_MORE_DOCS
+         */
+        int advance(int target);
+
+        /**
+         * Scores the current document.
+         * @param lengthNorm The BM25 length normalization for the document
+         */
+        double score(double lengthNorm);
+
+        /**
+         * Returns an upper bound of the number of documents this clause can match.
+         */
+        long cost();
+    }
+
+    // Decodes a posting list, using the skip entries to jump ahead
+    private final class PostingCursor implements DocIterator {
+        private final PostingList postings;
+        private final double idf;
+        private int offset;
+        private int index; // postings read so far
+        private int doc = -1;
+        private int frequency;
+
+        PostingCursor(PostingList postings) {
+            this.postings = postings;
+            this.idf = idf(postings);
+        }
+
+        int doc() {
+            return doc;
+        }
+
+        int next() {
+            if (index == postings.count) {
+                doc = NO_MORE_DOCS;
+                return doc;
+            }
+            doc += readVarint();
+            frequency = readVarint();
+            index++;
+            return doc;
+        }
+
+        @Override
+        public int advance(int target) {
+            if (doc >= target) {
+                return doc;
+            }
+            // Jump to the last skip entry at or before the target, if it is ahead of us
+            int skip = Arrays.binarySearch(postings.skipDocs, 0, (postings.count - 1) / SKIP_INTERVAL + 1, target);
+            if (skip < 0) {
+                skip = -skip - 2;
+            }
+            if (skip >= 0 && skip * SKIP_INTERVAL > index) {
+                offset = postings.skipOffsets[skip];
+                index = skip * SKIP_INTERVAL;
+                readVarint(); // delta from the previous posting, not needed
+                frequency = readVarint();
+                doc = postings.skipDocs[skip];
+                index++;
+            }
+            while (doc < target) {
+                next();
+            }
+            return doc;
+        }
+
+        @Override
+        public double score(double lengthNorm) {
+            return idf * frequency * (K1 + 1) / (frequency + lengthNorm);
+        }
+
+        @Override
+        public long cost() {
+            return postings.count;
+        }
+
+        private int readVarint() {
+            byte[] data = postings.data;
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    // Union of the posting lists of every term sharing a prefix
+    private final class PrefixIterator implements DocIterator {
+        private final PriorityQueue<PostingCursor> cursors =
+                new PriorityQueue<>(Comparator.comparingInt(PostingCursor::doc));
+        private final List<PostingCursor> current = new ArrayList<>();
+        private long cost;
+
+        PrefixIterator(Iterable<PostingList> lists) {
+            for (PostingList postings : lists) {
+                cursors.add(new PostingCursor(postings));
+                cost += postings.count;
+            }
+        }
+
+        @Override
+        public int advance(int target) {
+            while (cursors.peek().doc() < target) {
+                PostingCursor cursor = cursors.poll();
+                cursor.advance(target);
+                cursors.add(cursor);
+            }
+            return cursors.peek().doc();
+        }
+
+        @Override
+        public double score(double lengthNorm) {
+            // Score the best of the completions that occur in this document
+            int doc = cursors.peek().doc();
+            double score = 0;
+            while (!cursors.isEmpty() && cursors.peek().doc() == doc) {
+                PostingCursor cursor = cursors.poll();
+                score = Math.max(score, cursor.score(lengthNorm));
+                current.add(cursor);
+            }
+            cursors.addAll(current);
+            current.clear();
+            return score;
+        }
+
+        @Override
+        public long cost() {
+            return cost;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Versioned, checksummed binary snapshot of a product catalog.
+ * A snapshot remembers the size, modification time and CRC32C hash of the CSV it was built
+ * from, so a later start can tell whether it is still current and skip the CSV parse.
+ *
+ * Layout (big-endian):
+ * header: magic, version, source size, source mtime, source hash, product count, block count, header CRC32C
+ * blocks: byte length, record count, records, CRC32C of the records
+ * record: SKU, retail price, current price, name, category, scrape day (strings as int length + UTF-8 bytes)
+ *
+ * Records are written in SKU order and grouped into blocks small enough to map one at a time.
+ * Snapshots of an older format version are treated as stale, so the CSV is parsed again.
+ */
+public class ProductSnapshot {
+    public static final int MAGIC = 0x50534E50; // "PSNP"
+    public static final int FORMAT_VERSION = 2; // 2 adds the scrape day
+
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 4 + 4 + 8;
+    private static final int BLOCK_SIZE = 8 << 20; // 8 MB of records per block
+    private static final int HASH_WINDOW = 64 << 20; // 64 MB mapped at a time when hashing
+
+    private ProductSnapshot() {
+    }
+
+    /**
+     * Fingerprint of the CSV file a snapshot was built from.
+     */
+    public static class Source {
+        private final long size;
+        private final long modifiedMillis;
+        private final long hash;
+
+        public Source(long size, long modifiedMillis, long hash) {
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.hash = hash;
+        }
+
+        /**
+         * Reads the size, modification time and content hash of a file.
+         * @param file The file
+         * @return The fingerprint
+         * @throws IOException If an I/O error occurs
+         */
+        public static Source of(Path file) throws IOException {
+            return new Source(Files.size(file), Files.getLastModifiedTime(file).toMillis(), hash(file));
+        }
+
+        // Getters
+        public long getSize() {
+            return size;
+        }
+
+        public long getModifiedMillis() {
+            return modifiedMillis;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+    }
+
+    /**
+     * Products read from a snapshot, with the fingerprint of the CSV they were built from.
+     */
+    public static class Contents {
+        private final List<Product> products;
+        private final Source source;
+
+        Contents(List<Product> products, Source source) {
+            this.products = products;
+            this.source = source;
+        }
+
+        // Getters
+        public List<Product> getProducts() {
+            return products;
+        }
+
+        public Source getSource() {
+            return source;
+        }
+    }
+
+    /**
+     * Writes a snapshot atomically (to a temporary file that is then moved into place).
+     * @param snapshotPath Where to write the snapshot
+     * @param products The products, in SKU order
+     * @param count The number of products
+     * @param source Fingerprint of the CSV the products were loaded from
+     * @throws IOException If an I/O error occurs
+     */
+    public static void write(Path snapshotPath, Iterable<Product> products, int count, Source source) throws IOException {
+        Path directory = snapshotPath.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, snapshotPath.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                // Leave room for the header; it is written last, once the block count is known
+                channel.position(HEADER_SIZE);
+
+                ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+                int blockCount = 0;
+                int blockRecords = 0;
+                int written = 0;
+                for (Product product : products) {
+                    byte[] sku = product.getSku().getBytes(StandardCharsets.UTF_8);
+                    byte[] name = product.getProductName().getBytes(StandardCharsets.UTF_8);
+                    byte[] category = product.getCategory().getBytes(StandardCharsets.UTF_8);
+                    int recordSize = 4 + sku.length + 8 + 8 + 4 + name.length + 4 + category.length + 4;
+
+                    if (block.remaining() < recordSize && blockRecords > 0) {
+                        writeBlock(channel, block, blockRecords);
+                        blockCount++;
+                        blockRecords = 0;
+                    }
+                    if (block.capacity() < recordSize) {
+                        block = ByteBuffer.allocate(recordSize);
+                    }
+
+                    putString(block, sku);
+                    block.putDouble(product.getPriceRetail());
+                    block.putDouble(product.getPriceCurrent());
+                    putString(block, name);
+                    putString(block, category);
+                    block.putInt(product.getScrapeDay());
+                    blockRecords++;
+                    written++;
+                }
+                if (blockRecords > 0) {
+                    writeBlock(channel, block, blockRecords);
+                    blockCount++;
+                }
+                if (written != count) {
+                    throw new IllegalArgumentException("Expected " + count + " products but got " + written);
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC);
+                header.putInt(FORMAT_VERSION);
+                header.putLong(source.getSize());
+                header.putLong(source.getModifiedMillis());
+                header.putLong(source.getHash());
+                header.putInt(count);
+                header.putInt(blockCount);
+                header.putLong(crc(header.array(), 0, HEADER_SIZE - 8));
+                header.flip();
+                writeFully(channel, header, 0);
+                channel.force(true);
+            }
+            Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads a snapshot if it exists, is intact, and still matches the CSV it was built from.
+     * Size and modification time are checked first; if only the modification time differs
+     * the CSV is hashed, so a touched but unchanged file still uses the snapshot.
+     * @param snapshotPath The snapshot file
+     * @param csvPath The CSV file the snapshot should reflect
+     * @return The products in SKU order, or null if the snapshot is missing, stale or corrupt
+     * @throws IOException If an I/O error occurs reading an existing file
+     */
+    public static List<Product> read(Path snapshotPath, Path csvPath) throws IOException {
+        Contents contents = readContents(snapshotPath, csvPath);
+        return contents == null ? null : contents.getProducts();
+    }
+
+    /**
+     * Like {@link #read(Path, Path)}, but also returns the fingerprint the snapshot recorded,
+     * which matched the CSV when it was checked.
+     * @param snapshotPath The snapshot file
+     * @param csvPath The CSV file the snapshot should reflect
+     * @return The products and fingerprint, or null if the snapshot is missing, stale or corrupt
+     * @throws IOException If an I/O error occurs reading an existing file
+     */
+    public static Contents readContents(Path snapshotPath, Path csvPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            byte[] headerBytes = new byte[HEADER_SIZE];
+            header.get(headerBytes);
+            header.rewind();
+
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            long sourceSize = header.getLong();
+            long sourceModified = header.getLong();
+            long sourceHash = header.getLong();
+            int count = header.getInt();
+            int blockCount = header.getInt();
+            if (header.getLong() != crc(headerBytes, 0, HEADER_SIZE - 8)) {
+                return null;
+            }
+            if (!isCurrent(csvPath, sourceSize, sourceModified, sourceHash)) {
+                return null;
+            }
+
+            List<Product> products = new ArrayList<>(count);
+            long position = HEADER_SIZE;
+            for (int b = 0; b < blockCount; b++) {
+                if (position + 8 > channel.size()) {
+                    return null;
+                }
+                ByteBuffer prefix = channel.map(FileChannel.MapMode.READ_ONLY, position, 8);
+                int length = prefix.getInt();
+                int records = prefix.getInt();
+                if (length < 0 || position + 8 + length + 8 > channel.size()) {
+                    return null;
+                }
+
+                MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, position + 8, length + 8L);
+                if (!readBlock(block, length, records, products)) {
+                    return null;
+                }
+                position += 8 + length + 8;
+            }
+            return products.size() == count ? new Contents(products, new Source(sourceSize, sourceModified, sourceHash)) : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Computes the CRC32C hash of a file's contents.
+     * @param file The file
+     * @return The hash
+     * @throws IOException If an I/O error occurs
+     */
+    public static long hash(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += HASH_WINDOW) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(HASH_WINDOW, size - position)));
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static boolean isCurrent(Path csvPath, long size, long modifiedMillis, long hash) throws IOException {
+        if (!Files.exists(csvPath) || Files.size(csvPath) != size) {
+            return false;
+        }
+        if (Files.getLastModifiedTime(csvPath).toMillis() == modifiedMillis) {
+            return true;
+        }
+        return hash(csvPath) == hash;
+    }
+
+    private static boolean readBlock(ByteBuffer block, int length, int records, List<Product> products) {
+        CRC32C crc = new CRC32C();
+        crc.update(block.slice(0, length));
+        if (block.getLong(length) != crc.getValue()) {
+            return false;
+        }
+
+        block.limit(length);
+        try {
+            for (int i = 0; i < records; i++) {
+                String sku = getString(block);
+                double priceRetail = block.getDouble();
+                double priceCurrent = block.getDouble();
+                String productName = getString(block);
+                String category = getString(block);
+                int scrapeDay = block.getInt();
+                products.add(new Product(sku, priceRetail, priceCurrent, productName, category, scrapeDay));
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            return false;
+        }
+        return !block.hasRemaining();
+    }
+
+    private static void writeBlock(FileChannel channel, ByteBuffer block, int records) throws IOException {
+        block.flip();
+        int length = block.remaining();
+        ByteBuffer prefix = ByteBuffer.allocate(8).putInt(length).putInt(records).flip();
+        ByteBuffer suffix = ByteBuffer.allocate(8).putLong(crc(block.array(), 0, length)).flip();
+        writeFully(channel, prefix, -1);
+        writeFully(channel, block, -1);
+        writeFully(channel, suffix, -1);
+        block.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (position < 0) {
+                channel.write(buffer);
+            } else {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupt string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long crc(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return crc.getValue();
+    }
+}
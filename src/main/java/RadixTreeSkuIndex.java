@@ -0,0 +1,896 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * SKU index on an adaptive radix tree. SKUs are turned into bytes and each level of the tree
+ * consumes one byte, so a lookup costs O(SKU length) whatever the catalog size, and never
+ * compares whole strings until the final equality check.
+ *
+ * Memory stays low on catalogs whose SKUs share long vendor prefixes:
+ * - Path compression: a run of bytes every key below a node shares is stored once, in that
+ *   node's prefix, instead of as a chain of one-child nodes.
+ * - Adaptive nodes: a node grows from 4 to 16, 48 and 256 child slots only as it fills up.
+ * - Lazy leaves: a product sits directly in its parent's child slot as soon as its SKU is
+ *   unique, without a leaf node or a copy of the rest of its key.
+ *
+ * Each char becomes one to three bytes, like CESU-8 but with '\0' as a single zero byte. The
+ * encoding is order-preserving, so iterating children in byte order yields products in
+ * {@link String#compareTo} order, the same order as the binary search trees' inOrder().
+ *
+ * Nodes are copy-on-write, as in {@link BPlusTreeSkuIndex}: a node of an older generation
+ * may be shared with a snapshot, so it is copied before it changes.
+ */
+public class RadixTreeSkuIndex implements SkuIndex {
+    private static final byte[] NO_PREFIX = new byte[0]; // shared by the many nodes that branch right away
+
+    Object root; // null, a Product, or a Node
+    private int size;
+    private int generation; // nodes of an older generation may be shared with a snapshot
+    private final boolean readOnly;
+
+    // Set by insert and delete
+    private Product replaced;
+    private Product removed;
+
+    abstract static class Node {
+        byte[] prefix; // bytes shared by every key below this node, after the byte that led here
+        Product value; // the product whose key ends right after the prefix
+        int count; // children in use
+        final int generation;
+
+        Node(byte[] prefix, int generation) {
+            this.prefix = prefix;
+            this.generation = generation;
+        }
+
+        /**
+         * Returns a copy of this node for the given generation.
+         */
+        abstract Node copy(int generation);
+
+        /**
+         * Returns the child for a byte, or null if there is none.
+         */
+        abstract Object child(int b);
+
+        /**
+         * Replaces the existing child for a byte.
+         */
+        abstract void setChild(int b, Object child);
+
+        /**
+         * Adds a child for a new byte.
+         * @return This node, or a larger copy of it if it was full
+         */
+        abstract Node addChild(int b, Object child);
+
+        /**
+         * Removes the child for a byte.
+         * @return This node, or a smaller copy of it if it became sparse
+         */
+        abstract Node removeChild(int b);
+
+        /**
+         * Returns the smallest byte at or after from that has a child, or -1 if there is none.
+         */
+        abstract int nextByte(int from);
+
+        <T extends Node> T copyHeader(T node) {
+            node.value = value;
+            return node;
+        }
+
+        <T extends Node> T copyAll(T node, Object[] children, Object[] into) {
+            node.count = count;
+            System.arraycopy(children, 0, into, 0, children.length);
+            return copyHeader(node);
+        }
+    }
+
+    // Up to 4 children, kept sorted by byte. Most nodes are this small, so the bytes are packed
+    // into an int rather than a separate array
+    static final class Node4 extends Node {
+        int keys; // byte i in bits 8i to 8i + 7
+        final Object[] children = new Object[4];
+
+        Node4(byte[] prefix, int generation) {
+            super(prefix, generation);
+        }
+
+        @Override
+        Node copy(int generation) {
+            Node4 node = new Node4(prefix, generation);
+            node.keys = keys;
+            return copyAll(node, children, node.children);
+        }
+
+        private int key(int i) {
+            return (keys >>> (8 * i)) & 0xFF;
+        }
+
+        @Override
+        Object child(int b) {
+            for (int i = 0; i < count; i++) {
+                if (key(i) == b) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        void setChild(int b, Object child) {
+            for (int i = 0; i < count; i++) {
+                if (key(i) == b) {
+                    children[i] = child;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        Node addChild(int b, Object child) {
+            if (count == 4) {
+                Node larger = copyHeader(new SortedNode(prefix, generation));
+                for (int i = 0; i < count; i++) {
+                    larger.addChild(key(i), children[i]);
+                }
+                return larger.addChild(b, child);
+            }
+            int position = count;
+            while (position > 0 && key(position - 1) > b) {
+                children[position] = children[position - 1];
+                position--;
+            }
+            // Shift the bytes from position up by one and put b in the gap
+            int low = keys & ((1 << (8 * position)) - 1);
+            int high = position == 3 ? 0 : (keys >>> (8 * position)) << (8 * (position + 1));
+            keys = low | (b << (8 * position)) | high;
+            children[position] = child;
+            count++;
+            return this;
+        }
+
+        @Override
+        Node removeChild(int b) {
+            int position = 0;
+            while (position < count && key(position) != b) {
+                position++;
+            }
+            if (position == count) {
+                return this;
+            }
+            System.arraycopy(children, position + 1, children, position, count - position - 1);
+            children[--count] = null;
+            int low = keys & ((1 << (8 * position)) - 1);
+            int high = position == 3 ? 0 : (keys >>> (8 * (position + 1))) << (8 * position);
+            keys = low | high;
+            return this;
+        }
+
+        @Override
+        int nextByte(int from) {
+            for (int i = 0; i < count; i++) {
+                if (key(i) >= from) {
+                    return key(i);
+                }
+            }
+            return -1;
+        }
+    }
+
+    // Up to 16 children, kept sorted by byte
+    static final class SortedNode extends Node {
+        final byte[] keys;
+        final Object[] children;
+
+        SortedNode(byte[] prefix, int generation) {
+            super(prefix, generation);
+            keys = new byte[16];
+            children = new Object[16];
+        }
+
+        @Override
+        Node copy(int generation) {
+            SortedNode node = new SortedNode(prefix, generation);
+            System.arraycopy(keys, 0, node.keys, 0, keys.length);
+            return copyAll(node, children, node.children);
+        }
+
+        @Override
+        Object child(int b) {
+            for (int i = 0; i < count; i++) {
+                if ((keys[i] & 0xFF) == b) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        void setChild(int b, Object child) {
+            for (int i = 0; i < count; i++) {
+                if ((keys[i] & 0xFF) == b) {
+                    children[i] = child;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        Node addChild(int b, Object child) {
+            if (count == keys.length) {
+                Node larger = copyHeader(new IndexedNode(prefix, generation));
+                for (int i = 0; i < count; i++) {
+                    larger.addChild(keys[i] & 0xFF, children[i]);
+                }
+                return larger.addChild(b, child);
+            }
+            int position = count;
+            while (position > 0 && (keys[position - 1] & 0xFF) > b) {
+                keys[position] = keys[position - 1];
+                children[position] = children[position - 1];
+                position--;
+            }
+            keys[position] = (byte) b;
+            children[position] = child;
+            count++;
+            return this;
+        }
+
+        @Override
+        Node removeChild(int b) {
+            int position = 0;
+            while (position < count && (keys[position] & 0xFF) != b) {
+                position++;
+            }
+            if (position == count) {
+                return this;
+            }
+            System.arraycopy(keys, position + 1, keys, position, count - position - 1);
+            System.arraycopy(children, position + 1, children, position, count - position - 1);
+            children[--count] = null;
+            if (count <= 3) {
+                Node smaller = copyHeader(new Node4(prefix, generation));
+                for (int i = 0; i < count; i++) {
+                    smaller.addChild(keys[i] & 0xFF, children[i]);
+                }
+                return smaller;
+            }
+            return this;
+        }
+
+        @Override
+        int nextByte(int from) {
+            for (int i = 0; i < count; i++) {
+                if ((keys[i] & 0xFF) >= from) {
+                    return keys[i] & 0xFF;
+                }
+            }
+            return -1;
+        }
+    }
+
+    // Up to 48 children, found through a 256-entry table of slot numbers
+    static final class IndexedNode extends Node {
+        final byte[] slotOf = new byte[256]; // slot + 1, or 0 if the byte has no child
+        final Object[] children = new Object[48];
+
+        IndexedNode(byte[] prefix, int generation) {
+            super(prefix, generation);
+        }
+
+        @Override
+        Node copy(int generation) {
+            IndexedNode node = new IndexedNode(prefix, generation);
+            System.arraycopy(slotOf, 0, node.slotOf, 0, slotOf.length);
+            return copyAll(node, children, node.children);
+        }
+
+        @Override
+        Object child(int b) {
+            int slot = slotOf[b];
+            return slot == 0 ? null : children[slot - 1];
+        }
+
+        @Override
+        void setChild(int b, Object child) {
+            children[slotOf[b] - 1] = child;
+        }
+
+        @Override
+        Node addChild(int b, Object child) {
+            if (count == children.length) {
+                Node larger = copyHeader(new DirectNode(prefix, generation));
+                for (int i = 0; i < 256; i++) {
+                    if (slotOf[i] != 0) {
+                        larger.addChild(i, children[slotOf[i] - 1]);
+                    }
+                }
+                return larger.addChild(b, child);
+            }
+            int slot = 0;
+            while (children[slot] != null) {
+                slot++;
+            }
+            children[slot] = child;
+            slotOf[b] = (byte) (slot + 1);
+            count++;
+            return this;
+        }
+
+        @Override
+        Node removeChild(int b) {
+            int slot = slotOf[b];
+            if (slot == 0) {
+                return this;
+            }
+            children[slot - 1] = null;
+            slotOf[b] = 0;
+            count--;
+            if (count <= 12) {
+                Node smaller = copyHeader(new SortedNode(prefix, generation));
+                for (int i = 0; i < 256; i++) {
+                    if (slotOf[i] != 0) {
+                        smaller.addChild(i, children[slotOf[i] - 1]);
+                    }
+                }
+                return smaller;
+            }
+            return this;
+        }
+
+        @Override
+        int nextByte(int from) {
+            for (int i = from; i < 256; i++) {
+                if (slotOf[i] != 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    // One slot per byte value
+    static final class DirectNode extends Node {
+        final Object[] children = new Object[256];
+
+        DirectNode(byte[] prefix, int generation) {
+            super(prefix, generation);
+        }
+
+        @Override
+        Node copy(int generation) {
+            DirectNode node = new DirectNode(prefix, generation);
+            return copyAll(node, children, node.children);
+        }
+
+        @Override
+        Object child(int b) {
+            return children[b];
+        }
+
+        @Override
+        void setChild(int b, Object child) {
+            children[b] = child;
+        }
+
+        @Override
+        Node addChild(int b, Object child) {
+            children[b] = child;
+            count++;
+            return this;
+        }
+
+        @Override
+        Node removeChild(int b) {
+            if (children[b] == null) {
+                return this;
+            }
+            children[b] = null;
+            count--;
+            if (count <= 36) {
+                Node smaller = copyHeader(new IndexedNode(prefix, generation));
+                for (int i = 0; i < 256; i++) {
+                    if (children[i] != null) {
+                        smaller.addChild(i, children[i]);
+                    }
+                }
+                return smaller;
+            }
+            return this;
+        }
+
+        @Override
+        int nextByte(int from) {
+            for (int i = from; i < 256; i++) {
+                if (children[i] != null) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Constructs an empty index.
+     */
+    public RadixTreeSkuIndex() {
+        readOnly = false;
+    }
+
+    private RadixTreeSkuIndex(RadixTreeSkuIndex index) {
+        root = index.root;
+        size = index.size;
+        generation = index.generation;
+        readOnly = true;
+    }
+
+    /**
+     * Encodes a SKU so that unsigned byte order matches {@link String#compareTo}: each char
+     * takes 1 byte below U+0080, 2 bytes below U+0800 and 3 bytes otherwise, surrogates included.
+     * @param sku The SKU
+     * @return The key bytes
+     */
+    static byte[] keyBytes(String sku) {
+        int length = sku.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = sku.charAt(i);
+            if (c >= 0x80) {
+                bytes += c >= 0x800 ? 2 : 1;
+            }
+        }
+
+        byte[] key = new byte[bytes];
+        if (bytes == length) {
+            for (int i = 0; i < length; i++) {
+                key[i] = (byte) sku.charAt(i);
+            }
+            return key;
+        }
+        int position = 0;
+        for (int i = 0; i < length; i++) {
+            char c = sku.charAt(i);
+            if (c < 0x80) {
+                key[position++] = (byte) c;
+            } else if (c < 0x800) {
+                key[position++] = (byte) (0xC0 | (c >> 6));
+                key[position++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                key[position++] = (byte) (0xE0 | (c >> 12));
+                key[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                key[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return key;
+    }
+
+    @Override
+    public Product get(String sku) {
+        byte[] key = keyBytes(sku);
+        Object slot = root;
+        int depth = 0;
+        while (slot instanceof Node node) {
+            byte[] prefix = node.prefix;
+            if (key.length - depth < prefix.length) {
+                return null;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (key[depth + i] != prefix[i]) {
+                    return null;
+                }
+            }
+            depth += prefix.length;
+            if (depth == key.length) {
+                return node.value;
+            }
+            slot = node.child(key[depth++] & 0xFF);
+        }
+        Product product = (Product) slot;
+        return product != null && product.getSku().equals(sku) ? product : null;
+    }
+
+    @Override
+    public List<Product> getAll(List<String> sortedSkus) {
+        // Lookups do not depend on the catalog size, so sorted input has nothing to share
+        List<Product> result = new ArrayList<>(sortedSkus.size());
+        for (String sku : sortedSkus) {
+            result.add(get(sku));
+        }
+        return result;
+    }
+
+    @Override
+    public Product put(Product product) {
+        checkWritable();
+        replaced = null;
+        root = insert(root, keyBytes(product.getSku()), 0, product);
+        if (replaced == null) {
+            size++;
+        }
+        return replaced;
+    }
+
+    private Object insert(Object slot, byte[] key, int depth, Product product) {
+        if (slot == null) {
+            return product;
+        }
+
+        if (slot instanceof Product existing) {
+            if (existing.getSku().equals(product.getSku())) {
+                replaced = existing;
+                return product;
+            }
+            // Two keys now share this slot: branch where they part
+            byte[] other = keyBytes(existing.getSku());
+            int common = 0;
+            while (depth + common < key.length && depth + common < other.length
+                    && key[depth + common] == other[depth + common]) {
+                common++;
+            }
+            Node node = new Node4(slice(key, depth, depth + common), generation);
+            node = attach(node, other, depth + common, existing);
+            return attach(node, key, depth + common, product);
+        }
+
+        Node node = (Node) slot;
+        byte[] prefix = node.prefix;
+        int match = 0;
+        while (match < prefix.length && depth + match < key.length && key[depth + match] == prefix[match]) {
+            match++;
+        }
+        if (match < prefix.length) {
+            // The key leaves the compressed path part way: split the path at that byte
+            Node parent = new Node4(slice(prefix, 0, match), generation);
+            node = writable(node);
+            node.prefix = slice(prefix, match + 1, prefix.length);
+            parent.addChild(prefix[match] & 0xFF, node);
+            return attach(parent, key, depth + match, product);
+        }
+
+        depth += prefix.length;
+        if (depth == key.length) {
+            node = writable(node);
+            replaced = node.value;
+            node.value = product;
+            return node;
+        }
+        int b = key[depth] & 0xFF;
+        Object child = node.child(b);
+        if (child == null) {
+            return writable(node).addChild(b, product);
+        }
+        Object updated = insert(child, key, depth + 1, product);
+        if (updated != child) {
+            node = writable(node);
+            node.setChild(b, updated);
+        }
+        return node;
+    }
+
+    /**
+     * Returns the node itself if it belongs to the current generation, or else a copy that does.
+     */
+    private Node writable(Node node) {
+        return node.generation == generation ? node : node.copy(generation);
+    }
+
+    private static byte[] slice(byte[] bytes, int from, int to) {
+        return from == to ? NO_PREFIX : Arrays.copyOfRange(bytes, from, to);
+    }
+
+    /**
+     * Hangs a product off a node whose prefix ends at the given depth of its key.
+     */
+    private static Node attach(Node node, byte[] key, int depth, Product product) {
+        if (depth == key.length) {
+            node.value = product;
+            return node;
+        }
+        return node.addChild(key[depth] & 0xFF, product);
+    }
+
+    @Override
+    public void putAll(Collection<Product> products) {
+        checkWritable();
+        for (Product product : products) {
+            put(product);
+        }
+    }
+
+    @Override
+    public Product remove(String sku) {
+        checkWritable();
+        removed = null;
+        root = delete(root, keyBytes(sku), 0, sku);
+        if (removed != null) {
+            size--;
+        }
+        return removed;
+    }
+
+    private Object delete(Object slot, byte[] key, int depth, String sku) {
+        if (slot == null) {
+            return null;
+        }
+        if (slot instanceof Product product) {
+            if (product.getSku().equals(sku)) {
+                removed = product;
+                return null;
+            }
+            return product;
+        }
+
+        Node node = (Node) slot;
+        byte[] prefix = node.prefix;
+        if (key.length - depth < prefix.length
+                || !Arrays.equals(key, depth, depth + prefix.length, prefix, 0, prefix.length)) {
+            return node;
+        }
+        depth += prefix.length;
+        if (depth == key.length) {
+            if (node.value == null) {
+                return node;
+            }
+            node = writable(node);
+            removed = node.value;
+            node.value = null;
+            return collapse(node);
+        }
+
+        int b = key[depth] & 0xFF;
+        Object child = node.child(b);
+        if (child == null) {
+            return node;
+        }
+        Object updated = delete(child, key, depth + 1, sku);
+        if (updated == child) {
+            return node;
+        }
+        node = writable(node);
+        if (updated == null) {
+            node = node.removeChild(b);
+        } else {
+            node.setChild(b, updated);
+        }
+        return collapse(node);
+    }
+
+    /**
+     * Replaces a node that no longer branches by what it leads to, keeping paths compressed.
+     */
+    private Object collapse(Node node) {
+        if (node.count == 0) {
+            // A lone product needs no node; its SKU tells where it belongs
+            return node.value;
+        }
+        if (node.count > 1 || node.value != null) {
+            return node;
+        }
+        int b = node.nextByte(0);
+        Object child = node.child(b);
+        if (child instanceof Node shared) {
+            Node only = writable(shared);
+            byte[] merged = new byte[node.prefix.length + 1 + only.prefix.length];
+            System.arraycopy(node.prefix, 0, merged, 0, node.prefix.length);
+            merged[node.prefix.length] = (byte) b;
+            System.arraycopy(only.prefix, 0, merged, node.prefix.length + 1, only.prefix.length);
+            only.prefix = merged;
+            return only;
+        }
+        return child;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Product> iterator() {
+        RadixIterator iterator = new RadixIterator();
+        iterator.push(root);
+        return iterator;
+    }
+
+    @Override
+    public Iterator<Product> iteratorAfter(String sku) {
+        byte[] key = keyBytes(sku);
+        RadixIterator iterator = new RadixIterator();
+        Object slot = root;
+        int depth = 0;
+        while (slot instanceof Node node) {
+            byte[] prefix = node.prefix;
+            int i = 0;
+            while (i < prefix.length && depth + i < key.length && key[depth + i] == prefix[i]) {
+                i++;
+            }
+            if (i < prefix.length) {
+                // Either every key below sorts after the SKU, or every key sorts before it
+                if (depth + i == key.length || (prefix[i] & 0xFF) > (key[depth + i] & 0xFF)) {
+                    iterator.push(node);
+                }
+                return iterator;
+            }
+            depth += prefix.length;
+            if (depth == key.length) {
+                // The node's own product is the SKU itself; all children follow it
+                iterator.stack.push(new Frame(node, 0));
+                return iterator;
+            }
+            int b = key[depth++] & 0xFF;
+            // The node's product and children before b sort before the SKU
+            iterator.stack.push(new Frame(node, b + 1));
+            slot = node.child(b);
+        }
+        if (slot instanceof Product product && product.getSku().compareTo(sku) > 0) {
+            iterator.pending = product;
+        }
+        return iterator;
+    }
+
+    @Override
+    public List<Product> withPrefix(String prefix, int limit) {
+        List<Product> products = new ArrayList<>();
+        if (limit <= 0) {
+            return products;
+        }
+        // A char prefix is exactly a byte prefix under this encoding
+        byte[] key = keyBytes(prefix);
+        Object slot = root;
+        int depth = 0;
+        while (slot instanceof Node node) {
+            byte[] nodePrefix = node.prefix;
+            int overlap = Math.min(nodePrefix.length, key.length - depth);
+            if (!Arrays.equals(key, depth, depth + overlap, nodePrefix, 0, overlap)) {
+                return products;
+            }
+            if (overlap == key.length - depth) {
+                // Everything below this node starts with the prefix
+                break;
+            }
+            depth += nodePrefix.length;
+            slot = node.child(key[depth++] & 0xFF);
+        }
+        if (slot instanceof Product product && !product.getSku().startsWith(prefix)) {
+            return products;
+        }
+
+        RadixIterator iterator = new RadixIterator();
+        iterator.push(slot);
+        while (products.size() < limit && iterator.hasNext()) {
+            products.add(iterator.next());
+        }
+        return products;
+    }
+
+    /**
+     * Returns the number of inner nodes.
+     * @return The number of nodes
+     */
+    public int getNodeCount() {
+        int nodes = 0;
+        Deque<Node> pending = new ArrayDeque<>();
+        if (root instanceof Node node) {
+            pending.push(node);
+        }
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            nodes++;
+            for (int b = node.nextByte(0); b >= 0; b = node.nextByte(b + 1)) {
+                if (node.child(b) instanceof Node child) {
+                    pending.push(child);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Computes the shape of the tree. The node count is the number of products, and depth is
+     * the number of inner nodes a lookup passes through, as with {@link BPlusTreeSkuIndex}.
+     * @return The statistics
+     */
+    @Override
+    public TreeStats stats() {
+        long totalDepth = 0;
+        int height = 0;
+        Deque<Object[]> pending = new ArrayDeque<>();
+        pending.push(new Object[]{root, 0});
+        while (!pending.isEmpty()) {
+            Object[] entry = pending.pop();
+            int depth = (int) entry[1];
+            if (entry[0] instanceof Product) {
+                totalDepth += depth;
+                height = Math.max(height, depth);
+            } else if (entry[0] instanceof Node node) {
+                if (node.value != null) {
+                    totalDepth += depth + 1;
+                    height = Math.max(height, depth + 1);
+                }
+                for (int b = node.nextByte(0); b >= 0; b = node.nextByte(b + 1)) {
+                    pending.push(new Object[]{node.child(b), depth + 1});
+                }
+            }
+        }
+        return new TreeStats(size, height, size == 0 ? 0.0 : (double) totalDepth / size);
+    }
+
+    /**
+     * Returns a read-only copy that shares every node with this index, which moves to a new
+     * generation so that it copies a shared node before changing it.
+     */
+    @Override
+    public SkuIndex snapshot() {
+        RadixTreeSkuIndex snapshot = new RadixTreeSkuIndex(this);
+        generation++;
+        return snapshot;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("SKU index snapshots are read-only");
+        }
+    }
+
+    // A node being iterated, and the next byte whose child is due; -1 means its own product is due first
+    private static final class Frame {
+        final Node node;
+        int next;
+
+        Frame(Node node, int next) {
+            this.node = node;
+            this.next = next;
+        }
+    }
+
+    private static final class RadixIterator implements Iterator<Product> {
+        final Deque<Frame> stack = new ArrayDeque<>();
+        Product pending; // the next product, once found
+
+        void push(Object slot) {
+            if (slot instanceof Node node) {
+                stack.push(new Frame(node, -1));
+            } else if (slot instanceof Product product) {
+                pending = product;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (pending == null && !stack.isEmpty()) {
+                Frame frame = stack.peek();
+                if (frame.next < 0) {
+                    frame.next = 0;
+                    pending = frame.node.value;
+                    continue;
+                }
+                int b = frame.next > 255 ? -1 : frame.node.nextByte(frame.next);
+                if (b < 0) {
+                    stack.pop();
+                    continue;
+                }
+                frame.next = b + 1;
+                push(frame.node.child(b));
+            }
+            return pending != null;
+        }
+
+        @Override
+        public Product next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Product product = pending;
+            pending = null;
+            return product;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.List;
+
+/**
+ * Result of an incremental refresh: which products changed and how the delta was found,
+ * or why the refresh failed.
+ */
+public class RefreshReport {
+    public enum Mode {
+        UNCHANGED, // nothing new since the last refresh
+        APPENDED, // only rows appended since the last refresh were read
+        FULL_DIFF, // the file was rewritten, so it was reparsed and diffed by SKU
+        FAILED // the file could not be read; nothing was applied
+    }
+
+    private final Mode mode;
+    private final List<Product> upserted;
+    private final List<String> deleted;
+    private final long elapsedNanos;
+    private final Exception error;
+
+    public RefreshReport(Mode mode, List<Product> upserted, List<String> deleted, long elapsedNanos) {
+        this(mode, upserted, deleted, elapsedNanos, null);
+    }
+
+    private RefreshReport(Mode mode, List<Product> upserted, List<String> deleted, long elapsedNanos, Exception error) {
+        this.mode = mode;
+        this.upserted = upserted;
+        this.deleted = deleted;
+        this.elapsedNanos = elapsedNanos;
+        this.error = error;
+    }
+
+    /**
+     * Creates the report of a refresh that failed before applying anything.
+     * @param error What went wrong
+     * @param elapsedNanos Time spent before the failure
+     * @return The report
+     */
+    public static RefreshReport failed(Exception error, long elapsedNanos) {
+        return new RefreshReport(Mode.FAILED, List.of(), List.of(), elapsedNanos, error);
+    }
+
+    // Getters
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the products inserted or replaced, in the order they were applied.
+     * @return The upserted products
+     */
+    public List<Product> getUpserted() {
+        return upserted;
+    }
+
+    /**
+     * Returns the SKUs that were deleted.
+     * @return The deleted SKUs
+     */
+    public List<String> getDeleted() {
+        return deleted;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns why the refresh failed.
+     * @return The error, or null unless the mode is {@link Mode#FAILED}
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    /**
+     * Checks if the refresh changed anything.
+     * @return True if at least one product was upserted or deleted
+     */
+    public boolean hasChanges() {
+        return !upserted.isEmpty() || !deleted.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        if (mode == Mode.FAILED) {
+            return String.format("%s: %s in %.1f ms", mode, error.getMessage(), elapsedNanos / 1_000_000.0);
+        }
+        return String.format("%s: %d upserted, %d deleted in %.1f ms",
+                mode, upserted.size(), deleted.size(), elapsedNanos / 1_000_000.0);
+    }
+}
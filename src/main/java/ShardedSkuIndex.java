@@ -0,0 +1,218 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * SKU index partitioned by SKU hash across independent {@link TreeSkuIndex} trees.
+ * Point lookups and updates go straight to the one shard owning the SKU. Bulk loads
+ * build every shard in parallel, so build time scales with the number of cores, and
+ * SKU-ordered iteration merges the shards with a k-way merge.
+ */
+public class ShardedSkuIndex implements SkuIndex {
+    private final SkuIndex[] shards;
+
+    /**
+     * Constructs an index with one shard per available processor.
+     */
+    public ShardedSkuIndex() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an index with the given number of shards.
+     * @param shardCount Number of shards, at least 1
+     */
+    public ShardedSkuIndex(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1: " + shardCount);
+        }
+        shards = new SkuIndex[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new TreeSkuIndex();
+        }
+    }
+
+    private ShardedSkuIndex(SkuIndex[] shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * Returns the number of shards.
+     * @return The shard count
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    private int shardOf(String sku) {
+        int hash = sku.hashCode();
+        // Spread the high bits, which String.hashCode mixes poorly into the low ones
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    @Override
+    public Product get(String sku) {
+        return shards[shardOf(sku)].get(sku);
+    }
+
+    @Override
+    public List<Product> getAll(List<String> sortedSkus) {
+        // Split the keys by shard; each part stays sorted, and positions map the results back
+        List<List<String>> keys = new ArrayList<>(shards.length);
+        List<List<Integer>> positions = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            keys.add(new ArrayList<>());
+            positions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < sortedSkus.size(); i++) {
+            int shard = shardOf(sortedSkus.get(i));
+            keys.get(shard).add(sortedSkus.get(i));
+            positions.get(shard).add(i);
+        }
+
+        Product[] result = new Product[sortedSkus.size()];
+        for (int shard = 0; shard < shards.length; shard++) {
+            if (keys.get(shard).isEmpty()) {
+                continue;
+            }
+            List<Product> found = shards[shard].getAll(keys.get(shard));
+            List<Integer> at = positions.get(shard);
+            for (int i = 0; i < found.size(); i++) {
+                result[at.get(i)] = found.get(i);
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    @Override
+    public Product put(Product product) {
+        return shards[shardOf(product.getSku())].put(product);
+    }
+
+    @Override
+    public void putAll(Collection<Product> products) {
+        // Partitioning keeps the input order within each shard, so later duplicates still win
+        List<List<Product>> parts = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            parts.add(new ArrayList<>(products.size() / shards.length + 16));
+        }
+        for (Product product : products) {
+            parts.get(shardOf(product.getSku())).add(product);
+        }
+        IntStream.range(0, shards.length).parallel().forEach(shard -> {
+            if (!parts.get(shard).isEmpty()) {
+                shards[shard].putAll(parts.get(shard));
+            }
+        });
+    }
+
+    @Override
+    public Product remove(String sku) {
+        return shards[shardOf(sku)].remove(sku);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (SkuIndex shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public Iterator<Product> iterator() {
+        return merge(SkuIndex::iterator);
+    }
+
+    @Override
+    public Iterator<Product> iteratorAfter(String sku) {
+        return merge(shard -> shard.iteratorAfter(sku));
+    }
+
+    /**
+     * Combines the shapes of all shards: total node count, tallest shard and the average
+     * depth over every node.
+     */
+    @Override
+    public TreeStats stats() {
+        int nodeCount = 0;
+        int height = 0;
+        double depthSum = 0;
+        for (SkuIndex shard : shards) {
+            TreeStats stats = shard.stats();
+            nodeCount += stats.getNodeCount();
+            height = Math.max(height, stats.getHeight());
+            depthSum += stats.getAverageDepth() * stats.getNodeCount();
+        }
+        return new TreeStats(nodeCount, height, nodeCount == 0 ? 0.0 : depthSum / nodeCount);
+    }
+
+    /**
+     * Snapshots every shard; O(number of shards).
+     */
+    @Override
+    public SkuIndex snapshot() {
+        SkuIndex[] snapshots = new SkuIndex[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            snapshots[i] = shards[i].snapshot();
+        }
+        return new ShardedSkuIndex(snapshots);
+    }
+
+    private Iterator<Product> merge(Function<SkuIndex, Iterator<Product>> iteratorOf) {
+        List<Iterator<Product>> iterators = new ArrayList<>(shards.length);
+        for (SkuIndex shard : shards) {
+            iterators.add(iteratorOf.apply(shard));
+        }
+        return new MergingIterator(iterators);
+    }
+
+    // K-way merge of SKU-ordered iterators over disjoint SKU sets
+    private static class MergingIterator implements Iterator<Product> {
+        private final PriorityQueue<Head> heads;
+
+        // The next product of one shard and the rest of that shard
+        private static class Head {
+            final Product product;
+            final Iterator<Product> rest;
+
+            Head(Product product, Iterator<Product> rest) {
+                this.product = product;
+                this.rest = rest;
+            }
+        }
+
+        MergingIterator(List<Iterator<Product>> iterators) {
+            heads = new PriorityQueue<>(Math.max(1, iterators.size()), (a, b) -> a.product.compareTo(b.product));
+            for (Iterator<Product> iterator : iterators) {
+                if (iterator.hasNext()) {
+                    heads.add(new Head(iterator.next(), iterator));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Product next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.rest.hasNext()) {
+                heads.add(new Head(head.rest.next(), head.rest));
+            }
+            return head.product;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Primary index of the catalog: products keyed by SKU and iterated in SKU order.
+ * Implementations are not thread-safe, but {@link #snapshot()} gives a frozen copy that
+ * any number of threads can read while the index itself keeps changing.
+ */
+public interface SkuIndex extends Iterable<Product> {
+
+    /**
+     * Looks up a product by SKU.
+     * @param sku The SKU
+     * @return The product, or null if there is none
+     */
+    Product get(String sku);
+
+    /**
+     * Looks up many SKUs at once.
+     * @param sortedSkus The SKUs, in ascending order (duplicates allowed)
+     * @return The product for each SKU, at the same position, or null where there is none
+     */
+    List<Product> getAll(List<String> sortedSkus);
+
+    /**
+     * Inserts a product, replacing any product with the same SKU.
+     * @param product The product
+     * @return The replaced product, or null if the SKU was new
+     */
+    Product put(Product product);
+
+    /**
+     * Adds a batch of products at once, later products winning over earlier ones and over
+     * products already indexed with the same SKU.
+     * @param products The products, in any order
+     */
+    void putAll(Collection<Product> products);
+
+    /**
+     * Removes a product by SKU.
+     * @param sku The SKU
+     * @return The removed product, or null if there was none
+     */
+    Product remove(String sku);
+
+    /**
+     * Returns the number of indexed products.
+     * @return The number of products
+     */
+    int size();
+
+    /**
+     * Iterates the products in SKU order. The index must not be modified while iterating.
+     * @return The iterator
+     */
+    @Override
+    Iterator<Product> iterator();
+
+    /**
+     * Iterates the products in SKU order, starting after a SKU that does not have to be indexed.
+     * @param sku The SKU to start after
+     * @return The iterator
+     */
+    Iterator<Product> iteratorAfter(String sku);
+
+    /**
+     * Returns the products whose SKU starts with a prefix, in SKU order.
+     * @param prefix The SKU prefix
+     * @param limit The maximum number of products to return
+     * @return The matching products
+     */
+    default List<Product> withPrefix(String prefix, int limit) {
+        List<Product> products = new ArrayList<>();
+        Product exact = get(prefix);
+        if (exact != null && limit > 0) {
+            products.add(exact);
+        }
+        // Every SKU with the prefix sorts right after the prefix itself
+        Iterator<Product> iterator = iteratorAfter(prefix);
+        while (products.size() < limit && iterator.hasNext()) {
+            Product product = iterator.next();
+            if (!product.getSku().startsWith(prefix)) {
+                break;
+            }
+            products.add(product);
+        }
+        return products;
+    }
+
+    /**
+     * Computes the shape of the underlying tree or trees, for diagnostics.
+     * @return The statistics
+     */
+    TreeStats stats();
+
+    /**
+     * Returns a read-only copy of the index as it is now. Later changes to this index do not
+     * show in the copy, so other threads may read it, iterators included, while this index is
+     * modified. Implementations share their nodes with the copy and copy a node only when
+     * they next change it, so taking a snapshot does not copy the index.
+     * @return The snapshot; its put, putAll and remove throw UnsupportedOperationException
+     */
+    SkuIndex snapshot();
+
+    /**
+     * Returns a sequential stream over the products in SKU order.
+     * @return The stream
+     */
+    default Stream<Product> stream() {
+        Spliterator<Product> spliterator = Spliterators.spliterator(iterator(), size(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+}
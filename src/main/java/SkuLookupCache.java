@@ -0,0 +1,186 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Bounded front cache for SKU lookups with CLOCK (second chance) eviction.
+ * Hits are a hash lookup plus setting a reference bit, without locking. On a miss the
+ * result is loaded and stored, evicting the first entry the clock hand finds that has
+ * not been used since the hand last passed it, so hot SKUs stay cached. Misses are cached
+ * too (as entries without a product), so repeated lookups of unknown SKUs are cheap.
+ *
+ * Entries must be invalidated whenever the underlying product changes. A lookup that was
+ * loading while any SKU was invalidated is not cached, since it may have read the old product.
+ */
+public class SkuLookupCache {
+
+    // One cached lookup; product is null for a cached miss
+    private static final class Entry {
+        final String sku;
+        final Product product;
+        volatile boolean referenced;
+
+        Entry(String sku, Product product) {
+            this.sku = sku;
+            this.product = product;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries;
+    private final Entry[] clock; // slots the hand sweeps over
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AtomicLong invalidations = new AtomicLong(); // bumped before every invalidation
+    private int hand;
+    private int used;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs an empty cache.
+     * @param capacity Maximum number of cached SKUs
+     */
+    public SkuLookupCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        entries = new ConcurrentHashMap<>(capacity * 4 / 3 + 1);
+        clock = new Entry[capacity];
+    }
+
+    /**
+     * Returns the product for a SKU, loading and caching it on a miss.
+     * @param sku The SKU to look up
+     * @param loader Looks the SKU up when it is not cached; may return null
+     * @return The product, or null if there is none
+     */
+    public Product get(String sku, Function<String, Product> loader) {
+        Entry entry = entries.get(sku);
+        if (entry != null) {
+            entry.referenced = true;
+            hits.increment();
+            return entry.product;
+        }
+
+        misses.increment();
+        long version = invalidations.get();
+        Product product = loader.apply(sku);
+        put(new Entry(sku, product), version);
+        return product;
+    }
+
+    /**
+     * Forgets the cached lookup of a SKU, for example after it was inserted, replaced or deleted.
+     * @param sku The SKU
+     */
+    public void invalidate(String sku) {
+        // Bump first, so a concurrent put either sees the new version or is removed here;
+        // the slot is reclaimed when the clock hand reaches it
+        invalidations.incrementAndGet();
+        entries.remove(sku);
+    }
+
+    /**
+     * Forgets every cached lookup, for example after a reload.
+     */
+    public void clear() {
+        invalidations.incrementAndGet();
+        evictionLock.lock();
+        try {
+            entries.clear();
+            Arrays.fill(clock, null);
+            hand = 0;
+            used = 0;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Caches a loaded entry unless something was invalidated since the load started.
+     * @param version The invalidation count read before loading
+     */
+    private void put(Entry entry, long version) {
+        evictionLock.lock();
+        try {
+            if (invalidations.get() != version || entries.putIfAbsent(entry.sku, entry) != null) {
+                return; // possibly stale, or cached concurrently
+            }
+            if (invalidations.get() != version) {
+                // Invalidated between the check and the insert; the invalidation may have missed it
+                entries.remove(entry.sku, entry);
+                return;
+            }
+            if (used < clock.length) {
+                clock[used++] = entry;
+                return;
+            }
+            // Sweep until an entry without a second chance (or an invalidated slot) turns up
+            while (true) {
+                Entry candidate = clock[hand];
+                if (candidate != null && entries.get(candidate.sku) == candidate && candidate.referenced) {
+                    candidate.referenced = false;
+                    hand = (hand + 1) % clock.length;
+                    continue;
+                }
+                if (candidate != null && entries.remove(candidate.sku, candidate)) {
+                    evictions.increment();
+                }
+                clock[hand] = entry;
+                hand = (hand + 1) % clock.length;
+                return;
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of cached SKUs, including cached misses.
+     * @return The number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the maximum number of cached SKUs.
+     * @return The capacity
+     */
+    public int capacity() {
+        return clock.length;
+    }
+
+    // Statistics
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups answered from the cache.
+     * @return The hit rate between 0 and 1, 0 before the first lookup
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                size(), capacity(), getHitCount(), getMissCount(), getHitRate() * 100, getEvictionCount());
+    }
+}
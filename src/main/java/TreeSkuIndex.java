@@ -0,0 +1,130 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * SKU index backed by a single balanced search tree. The tree is a
+ * {@link PersistentSearchTree}, so updates copy only the path to the changed node and
+ * {@link #snapshot()} is O(1): the snapshot keeps the old root while this index moves on.
+ */
+public class TreeSkuIndex implements SkuIndex {
+    private static final int MERGE_RATIO = 16; // batches above 1/16 of the index are merged and rebuilt
+
+    private PersistentSearchTree<Product> tree;
+    private final boolean readOnly;
+
+    /**
+     * Constructs an empty index.
+     */
+    public TreeSkuIndex() {
+        this(PersistentSearchTree.empty(), false);
+    }
+
+    private TreeSkuIndex(PersistentSearchTree<Product> tree, boolean readOnly) {
+        this.tree = tree;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public Product get(String sku) {
+        // Compare SKUs directly rather than building a dummy product for searching
+        return tree.searchByKey(sku, Product::getSku);
+    }
+
+    @Override
+    public List<Product> getAll(List<String> sortedSkus) {
+        return tree.searchAllByKey(sortedSkus, Product::getSku);
+    }
+
+    @Override
+    public Product put(Product product) {
+        checkWritable();
+        Product replaced = tree.search(product);
+        tree = tree.insert(product);
+        return replaced;
+    }
+
+    /**
+     * Inserts small batches one by one. Larger ones are sorted, merged with the current
+     * contents in one pass and built into a fresh balanced tree in O(n + k log k).
+     */
+    @Override
+    public void putAll(Collection<Product> products) {
+        checkWritable();
+        if ((long) products.size() * MERGE_RATIO < tree.size()) {
+            for (Product product : products) {
+                tree = tree.insert(product);
+            }
+            return;
+        }
+
+        // A stable sort keeps equal SKUs in input order, so the last of each run wins
+        Product[] batch = products.toArray(new Product[0]);
+        Arrays.parallelSort(batch);
+        List<Product> sorted = new ArrayList<>(tree.size() + batch.length);
+        Iterator<Product> existing = tree.iterator();
+        Product current = existing.hasNext() ? existing.next() : null;
+        for (int i = 0; i < batch.length; i++) {
+            Product product = batch[i];
+            if (i + 1 < batch.length && product.compareTo(batch[i + 1]) == 0) {
+                continue;
+            }
+            while (current != null && current.compareTo(product) < 0) {
+                sorted.add(current);
+                current = existing.hasNext() ? existing.next() : null;
+            }
+            if (current != null && current.compareTo(product) == 0) {
+                current = existing.hasNext() ? existing.next() : null;
+            }
+            sorted.add(product);
+        }
+        while (current != null) {
+            sorted.add(current);
+            current = existing.hasNext() ? existing.next() : null;
+        }
+        tree = PersistentSearchTree.fromSorted(sorted);
+    }
+
+    @Override
+    public Product remove(String sku) {
+        checkWritable();
+        Product removed = get(sku);
+        if (removed != null) {
+            tree = tree.remove(removed);
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return tree.size();
+    }
+
+    @Override
+    public Iterator<Product> iterator() {
+        return tree.iterator();
+    }
+
+    @Override
+    public Iterator<Product> iteratorAfter(String sku) {
+        return tree.iteratorFrom(new Product(sku, 0, 0, "", ""), false);
+    }
+
+    @Override
+    public TreeStats stats() {
+        return tree.stats();
+    }
+
+    @Override
+    public SkuIndex snapshot() {
+        return new TreeSkuIndex(tree, true);
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("SKU index snapshots are read-only");
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Shape of a search tree at one point in time.
+ */
+public class TreeStats {
+    private final int nodeCount;
+    private final int height;
+    private final double averageDepth;
+
+    public TreeStats(int nodeCount, int height, double averageDepth) {
+        this.nodeCount = nodeCount;
+        this.height = height;
+        this.averageDepth = averageDepth;
+    }
+
+    // Getters
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the average number of nodes visited by a successful search.
+     * @return The average depth, counting the root as depth 1
+     */
+    public double getAverageDepth() {
+        return averageDepth;
+    }
+
+    /**
+     * Returns the height of a perfectly balanced tree with the same number of nodes.
+     * @return The optimal height
+     */
+    public int getOptimalHeight() {
+        return 32 - Integer.numberOfLeadingZeros(nodeCount);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d nodes, height %d (optimal %d), average depth %.2f",
+                nodeCount, height, getOptimalHeight(), averageDepth);
+    }
+}
@@ -0,0 +1,280 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class BPlusTreeSkuIndexTest {
+
+    private static Product product(String sku, double price) {
+        return new Product(sku, price, price, "Product " + sku, "Toys");
+    }
+
+    private static List<String> skus(Iterator<Product> iterator) {
+        List<String> skus = new ArrayList<>();
+        iterator.forEachRemaining(product -> skus.add(product.getSku()));
+        return skus;
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        BPlusTreeSkuIndex index = new BPlusTreeSkuIndex(4);
+        for (int i = 0; i < 100; i++) {
+            assertNull(index.put(product(String.format("SKU%03d", i), i)), "New SKU should not replace anything");
+        }
+        checkInvariants(index);
+        assertEquals(100, index.size(), "Should hold 100 products");
+        assertEquals(42.0, index.get("SKU042").getPriceCurrent(), 0.001, "Should find SKU042");
+        assertNull(index.get("SKU100"), "SKU100 should not be found");
+
+        Product replacement = product("SKU042", 1.0);
+        assertEquals(42.0, index.put(replacement).getPriceCurrent(), 0.001, "Replacing should return the old product");
+        assertSame(replacement, index.get("SKU042"), "Replacement should be found");
+        assertEquals(100, index.size(), "Replacing should not change the size");
+
+        for (int i = 0; i < 100; i += 2) {
+            assertNotNull(index.remove(String.format("SKU%03d", i)), "Even SKUs should be removed");
+        }
+        assertNull(index.remove("SKU000"), "Removing twice should find nothing");
+        checkInvariants(index);
+        assertEquals(50, index.size(), "Half should be left");
+        assertEquals("SKU001", index.iterator().next().getSku(), "Scan should start at the smallest SKU left");
+        assertThrows(IllegalArgumentException.class, () -> new BPlusTreeSkuIndex(3), "Fanout must be at least 4");
+    }
+
+    @Test
+    public void testRandomOperationsMatchTree() {
+        for (int fanout : new int[] {4, 5, 16, 64}) {
+            BPlusTreeSkuIndex index = new BPlusTreeSkuIndex(fanout);
+            TreeSkuIndex reference = new TreeSkuIndex();
+            Random random = new Random(fanout);
+
+            List<Product> batch = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                batch.add(product("SKU" + random.nextInt(5000), i));
+            }
+            index.putAll(batch);
+            reference.putAll(batch);
+            checkInvariants(index);
+
+            for (int i = 0; i < 20_000; i++) {
+                String sku = "SKU" + random.nextInt(5000);
+                if (random.nextInt(3) == 0) {
+                    Product product = product(sku, -i);
+                    assertSame(reference.put(product), index.put(product), "put should agree for " + sku);
+                } else {
+                    assertSame(reference.remove(sku), index.remove(sku), "remove should agree for " + sku);
+                }
+                if (i % 2000 == 0) {
+                    checkInvariants(index);
+                }
+            }
+            checkInvariants(index);
+
+            // A second bulk load merges with what is there
+            batch.clear();
+            for (int i = 0; i < 1000; i++) {
+                batch.add(product("SKU" + random.nextInt(6000), 1e6 + i));
+            }
+            index.putAll(batch);
+            reference.putAll(batch);
+            checkInvariants(index);
+
+            assertEquals(reference.size(), index.size(), "Sizes should agree for fanout " + fanout);
+            assertEquals(skus(reference.iterator()), skus(index.iterator()), "Scans should agree for fanout " + fanout);
+            assertEquals(skus(reference.iteratorAfter("SKU3")), skus(index.iteratorAfter("SKU3")), "Scans after a SKU should agree");
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                keys.add("SKU" + random.nextInt(6000));
+            }
+            keys.sort(null);
+            List<Product> expected = reference.getAll(keys);
+            List<Product> actual = index.getAll(keys);
+            for (int i = 0; i < keys.size(); i++) {
+                assertSame(expected.get(i), actual.get(i), "Batch lookup should agree for " + keys.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testSmallBatchIsInsertedInPlace() {
+        BPlusTreeSkuIndex index = new BPlusTreeSkuIndex(4);
+        TreeSkuIndex reference = new TreeSkuIndex();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            products.add(product(String.format("SKU%05d", i), i));
+        }
+        index.putAll(products);
+        reference.putAll(products);
+        BPlusTreeSkuIndex.Node firstLeaf = index.root;
+        while (firstLeaf instanceof BPlusTreeSkuIndex.Inner inner) {
+            firstLeaf = inner.children[0];
+        }
+
+        // Far from the first leaf, with a repeated SKU whose last version must win
+        List<Product> batch = List.of(product("SKU04000", -1), product("SKU09999", -2), product("SKU04000", -3));
+        index.putAll(batch);
+        reference.putAll(batch);
+        checkInvariants(index);
+
+        BPlusTreeSkuIndex.Node leaf = index.root;
+        while (leaf instanceof BPlusTreeSkuIndex.Inner inner) {
+            leaf = inner.children[0];
+        }
+        assertSame(firstLeaf, leaf, "A small batch should not rebuild the tree");
+        assertEquals(5001, index.size(), "Only the new SKU should add to the size");
+        assertEquals(-3.0, index.get("SKU04000").getPriceCurrent(), 0.001, "The last version in the batch should win");
+        assertEquals(skus(reference.iterator()), skus(index.iterator()), "Scans should agree after a small batch");
+    }
+
+    @Test
+    public void testSnapshotsAreIsolated() {
+        BPlusTreeSkuIndex index = new BPlusTreeSkuIndex(4);
+        Random random = new Random(9);
+        List<SkuIndex> snapshots = new ArrayList<>();
+        List<List<String>> expected = new ArrayList<>();
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 40; i++) {
+                String sku = "SKU" + random.nextInt(300);
+                if (random.nextInt(3) == 0) {
+                    index.remove(sku);
+                } else {
+                    index.put(product(sku, round));
+                }
+            }
+            if (round == 25) {
+                index.putAll(List.of(product("SKU1000", 1), product("SKU0", 1)));
+            }
+            checkInvariants(index);
+            snapshots.add(index.snapshot());
+            expected.add(index.stream().map(product -> product.getSku() + "@" + product.getPriceCurrent()).toList());
+        }
+
+        for (int i = 0; i < snapshots.size(); i++) {
+            SkuIndex snapshot = snapshots.get(i);
+            assertEquals(expected.get(i), snapshot.stream().map(product -> product.getSku() + "@" + product.getPriceCurrent()).toList(),
+                    "Snapshot " + i + " should not see later changes");
+            assertEquals(expected.get(i).size(), snapshot.size(), "Snapshot " + i + " should keep its size");
+            for (String entry : expected.get(i)) {
+                String sku = entry.substring(0, entry.indexOf('@'));
+                assertEquals(entry, sku + "@" + snapshot.get(sku).getPriceCurrent(), "Snapshot " + i + " should still find " + sku);
+            }
+        }
+        assertThrows(UnsupportedOperationException.class, () -> snapshots.get(0).put(product("SKU1", 1)), "Snapshots should be read-only");
+    }
+
+    @Test
+    public void testPrefixQueries() {
+        BPlusTreeSkuIndex index = new BPlusTreeSkuIndex(4);
+        for (String sku : List.of("AB", "ABC", "ABD", "ABDA", "AC", "B", "AA")) {
+            index.put(product(sku, 1));
+        }
+        assertEquals(List.of("AB", "ABC", "ABD", "ABDA"), index.withPrefix("AB", 10).stream().map(Product::getSku).toList(), "Should include the exact SKU and its extensions");
+        assertEquals(List.of("ABD", "ABDA"), index.withPrefix("ABD", 10).stream().map(Product::getSku).toList(), "Should stop at the first SKU without the prefix");
+        assertEquals(2, index.withPrefix("A", 2).size(), "Should respect the limit");
+        assertTrue(index.withPrefix("C", 10).isEmpty(), "Unknown prefix should match nothing");
+    }
+
+    @Test
+    public void testDropInForProductManager() throws IOException {
+        Path csvFile = Files.createTempFile("bplus", ".csv");
+        try {
+            new CatalogGenerator(CatalogGenerator.Distribution.SKEWED, 6).writeCsv(csvFile, 20_000);
+            ProductManager tree = new ProductManager();
+            ProductManager bplus = new ProductManager(new BPlusTreeSkuIndex());
+            tree.loadProductsFromCSV(csvFile.toString());
+            bplus.loadProductsFromCSV(csvFile.toString());
+
+            assertEquals(tree.streamBySKU().map(Product::getSku).toList(), bplus.streamBySKU().map(Product::getSku).toList(), "Catalogs should match");
+            String sku = tree.streamBySKU().skip(1234).findFirst().orElseThrow().getSku();
+            assertEquals(tree.searchBySKU(sku).getPriceCurrent(), bplus.searchBySKU(sku).getPriceCurrent(), "Lookups should match");
+            assertEquals(tree.searchBySKUPrefix("SKU00000001", 20).size(), bplus.searchBySKUPrefix("SKU00000001", 20).size(), "Prefix queries should match");
+            assertEquals(sku, bplus.deleteBySKU(sku).getSku(), "Deletes should go through");
+            assertNull(bplus.searchBySKU(sku), "Deleted SKU should be gone");
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+    }
+
+    @Test
+    public void testMillionSkusMatchTree() {
+        // Lookup and scan speed against the tree are measured in SkuIndexBenchmark
+        int count = 1_000_000;
+        List<Product> products = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 12).products(count);
+        TreeSkuIndex tree = new TreeSkuIndex();
+        BPlusTreeSkuIndex bplus = new BPlusTreeSkuIndex();
+        tree.putAll(products);
+        bplus.putAll(products);
+
+        assertEquals(count, bplus.size(), "B+-tree should hold every product");
+        assertTrue(bplus.stats().getHeight() <= 4, "1M SKUs should fit in 4 levels, was " + bplus.stats().getHeight());
+        Random random = new Random(2);
+        for (int i = 0; i < 200_000; i++) {
+            String sku = products.get(random.nextInt(count)).getSku();
+            assertSame(tree.get(sku), bplus.get(sku), "Lookups should agree for " + sku);
+        }
+        Iterator<Product> expected = tree.iterator();
+        for (Product product : bplus) {
+            assertSame(expected.next(), product, "Scans should agree");
+        }
+        assertFalse(expected.hasNext(), "Scan should visit every product");
+    }
+
+    /**
+     * Checks key order, node fill, uniform leaf depth, and that scans visit the leaves in order.
+     */
+    private static void checkInvariants(BPlusTreeSkuIndex index) {
+        List<BPlusTreeSkuIndex.Leaf> leaves = new ArrayList<>();
+        int entries = check(index, index.root, null, null, 1, leaves, new int[] {-1});
+        assertEquals(index.size(), entries, "Size should match the entries in the leaves");
+
+        Iterator<Product> scan = index.iterator();
+        for (BPlusTreeSkuIndex.Leaf leaf : leaves) {
+            for (int i = 0; i < leaf.count; i++) {
+                assertSame(leaf.values[i], scan.next(), "Scan should follow the tree order");
+            }
+        }
+        assertFalse(scan.hasNext(), "Scan should end at the last leaf");
+    }
+
+    private static int check(BPlusTreeSkuIndex index, BPlusTreeSkuIndex.Node node, String low, String high,
+                             int depth, List<BPlusTreeSkuIndex.Leaf> leaves, int[] leafDepth) {
+        boolean isRoot = node == index.root;
+        for (int i = 0; i < node.count; i++) {
+            String key = node.keys[i];
+            assertTrue(low == null || key.compareTo(low) >= 0, "Key " + key + " should not be below " + low);
+            assertTrue(high == null || key.compareTo(high) < 0, "Key " + key + " should be below " + high);
+            assertTrue(i == 0 || node.keys[i - 1].compareTo(key) < 0, "Keys should be strictly ascending");
+        }
+
+        if (node instanceof BPlusTreeSkuIndex.Leaf leaf) {
+            if (leafDepth[0] < 0) {
+                leafDepth[0] = depth;
+            }
+            assertEquals(leafDepth[0], depth, "All leaves should be at the same depth");
+            assertTrue(node.count <= index.getFanout(), "Leaf should not overflow");
+            assertTrue(isRoot || node.count >= index.getFanout() / 2, "Leaf should not underflow");
+            for (int i = 0; i < leaf.count; i++) {
+                assertEquals(leaf.keys[i], leaf.values[i].getSku(), "Key should match its product");
+            }
+            leaves.add(leaf);
+            return leaf.count;
+        }
+
+        BPlusTreeSkuIndex.Inner inner = (BPlusTreeSkuIndex.Inner) node;
+        assertTrue(inner.count + 1 <= index.getFanout(), "Inner node should not overflow");
+        assertTrue(isRoot ? inner.count >= 1 : inner.count + 1 >= index.getFanout() / 2, "Inner node should not underflow");
+        int entries = 0;
+        for (int i = 0; i <= inner.count; i++) {
+            String childLow = i == 0 ? low : inner.keys[i - 1];
+            String childHigh = i == inner.count ? high : inner.keys[i];
+            entries += check(index, inner.children[i], childLow, childHigh, depth + 1, leaves, leafDepth);
+        }
+        return entries;
+    }
+}
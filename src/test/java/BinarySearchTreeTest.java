@@ -2,6 +2,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
+
 public class BinarySearchTreeTest {
 
     private BinarySearchTree<Product> productTree;
@@ -86,4 +88,82 @@ public class BinarySearchTreeTest {
         assertEquals("SKU002", products.get(1).getSku(), "Second product should be SKU002");
         assertEquals("SKU003", products.get(2).getSku(), "Third product should be SKU003");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testIteratorFrom() {
+        productTree.insert(new Product("SKU003", 199.99, 179.99, "Test Product 3", "Category1"));
+        productTree.insert(new Product("SKU001", 99.99, 79.99, "Test Product 1", "Category1"));
+        productTree.insert(new Product("SKU005", 149.99, 129.99, "Test Product 5", "Category2"));
+
+        // Starting at an existing element
+        var iterator = productTree.iteratorFrom(new Product("SKU003", 0, 0, "", ""), true);
+        assertEquals("SKU003", iterator.next().getSku(), "Inclusive start should return SKU003 first");
+        assertEquals("SKU005", iterator.next().getSku(), "Then SKU005");
+        assertFalse(iterator.hasNext(), "Iteration should end after SKU005");
+
+        // Starting after an element that is not in the tree
+        iterator = productTree.iteratorFrom(new Product("SKU002", 0, 0, "", ""), false);
+        assertEquals("SKU003", iterator.next().getSku(), "Should start at the next larger SKU");
+
+        assertEquals(3, productTree.stream().count(), "Stream should visit every product");
+    }
+
+    @Test
+    public void testDelete() {
+        productTree.insert(new Product("SKU003", 199.99, 179.99, "Test Product 3", "Category1"));
+        productTree.insert(new Product("SKU001", 99.99, 79.99, "Test Product 1", "Category1"));
+        productTree.insert(new Product("SKU005", 149.99, 129.99, "Test Product 5", "Category2"));
+        productTree.insert(new Product("SKU004", 149.99, 129.99, "Test Product 4", "Category2"));
+
+        // Deleting a node with two children
+        Product removed = productTree.delete(new Product("SKU003", 0, 0, "", ""));
+        assertNotNull(removed, "Should delete SKU003");
+        assertEquals("Test Product 3", removed.getProductName(), "Should return the deleted product");
+        assertEquals(3, productTree.size(), "Tree size should be 3 after deleting");
+        assertNull(productTree.search(new Product("SKU003", 0, 0, "", "")), "Deleted product should not be found");
+
+        assertNull(productTree.delete(new Product("SKU999", 0, 0, "", "")), "Deleting a missing product should return null");
+        assertEquals(3, productTree.size(), "Deleting a missing product should not change the size");
+
+        var products = productTree.inOrder();
+        assertEquals("SKU001", products.get(0).getSku(), "First product should be SKU001");
+        assertEquals("SKU004", products.get(1).getSku(), "Second product should be SKU004");
+        assertEquals("SKU005", products.get(2).getSku(), "Third product should be SKU005");
+    }
+
+    @Test
+    public void testBulkLoad() {
+        productTree.insert(new Product("SKU002", 149.99, 129.99, "Test Product 2", "Category2"));
+        productTree.insert(new Product("SKU006", 99.99, 79.99, "Test Product 6", "Category1"));
+
+        productTree.bulkLoad(List.of(
+                new Product("SKU005", 199.99, 179.99, "Test Product 5", "Category1"),
+                new Product("SKU001", 99.99, 79.99, "Test Product 1", "Category1"),
+                new Product("SKU005", 189.99, 169.99, "Updated Product 5", "Category1"),
+                new Product("SKU002", 139.99, 119.99, "Updated Product 2", "Category2"),
+                new Product("SKU004", 149.99, 129.99, "Test Product 4", "Category2"),
+                new Product("SKU003", 149.99, 129.99, "Test Product 3", "Category2")));
+
+        assertEquals(6, productTree.size(), "Duplicates should be merged");
+        assertEquals(3, productTree.height(), "Six products should fit in three levels");
+        assertEquals("Updated Product 5", productTree.search(new Product("SKU005", 0, 0, "", "")).getProductName(), "Later duplicate in the batch should win");
+        assertEquals("Updated Product 2", productTree.search(new Product("SKU002", 0, 0, "", "")).getProductName(), "Batch should win over the tree");
+        assertEquals("Test Product 6", productTree.search(new Product("SKU006", 0, 0, "", "")).getProductName(), "Existing products should be kept");
+
+        var products = productTree.inOrder();
+        for (int i = 0; i < products.size(); i++) {
+            assertEquals("SKU00" + (i + 1), products.get(i).getSku(), "Products should be in SKU order");
+        }
+    }
+
+    @Test
+    public void testSearchByKey() {
+        // Inserted in order, so the plain tree degenerates into a chain
+        for (int i = 0; i < 10; i++) {
+            productTree.insert(new Product("SKU00" + i, i, i, "Test Product " + i, "Category1"));
+        }
+
+        assertEquals("Test Product 4", productTree.searchByKey("SKU004", Product::getSku).getProductName(), "Should find SKU004 by key");
+        assertNull(productTree.searchByKey("SKU999", Product::getSku), "Should not find a missing key");
+    }
+}
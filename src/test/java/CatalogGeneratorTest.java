@@ -0,0 +1,125 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class CatalogGeneratorTest {
+
+    @Test
+    public void testDistributions() {
+        List<Product> sorted = new CatalogGenerator(CatalogGenerator.Distribution.SORTED, 1).products(1000);
+        for (int i = 1; i < sorted.size(); i++) {
+            assertTrue(sorted.get(i - 1).compareTo(sorted.get(i)) < 0, "Sorted SKUs should be strictly ascending");
+        }
+
+        List<Product> random = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 1).products(1000);
+        Set<String> skus = new HashSet<>();
+        int ascending = 0;
+        for (int i = 0; i < random.size(); i++) {
+            skus.add(random.get(i).getSku());
+            if (i > 0 && random.get(i - 1).compareTo(random.get(i)) < 0) {
+                ascending++;
+            }
+        }
+        assertEquals(1000, skus.size(), "Random SKUs should be distinct");
+        assertTrue(ascending > 300 && ascending < 700, "Random SKUs should not be ordered");
+
+        List<Product> skewed = new CatalogGenerator(CatalogGenerator.Distribution.SKEWED, 1).products(1000);
+        long hot = skewed.stream().filter(product -> product.getSku().compareTo("SKU0000000010") < 0).count();
+        assertTrue(hot > 300, "Skewed SKUs should concentrate on a few hot keys, got " + hot);
+    }
+
+    @Test
+    public void testSameSeedSameRows() {
+        List<Product> first = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 5).products(100);
+        List<Product> second = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 5).products(100);
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).toString(), second.get(i).toString(), "Rows should be reproducible");
+        }
+    }
+
+    @Test
+    public void testCsvLoads() throws IOException {
+        Path csvFile = Files.createTempFile("generated", ".csv");
+        try {
+            CatalogGenerator generator = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 3);
+            generator.writeCsv(csvFile, 500);
+
+            ProductManager productManager = new ProductManager();
+            LoadReport report = productManager.loadProductsFromCSV(csvFile.toString());
+            assertEquals(500, report.getRowsLoaded(), "Every generated row should load");
+            assertEquals(0, report.getRowsRejected(), "No generated row should be rejected");
+
+            Product expected = generator.products(1).get(0);
+            Product loaded = productManager.searchBySKU(expected.getSku());
+            assertNotNull(loaded, "Generated product should be found");
+            assertEquals(expected.getPriceCurrent(), loaded.getPriceCurrent(), 0.001, "Price should round-trip");
+            assertEquals(expected.getProductName(), loaded.getProductName(), "Name should round-trip");
+        } finally {
+            Files.delete(csvFile);
+        }
+    }
+
+    @Test
+    public void testQuotedNamesAndMalformedLines() throws IOException {
+        Path csvFile = Files.createTempFile("generated", ".csv");
+        try {
+            CatalogGenerator plain = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 4);
+            CatalogGenerator messy = plain.withQuotedNames(0.2).withMalformedLines(0.05);
+            long malformed = messy.writeCsv(csvFile, 2000);
+            assertTrue(malformed > 50 && malformed < 150, "About 5% malformed lines expected, got " + malformed);
+
+            ProductManager productManager = new ProductManager();
+            LoadReport report = productManager.loadProductsFromCSV(csvFile.toString());
+            assertEquals(2000, report.getRowsLoaded(), "Every row should load, quoted or not");
+            assertEquals(malformed, report.getRowsRejected(), "Every malformed line should be rejected");
+            LoadReport parallel = new ProductManager().loadProductsFromCSVParallel(csvFile.toString(), 3);
+            assertEquals(2000, parallel.getRowsLoaded(), "Parallel loader should load every row");
+            assertEquals(malformed, parallel.getRowsRejected(), "Parallel loader should reject every malformed line");
+
+            List<Product> expected = messy.products(2000);
+            List<Product> unquoted = plain.products(2000);
+            int quoted = 0;
+            for (int i = 0; i < expected.size(); i++) {
+                Product product = expected.get(i);
+                assertEquals(unquoted.get(i).getSku(), product.getSku(), "Quoting should not change the SKUs");
+                assertEquals(unquoted.get(i).getPriceCurrent(), product.getPriceCurrent(), "Quoting should not change the prices");
+                if (product.getProductName().contains(",")) {
+                    quoted++;
+                    assertTrue(product.getProductName().endsWith("\""), "Quoted names carry an inch mark");
+                    assertEquals(product.getProductName(), productManager.searchBySKU(product.getSku()).getProductName(), "Quoted name should round-trip");
+                }
+            }
+            assertTrue(quoted > 300 && quoted < 500, "About 20% quoted names expected, got " + quoted);
+        } finally {
+            Files.delete(csvFile);
+        }
+    }
+
+    @Test
+    public void testCategorySkew() {
+        Map<String, Integer> uniform = categoryCounts(new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 8).withCategorySkew(1).products(16_000));
+        Map<String, Integer> skewed = categoryCounts(new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 8).withCategorySkew(4).products(16_000));
+        assertEquals(16, uniform.size(), "Every category should appear");
+        assertTrue(Collections.max(uniform.values()) < 1300, "Skew 1 should spread rows evenly: " + uniform);
+        assertTrue(Collections.max(skewed.values()) > 7000, "Skew 4 should send about half the rows to the first category: " + skewed);
+        assertThrows(IllegalArgumentException.class, () -> new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 8).withCategorySkew(0.5));
+        assertThrows(IllegalArgumentException.class, () -> new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 8).withMalformedLines(1.5));
+    }
+
+    private static Map<String, Integer> categoryCounts(List<Product> products) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Product product : products) {
+            counts.merge(product.getCategory(), 1, Integer::sum);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,219 @@
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Loads generated catalogs at production size and checks load time, retained heap and lookup
+ * latency against budgets, and records full-GC pauses with the catalog on and off heap and the
+ * heap of the columnar store against a plain {@link BinarySearchTree} of the same products.
+ * Results go to a JSON report rather than the console, so numbers can be compared between
+ * releases.
+ *
+ * Tagged "scale" and skipped by the default build; run with {@code mvn -Pscale test}.
+ * Settings (system properties):
+ *   scale.rows                              comma-separated sizes to run (default 1000000,10000000)
+ *   scale.report                            report file (default target/scale-report.json)
+ *   scale.budget.loadSecondsPerMillionRows  default 30
+ *   scale.budget.heapBytesPerProduct        default 700
+ *   scale.budget.lookupP99Micros            default 50
+ */
+@Tag("scale")
+public class CatalogScaleTest {
+
+    private static final String ROWS = System.getProperty("scale.rows", "1000000,10000000");
+    private static final Path REPORT = Path.of(System.getProperty("scale.report", "target/scale-report.json"));
+    private static final double LOAD_SECONDS_PER_MILLION_ROWS = Double.parseDouble(System.getProperty("scale.budget.loadSecondsPerMillionRows", "30"));
+    private static final long HEAP_BYTES_PER_PRODUCT = Long.parseLong(System.getProperty("scale.budget.heapBytesPerProduct", "700"));
+    private static final double LOOKUP_P99_MICROS = Double.parseDouble(System.getProperty("scale.budget.lookupP99Micros", "50"));
+
+    private static final int PROBES = 100_000; // distinct SKUs looked up, plus 10% unknown ones
+    private static final List<String> runs = new ArrayList<>(); // JSON of every run so far
+
+    @Test
+    public void testOneMillionRows() throws IOException {
+        run(1_000_000);
+    }
+
+    @Test
+    public void testTenMillionRows() throws IOException {
+        run(10_000_000);
+    }
+
+    private static void run(int rows) throws IOException {
+        assumeTrue(List.of(ROWS.split(",")).contains(String.valueOf(rows)), rows + " rows not selected in scale.rows");
+
+        // Random SKU order with the rough edges of a real scrape
+        CatalogGenerator generator = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 42)
+                .withQuotedNames(0.02)
+                .withMalformedLines(0.001);
+        Path csvFile = Files.createTempFile("scale", ".csv");
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ProductManager productManager;
+        LoadReport report;
+        long malformed;
+        long heapBytes;
+        try {
+            malformed = generator.writeCsv(csvFile, rows);
+
+            long before = usedHeap(memory);
+            productManager = new ProductManager();
+            report = productManager.loadProductsFromCSVParallel(csvFile.toString());
+            heapBytes = usedHeap(memory) - before;
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+
+        LatencyHistogram latencies = timeLookups(productManager);
+        int products = productManager.getProductCount();
+
+        // Full-GC pauses with the catalog on heap, then with only an off-heap copy of it left
+        long onHeapGcMillis = fullGcMillis();
+        long offHeapGcMillis;
+        long offHeapBytes;
+        int offHeapSize;
+        try (OffHeapProductStore offHeap = productManager.toOffHeapStore()) {
+            productManager = null;
+            offHeapGcMillis = fullGcMillis();
+            offHeapBytes = offHeap.byteSize();
+            offHeapSize = offHeap.size();
+        }
+
+        // Heap of the columnar store against a plain SKU tree of the same products
+        long beforeTree = usedHeap(memory);
+        BinarySearchTree<Product> tree = new BinarySearchTree<>();
+        tree.bulkLoad(generator.products(rows));
+        long treeBytes = usedHeap(memory) - beforeTree;
+        int treeSize = tree.size();
+        ColumnarProductStore columnar = ColumnarProductStore.from(tree);
+        tree = null;
+        long columnarBytes = usedHeap(memory) - beforeTree;
+        int columnarSize = columnar.size();
+        double loadSeconds = report.getElapsedNanos() / 1e9;
+        long heapPerProduct = heapBytes / products;
+        double p50Micros = latencies.getValueAtPercentile(50) / 1e3;
+        double p99Micros = latencies.getValueAtPercentile(99) / 1e3;
+        double p999Micros = latencies.getValueAtPercentile(99.9) / 1e3;
+        double loadBudget = LOAD_SECONDS_PER_MILLION_ROWS * rows / 1e6;
+
+        StringWriter run = new StringWriter();
+        run.write("{\"rows\":" + rows);
+        run.write(",\"products\":" + products);
+        run.write(",\"rowsLoaded\":" + report.getRowsLoaded());
+        run.write(",\"rowsRejected\":" + report.getRowsRejected());
+        run.write(",\"malformedLines\":" + malformed);
+        run.write(String.format(Locale.ROOT, ",\"loadSeconds\":%.3f,\"rowsPerSecond\":%.0f", loadSeconds, report.getRowsPerSecond()));
+        run.write(",\"retainedHeapBytes\":" + heapBytes);
+        run.write(",\"heapBytesPerProduct\":" + heapPerProduct);
+        run.write(",\"treeHeapBytesPerProduct\":" + treeBytes / treeSize);
+        run.write(",\"columnarHeapBytesPerProduct\":" + columnarBytes / columnarSize);
+        run.write(",\"offHeapBytes\":" + offHeapBytes);
+        run.write(",\"fullGcMillis\":{\"onHeap\":" + onHeapGcMillis + ",\"offHeap\":" + offHeapGcMillis + "}");
+        run.write(String.format(Locale.ROOT, ",\"lookupP50Micros\":%.3f,\"lookupP99Micros\":%.3f,\"lookupP999Micros\":%.3f",
+                p50Micros, p99Micros, p999Micros));
+        run.write(String.format(Locale.ROOT, ",\"budgets\":{\"loadSeconds\":%.3f,\"heapBytesPerProduct\":%d,\"lookupP99Micros\":%.3f}",
+                loadBudget, HEAP_BYTES_PER_PRODUCT, LOOKUP_P99_MICROS));
+        run.write("}");
+        runs.add(run.toString());
+        writeReport();
+
+        // Correctness first: a fast load that drops rows is no use
+        assertEquals(rows, report.getRowsLoaded(), "Every generated row should load");
+        assertEquals(malformed, report.getRowsRejected(), "Exactly the malformed lines should be rejected");
+        assertTrue(loadSeconds <= loadBudget, String.format(Locale.ROOT, "Load took %.1f s, budget %.1f s", loadSeconds, loadBudget));
+        assertTrue(heapPerProduct <= HEAP_BYTES_PER_PRODUCT, "Retained " + heapPerProduct + " B/product, budget " + HEAP_BYTES_PER_PRODUCT);
+        assertTrue(p99Micros <= LOOKUP_P99_MICROS, String.format(Locale.ROOT, "Lookup p99 %.2f us, budget %.2f us", p99Micros, LOOKUP_P99_MICROS));
+        assertEquals(products, offHeapSize, "Off-heap store should hold the whole catalog");
+        assertEquals(treeSize, columnarSize, "Columnar store should hold every product of the tree");
+        assertTrue(columnarBytes * 3 < treeBytes * 2, "Columnar store should need under two thirds of the heap of a BinarySearchTree of the same products");
+    }
+
+    /**
+     * Times single lookups of SKUs spread over the whole catalog, in random order, after one
+     * untimed pass to warm up the JIT.
+     */
+    private static LatencyHistogram timeLookups(ProductManager productManager) {
+        List<String> probes = new ArrayList<>(PROBES + PROBES / 10);
+        int step = Math.max(1, productManager.getProductCount() / PROBES);
+        Iterator<Product> iterator = productManager.streamBySKU().iterator();
+        for (int i = 0; iterator.hasNext(); i++) {
+            Product product = iterator.next();
+            if (i % step == 0) {
+                probes.add(product.getSku());
+            }
+        }
+        for (int i = 0; i < PROBES / 10; i++) {
+            probes.add("MISSING-" + i);
+        }
+        Collections.shuffle(probes, new Random(1));
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        for (int pass = 0; pass < 2; pass++) {
+            latencies.reset();
+            for (String sku : probes) {
+                long start = System.nanoTime();
+                Product product = productManager.searchBySKU(sku);
+                latencies.record(System.nanoTime() - start);
+                assertEquals(sku.startsWith("MISSING-"), product == null, "Lookup of " + sku);
+            }
+        }
+        return latencies;
+    }
+
+    private static void writeReport() throws IOException {
+        Writer report = new StringWriter();
+        report.write("{\"timestamp\":");
+        ProductHttpServer.writeString(report, Instant.now().toString());
+        report.write(",\"javaVersion\":");
+        ProductHttpServer.writeString(report, System.getProperty("java.version"));
+        report.write(",\"processors\":" + Runtime.getRuntime().availableProcessors());
+        report.write(",\"maxHeapBytes\":" + Runtime.getRuntime().maxMemory());
+        report.write(",\"runs\":[" + String.join(",", runs) + "]}\n");
+
+        if (REPORT.getParent() != null) {
+            Files.createDirectories(REPORT.getParent());
+        }
+        Files.writeString(REPORT, report.toString(), StandardCharsets.UTF_8);
+    }
+
+    // Time spent in explicit collections, as reported by the collectors
+    private static long fullGcMillis() {
+        long before = gcMillis();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return gcMillis() - before;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static long usedHeap(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
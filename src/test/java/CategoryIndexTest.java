@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+
+public class CategoryIndexTest {
+
+    private CategoryIndex categoryIndex;
+
+    @BeforeEach
+    public void setUp() {
+        categoryIndex = new CategoryIndex();
+        categoryIndex.add(new Product("SKU001", 0, 499.99, "TV 1", "TVs"));
+        categoryIndex.add(new Product("SKU002", 0, 299.99, "TV 2", "TVs"));
+        categoryIndex.add(new Product("SKU003", 0, 899.99, "TV 3", "TVs"));
+        categoryIndex.add(new Product("SKU004", 0, 9.99, "Cable", "Accessories"));
+        categoryIndex.add(new Product("SKU005", 0, 199.99, "Washer", "Appliances"));
+        categoryIndex.add(new Product("SKU006", 0, 19.99, "Remote", "Accessories"));
+    }
+
+    @Test
+    public void testCounts() {
+        assertEquals(3, categoryIndex.count("TVs"), "Should count 3 TVs");
+        assertEquals(0, categoryIndex.count("Toys"), "Unknown category should count 0");
+
+        Map<String, Integer> counts = categoryIndex.counts();
+        assertEquals(List.of("TVs", "Accessories", "Appliances"), List.copyOf(counts.keySet()), "Largest categories should come first");
+        assertEquals(2, (int) counts.get("Accessories"), "Should count 2 accessories");
+
+        categoryIndex.remove(new Product("SKU005", 0, 199.99, "Washer", "Appliances"));
+        assertFalse(categoryIndex.counts().containsKey("Appliances"), "Empty category should be dropped");
+    }
+
+    @Test
+    public void testAddAll() {
+        categoryIndex.addAll(List.of(
+                new Product("SKU007", 0, 99.99, "TV 4", "TVs"),
+                new Product("SKU008", 0, 4.99, "Ball", "Toys"),
+                new Product("SKU009", 0, 14.99, "Puzzle", "Toys")));
+        assertEquals(4, categoryIndex.count("TVs"), "Batch should join an existing category");
+        assertEquals(List.of("SKU008", "SKU009"), categoryIndex.cheapest("Toys", 5).stream().map(Product::getSku).toList(), "Batch should fill a new category in price order");
+        assertEquals("SKU007", categoryIndex.cheapest("TVs", 1).get(0).getSku(), "New TV should be the cheapest");
+    }
+
+    @Test
+    public void testPerCategoryQueries() {
+        List<Product> cheapest = categoryIndex.cheapest("TVs", 2);
+        assertEquals("SKU002", cheapest.get(0).getSku(), "Cheapest TV should be SKU002");
+        assertEquals("SKU001", cheapest.get(1).getSku(), "Second cheapest TV should be SKU001");
+        assertEquals("SKU003", categoryIndex.mostExpensive("TVs", 1).get(0).getSku(), "Most expensive TV should be SKU003");
+
+        List<Product> range = categoryIndex.range("TVs", 100, 500);
+        assertEquals(2, range.size(), "Two TVs cost between 100 and 500");
+        assertTrue(categoryIndex.range("Accessories", 100, 500).isEmpty(), "No accessory costs that much");
+        assertTrue(categoryIndex.cheapest("Toys", 5).isEmpty(), "Unknown category has no products");
+    }
+
+    @Test
+    public void testFacetCounts() {
+        Map<String, Integer> facets = CategoryIndex.facetCounts(List.of(
+                new Product("SKU001", 0, 499.99, "TV 1", "TVs"),
+                new Product("SKU004", 0, 9.99, "Cable", "Accessories"),
+                new Product("SKU006", 0, 19.99, "Remote", "Accessories")));
+        assertEquals(List.of("Accessories", "TVs"), List.copyOf(facets.keySet()), "Largest facet should come first");
+        assertEquals(2, (int) facets.get("Accessories"), "Should count 2 accessories");
+        assertEquals(1, (int) facets.get("TVs"), "Should count 1 TV");
+    }
+}
@@ -0,0 +1,57 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+public class ColumnarProductStoreTest {
+
+    private static final String[] CATEGORIES = {"Appliances", "Electronics", "Furniture", "Garden", "Toys"};
+
+    @Test
+    public void testLookupAndViews() {
+        ColumnarProductStore store = ColumnarProductStore.from(List.of(
+                new Product("SKU001", 99.99, 79.99, "Test Product 1", "Category1"),
+                new Product("SKU002", 149.99, 129.99, "Test Product 2", "Category2"),
+                new Product("SKU003", 199.99, 179.99, "Test Product 3", "Category1")));
+
+        assertEquals(3, store.size(), "Store should hold 3 products");
+        assertEquals(2, store.categoryCount(), "Categories should be dictionary-encoded");
+
+        ColumnarProductStore.ProductView view = store.searchBySKU("SKU002");
+        assertNotNull(view, "Should find SKU002");
+        assertEquals("SKU002", view.getSku(), "SKU should match");
+        assertEquals("Test Product 2", view.getProductName(), "Product name should match");
+        assertEquals("Category2", view.getCategory(), "Category should match");
+        assertEquals(129.99, view.getPriceCurrent(), 0.001, "Current price should match");
+        assertEquals(149.99, view.toProduct().getPriceRetail(), 0.001, "Retail price should match");
+
+        assertSame(store.category(0), store.category(2), "Rows with the same category share one String");
+        assertEquals(-1, store.find("SKU000"), "Should not find a SKU before the first row");
+        assertEquals(-1, store.find("SKU0025"), "Should not find a SKU between rows");
+        assertNull(store.searchBySKU("SKU999"), "Should not find a SKU after the last row");
+    }
+
+    @Test
+    public void testRejectsUnsortedInput() {
+        ColumnarProductStore.Builder builder = new ColumnarProductStore.Builder();
+        builder.add(new Product("SKU002", 0, 0, "", ""));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(new Product("SKU001", 0, 0, "", "")));
+    }
+
+    @Test
+    public void testCompactEncoding() {
+        // Measured heap against the tree is in the scale suite (CatalogScaleTest)
+        int count = 100_000;
+        TreeSkuIndex tree = new TreeSkuIndex();
+        for (int i = 0; i < count; i++) {
+            tree.put(new Product(String.format("SKU%07d", i), i + 0.99, i + 0.49, "Product name " + i, new String(CATEGORIES[i % CATEGORIES.length])));
+        }
+        ColumnarProductStore store = ColumnarProductStore.from(tree);
+
+        assertEquals(count, store.size(), "Store should hold every product");
+        assertEquals(CATEGORIES.length, store.categoryCount(), "Equal categories should be stored once");
+        long bytesPerProduct = store.estimatedHeapBytes() / count;
+        assertTrue(bytesPerProduct < 100, "A product should take under 100 bytes of columns, was " + bytesPerProduct);
+        assertEquals("Product name 4242", store.searchBySKU("SKU0004242").getProductName(), "Lookups should decode the row");
+    }
+}
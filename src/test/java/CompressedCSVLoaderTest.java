@@ -0,0 +1,131 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressedCSVLoaderTest {
+
+    private Path csvFile;
+    private Path gzFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        csvFile = Files.createTempFile("catalog", ".csv");
+        gzFile = Files.createTempFile("catalog", ".csv.gz");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+        Files.deleteIfExists(gzFile);
+    }
+
+    private void gzip(Path from, Path to) throws IOException {
+        try (InputStream in = Files.newInputStream(from);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(to), 1 << 16)) {
+            in.transferTo(out);
+        }
+    }
+
+    private static List<Product> products(List<ParallelCSVLoader.Chunk> chunks) {
+        List<Product> products = new ArrayList<>();
+        for (ParallelCSVLoader.Chunk chunk : chunks) {
+            products.addAll(chunk.getProducts());
+        }
+        return products;
+    }
+
+    @Test
+    public void testMatchesUncompressedParse() throws IOException {
+        // Large enough to span several decompressed blocks, so lines get cut across them
+        new CatalogGenerator(CatalogGenerator.Distribution.SKEWED, 11).writeCsv(csvFile, 150_000);
+        try (OutputStream out = Files.newOutputStream(csvFile, StandardOpenOption.APPEND)) {
+            out.write("too,few,columns\r\nElectronics,x,x,x,x,x,LAST-SKU,x,x,1.00,0.50,x,x,x,x,x,x,x,Last Product,x".getBytes());
+        }
+        gzip(csvFile, gzFile);
+
+        List<Product> expected = products(new ParallelCSVLoader(2).parse(csvFile));
+        List<ParallelCSVLoader.Chunk> chunks = new CompressedCSVLoader(3).parse(gzFile);
+        List<Product> actual = products(chunks);
+
+        assertEquals(expected.size(), actual.size(), "Should parse the same number of rows");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSku(), actual.get(i).getSku(), "Rows should be in file order at " + i);
+            assertEquals(expected.get(i).getPriceCurrent(), actual.get(i).getPriceCurrent(), "Prices should match at " + i);
+        }
+        assertEquals("LAST-SKU", actual.get(actual.size() - 1).getSku(), "Final line without a newline should be parsed");
+        assertEquals(1, chunks.stream().mapToLong(ParallelCSVLoader.Chunk::getRejected).sum(), "Malformed row should be rejected");
+        assertEquals(expected.size(), products(new CompressedCSVLoader(2).parse(csvFile)).size(), "Plain input should be accepted too");
+    }
+
+    @Test
+    public void testEmptyAndHeaderOnly() throws IOException {
+        Files.writeString(csvFile, "");
+        gzip(csvFile, gzFile);
+        assertTrue(new CompressedCSVLoader().parse(gzFile).isEmpty(), "Empty input should have no chunks");
+
+        Files.writeString(csvFile, CatalogGenerator.HEADER);
+        gzip(csvFile, gzFile);
+        assertTrue(products(new CompressedCSVLoader().parse(gzFile)).isEmpty(), "Header-only input should have no rows");
+
+        Files.writeString(csvFile, "NOT,A,CATALOG\n1,2,3\n");
+        gzip(csvFile, gzFile);
+        assertThrows(IOException.class, () -> new CompressedCSVLoader().parse(gzFile), "Missing columns should be reported");
+    }
+
+    @Test
+    public void testRejectsZstdAndCorruptInput() throws IOException {
+        Files.write(gzFile, new byte[] {(byte) 0x28, (byte) 0xb5, (byte) 0x2f, (byte) 0xfd, 0, 0, 0});
+        assertTrue(CompressedCSVLoader.isCompressed(gzFile), "zstd magic should be recognized");
+        IOException zstd = assertThrows(IOException.class, () -> new CompressedCSVLoader().parse(gzFile), "zstd should be rejected");
+        assertTrue(zstd.getMessage().contains("zstd"), "The error should name the format");
+
+        new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 2).writeCsv(csvFile, 50_000);
+        gzip(csvFile, gzFile);
+        byte[] bytes = Files.readAllBytes(gzFile);
+        Files.write(gzFile, Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IOException.class, () -> new CompressedCSVLoader().parse(gzFile), "Truncated gzip should fail");
+    }
+
+    @Test
+    public void testProductManagerLoadsAndRefreshesGzip() throws IOException {
+        new CatalogGenerator(CatalogGenerator.Distribution.SORTED, 4).writeCsv(csvFile, 1000);
+        gzip(csvFile, gzFile);
+
+        ProductManager productManager = new ProductManager();
+        LoadReport report = productManager.loadProductsFromCSV(gzFile.toString());
+        assertEquals(1000, report.getRowsLoaded(), "Compressed file should be detected and loaded");
+        assertNotNull(productManager.searchBySKU("SKU0000000999"), "Last product should be found");
+
+        new CatalogGenerator(CatalogGenerator.Distribution.SORTED, 4).writeCsv(csvFile, 1001);
+        gzip(csvFile, gzFile);
+        RefreshReport refresh = productManager.refreshFromCSV(gzFile.toString());
+        assertEquals(RefreshReport.Mode.FULL_DIFF, refresh.getMode(), "Compressed files should be diffed");
+        assertEquals(1, refresh.getUpserted().size(), "Only the new row should be applied");
+    }
+
+    @Test
+    public void testLargeFileMatchesUncompressed() throws IOException {
+        // Throughput against decompression alone is measured in LoadBenchmark
+        new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 7).writeCsv(csvFile, 500_000);
+        gzip(csvFile, gzFile);
+
+        List<Product> expected = products(new ParallelCSVLoader().parse(csvFile));
+        List<Product> actual = products(new CompressedCSVLoader().parse(gzFile));
+        assertEquals(500_000, actual.size(), "Every row should be parsed");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSku(), actual.get(i).getSku(), "Rows should come out in file order");
+        }
+    }
+}
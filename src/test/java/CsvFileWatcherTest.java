@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class CsvFileWatcherTest {
+
+    @Test
+    public void testAppendTriggersRefresh() throws Exception {
+        Path directory = Files.createTempDirectory("watched");
+        Path csvFile = directory.resolve("datos.csv");
+        try (FileWriter writer = new FileWriter(csvFile.toFile())) {
+            writer.write("CATEGORY,DATE_SCRAPED,SORT_BY,RUN_START_DATE,SUBCATEGORY,SHIPPING_LOCATION,SKU,COUNTRY,BRAND,PRICE_RETAIL,PRICE_CURRENT,SELLER,PRODUCT_URL,CURRENCY,BREADCRUMBS,DEPARTMENT,PROMOTION,BESTSELLER_RANK,PRODUCT_NAME,WEBSITE_URL\n");
+            writer.write("Appliances,2023-01-01,Popular,2023-01-01,Washers,US,TEST-SKU-001,US,TestBrand,199.99,179.99,TestSeller,http://example.com,USD,Home>Appliances,Home,None,1,Test Washing Machine,http://example.com\n");
+        }
+
+        ProductManager productManager = new ProductManager();
+        productManager.loadProductsFromCSV(csvFile.toString());
+
+        LinkedBlockingQueue<RefreshReport> reports = new LinkedBlockingQueue<>();
+        CsvFileWatcher watcher = new CsvFileWatcher(productManager, csvFile, reports::add, 100);
+        try {
+            try (FileWriter writer = new FileWriter(csvFile.toFile(), true)) {
+                writer.write("Electronics,2023-01-01,Popular,2023-01-01,TVs,US,TEST-SKU-002,US,TestBrand,499.99,399.99,TestSeller,http://example.com,USD,Home>Electronics,Home,None,2,Test TV,http://example.com\n");
+            }
+
+            // Polling-based watch services can take several seconds to notice a change
+            RefreshReport report = reports.poll(30, TimeUnit.SECONDS);
+            assertNotNull(report, "Watcher should refresh after the file changes");
+            assertEquals(RefreshReport.Mode.APPENDED, report.getMode(), "Append should be applied incrementally");
+            assertNotNull(productManager.searchBySKU("TEST-SKU-002"), "The refresh should be visible to other threads");
+
+            // A file that can no longer be parsed is reported to the listener, not printed
+            Files.writeString(csvFile, "NOT,A,PRODUCT,HEADER\n");
+            report = reports.poll(30, TimeUnit.SECONDS);
+            assertNotNull(report, "Watcher should report the failed refresh");
+            assertEquals(RefreshReport.Mode.FAILED, report.getMode(), "Unreadable file should fail the refresh");
+            assertNotNull(report.getError(), "Failure should carry its cause");
+        } finally {
+            watcher.close();
+        }
+
+        assertEquals(2, productManager.getProductCount(), "Failed refresh should leave the catalog as it was");
+
+        Files.delete(csvFile);
+        Files.delete(directory);
+    }
+}
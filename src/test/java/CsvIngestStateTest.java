@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class CsvIngestStateTest {
+    private static final String HEADER = "CATEGORY,DATE_SCRAPED,SORT_BY,RUN_START_DATE,SUBCATEGORY,SHIPPING_LOCATION,SKU,COUNTRY,BRAND,PRICE_RETAIL,PRICE_CURRENT,SELLER,PRODUCT_URL,CURRENCY,BREADCRUMBS,DEPARTMENT,PROMOTION,BESTSELLER_RANK,PRODUCT_NAME,WEBSITE_URL\n";
+
+    private Path csvFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        csvFile = Files.createTempFile("ingest", ".csv");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+    }
+
+    private void writeRows(int from, int to, boolean append) throws IOException {
+        try (Writer writer = append
+                ? Files.newBufferedWriter(csvFile, StandardOpenOption.APPEND)
+                : Files.newBufferedWriter(csvFile)) {
+            if (!append) {
+                writer.write(HEADER);
+            }
+            for (int i = from; i < to; i++) {
+                writer.write(String.format("Toys,2023-01-01,Popular,2023-01-01,Games,US,SKU-%07d,US,TestBrand,9.99,5.99,TestSeller,http://example.com,USD,Home>Toys,Home,None,4,Game %d,http://example.com%n", i, i));
+            }
+        }
+    }
+
+    private CsvIngestState capture() throws IOException {
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            return CsvIngestState.capture(csvFile, channel, channel.size());
+        }
+    }
+
+    private boolean isAppendOnly(CsvIngestState state) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            return state.isAppendOnly(csvFile, channel);
+        }
+    }
+
+    private void flipByte(long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, position);
+            buffer.put(0, (byte) (buffer.get(0) ^ 0x01));
+            buffer.rewind();
+            channel.write(buffer, position);
+        }
+    }
+
+    @Test
+    public void testAppendsAcrossBlocksStayAppendOnly() throws IOException {
+        // Several blocks, and advancing recomputes the partial one at the old offset
+        writeRows(0, 20_000, false);
+        CsvIngestState state = capture();
+        assertTrue(Files.size(csvFile) > 3L * CsvIngestState.BLOCK_SIZE, "File should span several blocks");
+        for (int round = 1; round <= 3; round++) {
+            writeRows(round * 20_000, round * 20_000 + 7_000, true);
+            for (int check = 0; check < CsvIngestState.FULL_CHECK_INTERVAL; check++) {
+                assertTrue(isAppendOnly(state), "Append " + round + " should be recognized on check " + check);
+            }
+            try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+                state = state.advance(channel, channel.size());
+            }
+            assertEquals(Files.size(csvFile), state.getOffset(), "Offset should follow the applied rows");
+        }
+    }
+
+    @Test
+    public void testRewritesAreFound() throws IOException {
+        writeRows(0, 40_000, false);
+        long size = Files.size(csvFile);
+
+        // A change in the first or last block is found on the next check
+        CsvIngestState state = capture();
+        flipByte(HEADER.length() + 10);
+        assertFalse(isAppendOnly(state), "A rewritten first row should be found at once");
+        writeRows(0, 40_000, false);
+        state = capture();
+        flipByte(size - 10);
+        assertFalse(isAppendOnly(state), "A rewritten last row should be found at once");
+
+        // A change in the middle is found within one full-check interval
+        writeRows(0, 40_000, false);
+        state = capture();
+        flipByte(size / 2 + 12_345);
+        boolean found = false;
+        for (int check = 0; check < CsvIngestState.FULL_CHECK_INTERVAL && !found; check++) {
+            found = !isAppendOnly(state);
+        }
+        assertTrue(found, "A rewritten middle row should be found by the full check at the latest");
+
+        // A shorter file is never an append
+        state = capture();
+        writeRows(0, 10, false);
+        assertFalse(isAppendOnly(state), "A truncated file is not an append");
+    }
+}
@@ -0,0 +1,48 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        long previous = -1;
+        for (long value : new long[] {0, 1, 127, 128, 129, 255, 256, 1000, 123_456_789L, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long highest = LatencyHistogram.highestValueOf(bucket);
+            assertTrue(highest >= value, "Bucket of " + value + " should include it");
+            assertTrue(highest - value <= value / 64, "Bucket of " + value + " should be within 1/64 of it");
+            assertTrue(bucket >= previous, "Buckets should never shrink as the value grows");
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.bucketOf(128), LatencyHistogram.bucketOf(129), "128 and 129 should share a bucket");
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99), "Empty histogram should report 0");
+
+        Random random = new Random(3);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal-ish latencies between roughly 100 ns and 1 ms
+            values[i] = (long) Math.exp(4.6 + random.nextDouble() * 9.2);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getCount(), "Should count every value");
+        assertEquals(values[values.length - 1], histogram.getMax(), "Should track the exact maximum");
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertEquals(exact, reported, exact / 50.0, "p" + percentile + " should be within 2%");
+        }
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount(), "Reset should forget every value");
+    }
+}
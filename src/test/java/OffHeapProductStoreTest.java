@@ -0,0 +1,167 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class OffHeapProductStoreTest {
+
+    private static List<String> skus(Iterator<OffHeapProductStore.ProductView> iterator) {
+        List<String> skus = new ArrayList<>();
+        iterator.forEachRemaining(view -> skus.add(view.getSku()));
+        return skus;
+    }
+
+    @Test
+    public void testLookupsAndViews() {
+        try (OffHeapProductStore store = OffHeapProductStore.from(List.of(
+                new Product("SKU001", 10.0, 8.0, "Lamp", "Home"),
+                new Product("SKU002", 20.0, 15.0, "Chair", "Furniture"),
+                new Product("SKU003", 30.0, 8.0, "Desk", "Furniture")))) {
+            assertEquals(3, store.size(), "Store should hold 3 products");
+            assertEquals(2, store.categoryCount(), "Categories should be dictionary-encoded");
+
+            OffHeapProductStore.ProductView view = store.searchBySKU("SKU002");
+            assertNotNull(view, "SKU002 should be found");
+            assertEquals("Chair", view.getProductName(), "Name should be read from the arena");
+            assertEquals(15.0, view.getPriceCurrent(), 0.001, "Price should be read from the record");
+            assertEquals("Furniture", view.toProduct().getCategory(), "Views should materialize to products");
+            assertNull(store.searchBySKU("SKU000"), "SKU000 should not be found");
+            assertNull(store.searchBySKU("SKU0021"), "Longer SKU should not match");
+            assertNull(store.searchBySKU("SKU00"), "Shorter SKU should not match");
+
+            assertEquals(List.of("SKU001", "SKU002", "SKU003"), skus(store.iterator()), "Rows should be in SKU order");
+            assertEquals(List.of("SKU001", "SKU003", "SKU002"), skus(store.priceAscending()), "Equal prices should be in SKU order");
+            assertEquals(List.of("SKU002", "SKU001", "SKU003"), skus(store.priceDescending()), "Equal prices should stay in SKU order when descending");
+        }
+    }
+
+    @Test
+    public void testNonAsciiSkus() {
+        // UTF-8 byte order and String order disagree for these
+        List<String> skus = new ArrayList<>(List.of("A", "AB", "Ä", "Äb", "Ａ", "😀", "😀x", "z"));
+        skus.sort(null);
+        List<Product> products = new ArrayList<>();
+        for (String sku : skus) {
+            products.add(new Product(sku, 1.0, 1.0, "Name " + sku, "Test"));
+        }
+
+        try (OffHeapProductStore store = OffHeapProductStore.from(products)) {
+            for (String sku : skus) {
+                assertNotNull(store.searchBySKU(sku), "Should find " + sku);
+                assertEquals("Name " + sku, store.searchBySKU(sku).getProductName(), "Names should round-trip for " + sku);
+            }
+            assertNull(store.searchBySKU("Ä😀"), "Absent non-ASCII SKU should not be found");
+            assertEquals(skus, skus(store.iterator()), "Order should follow String order");
+        }
+    }
+
+    @Test
+    public void testWriteAndOpen() throws IOException {
+        Path file = Files.createTempFile("products", ".offheap");
+        try {
+            List<Product> products = new CatalogGenerator(CatalogGenerator.Distribution.SORTED, 3).products(10_000);
+            try (OffHeapProductStore store = OffHeapProductStore.from(products)) {
+                store.write(file);
+                assertEquals(store.byteSize(), Files.size(file), "File should be the segment, byte for byte");
+            }
+
+            try (OffHeapProductStore mapped = OffHeapProductStore.open(file)) {
+                assertEquals(products.size(), mapped.size(), "Mapped store should hold every product");
+                Product expected = products.get(1234);
+                OffHeapProductStore.ProductView view = mapped.searchBySKU(expected.getSku());
+                assertEquals(expected.getProductName(), view.getProductName(), "Mapped names should match");
+                assertEquals(expected.getCategory(), view.getCategory(), "Mapped categories should match");
+                assertEquals(expected.getPriceRetail(), view.getPriceRetail(), 0.001, "Mapped prices should match");
+            }
+
+            Files.write(file, new byte[] {1, 2, 3});
+            assertThrows(IOException.class, () -> OffHeapProductStore.open(file), "A foreign file should be rejected");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testCorruptFilesAreRejected() throws IOException {
+        Path file = Files.createTempFile("products", ".offheap");
+        try {
+            List<Product> products = new CatalogGenerator(CatalogGenerator.Distribution.SORTED, 5).products(100);
+            try (OffHeapProductStore store = OffHeapProductStore.from(products)) {
+                store.write(file);
+            }
+            byte[] valid = Files.readAllBytes(file);
+            long priceOrderStart = buffer(valid).getLong(16);
+            long categoriesStart = buffer(valid).getLong(32);
+            long record = 64 + 40L * 57;
+
+            assertCorrupt(file, valid, bytes -> bytes.putLong((int) record, Integer.MAX_VALUE), "A text offset past the arena");
+            assertCorrupt(file, valid, bytes -> bytes.putInt((int) record + 8, -1), "A negative SKU length");
+            assertCorrupt(file, valid, bytes -> bytes.putInt((int) record + 12, 1 << 20), "A name running past the arena");
+            assertCorrupt(file, valid, bytes -> bytes.putInt((int) record + 32, 99), "An unknown category code");
+            assertCorrupt(file, valid, bytes -> bytes.putInt((int) priceOrderStart, bytes.getInt((int) priceOrderStart + 4)),
+                    "A row listed twice in the price order");
+            assertCorrupt(file, valid, bytes -> bytes.putInt((int) categoriesStart, 1 << 20), "A category running past the end");
+
+            byte[] truncated = Arrays.copyOf(valid, valid.length - 10);
+            Files.write(file, truncated);
+            assertThrows(IOException.class, () -> OffHeapProductStore.open(file), "A truncated file should be rejected");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static ByteBuffer buffer(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    private static void assertCorrupt(Path file, byte[] valid, Consumer<ByteBuffer> damage, String what) throws IOException {
+        byte[] bytes = valid.clone();
+        damage.accept(buffer(bytes));
+        Files.write(file, bytes);
+        IOException e = assertThrows(IOException.class, () -> OffHeapProductStore.open(file), what + " should be rejected");
+        assertTrue(e.getMessage().contains(file.toString()), "The error should name the file");
+    }
+
+    @Test
+    public void testMatchesProductManager() throws IOException {
+        Path csvFile = Files.createTempFile("offheap", ".csv");
+        try {
+            new CatalogGenerator(CatalogGenerator.Distribution.SKEWED, 8).writeCsv(csvFile, 20_000);
+            ProductManager productManager = new ProductManager();
+            productManager.loadProductsFromCSV(csvFile.toString());
+
+            try (OffHeapProductStore store = productManager.toOffHeapStore()) {
+                List<String> expected = productManager.listProductsByPriceAscending().stream().map(Product::getSku).toList();
+                assertEquals(expected, skus(store.priceAscending()), "Price listing should match the price index");
+                List<String> descending = productManager.listProductsByPriceDescending().stream().map(Product::getSku).toList();
+                assertEquals(descending, skus(store.priceDescending()), "Descending listing should break ties like the price index");
+                assertEquals(productManager.getProductCount(), store.size(), "Store should hold the whole catalog");
+            }
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+    }
+
+    @Test
+    public void testMillionProducts() {
+        // Full-GC pauses with the catalog on and off heap are measured in the scale suite (CatalogScaleTest)
+        int count = 1_000_000;
+        TreeSkuIndex tree = new TreeSkuIndex();
+        tree.putAll(new CatalogGenerator(CatalogGenerator.Distribution.SORTED, 4).products(count));
+
+        try (OffHeapProductStore store = OffHeapProductStore.from(tree)) {
+            assertEquals(count, store.size(), "Store should hold every product");
+            String sku = String.format("SKU%010d", 777_777);
+            assertEquals(tree.get(sku).getProductName(), store.searchBySKU(sku).getProductName(), "Store should still answer lookups");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class PersistentSearchTreeTest {
+
+    @Test
+    public void testInsertLeavesOldVersionUnchanged() {
+        PersistentSearchTree<Product> empty = PersistentSearchTree.empty();
+        PersistentSearchTree<Product> one = empty.insert(new Product("SKU001", 99.99, 79.99, "Test Product 1", "Category1"));
+        PersistentSearchTree<Product> two = one.insert(new Product("SKU002", 149.99, 129.99, "Test Product 2", "Category2"));
+        PersistentSearchTree<Product> replaced = two.insert(new Product("SKU001", 89.99, 69.99, "Updated Product 1", "Category1"));
+
+        assertEquals(0, empty.size(), "Empty tree should stay empty");
+        assertEquals(1, one.size(), "First version should keep 1 product");
+        assertNull(one.search(new Product("SKU002", 0, 0, "", "")), "First version should not see SKU002");
+        assertEquals(2, replaced.size(), "Replacing should not change the size");
+        assertEquals("Test Product 1", two.search(new Product("SKU001", 0, 0, "", "")).getProductName(), "Old version should keep the old product");
+        assertEquals("Updated Product 1", replaced.search(new Product("SKU001", 0, 0, "", "")).getProductName(), "New version should see the replacement");
+    }
+
+    @Test
+    public void testRandomOperationsMatchTreeMap() {
+        Random random = new Random(42);
+        TreeMap<String, Product> expected = new TreeMap<>();
+        PersistentSearchTree<Product> tree = PersistentSearchTree.empty();
+
+        for (int i = 0; i < 50_000; i++) {
+            String sku = "SKU" + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(sku);
+                tree = tree.remove(new Product(sku, 0, 0, "", ""));
+            } else {
+                Product product = new Product(sku, i, i, "Product " + i, "Category");
+                expected.put(sku, product);
+                tree = tree.insert(product);
+            }
+        }
+
+        assertEquals(expected.size(), tree.size(), "Size should match");
+        assertEquals(new ArrayList<>(expected.values()), tree.inOrder(), "Contents should match in order");
+        int maxHeight = (int) Math.ceil(1.45 * Math.log(tree.size() + 2) / Math.log(2));
+        assertTrue(tree.height() <= maxHeight, "AVL height " + tree.height() + " should be at most " + maxHeight);
+    }
+
+    @Test
+    public void testMillionSequentialSKUs() {
+        // Sorted input is the worst case for an unbalanced tree and the deepest path for recursion
+        int count = 1_000_000;
+        PersistentSearchTree<Product> tree = PersistentSearchTree.empty();
+        for (int i = 0; i < count; i++) {
+            tree = tree.insert(new Product(String.format("SKU%07d", i), i, i, "Product " + i, "Category"));
+        }
+
+        assertEquals(count, tree.size(), "Should have loaded 1M products");
+        int maxHeight = (int) Math.ceil(1.45 * Math.log(count + 2) / Math.log(2));
+        assertTrue(tree.height() <= maxHeight, "AVL height " + tree.height() + " should be at most " + maxHeight);
+        for (int i = 0; i < count; i += 9973) {
+            Product found = tree.search(new Product(String.format("SKU%07d", i), 0, 0, "", ""));
+            assertNotNull(found, "Should find SKU" + i);
+            assertEquals(i, found.getPriceCurrent(), 0.001, "Current price should match");
+        }
+        assertNull(tree.search(new Product("SKU9999999", 0, 0, "", "")), "Should not find non-existing product");
+
+        List<Product> products = tree.inOrder();
+        assertEquals(count, products.size(), "In-order traversal should return every product");
+        for (int i = 1; i < products.size(); i++) {
+            assertTrue(products.get(i - 1).compareTo(products.get(i)) < 0, "Products should be in SKU order");
+        }
+
+        // Removing every other SKU in order keeps the tree balanced as well
+        for (int i = 0; i < count; i += 2) {
+            tree = tree.remove(new Product(String.format("SKU%07d", i), 0, 0, "", ""));
+        }
+        assertEquals(count / 2, tree.size(), "Half should be left");
+        assertTrue(tree.height() <= maxHeight, "AVL height " + tree.height() + " should be at most " + maxHeight);
+        assertNull(tree.search(new Product("SKU0000042", 0, 0, "", "")), "Removed SKU should be gone");
+        assertNotNull(tree.search(new Product("SKU0000043", 0, 0, "", "")), "Odd SKUs should remain");
+    }
+
+    @Test
+    public void testSkuIndexLoadsMillionSequentialSKUs() {
+        int count = 1_000_000;
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(new Product(String.format("SKU%07d", i), i, i, "Product " + i, "Category"));
+        }
+        TreeSkuIndex bulk = new TreeSkuIndex();
+        bulk.putAll(products);
+        TreeSkuIndex oneByOne = new TreeSkuIndex();
+        for (Product product : products) {
+            oneByOne.put(product);
+        }
+
+        assertEquals(count, bulk.size(), "Bulk load should hold every product");
+        assertEquals(20, bulk.stats().getHeight(), "1M products fit in 20 levels");
+        assertEquals(count, oneByOne.size(), "Inserting one by one should hold every product");
+        Iterator<Product> expected = bulk.iterator();
+        for (Product product : oneByOne) {
+            assertSame(expected.next(), product, "Both loads should hold the same products in SKU order");
+        }
+        assertSame(products.get(654_321), oneByOne.get("SKU0654321"), "Lookups should find the loaded product");
+    }
+
+    @Test
+    public void testSearchAllByKey() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            products.add(new Product("SKU00" + i, i, i, "Test Product " + i, "Category1"));
+        }
+        PersistentSearchTree<Product> tree = PersistentSearchTree.fromSorted(products);
+
+        List<Product> found = tree.searchAllByKey(List.of("SKU000", "SKU003", "SKU003", "SKU005x", "SKU009", "ZZZ"), Product::getSku);
+        assertEquals("SKU000", found.get(0).getSku(), "Should find the first key");
+        assertEquals("SKU003", found.get(1).getSku(), "Should find duplicated keys");
+        assertEquals("SKU003", found.get(2).getSku(), "Should find duplicated keys");
+        assertNull(found.get(3), "Missing key should be null");
+        assertEquals("SKU009", found.get(4).getSku(), "Should find the last key");
+        assertNull(found.get(5), "Key past the end should be null");
+        assertNull(PersistentSearchTree.<Product>empty().searchAllByKey(List.of("SKU000"), Product::getSku).get(0), "Empty tree should find nothing");
+    }
+
+    @Test
+    public void testFromSorted() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            products.add(new Product(String.format("SKU%06d", i), i, i, "Product " + i, "Category"));
+        }
+        PersistentSearchTree<Product> tree = PersistentSearchTree.fromSorted(products);
+
+        assertEquals(100_000, tree.size(), "Every product should be in the tree");
+        assertEquals(17, tree.height(), "Tree built from sorted input should have minimal height");
+        assertNotNull(tree.search(new Product("SKU054321", 0, 0, "", "")), "Should find SKU054321");
+        assertThrows(IllegalArgumentException.class, () -> PersistentSearchTree.fromSorted(List.of(products.get(1), products.get(0))));
+    }
+}
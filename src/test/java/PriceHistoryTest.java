@@ -0,0 +1,140 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class PriceHistoryTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    private static int day(int offset) {
+        return (int) START.plusDays(offset).toEpochDay();
+    }
+
+    @Test
+    public void testPriceAsOf() {
+        PriceHistory history = new PriceHistory();
+        history.record("SKU-1", day(0), 100.00);
+        history.record("SKU-1", day(10), 80.50);
+        history.record("SKU-1", day(20), 120.25);
+
+        assertTrue(Double.isNaN(history.priceAsOf("SKU-1", START.minusDays(1))), "No price before the first scrape");
+        assertEquals(100.00, history.priceAsOf("SKU-1", START), "Price on the first day");
+        assertEquals(100.00, history.priceAsOf("SKU-1", START.plusDays(9)), "Price holds until the next version");
+        assertEquals(80.50, history.priceAsOf("SKU-1", START.plusDays(10)), "Price on a version day");
+        assertEquals(120.25, history.priceAsOf("SKU-1", START.plusDays(400)), "Latest price holds afterwards");
+        assertTrue(Double.isNaN(history.priceAsOf("SKU-2", START)), "Unknown SKU has no price");
+        assertEquals(3, history.getVersionCount("SKU-1"), "Three versions");
+    }
+
+    @Test
+    public void testSameDayReplacesAndOlderDaysMergeIn() {
+        PriceHistory history = new PriceHistory();
+        history.record("SKU-1", day(0), 10.00);
+        history.record("SKU-1", day(0), 11.00);
+        history.record("SKU-1", day(5), 12.00);
+        history.record("SKU-1", day(5), 9.00);
+        history.record("SKU-1", day(2), 7.00);
+        history.record("SKU-1", day(5), 9.50);
+
+        assertEquals(3, history.getVersionCount("SKU-1"), "Same-day rows replace each other");
+        assertEquals(3, history.getVersionCount(), "Total versions should follow replacements");
+        assertEquals(11.00, history.priceAsOf("SKU-1", START.plusDays(1)), "Later same-day row wins");
+        assertEquals(7.00, history.priceAsOf("SKU-1", START.plusDays(3)), "Older row should be merged in");
+        assertEquals(9.50, history.priceAsOf("SKU-1", START.plusDays(6)), "Last version should be replaced after a merge");
+    }
+
+    @Test
+    public void testMatchesReferenceAcrossCheckpoints() {
+        PriceHistory history = new PriceHistory();
+        Map<String, TreeMap<Integer, Long>> reference = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 20_000; i++) {
+            String sku = "SKU-" + random.nextInt(50);
+            // Mostly in day order, with same-day repeats and the occasional late row
+            TreeMap<Integer, Long> versions = reference.computeIfAbsent(sku, key -> new TreeMap<>());
+            int offset = versions.isEmpty() ? random.nextInt(10) : versions.lastKey() - day(0) + random.nextInt(3);
+            if (random.nextInt(50) == 0) {
+                offset = random.nextInt(offset + 1);
+            }
+            long cents = 1_000 + random.nextInt(500_000);
+            history.record(sku, day(offset), cents / 100.0);
+            versions.put(day(offset), cents);
+        }
+
+        long versionCount = 0;
+        for (Map.Entry<String, TreeMap<Integer, Long>> entry : reference.entrySet()) {
+            TreeMap<Integer, Long> versions = entry.getValue();
+            versionCount += versions.size();
+            assertEquals(versions.size(), history.getVersionCount(entry.getKey()), "Version count of " + entry.getKey());
+            for (int offset = -1; offset <= versions.lastKey() - day(0) + 1; offset++) {
+                Map.Entry<Integer, Long> expected = versions.floorEntry(day(offset));
+                double actual = history.priceAsOf(entry.getKey(), START.plusDays(offset));
+                if (expected == null) {
+                    assertTrue(Double.isNaN(actual), entry.getKey() + " before its first version");
+                } else {
+                    assertEquals(expected.getValue() / 100.0, actual, entry.getKey() + " on day " + offset);
+                }
+            }
+        }
+        assertEquals(versionCount, history.getVersionCount(), "Total version count");
+    }
+
+    @Test
+    public void testBiggestDrops() {
+        PriceHistory history = new PriceHistory();
+        history.record("A", day(0), 100);
+        history.record("A", day(5), 60); // drop of 40
+        history.record("B", day(0), 50);
+        history.record("B", day(8), 10); // drop of 40, ties with A
+        history.record("C", day(0), 30);
+        history.record("C", day(3), 25); // drop of 5
+        history.record("C", day(30), 1); // after the window
+        history.record("D", day(0), 10);
+        history.record("D", day(4), 20); // increase
+        history.record("E", day(2), 500);
+        history.record("E", day(6), 1); // first seen inside the window
+
+        List<PriceHistory.PriceDrop> drops = history.biggestDrops(START.plusDays(1), START.plusDays(10), 2);
+        assertEquals(2, drops.size(), "Should return k drops");
+        assertEquals("A", drops.get(0).getSku(), "Ties should be broken by SKU");
+        assertEquals("B", drops.get(1).getSku(), "Second drop");
+        assertEquals(100.0, drops.get(0).getPriceBefore(), "Price at the start of the window");
+        assertEquals(60.0, drops.get(0).getPriceAfter(), "Price at the end of the window");
+        assertEquals(40.0, drops.get(0).getDrop(), "Drop amount");
+
+        List<String> all = new ArrayList<>();
+        for (PriceHistory.PriceDrop drop : history.biggestDrops(START.plusDays(1), START.plusDays(10), 10)) {
+            all.add(drop.getSku());
+        }
+        assertEquals(List.of("A", "B", "C"), all, "Increases and SKUs first seen inside the window are skipped");
+        assertTrue(history.biggestDrops(START, START.plusDays(10), 0).isEmpty(), "k = 0 returns nothing");
+    }
+
+    @Test
+    public void testEncodingIsCompact() {
+        PriceHistory history = new PriceHistory();
+        Random random = new Random(11);
+        int skus = 2_000;
+        int days = 365;
+        for (int offset = 0; offset < days; offset++) {
+            for (int i = 0; i < skus; i++) {
+                // Prices move by a few percent now and then, like daily scrapes
+                double price = 100 + i % 900 + (random.nextInt(10) == 0 ? random.nextInt(2_000) / 100.0 : 0);
+                history.record("SKU" + i, day(offset), price);
+            }
+        }
+        history.trimToSize();
+
+        assertEquals((long) skus * days, history.getVersionCount(), "One version per SKU per day");
+        double bytesPerVersion = (double) history.getEncodedBytes() / history.getVersionCount();
+        assertTrue(bytesPerVersion < 4, "A version should take a few bytes, was " + bytesPerVersion);
+    }
+}
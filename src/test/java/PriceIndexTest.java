@@ -0,0 +1,133 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class PriceIndexTest {
+
+    private PriceIndex priceIndex;
+
+    @BeforeEach
+    public void setUp() {
+        priceIndex = new PriceIndex();
+        priceIndex.add(new Product("SKU004", 0, 50.00, "Product 4", "Category1"));
+        priceIndex.add(new Product("SKU001", 0, 10.00, "Product 1", "Category1"));
+        priceIndex.add(new Product("SKU003", 0, 30.00, "Product 3", "Category2"));
+        priceIndex.add(new Product("SKU002", 0, 30.00, "Product 2", "Category2"));
+        priceIndex.add(new Product("SKU005", 0, 90.00, "Product 5", "Category3"));
+    }
+
+    @Test
+    public void testCheapestAndMostExpensive() {
+        List<Product> cheapest = priceIndex.cheapest(3);
+        assertEquals(3, cheapest.size(), "Should return 3 products");
+        assertEquals("SKU001", cheapest.get(0).getSku(), "Cheapest product should be SKU001");
+        assertEquals("SKU002", cheapest.get(1).getSku(), "Equal prices should be ordered by SKU");
+        assertEquals("SKU003", cheapest.get(2).getSku(), "Equal prices should be ordered by SKU");
+
+        List<Product> mostExpensive = priceIndex.mostExpensive(4);
+        assertEquals("SKU005", mostExpensive.get(0).getSku(), "Most expensive product should be SKU005");
+        assertEquals("SKU004", mostExpensive.get(1).getSku(), "Second product should be SKU004");
+        assertEquals("SKU002", mostExpensive.get(2).getSku(), "Equal prices should still be ordered by SKU");
+        assertEquals("SKU003", mostExpensive.get(3).getSku(), "Equal prices should still be ordered by SKU");
+
+        assertEquals(5, priceIndex.cheapest(100).size(), "Asking for more than the catalog returns everything");
+    }
+
+    @Test
+    public void testRange() {
+        List<Product> range = priceIndex.range(30.00, 50.00);
+        assertEquals(3, range.size(), "Range bounds should be inclusive");
+        assertEquals("SKU002", range.get(0).getSku(), "Range should start at the cheapest match");
+        assertEquals("SKU004", range.get(2).getSku(), "Range should end at the most expensive match");
+
+        assertTrue(priceIndex.range(91.00, 100.00).isEmpty(), "Range above every price should be empty");
+    }
+
+    @Test
+    public void testRemove() {
+        priceIndex.remove(new Product("SKU001", 0, 10.00, "", ""));
+        assertEquals(4, priceIndex.size(), "Index should have 4 products after removal");
+        assertEquals("SKU002", priceIndex.cheapest(1).get(0).getSku(), "SKU002 should now be the cheapest");
+    }
+
+    @Test
+    public void testIteratorsAfter() {
+        var ascending = priceIndex.ascendingIteratorAfter(30.00, "SKU002");
+        assertEquals("SKU003", ascending.next().getSku(), "Should resume with the next product at the same price");
+        assertEquals("SKU004", ascending.next().getSku(), "Then the next price");
+
+        var descending = priceIndex.descendingIteratorAfter(30.00, "SKU002");
+        assertEquals("SKU003", descending.next().getSku(), "Should finish the run of equal prices first");
+        assertEquals("SKU001", descending.next().getSku(), "Then continue with cheaper products");
+        assertFalse(descending.hasNext(), "SKU001 is the cheapest product");
+    }
+
+    @Test
+    public void testLongRunOfEqualPrices() {
+        PriceIndex index = new PriceIndex();
+        for (int i = 0; i < 10_000; i++) {
+            index.add(new Product(String.format("RUN%05d", i), 0, 20.00, "", ""));
+        }
+        index.add(new Product("TOP", 0, 99.00, "", ""));
+        index.add(new Product("LOW", 0, 1.00, "", ""));
+
+        List<Product> top = index.mostExpensive(3);
+        assertEquals(List.of("TOP", "RUN00000", "RUN00001"), skus(top.iterator()), "Ties should come in SKU order after the top product");
+
+        Iterator<Product> resumed = index.descendingIteratorAfter(20.00, "RUN09998");
+        assertEquals(List.of("RUN09999", "LOW"), skus(resumed), "Resuming should finish the run, then continue cheaper");
+
+        index.remove(new Product("RUN00000", 0, 20.00, "", ""));
+        assertEquals(10_001, index.size(), "Removing from a run should shrink the index");
+        assertEquals("RUN00001", index.mostExpensive(2).get(1).getSku(), "The run should start at its next SKU");
+        assertTrue(index.range(30.00, 10.00).isEmpty(), "An inverted range should be empty");
+    }
+
+    @Test
+    public void testSnapshotIsUnaffectedByUpdates() {
+        PriceIndex snapshot = priceIndex.snapshot();
+        Iterator<Product> listing = snapshot.ascendingIterator();
+        priceIndex.remove(new Product("SKU002", 0, 30.00, "", ""));
+        priceIndex.add(new Product("SKU006", 0, 30.00, "Product 6", "Category2"));
+        priceIndex.add(new Product("SKU000", 0, 5.00, "Product 0", "Category1"));
+
+        assertEquals(List.of("SKU001", "SKU002", "SKU003", "SKU004", "SKU005"), skus(listing), "A listing started on the snapshot should not change");
+        assertEquals(List.of("SKU005", "SKU004", "SKU002", "SKU003", "SKU001"), skus(snapshot.descendingIterator()), "The snapshot should keep its runs");
+        assertEquals(5, snapshot.size(), "The snapshot should keep its size");
+        assertEquals(List.of("SKU003", "SKU006"), skus(priceIndex.range(30.00, 30.00).iterator()), "The index itself should see the updates");
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(new Product("SKU007", 0, 1.00, "", "")), "Snapshots should be read-only");
+    }
+
+    @Test
+    public void testAddAllMatchesAddingOneByOne() {
+        Random random = new Random(3);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            products.add(new Product(String.format("SKU%05d", random.nextInt(100_000)) + "-" + i, 0, random.nextInt(300) / 4.0, "", ""));
+        }
+        PriceIndex bulk = new PriceIndex();
+        bulk.addAll(products);
+        PriceIndex single = new PriceIndex();
+        for (Product product : products) {
+            single.add(product);
+        }
+        assertEquals(single.size(), bulk.size(), "Both should hold every product");
+        assertEquals(skus(single.ascendingIterator()), skus(bulk.ascendingIterator()), "Bulk build should order like single adds");
+        assertEquals(skus(single.descendingIterator()), skus(bulk.descendingIterator()), "Bulk runs should list ties in SKU order");
+
+        // A non-empty index takes the batch one product at a time
+        priceIndex.addAll(List.of(new Product("SKU006", 0, 30.00, "", ""), new Product("SKU000", 0, 1.00, "", "")));
+        assertEquals(List.of("SKU000", "SKU001", "SKU002", "SKU003", "SKU006"), skus(priceIndex.cheapest(5).iterator()), "Batch should merge with the indexed products");
+    }
+
+    private static List<String> skus(Iterator<Product> iterator) {
+        List<String> skus = new ArrayList<>();
+        iterator.forEachRemaining(product -> skus.add(product.getSku()));
+        return skus;
+    }
+}
@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+public class ProductCsvParserTest {
+
+    private static final String HEADER = "CATEGORY,DATE_SCRAPED,SORT_BY,RUN_START_DATE,SUBCATEGORY,SHIPPING_LOCATION,SKU,COUNTRY,BRAND,PRICE_RETAIL,PRICE_CURRENT,SELLER,PRODUCT_URL,CURRENCY,BREADCRUMBS,DEPARTMENT,PROMOTION,BESTSELLER_RANK,PRODUCT_NAME,WEBSITE_URL";
+
+    @Test
+    public void testParseStandardRow() {
+        ProductCsvParser parser = ProductCsvParser.fromHeader(HEADER);
+        Product product = parser.parse("Electronics,2023-01-01,Popular,2023-01-01,TVs,US,TEST-SKU-002,US,TestBrand,499.99,399.99,TestSeller,http://example.com,USD,Home>Electronics,Home,None,2,Test TV,http://example.com");
+
+        assertNotNull(product, "Should parse a complete row");
+        assertEquals("TEST-SKU-002", product.getSku(), "SKU should match");
+        assertEquals("Electronics", product.getCategory(), "Category should match");
+        assertEquals("Test TV", product.getProductName(), "Product name should match");
+        assertEquals(499.99, product.getPriceRetail(), "Retail price should match");
+        assertEquals(399.99, product.getPriceCurrent(), "Current price should match");
+    }
+
+    @Test
+    public void testParseQuotedFields() {
+        ProductCsvParser parser = ProductCsvParser.fromHeader(HEADER);
+        Product product = parser.parse("\"Home, Garden\",2023-01-01,Popular,2023-01-01,Grills,US,SKU-1,US,Brand,\"$1,299.00\",\"1,099.50\",Seller,http://example.com,USD,\"Home > Garden, Outdoor\",Home,None,1,\"Grill 22\"\" \"\"Deluxe\"\", black\",http://example.com");
+
+        assertNotNull(product, "Quoted commas should not break the row");
+        assertEquals("Home, Garden", product.getCategory(), "Quoted category should keep its comma");
+        assertEquals("Grill 22\" \"Deluxe\", black", product.getProductName(), "Escaped quotes should be unescaped");
+        assertEquals(1299.00, product.getPriceRetail(), "Quoted price with thousands separator should parse");
+        assertEquals(1099.50, product.getPriceCurrent(), "Quoted price should parse");
+    }
+
+    @Test
+    public void testHeaderDrivenColumnMapping() {
+        ProductCsvParser parser = ProductCsvParser.fromHeader("sku,product_name,extra,price_current,price_retail,category");
+        Product product = parser.parse("SKU-9,Chair,ignored,79.99,99.99,Furniture");
+
+        assertNotNull(product, "Should parse a row in a reordered layout");
+        assertEquals("SKU-9", product.getSku(), "SKU should match");
+        assertEquals("Chair", product.getProductName(), "Product name should match");
+        assertEquals(79.99, product.getPriceCurrent(), "Current price should match");
+        assertEquals(99.99, product.getPriceRetail(), "Retail price should match");
+        assertEquals("Furniture", product.getCategory(), "Category should match");
+
+        assertThrows(IllegalArgumentException.class, () -> ProductCsvParser.fromHeader("SKU,PRODUCT_NAME"));
+    }
+
+    @Test
+    public void testShortRowsAreRejected() {
+        ProductCsvParser parser = new ProductCsvParser();
+        assertNull(parser.parse(""), "Empty row should be rejected");
+        assertNull(parser.parse("Electronics,2023-01-01,Popular,2023-01-01,TVs,US,SKU-1,US,Brand,1.00,2.00"), "Row without a product name should be rejected");
+
+        // Trailing unused columns are not required
+        assertNotNull(parser.parse("Electronics,2023-01-01,Popular,2023-01-01,TVs,US,SKU-1,US,Brand,1.00,2.00,S,U,USD,B,D,P,1,Name"), "Row with all required columns should parse");
+    }
+
+    @Test
+    public void testSharedParserAcrossThreads() {
+        // Workers share one parser; each thread must get its own scratch, and a short row must not leak into the next
+        ProductCsvParser parser = ProductCsvParser.fromHeader(HEADER);
+        List<String> mismatches = IntStream.range(0, 200_000).parallel()
+                .mapToObj(i -> {
+                    if (i % 7 == 0) {
+                        return parser.parse("Toys,2023-01-01,Popular") == null ? null : "Short row " + i + " should be rejected";
+                    }
+                    Product product = parser.parse("Toys,2023-01-01,Popular,2023-01-01,Games,US,SKU-" + i + ",US,TestBrand," + i + ".5,"
+                            + i + ".25,TestSeller,http://example.com,USD,Home>Toys,Home,None,4,\"Game, " + i + "\",http://example.com");
+                    boolean matches = product.getSku().equals("SKU-" + i) && product.getProductName().equals("Game, " + i)
+                            && product.getPriceRetail() == i + 0.5 && product.getPriceCurrent() == i + 0.25;
+                    return matches ? null : "Row " + i + " parsed as " + product;
+                })
+                .filter(Objects::nonNull)
+                .limit(5)
+                .toList();
+        assertEquals(List.of(), mismatches, "Every row should parse the same as on one thread");
+    }
+
+    @Test
+    public void testParsePriceMatchesParseDouble() {
+        String[] prices = {"0", "0.1", "19.99", "$1,234.56", "USD 7.5", ".25", "5.", "123456789.123456789", "0.30000000000000004", "9007199254740993"};
+        for (String price : prices) {
+            double expected = Double.parseDouble(price.replaceAll("[^0-9.]", ""));
+            assertEquals(expected, ProductCsvParser.parsePrice(price, 0, price.length()), "Price " + price);
+        }
+
+        assertEquals(0.0, ProductCsvParser.parsePrice("N/A", 0, 3), "Price without digits should parse as 0");
+        assertEquals(0.0, ProductCsvParser.parsePrice("1.2.3", 0, 5), "Price with two decimal points should parse as 0");
+    }
+
+    @Test
+    public void testParseDateScraped() {
+        ProductCsvParser parser = ProductCsvParser.fromHeader(HEADER);
+        assertTrue(parser.hasDateScraped(), "Standard layout has DATE_SCRAPED");
+        Product product = parser.parse("Electronics,2023-03-05,Popular,2023-03-01,TVs,US,SKU-1,US,Brand,1.00,2.00,S,U,USD,B,D,P,1,Name");
+        assertEquals(LocalDate.of(2023, 3, 5).toEpochDay(), product.getScrapeDay(), "Scrape day should come from DATE_SCRAPED, not RUN_START_DATE");
+
+        assertEquals(LocalDate.of(2024, 1, 15).toEpochDay(), ProductCsvParser.parseDay(" 2024-01-15 08:30:00", 0, 20), "Time of day should be ignored");
+        assertEquals(Product.NO_DATE, ProductCsvParser.parseDay("2024-02-30", 0, 10), "Invalid date should have no day");
+        assertEquals(Product.NO_DATE, ProductCsvParser.parseDay("15/01/2024", 0, 10), "Other formats should have no day");
+
+        ProductCsvParser withoutDate = ProductCsvParser.fromHeader("SKU,PRODUCT_NAME,PRICE_CURRENT,PRICE_RETAIL,CATEGORY");
+        assertFalse(withoutDate.hasDateScraped(), "DATE_SCRAPED is optional");
+        assertEquals(Product.NO_DATE, withoutDate.parse("SKU-9,Chair,79.99,99.99,Furniture").getScrapeDay(), "Rows without a date should have no day");
+    }
+}
@@ -0,0 +1,223 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ProductHttpServerTest {
+    private static final int PRODUCTS = 10_000;
+
+    private ProductManager productManager;
+    private List<Product> products;
+    private ProductHttpServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        CatalogGenerator generator = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 9);
+        products = generator.products(PRODUCTS);
+        Path csvFile = Files.createTempFile("server", ".csv");
+        try {
+            generator.writeCsv(csvFile, PRODUCTS);
+            productManager = new ProductManager();
+            productManager.loadProductsFromCSV(csvFile.toString());
+        } finally {
+            Files.delete(csvFile);
+        }
+
+        server = new ProductHttpServer(productManager, new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+        client.close();
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        Product product = products.get(123);
+        HttpResponse<String> response = get("/products/" + product.getSku());
+        assertEquals(200, response.statusCode(), "Existing SKU should be found");
+        assertTrue(response.body().contains("\"sku\":\"" + product.getSku() + "\""), "Body should contain the SKU");
+        assertTrue(response.body().contains("\"priceCurrent\":" + product.getPriceCurrent()), "Body should contain the price");
+        assertEquals("application/json; charset=utf-8", response.headers().firstValue("Content-Type").orElse(null), "Should answer JSON");
+
+        assertEquals(404, get("/products/NOPE").statusCode(), "Unknown SKU should be 404");
+        assertEquals(404, get("/productsX").statusCode(), "Unknown path should be 404");
+    }
+
+    @Test
+    public void testBatchLookup() throws Exception {
+        String first = products.get(1).getSku();
+        String second = products.get(2).getSku();
+        HttpResponse<String> response = get("/products?skus=" + first + ",NOPE," + second);
+        assertEquals(200, response.statusCode(), "Batch lookup should succeed");
+        assertEquals(2, count(response.body(), "\"sku\""), "Should return the two known products");
+        assertTrue(response.body().endsWith("\"missing\":[\"NOPE\"]}"), "Should list the unknown SKU");
+
+        HttpRequest post = HttpRequest.newBuilder(uri("/products"))
+                .POST(HttpRequest.BodyPublishers.ofString(first + "\n" + second + "\n"))
+                .build();
+        HttpResponse<String> posted = client.send(post, HttpResponse.BodyHandlers.ofString());
+        assertEquals(2, count(posted.body(), "\"sku\""), "POST batch should return both products");
+
+        HttpRequest tooMany = HttpRequest.newBuilder(uri("/products"))
+                .POST(HttpRequest.BodyPublishers.ofString((first + "\n").repeat(10_001)))
+                .build();
+        assertEquals(400, client.send(tooMany, HttpResponse.BodyHandlers.ofString()).statusCode(), "More than 10000 SKUs should be rejected");
+        // A chunked body has no declared length, so the cap applies while reading
+        byte[] oversized = "X".repeat(1_280_100).getBytes(StandardCharsets.US_ASCII);
+        HttpRequest tooLarge = HttpRequest.newBuilder(uri("/products"))
+                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(oversized)))
+                .build();
+        assertEquals(413, client.send(tooLarge, HttpResponse.BodyHandlers.ofString()).statusCode(), "An oversized body should be refused");
+
+        // A declared length over the cap is refused before any of the body is read
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            socket.getOutputStream().write("POST /products HTTP/1.1\r\nHost: localhost\r\nContent-Length: 100000000\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            String status = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+            assertEquals("HTTP/1.1 413 Request Entity Too Large", status, "A declared oversized body should be refused unread");
+        }
+
+        // A malformed declared length is a client error, not a failure on the handler thread
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            socket.getOutputStream().write("POST /products HTTP/1.1\r\nHost: localhost\r\nContent-Length: 12abc\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            String status = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+            assertEquals("HTTP/1.1 400 Bad Request", status, "A malformed Content-Length should be answered with 400");
+        }
+    }
+
+    @Test
+    public void testPriceListingPages() throws Exception {
+        // Walk the whole catalog in pages and compare with the in-memory listing
+        List<String> expected = productManager.listProductsByPriceDescending().stream().map(Product::getSku).toList();
+        assertEquals(expected, listAll("desc"), "Pages should cover the listing exactly once, in order");
+
+        assertEquals(400, get("/listing/price?order=asc&cursor=bogus").statusCode(), "Malformed cursor should be 400");
+        assertEquals(400, get("/listing/price?order=sideways").statusCode(), "Unknown order should be 400");
+        assertEquals(400, get("/listing/price?limit=0").statusCode(), "Zero limit should be 400");
+    }
+
+    @Test
+    public void testServesWhileCatalogIsReloaded() throws Exception {
+        Path csvFile = Files.createTempFile("server", ".csv");
+        new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 9).writeCsv(csvFile, PRODUCTS);
+        List<String> expected = productManager.listProductsByPriceDescending().stream().map(Product::getSku).toList();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread reloader = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    productManager.loadProductsFromCSV(csvFile.toString());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        reloader.start();
+        try {
+            // Reloading the same file changes nothing a reader could see
+            for (int round = 0; round < 3; round++) {
+                assertEquals(expected, listAll("desc"), "Pages served during reloads should cover the listing exactly once");
+            }
+        } finally {
+            done.set(true);
+            reloader.join();
+            Files.delete(csvFile);
+        }
+    }
+
+    @Test
+    public void testJsonEscaping() throws IOException {
+        StringWriter writer = new StringWriter();
+        ProductHttpServer.writeString(writer, "TV 55\" \\ new\nline\u0001");
+        assertEquals("\"TV 55\\\" \\\\ new\\nline\\u0001\"", writer.toString(), "Should escape JSON special characters");
+    }
+
+    @Test
+    public void testConcurrentLoad() throws Exception {
+        int clients = 64;
+        int requestsPerClient = 100;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int offset = c;
+                results.add(executor.submit(() -> {
+                    int ok = 0;
+                    for (int i = 0; i < requestsPerClient; i++) {
+                        String sku = products.get((offset * requestsPerClient + i) % PRODUCTS).getSku();
+                        if (get("/products/" + sku).statusCode() == 200) {
+                            ok++;
+                        }
+                    }
+                    return ok;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(requestsPerClient, (int) result.get(), "Every lookup should succeed");
+            }
+        }
+    }
+
+    private List<String> listAll(String order) throws IOException, InterruptedException {
+        List<String> skus = new ArrayList<>();
+        String cursor = null;
+        Pattern skuPattern = Pattern.compile("\"sku\":\"([^\"]+)\"");
+        Pattern cursorPattern = Pattern.compile("\"nextCursor\":(null|\"([^\"]+)\")");
+        do {
+            HttpResponse<String> response = get("/listing/price?order=" + order + "&limit=3000" + (cursor == null ? "" : "&cursor=" + cursor));
+            assertEquals(200, response.statusCode(), "Listing should succeed");
+            Matcher matcher = skuPattern.matcher(response.body());
+            while (matcher.find()) {
+                skus.add(matcher.group(1));
+            }
+            Matcher cursorMatcher = cursorPattern.matcher(response.body());
+            assertTrue(cursorMatcher.find(), "Response should carry a cursor");
+            cursor = cursorMatcher.group(2);
+        } while (cursor != null);
+        return skus;
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    private static int count(String text, String needle) {
+        int count = 0;
+        for (int i = text.indexOf(needle); i >= 0; i = text.indexOf(needle, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
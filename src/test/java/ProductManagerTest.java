@@ -4,9 +4,19 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
 
 public class ProductManagerTest {
 
@@ -84,4 +94,493 @@ public class ProductManagerTest {
         assertEquals("TEST-SKU-001", descendingProducts.get(1).getSku(), "Second product should be TEST-SKU-001");
         assertEquals("TEST-SKU-003", descendingProducts.get(2).getSku(), "Cheapest product should be TEST-SKU-003");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPriceQueries() throws IOException {
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+
+        List<Product> inRange = productManager.productsInPriceRange(100.00, 400.00);
+        assertEquals(2, inRange.size(), "Should find 2 products between $100 and $400");
+        assertEquals("TEST-SKU-001", inRange.get(0).getSku(), "Cheaper product should come first");
+        assertEquals("TEST-SKU-002", inRange.get(1).getSku(), "More expensive product should come last");
+
+        assertEquals("TEST-SKU-003", productManager.cheapest(1).get(0).getSku(), "Cheapest product should be TEST-SKU-003");
+        assertEquals("TEST-SKU-002", productManager.mostExpensive(1).get(0).getSku(), "Most expensive product should be TEST-SKU-002");
+
+        // Reloading a SKU with a new price must move it in the price index
+        Path updateCsvFile = Files.createTempFile("test_products_update", ".csv");
+        try (FileWriter writer = new FileWriter(updateCsvFile.toFile())) {
+            writer.write("CATEGORY,DATE_SCRAPED,SORT_BY,RUN_START_DATE,SUBCATEGORY,SHIPPING_LOCATION,SKU,COUNTRY,BRAND,PRICE_RETAIL,PRICE_CURRENT,SELLER,PRODUCT_URL,CURRENCY,BREADCRUMBS,DEPARTMENT,PROMOTION,BESTSELLER_RANK,PRODUCT_NAME,WEBSITE_URL\n");
+            writer.write("Electronics,2023-01-02,Popular,2023-01-02,TVs,US,TEST-SKU-002,US,TestBrand,499.99,9.99,TestSeller,http://example.com,USD,Home>Electronics,Home,None,2,Test TV,http://example.com\n");
+        }
+        productManager.loadProductsFromCSV(updateCsvFile.toString());
+
+        assertEquals(3, productManager.listProductsByPriceAscending().size(), "Replaced product should not be listed twice");
+        assertEquals("TEST-SKU-002", productManager.cheapest(1).get(0).getSku(), "Repriced product should now be the cheapest");
+        assertEquals("TEST-SKU-001", productManager.mostExpensive(1).get(0).getSku(), "TEST-SKU-001 should now be the most expensive");
+        Files.delete(updateCsvFile);
+    }
+
+    @Test
+    public void testPaging() throws IOException {
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+
+        // Page through SKU order two at a time
+        Page first = productManager.pageBySKU(null, 2);
+        assertEquals(2, first.getProducts().size(), "First page should be full");
+        assertEquals("TEST-SKU-001", first.getProducts().get(0).getSku(), "First page should start at TEST-SKU-001");
+        assertTrue(first.hasMore(), "There should be a second page");
+
+        Page second = productManager.pageBySKU(first.getNextCursor(), 2);
+        assertEquals(1, second.getProducts().size(), "Second page should hold the last product");
+        assertEquals("TEST-SKU-003", second.getProducts().get(0).getSku(), "Second page should resume after TEST-SKU-002");
+        assertFalse(second.hasMore(), "There should be no third page");
+
+        // Resume after an arbitrary SKU
+        Page afterSku = productManager.pageBySKU(PageCursor.afterSku("TEST-SKU-001"), 50);
+        assertEquals("TEST-SKU-002", afterSku.getProducts().get(0).getSku(), "Page should start after TEST-SKU-001");
+
+        // Price orders resume where they left off
+        Page cheapest = productManager.pageByPriceAscending(null, 1);
+        assertEquals("TEST-SKU-003", cheapest.getProducts().get(0).getSku(), "Cheapest product should be TEST-SKU-003");
+        Page nextCheapest = productManager.pageByPriceAscending(cheapest.getNextCursor(), 1);
+        assertEquals("TEST-SKU-001", nextCheapest.getProducts().get(0).getSku(), "Next product should be TEST-SKU-001");
+
+        Page priciest = productManager.pageByPriceDescending(null, 1);
+        Page nextPriciest = productManager.pageByPriceDescending(priciest.getNextCursor(), 5);
+        assertEquals("TEST-SKU-002", priciest.getProducts().get(0).getSku(), "Most expensive product should be TEST-SKU-002");
+        assertEquals(2, nextPriciest.getProducts().size(), "Second page should hold the remaining products");
+        assertEquals("TEST-SKU-003", nextPriciest.getProducts().get(1).getSku(), "Cheapest product should come last");
+
+        // A cursor only works with the listing it came from
+        assertThrows(IllegalArgumentException.class, () -> productManager.pageBySKU(cheapest.getNextCursor(), 1));
+        assertThrows(IllegalArgumentException.class, () -> productManager.pageBySKU("not a cursor", 1));
+    }
+
+    @Test
+    public void testStreams() throws IOException {
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+
+        assertEquals(List.of("TEST-SKU-001", "TEST-SKU-002", "TEST-SKU-003"),
+                productManager.streamBySKU().map(Product::getSku).toList(), "SKU stream should be in SKU order");
+        assertEquals(List.of("TEST-SKU-003", "TEST-SKU-001"),
+                productManager.streamByPriceAscending().limit(2).map(Product::getSku).toList(), "Price stream should be cheapest first");
+        assertEquals("TEST-SKU-002", productManager.streamByPriceDescending().findFirst().get().getSku(), "Descending stream should start with the most expensive");
+    }
+
+    @Test
+    public void testDeleteBySKU() throws IOException {
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+
+        Product removed = productManager.deleteBySKU("TEST-SKU-003");
+        assertNotNull(removed, "Should delete TEST-SKU-003");
+        assertEquals(2, productManager.getProductCount(), "Should have 2 products left");
+        assertNull(productManager.searchBySKU("TEST-SKU-003"), "Deleted product should not be found");
+        assertEquals("TEST-SKU-001", productManager.cheapest(1).get(0).getSku(), "Deleted product should leave the price index");
+        assertNull(productManager.deleteBySKU("TEST-SKU-003"), "Deleting twice should find nothing");
+    }
+
+    @Test
+    public void testRefreshAppliesOnlyAppendedRows() throws IOException {
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+        assertEquals(RefreshReport.Mode.UNCHANGED, productManager.refreshFromCSV(tempCsvFile.toString()).getMode(), "Nothing changed yet");
+
+        try (FileWriter writer = new FileWriter(tempCsvFile.toFile(), true)) {
+            writer.write("Toys,2023-01-02,Popular,2023-01-02,Games,US,TEST-SKU-004,US,TestBrand,9.99,5.99,TestSeller,http://example.com,USD,Home>Toys,Home,None,4,Test Game,http://example.com\n");
+            writer.write("Electronics,2023-01-02,Popular,2023-01-02,TVs,US,TEST-SKU-002,US,TestBrand,499.99,349.99,TestSeller,http://example.com,USD,Home>Electronics,Home,None,2,Test TV,http://example.com\n");
+            // A partial line is left for the next refresh
+            writer.write("Toys,2023-01-02,Popular");
+        }
+
+        RefreshReport report = productManager.refreshFromCSV(tempCsvFile.toString());
+        assertEquals(RefreshReport.Mode.APPENDED, report.getMode(), "Appended rows should be read incrementally");
+        assertEquals(2, report.getUpserted().size(), "Only the two complete new rows should be applied");
+        assertEquals(4, productManager.getProductCount(), "TEST-SKU-004 should have been added");
+        assertEquals(349.99, productManager.searchBySKU("TEST-SKU-002").getPriceCurrent(), 0.001, "TEST-SKU-002 should have been updated");
+        assertEquals("TEST-SKU-004", productManager.cheapest(1).get(0).getSku(), "Price index should follow the delta");
+
+        try (FileWriter writer = new FileWriter(tempCsvFile.toFile(), true)) {
+            writer.write(",2023-01-02,Games,US,TEST-SKU-005,US,TestBrand,1.99,0.99,TestSeller,http://example.com,USD,Home>Toys,Home,None,5,Test Ball,http://example.com\n");
+        }
+        report = productManager.refreshFromCSV(tempCsvFile.toString());
+        assertEquals(1, report.getUpserted().size(), "Completed line should be applied once finished");
+        assertNotNull(productManager.searchBySKU("TEST-SKU-005"), "TEST-SKU-005 should have been added");
+    }
+
+    @Test
+    public void testRefreshDetectsRewriteFarBeforeAppend() throws IOException {
+        // Enough rows that the first one is hundreds of KB before the end of the file
+        try (FileWriter writer = new FileWriter(tempCsvFile.toFile(), true)) {
+            for (int i = 0; i < 3000; i++) {
+                writer.write(String.format("Toys,2023-01-01,Popular,2023-01-01,Games,US,FILL-%04d,US,TestBrand,9.99,5.99,TestSeller,http://example.com,USD,Home>Toys,Home,None,4,Filler Game,http://example.com%n", i));
+            }
+        }
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+
+        // Rewrite the first row in place and append a new one
+        String content = Files.readString(tempCsvFile);
+        Files.writeString(tempCsvFile, content.replace("TEST-SKU-001,US,TestBrand,199.99,179.99", "TEST-SKU-001,US,TestBrand,199.99,169.99")
+                + "Toys,2023-01-02,Popular,2023-01-02,Games,US,TEST-SKU-004,US,TestBrand,9.99,5.99,TestSeller,http://example.com,USD,Home>Toys,Home,None,4,Test Game,http://example.com\n");
+
+        RefreshReport report = productManager.refreshFromCSV(tempCsvFile.toString());
+        assertEquals(RefreshReport.Mode.FULL_DIFF, report.getMode(), "A rewritten row should force a full diff");
+        assertEquals(169.99, productManager.searchBySKU("TEST-SKU-001").getPriceCurrent(), 0.001, "Rewritten row should be applied");
+        assertNotNull(productManager.searchBySKU("TEST-SKU-004"), "Appended row should be applied");
+
+        // Appends after an append are still recognized, so the extended block checksums are right
+        for (int i = 5; i <= 6; i++) {
+            try (FileWriter writer = new FileWriter(tempCsvFile.toFile(), true)) {
+                writer.write("Toys,2023-01-03,Popular,2023-01-03,Games,US,TEST-SKU-00" + i + ",US,TestBrand,9.99,5.99,TestSeller,http://example.com,USD,Home>Toys,Home,None,4,Test Game,http://example.com\n");
+            }
+            report = productManager.refreshFromCSV(tempCsvFile.toString());
+            assertEquals(RefreshReport.Mode.APPENDED, report.getMode(), "Append " + i + " should be read incrementally");
+            assertEquals(1, report.getUpserted().size(), "Append " + i + " should apply one row");
+        }
+    }
+
+    @Test
+    public void testRefreshDiffsRewrittenFile() throws IOException {
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+
+        // Rewrite the file: TEST-SKU-001 disappears, TEST-SKU-003 changes price, TEST-SKU-002 is untouched
+        try (FileWriter writer = new FileWriter(tempCsvFile.toFile())) {
+            writer.write("CATEGORY,DATE_SCRAPED,SORT_BY,RUN_START_DATE,SUBCATEGORY,SHIPPING_LOCATION,SKU,COUNTRY,BRAND,PRICE_RETAIL,PRICE_CURRENT,SELLER,PRODUCT_URL,CURRENCY,BREADCRUMBS,DEPARTMENT,PROMOTION,BESTSELLER_RANK,PRODUCT_NAME,WEBSITE_URL\n");
+            writer.write("Electronics,2023-01-01,Popular,2023-01-01,TVs,US,TEST-SKU-002,US,TestBrand,499.99,399.99,TestSeller,http://example.com,USD,Home>Electronics,Home,None,2,Test TV,http://example.com\n");
+            writer.write("Furniture,2023-01-03,Popular,2023-01-03,Chairs,US,TEST-SKU-003,US,TestBrand,99.99,59.99,TestSeller,http://example.com,USD,Home>Furniture,Home,None,3,Test Chair,http://example.com\n");
+        }
+
+        RefreshReport report = productManager.refreshFromCSV(tempCsvFile.toString());
+        assertEquals(RefreshReport.Mode.FULL_DIFF, report.getMode(), "Rewritten file should be diffed");
+        assertEquals(List.of("TEST-SKU-001"), report.getDeleted(), "Removed SKU should be deleted");
+        assertEquals(1, report.getUpserted().size(), "Only the changed product should be upserted");
+        assertEquals(2, productManager.getProductCount(), "Should have 2 products left");
+        assertEquals(59.99, productManager.searchBySKU("TEST-SKU-003").getPriceCurrent(), 0.001, "Changed price should be applied");
+
+        // A re-scrape with the same price still moves the scrape day forward
+        try (FileWriter writer = new FileWriter(tempCsvFile.toFile())) {
+            writer.write("CATEGORY,DATE_SCRAPED,SORT_BY,RUN_START_DATE,SUBCATEGORY,SHIPPING_LOCATION,SKU,COUNTRY,BRAND,PRICE_RETAIL,PRICE_CURRENT,SELLER,PRODUCT_URL,CURRENCY,BREADCRUMBS,DEPARTMENT,PROMOTION,BESTSELLER_RANK,PRODUCT_NAME,WEBSITE_URL\n");
+            writer.write("Electronics,2023-01-04,Popular,2023-01-04,TVs,US,TEST-SKU-002,US,TestBrand,499.99,399.99,TestSeller,http://example.com,USD,Home>Electronics,Home,None,2,Test TV,http://example.com\n");
+            writer.write("Furniture,2023-01-03,Popular,2023-01-03,Chairs,US,TEST-SKU-003,US,TestBrand,99.99,59.99,TestSeller,http://example.com,USD,Home>Furniture,Home,None,3,Test Chair,http://example.com\n");
+        }
+        report = productManager.refreshFromCSV(tempCsvFile.toString());
+        assertEquals(List.of("TEST-SKU-002"), report.getUpserted().stream().map(Product::getSku).toList(), "A new scrape day should count as a change");
+        assertEquals(LocalDate.of(2023, 1, 4).toEpochDay(), productManager.searchBySKU("TEST-SKU-002").getScrapeDay(), "Scrape day should be updated");
+    }
+
+    @Test
+    public void testPriceHistory() throws IOException {
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+        PriceHistory history = productManager.enablePriceHistory();
+        assertEquals(3, history.getSkuCount(), "Loaded products should seed the history");
+
+        try (FileWriter writer = new FileWriter(tempCsvFile.toFile(), true)) {
+            writer.write("Electronics,2023-01-05,Popular,2023-01-05,TVs,US,TEST-SKU-002,US,TestBrand,499.99,349.99,TestSeller,http://example.com,USD,Home>Electronics,Home,None,2,Test TV,http://example.com\n");
+            writer.write("Electronics,2023-01-09,Popular,2023-01-09,TVs,US,TEST-SKU-002,US,TestBrand,499.99,299.99,TestSeller,http://example.com,USD,Home>Electronics,Home,None,2,Test TV,http://example.com\n");
+        }
+        productManager.refreshFromCSV(tempCsvFile.toString());
+
+        assertEquals(299.99, productManager.searchBySKU("TEST-SKU-002").getPriceCurrent(), 0.001, "Catalog keeps the latest row");
+        assertEquals(399.99, history.priceAsOf("TEST-SKU-002", LocalDate.of(2023, 1, 4)), "Price before the first re-scrape");
+        assertEquals(349.99, history.priceAsOf("TEST-SKU-002", LocalDate.of(2023, 1, 8)), "Superseded rows are kept in the history");
+        assertEquals(3, history.getVersionCount("TEST-SKU-002"), "Three scrapes of TEST-SKU-002");
+
+        List<PriceHistory.PriceDrop> drops = productManager.getPriceHistory().biggestDrops(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31), 5);
+        assertEquals(1, drops.size(), "Only TEST-SKU-002 dropped");
+        assertEquals(100.0, drops.get(0).getDrop(), 0.001, "Drop over the window");
+    }
+
+    @Test
+    public void testSearchByName() throws IOException {
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+
+        List<Product> results = productManager.searchByName("washing machine", 10);
+        assertEquals(1, results.size(), "Should find the washing machine");
+        assertEquals("TEST-SKU-001", results.get(0).getSku(), "Should find TEST-SKU-001");
+        assertEquals("TEST-SKU-002", productManager.searchByNamePrefix("test t", 10).get(0).getSku(), "Should match the TV by prefix");
+
+        productManager.deleteBySKU("TEST-SKU-001");
+        assertTrue(productManager.searchByName("washing", 10).isEmpty(), "Deleted product should not be found by name");
+    }
+
+    @Test
+    public void testCategoryQueries() throws IOException {
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+
+        assertEquals(1, productManager.countInCategory("Electronics"), "Should count one electronics product");
+        assertEquals(3, productManager.categoryCounts().size(), "Should have three categories");
+        assertEquals("TEST-SKU-002", productManager.cheapestInCategory("Electronics", 5).get(0).getSku(), "Should find the TV");
+
+        // Moving a product to another category updates both facets
+        try (FileWriter writer = new FileWriter(tempCsvFile.toFile(), true)) {
+            writer.write("Electronics,2023-01-02,Popular,2023-01-02,Monitors,US,TEST-SKU-003,US,TestBrand,99.99,79.99,TestSeller,http://example.com,USD,Home>Electronics,Home,None,3,Test Monitor,http://example.com\n");
+        }
+        productManager.refreshFromCSV(tempCsvFile.toString());
+        assertEquals(2, productManager.countInCategory("Electronics"), "Moved product should join its new category");
+        assertEquals(0, productManager.countInCategory("Furniture"), "Moved product should leave its old category");
+
+        productManager.deleteBySKU("TEST-SKU-002");
+        assertEquals(List.of("TEST-SKU-003"), productManager.productsInPriceRange("Electronics", 0, 1000).stream().map(Product::getSku).toList(), "Deleted product should leave its category");
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        assertNull(productManager.getMetrics(), "Metrics should be off by default");
+        CatalogMetrics metrics = productManager.enableMetrics();
+
+        try (FileWriter writer = new FileWriter(tempCsvFile.toFile(), true)) {
+            writer.write("too,few,columns\n");
+        }
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+        assertEquals(3, metrics.getRowsLoaded(), "Should count loaded rows");
+        assertEquals(1, metrics.getRowsRejected(), "Should count rejected rows");
+        assertTrue(metrics.getRowsPerSecond() > 0, "Should report throughput");
+
+        productManager.searchBySKU("TEST-SKU-001");
+        productManager.searchBySKU("TEST-SKU-999");
+        assertEquals(2, metrics.getLookupCount(), "Should count lookups");
+        assertEquals(1, metrics.getLookupMisses(), "Should count misses");
+        assertTrue(metrics.getLookupP99Micros() <= metrics.getLookupMaxMicros(), "p99 should not exceed the maximum");
+
+        TreeStats stats = metrics.getTreeStats();
+        assertEquals(3, stats.getNodeCount(), "Tree should have 3 nodes");
+        assertEquals(2, stats.getHeight(), "Three nodes fit in two levels");
+        assertEquals(5 / 3.0, stats.getAverageDepth(), 0.001, "Average depth should be (1 + 2 + 2) / 3");
+
+        // The same numbers are available over JMX
+        ObjectName name = metrics.register("HT7:type=CatalogMetrics,name=test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(3L, server.getAttribute(name, "RowsLoaded"), "RowsLoaded should be exposed");
+            CompositeData tree = (CompositeData) server.getAttribute(name, "TreeStats");
+            assertEquals(3, tree.get("nodeCount"), "Tree stats should be exposed");
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+        assertTrue(metrics.dump().contains("3 rows loaded, 1 rejected"), "Dump should include the ingest counters");
+    }
+
+    @Test
+    public void testSearchBySKUs() throws IOException {
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+
+        List<Product> results = productManager.searchBySKUs(List.of("TEST-SKU-003", "NOPE", "TEST-SKU-001", "TEST-SKU-003"));
+        assertEquals(4, results.size(), "Should return one entry per SKU");
+        assertEquals("TEST-SKU-003", results.get(0).getSku(), "Results should follow input order");
+        assertNull(results.get(1), "Unknown SKU should be null");
+        assertEquals("TEST-SKU-001", results.get(2).getSku(), "Results should follow input order");
+        assertSame(results.get(0), results.get(3), "Duplicate SKUs should resolve to the same product");
+        assertTrue(productManager.searchBySKUs(List.of()).isEmpty(), "Empty batch should return nothing");
+
+        // SKUs that are prefixes of each other, and enough of them to leave the small-range sort
+        List<String> skus = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String sku = "TEST-SKU-00" + (i % 5);
+            skus.add(sku.substring(0, sku.length() - i % 3));
+        }
+        List<Product> batch = productManager.searchBySKUs(skus);
+        for (int i = 0; i < skus.size(); i++) {
+            assertSame(productManager.searchBySKU(skus.get(i)), batch.get(i), "Batch lookup should agree for " + skus.get(i));
+        }
+    }
+
+    @Test
+    public void testLargeBatchMatchesSingleLookups() throws IOException {
+        CatalogGenerator generator = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 21);
+        generator.writeCsv(tempCsvFile, 200_000);
+        productManager.loadProductsFromCSVParallel(tempCsvFile.toString());
+
+        // Above the parallel threshold, with misses mixed in
+        List<String> skus = new ArrayList<>();
+        Random random = new Random(4);
+        List<Product> products = generator.products(200_000);
+        for (int i = 0; i < 100_000; i++) {
+            skus.add(random.nextInt(10) == 0 ? "MISSING" + i : products.get(random.nextInt(products.size())).getSku());
+        }
+
+        // Timing against the one-by-one loop is in BatchLookupBenchmark
+        List<Product> batch = productManager.searchBySKUs(skus);
+        List<Product> single = new ArrayList<>();
+        for (String sku : skus) {
+            single.add(productManager.searchBySKU(sku));
+        }
+
+        for (int i = 0; i < skus.size(); i++) {
+            assertSame(single.get(i), batch.get(i), "Batch and single lookups should agree for " + skus.get(i));
+        }
+    }
+
+    @Test
+    public void testLookupCacheStaysConsistent() throws IOException {
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+        assertNull(productManager.getLookupCache(), "Cache should be off by default");
+        SkuLookupCache cache = productManager.enableLookupCache(16);
+
+        assertNull(productManager.searchBySKU("TEST-SKU-004"), "TEST-SKU-004 does not exist yet");
+        assertEquals(179.99, productManager.searchBySKU("TEST-SKU-001").getPriceCurrent(), 0.001, "Should find TEST-SKU-001");
+        productManager.searchBySKU("TEST-SKU-001");
+        assertEquals(1, cache.getHitCount(), "Repeated lookup should hit the cache");
+
+        // Appended rows insert a cached miss and replace a cached hit
+        try (FileWriter writer = new FileWriter(tempCsvFile.toFile(), true)) {
+            writer.write("Toys,2023-01-02,Popular,2023-01-02,Games,US,TEST-SKU-004,US,TestBrand,9.99,5.99,TestSeller,http://example.com,USD,Home>Toys,Home,None,4,Test Game,http://example.com\n");
+            writer.write("Appliances,2023-01-02,Popular,2023-01-02,Washers,US,TEST-SKU-001,US,TestBrand,199.99,149.99,TestSeller,http://example.com,USD,Home>Appliances,Home,None,1,Test Washing Machine,http://example.com\n");
+        }
+        productManager.refreshFromCSV(tempCsvFile.toString());
+        assertNotNull(productManager.searchBySKU("TEST-SKU-004"), "Inserted product should replace the cached miss");
+        assertEquals(149.99, productManager.searchBySKU("TEST-SKU-001").getPriceCurrent(), 0.001, "Replaced product should not be served stale");
+
+        productManager.deleteBySKU("TEST-SKU-001");
+        assertNull(productManager.searchBySKU("TEST-SKU-001"), "Deleted product should not be served from the cache");
+
+        // A reload starts from an empty cache
+        productManager.searchBySKU("TEST-SKU-002");
+        new CatalogGenerator(CatalogGenerator.Distribution.SORTED, 1).writeCsv(tempCsvFile, 10);
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+        assertEquals(0, cache.size(), "Reload should clear the cache");
+    }
+
+    @Test
+    public void testLookupCacheOnZipfianWorkload() throws IOException {
+        CatalogGenerator generator = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 21);
+        generator.writeCsv(tempCsvFile, 200_000);
+        productManager.loadProductsFromCSVParallel(tempCsvFile.toString());
+        List<Product> products = generator.products(200_000);
+
+        // Zipf-distributed ranks (exponent 1), drawn by inverting the cumulative weights
+        double[] cumulative = new double[products.size()];
+        double sum = 0;
+        for (int rank = 0; rank < cumulative.length; rank++) {
+            sum += 1.0 / (rank + 1);
+            cumulative[rank] = sum;
+        }
+        Random random = new Random(5);
+        List<String> skus = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            skus.add(products.get(Math.min(rank < 0 ? -rank - 1 : rank, products.size() - 1)).getSku());
+        }
+
+        List<Product> uncached = new ArrayList<>();
+        for (String sku : skus) {
+            uncached.add(productManager.searchBySKU(sku));
+        }
+
+        // Latency with and without the cache is compared in CacheBenchmark
+        SkuLookupCache cache = productManager.enableLookupCache(16_384);
+        for (int i = 0; i < skus.size(); i++) {
+            assertSame(uncached.get(i), productManager.searchBySKU(skus.get(i)), "Cached lookup should agree for " + skus.get(i));
+        }
+        assertTrue(cache.getHitRate() > 0.5, "Most Zipfian lookups should hit a 16K-entry cache");
+    }
+
+    @Test
+    public void testSecondLoadUpdatesOnlyItsProducts() throws IOException {
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+
+        // TEST-SKU-001 moves to another category and price, TEST-SKU-004 is new
+        Path secondCsvFile = Files.createTempFile("test_products_more", ".csv");
+        try (FileWriter writer = new FileWriter(secondCsvFile.toFile())) {
+            writer.write("CATEGORY,DATE_SCRAPED,SORT_BY,RUN_START_DATE,SUBCATEGORY,SHIPPING_LOCATION,SKU,COUNTRY,BRAND,PRICE_RETAIL,PRICE_CURRENT,SELLER,PRODUCT_URL,CURRENCY,BREADCRUMBS,DEPARTMENT,PROMOTION,BESTSELLER_RANK,PRODUCT_NAME,WEBSITE_URL\n");
+            writer.write("Laundry,2023-01-02,Popular,2023-01-02,Washers,US,TEST-SKU-001,US,TestBrand,199.99,9.99,TestSeller,http://example.com,USD,Home>Laundry,Home,None,1,Test Dryer,http://example.com\n");
+            writer.write("Toys,2023-01-02,Popular,2023-01-02,Games,US,TEST-SKU-004,US,TestBrand,9.99,5.99,TestSeller,http://example.com,USD,Home>Toys,Home,None,4,Test Game,http://example.com\n");
+        }
+        try {
+            productManager.loadProductsFromCSV(secondCsvFile.toString());
+        } finally {
+            Files.delete(secondCsvFile);
+        }
+
+        assertEquals(List.of("TEST-SKU-004", "TEST-SKU-001", "TEST-SKU-003", "TEST-SKU-002"),
+                productManager.listProductsByPriceAscending().stream().map(Product::getSku).toList(), "Price index should hold each SKU once, at its new price");
+        assertEquals(0, productManager.countInCategory("Appliances"), "The replaced product should leave its old category");
+        assertEquals(1, productManager.countInCategory("Laundry"), "The new version should be in its new category");
+        assertTrue(productManager.searchByName("washing", 10).isEmpty(), "The old name should no longer match");
+        assertEquals(List.of("TEST-SKU-002"), productManager.searchByName("tv", 10).stream().map(Product::getSku).toList(), "Untouched products should still match");
+    }
+
+    @Test
+    public void testReadersNeverSeeHalfAppliedRefresh() throws Exception {
+        // Every version of the file reprices all products at once, so a consistent reader sees one price
+        writeVersion(tempCsvFile, 1);
+        productManager.loadProductsFromCSV(tempCsvFile.toString());
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        // One reader per core, and at least two so readers also race each other
+        int readerCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (int r = 0; r < readerCount; r++) {
+            Thread reader = new Thread(() -> {
+                while (!done.get() && failure.get() == null) {
+                    List<Product> byPrice = productManager.listProductsByPriceAscending();
+                    List<Product> byName = productManager.searchByName("product", 5_000);
+                    if (byPrice.size() != 2_000 || byName.size() != 2_000) {
+                        failure.set("Saw " + byPrice.size() + " products by price and " + byName.size() + " by name");
+                    } else if (byPrice.get(0).getPriceCurrent() != byPrice.get(1_999).getPriceCurrent()) {
+                        failure.set("Saw prices " + byPrice.get(0).getPriceCurrent() + " and " + byPrice.get(1_999).getPriceCurrent());
+                    } else if (productManager.countInCategory("Appliances") != 2_000) {
+                        failure.set("Saw a partial category");
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        for (int version = 2; version <= 20; version++) {
+            writeVersion(tempCsvFile, version);
+            RefreshReport report = productManager.refreshFromCSV(tempCsvFile.toString());
+            assertEquals(2_000, report.getUpserted().size(), "Every product should be repriced");
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get(), "Readers should only see whole refreshes");
+        assertEquals(20.0, productManager.cheapest(1).get(0).getPriceCurrent(), 0.001, "The last refresh should be visible");
+    }
+
+    private static void writeVersion(Path csvFile, int version) throws IOException {
+        try (FileWriter writer = new FileWriter(csvFile.toFile())) {
+            writer.write("CATEGORY,DATE_SCRAPED,SORT_BY,RUN_START_DATE,SUBCATEGORY,SHIPPING_LOCATION,SKU,COUNTRY,BRAND,PRICE_RETAIL,PRICE_CURRENT,SELLER,PRODUCT_URL,CURRENCY,BREADCRUMBS,DEPARTMENT,PROMOTION,BESTSELLER_RANK,PRODUCT_NAME,WEBSITE_URL\n");
+            for (int i = 0; i < 2_000; i++) {
+                writer.write("Appliances,2023-01-01,Popular,2023-01-01,Washers,US,SKU-" + i + ",US,TestBrand,99.99," + version
+                        + ".00,TestSeller,http://example.com,USD,Home>Appliances,Home,None,1,Product " + i + ",http://example.com\n");
+            }
+        }
+    }
+
+    @Test
+    public void testParallelLoadMatchesSequential() throws IOException {
+        // Write enough rows to span several chunks, with duplicate SKUs far apart in the file
+        Path largeCsvFile = Files.createTempFile("test_products_large", ".csv");
+        try (FileWriter writer = new FileWriter(largeCsvFile.toFile())) {
+            writer.write("CATEGORY,DATE_SCRAPED,SORT_BY,RUN_START_DATE,SUBCATEGORY,SHIPPING_LOCATION,SKU,COUNTRY,BRAND,PRICE_RETAIL,PRICE_CURRENT,SELLER,PRODUCT_URL,CURRENCY,BREADCRUMBS,DEPARTMENT,PROMOTION,BESTSELLER_RANK,PRODUCT_NAME,WEBSITE_URL\n");
+            for (int i = 0; i < 60000; i++) {
+                int sku = i % 40000;
+                writer.write("Appliances,2023-01-01,Popular,2023-01-01,Washers,US,SKU-" + sku + ",US,TestBrand,"
+                        + (i + 10) + ".99," + i + ".49,TestSeller,http://example.com,USD,Home>Appliances,Home,None,1,Product row " + i + ",http://example.com\r\n");
+            }
+            writer.write("broken line\n");
+        }
+
+        ProductManager sequential = new ProductManager();
+        LoadReport sequentialReport = sequential.loadProductsFromCSV(largeCsvFile.toString());
+        LoadReport parallelReport = productManager.loadProductsFromCSVParallel(largeCsvFile.toString(), 4);
+
+        assertEquals(40000, productManager.getProductCount(), "Should have loaded 40000 distinct SKUs");
+        assertEquals(sequentialReport.getRowsLoaded(), parallelReport.getRowsLoaded(), "Loaded row counts should match");
+        assertEquals(1, parallelReport.getRowsRejected(), "The broken line should be rejected");
+
+        // The later row for each duplicated SKU must win, exactly like the sequential loader
+        Product duplicate = productManager.searchBySKU("SKU-123");
+        assertEquals("Product row 40123", duplicate.getProductName(), "Last row in file order should win");
+
+        List<Product> expected = sequential.listProductsByPriceAscending();
+        List<Product> actual = productManager.listProductsByPriceAscending();
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSku(), actual.get(i).getSku(), "Products should match the sequential load");
+            assertEquals(expected.get(i).getProductName(), actual.get(i).getProductName(), "Products should match the sequential load");
+        }
+        Files.delete(largeCsvFile);
+    }
+}
@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ProductNameIndexTest {
+
+    private ProductNameIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new ProductNameIndex();
+        index.add(new Product("SKU001", 199.99, 179.99, "Samsung Washing Machine 8kg", "Appliances"));
+        index.add(new Product("SKU002", 149.99, 129.99, "LG Washing Machine", "Appliances"));
+        index.add(new Product("SKU003", 99.99, 79.99, "Washing Powder Machine Wash Wash", "Cleaning"));
+        index.add(new Product("SKU004", 499.99, 399.99, "Samsung Smart TV", "Electronics"));
+        index.add(new Product("SKU005", 29.99, 19.99, "Cafetera Eléctrica", "Kitchen"));
+    }
+
+    @Test
+    public void testTokenize() {
+        assertEquals(List.of("lavadora", "electrica", "8kg"), ProductNameIndex.tokenize("Lavadora ELÉCTRICA, 8kg!"), "Should lowercase, strip accents and split on punctuation");
+        assertEquals(List.of(), ProductNameIndex.tokenize("  --  "), "Text without letters has no tokens");
+    }
+
+    @Test
+    public void testAndQuery() {
+        List<Product> results = index.search("washing machine", 10);
+        assertEquals(3, results.size(), "Three names contain both words");
+        assertEquals("SKU002", results.get(0).getSku(), "The shortest matching name should rank first");
+
+        assertEquals(List.of("SKU001"), skus(index.search("samsung WASHING", 10)), "Should match case-insensitively");
+        assertEquals(List.of("SKU005"), skus(index.search("electrica", 10)), "Should match without accents");
+        assertTrue(index.search("washing fridge", 10).isEmpty(), "Every word must match");
+        assertTrue(index.search("", 10).isEmpty(), "Empty query should match nothing");
+        assertEquals(1, index.search("washing", 1).size(), "Should respect the limit");
+    }
+
+    @Test
+    public void testPrefixAndAutocomplete() {
+        assertEquals(List.of("SKU001", "SKU004"), skus(index.search("samsung", 10)).stream().sorted().toList(), "Should find both Samsung products");
+        assertEquals(3, index.searchPrefix("washing mach", 10).size(), "Last word should be matched as a prefix");
+        assertEquals(List.of("SKU004"), skus(index.searchPrefix("samsung sm", 10)), "Prefix should combine with the other words");
+        assertTrue(index.searchPrefix("samsung x", 10).isEmpty(), "Unknown prefix should match nothing");
+
+        assertEquals(List.of("washing", "wash"), index.autocomplete("was", 5), "Most common completion should come first");
+        assertEquals(List.of("washing"), index.autocomplete("Was", 1), "Should respect the limit");
+        assertTrue(index.autocomplete("zz", 5).isEmpty(), "Unknown prefix has no completions");
+    }
+
+    @Test
+    public void testReplaceAndRemove() {
+        index.add(new Product("SKU002", 149.99, 129.99, "LG Dryer", "Appliances"));
+        assertEquals(5, index.size(), "Replacing should not add a product");
+        assertEquals(2, index.search("washing machine", 10).size(), "Old name should no longer match");
+        assertEquals(List.of("SKU002"), skus(index.search("dryer", 10)), "New name should match");
+
+        assertTrue(index.remove("SKU001"), "Should remove SKU001");
+        assertFalse(index.remove("SKU001"), "Removing twice should find nothing");
+        assertEquals(List.of("SKU004"), skus(index.search("samsung", 10)), "Removed product should not match");
+    }
+
+    @Test
+    public void testSnapshotIsUnaffectedByUpdates() {
+        ProductNameIndex snapshot = index.snapshot();
+        index.add(new Product("SKU002", 149.99, 129.99, "LG Dryer", "Appliances"));
+        index.add(new Product("SKU006", 89.99, 79.99, "Bosch Washing Machine", "Appliances"));
+        index.remove("SKU001");
+        for (int i = 0; i < 2_000; i++) {
+            // Enough churn to compact the index under the snapshot
+            index.add(new Product("SKU007", 9.99, 9.99, "Washer " + i, "Appliances"));
+        }
+
+        assertEquals(List.of("SKU001", "SKU002", "SKU003"), skus(snapshot.search("washing machine", 10)).stream().sorted().toList(),
+                "The snapshot should keep the names it was taken with");
+        assertTrue(snapshot.search("dryer", 10).isEmpty(), "Later names should not show through");
+        assertEquals(List.of("washing", "wash"), snapshot.autocomplete("was", 5), "Completions should come from the snapshot");
+        assertEquals(5, snapshot.size(), "The snapshot should keep its size");
+        assertEquals(List.of("SKU003", "SKU006"), skus(index.search("washing machine", 10)).stream().sorted().toList(),
+                "The index itself should see the updates");
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.remove("SKU002"), "Snapshots should be read-only");
+    }
+
+    @Test
+    public void testSkipsMatchLinearScan() {
+        // Large lists exercise the skip entries; compare with a brute-force scan
+        String[] words = {"steel", "black", "white", "pro", "mini", "max", "smart", "kitchen"};
+        Random random = new Random(11);
+        List<Product> products = new ArrayList<>();
+        index.clear();
+        for (int i = 0; i < 50_000; i++) {
+            StringBuilder name = new StringBuilder();
+            for (String word : words) {
+                if (random.nextInt(word.length()) == 0) {
+                    name.append(word).append(' ');
+                }
+            }
+            Product product = new Product(String.format("SKU%06d", i), i, i, name.toString(), "Category");
+            products.add(product);
+            index.add(product);
+        }
+        // Churn some products so compaction runs too
+        for (int i = 0; i < 40_000; i += 2) {
+            index.remove(products.get(i).getSku());
+        }
+
+        for (String query : new String[] {"steel kitchen", "black white pro", "mini max", "smart steel kitchen"}) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < products.size(); i++) {
+                if (i < 40_000 && i % 2 == 0) {
+                    continue;
+                }
+                List<String> tokens = ProductNameIndex.tokenize(products.get(i).getProductName());
+                if (tokens.containsAll(List.of(query.split(" ")))) {
+                    expected.add(products.get(i).getSku());
+                }
+            }
+            List<String> actual = skus(index.search(query, Integer.MAX_VALUE)).stream().sorted().toList();
+            assertEquals(expected, actual, "Index should agree with a scan for '" + query + "'");
+        }
+    }
+
+    private static List<String> skus(List<Product> products) {
+        return products.stream().map(Product::getSku).toList();
+    }
+}
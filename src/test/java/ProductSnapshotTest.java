@@ -0,0 +1,186 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+public class ProductSnapshotTest {
+
+    private Path tempCsvFile;
+    private Path snapshotFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempCsvFile = Files.createTempFile("test_products", ".csv");
+        snapshotFile = Path.of(tempCsvFile + ".snapshot");
+
+        try (FileWriter writer = new FileWriter(tempCsvFile.toFile())) {
+            writer.write("CATEGORY,DATE_SCRAPED,SORT_BY,RUN_START_DATE,SUBCATEGORY,SHIPPING_LOCATION,SKU,COUNTRY,BRAND,PRICE_RETAIL,PRICE_CURRENT,SELLER,PRODUCT_URL,CURRENCY,BREADCRUMBS,DEPARTMENT,PROMOTION,BESTSELLER_RANK,PRODUCT_NAME,WEBSITE_URL\n");
+            writer.write("Appliances,2023-01-01,Popular,2023-01-01,Washers,US,TEST-SKU-001,US,TestBrand,199.99,179.99,TestSeller,http://example.com,USD,Home>Appliances,Home,None,1,Test Washing Machine,http://example.com\n");
+            writer.write("Electronics,2023-01-01,Popular,2023-01-01,TVs,US,TEST-SKU-002,US,TestBrand,499.99,399.99,TestSeller,http://example.com,USD,Home>Electronics,Home,None,2,Télévision 4K,http://example.com\n");
+            writer.write("Furniture,2023-01-01,Popular,2023-01-01,Chairs,US,TEST-SKU-003,US,TestBrand,99.99,79.99,TestSeller,http://example.com,USD,Home>Furniture,Home,None,3,Test Chair,http://example.com\n");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(tempCsvFile);
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        ProductManager original = new ProductManager();
+        original.loadProductsFromCSV(tempCsvFile.toString());
+        original.saveSnapshot(snapshotFile.toString(), tempCsvFile.toString());
+
+        ProductManager restored = new ProductManager();
+        assertTrue(restored.loadSnapshot(snapshotFile.toString(), tempCsvFile.toString()), "Current snapshot should load");
+        assertEquals(3, restored.getProductCount(), "Should have restored 3 products");
+
+        Product product = restored.searchBySKU("TEST-SKU-002");
+        assertNotNull(product, "Should find TEST-SKU-002");
+        assertEquals("Télévision 4K", product.getProductName(), "Non-ASCII names should round-trip");
+        assertEquals(399.99, product.getPriceCurrent(), "Current price should round-trip exactly");
+        assertEquals(499.99, product.getPriceRetail(), "Retail price should round-trip exactly");
+        assertEquals("Electronics", product.getCategory(), "Category should round-trip");
+        assertEquals("TEST-SKU-003", restored.cheapest(1).get(0).getSku(), "Price index should be rebuilt");
+    }
+
+    @Test
+    public void testRoundTripKeepsScrapeDays() throws IOException {
+        ProductManager original = new ProductManager();
+        original.loadProductsFromCSV(tempCsvFile.toString());
+        original.saveSnapshot(snapshotFile.toString(), tempCsvFile.toString());
+
+        ProductManager restored = new ProductManager();
+        assertTrue(restored.loadSnapshot(snapshotFile.toString(), tempCsvFile.toString()), "Current snapshot should load");
+        assertEquals(LocalDate.of(2023, 1, 1).toEpochDay(), restored.searchBySKU("TEST-SKU-001").getScrapeDay(), "Scrape day should round-trip");
+
+        PriceHistory history = restored.enablePriceHistory();
+        assertEquals(3, history.getSkuCount(), "Restored products should seed the price history");
+        assertEquals(399.99, history.priceAsOf("TEST-SKU-002", LocalDate.of(2023, 1, 1)), "Restored price should be recorded on its scrape day");
+    }
+
+    @Test
+    public void testOlderFormatIsStale() throws IOException {
+        ProductManager original = new ProductManager();
+        original.loadProductsFromCSV(tempCsvFile.toString());
+        original.saveSnapshot(snapshotFile.toString(), tempCsvFile.toString());
+
+        // Rewrite the header as format version 1, which had no scrape days, with a valid CRC
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(48);
+            channel.read(header, 0);
+            header.putInt(4, 1);
+            CRC32C crc = new CRC32C();
+            crc.update(header.array(), 0, 40);
+            header.putLong(40, crc.getValue());
+            header.rewind();
+            channel.write(header, 0);
+        }
+
+        assertNull(ProductSnapshot.read(snapshotFile, tempCsvFile), "Version 1 snapshot should be treated as stale");
+        assertFalse(new ProductManager().loadSnapshot(snapshotFile.toString(), tempCsvFile.toString()), "Caller should fall back to the CSV");
+    }
+
+    @Test
+    public void testMissingSnapshot() throws IOException {
+        assertNull(ProductSnapshot.read(snapshotFile, tempCsvFile), "Missing snapshot should not load");
+    }
+
+    @Test
+    public void testStaleSnapshotIsIgnored() throws IOException {
+        ProductManager original = new ProductManager();
+        original.loadProductsFromCSV(tempCsvFile.toString());
+        original.saveSnapshot(snapshotFile.toString(), tempCsvFile.toString());
+
+        // Touching the CSV without changing it keeps the snapshot valid
+        Files.setLastModifiedTime(tempCsvFile, FileTime.fromMillis(Files.getLastModifiedTime(tempCsvFile).toMillis() + 60_000));
+        assertNotNull(ProductSnapshot.read(snapshotFile, tempCsvFile), "Touched but unchanged CSV should keep the snapshot");
+
+        // Changing the CSV makes it stale
+        try (FileWriter writer = new FileWriter(tempCsvFile.toFile(), true)) {
+            writer.write("Toys,2023-01-01,Popular,2023-01-01,Games,US,TEST-SKU-004,US,TestBrand,9.99,5.99,TestSeller,http://example.com,USD,Home>Toys,Home,None,4,Test Game,http://example.com\n");
+        }
+        assertFalse(new ProductManager().loadSnapshot(snapshotFile.toString(), tempCsvFile.toString()), "Changed CSV should make the snapshot stale");
+    }
+
+    @Test
+    public void testSnapshotRecordsTheCsvAsRead() throws IOException {
+        ProductManager original = new ProductManager();
+        original.loadProductsFromCSV(tempCsvFile.toString());
+
+        // The CSV changes after it was read but before the snapshot is saved
+        try (FileWriter writer = new FileWriter(tempCsvFile.toFile(), true)) {
+            writer.write("Toys,2023-01-01,Popular,2023-01-01,Games,US,TEST-SKU-004,US,TestBrand,9.99,5.99,TestSeller,http://example.com,USD,Home>Toys,Home,None,4,Test Game,http://example.com\n");
+        }
+        original.saveSnapshot(snapshotFile.toString(), tempCsvFile.toString());
+        assertFalse(new ProductManager().loadSnapshot(snapshotFile.toString(), tempCsvFile.toString()), "Snapshot of the old contents should be stale");
+
+        // A restored catalog can be saved again with the fingerprint it was validated against
+        ProductManager reloaded = new ProductManager();
+        reloaded.loadProductsFromCSV(tempCsvFile.toString());
+        reloaded.saveSnapshot(snapshotFile.toString(), tempCsvFile.toString());
+        ProductManager restored = new ProductManager();
+        assertTrue(restored.loadSnapshot(snapshotFile.toString(), tempCsvFile.toString()), "Current snapshot should load");
+        Files.delete(snapshotFile);
+        restored.saveSnapshot(snapshotFile.toString(), tempCsvFile.toString());
+        assertEquals(4, ProductSnapshot.read(snapshotFile, tempCsvFile).size(), "Resaved snapshot should still be current");
+
+        restored.deleteBySKU("TEST-SKU-004");
+        assertThrows(IllegalStateException.class, () -> restored.saveSnapshot(snapshotFile.toString(), tempCsvFile.toString()),
+                "A catalog that no longer matches the CSV should not be saved as its snapshot");
+        Path otherCsvFile = Files.createTempFile("other_products", ".csv");
+        try {
+            assertThrows(IllegalStateException.class, () -> reloaded.saveSnapshot(snapshotFile.toString(), otherCsvFile.toString()),
+                    "The snapshot should only be saved for the CSV that was loaded");
+        } finally {
+            Files.delete(otherCsvFile);
+        }
+    }
+
+    @Test
+    public void testCorruptSnapshotIsIgnored() throws IOException {
+        ProductManager original = new ProductManager();
+        original.loadProductsFromCSV(tempCsvFile.toString());
+        original.saveSnapshot(snapshotFile.toString(), tempCsvFile.toString());
+
+        // Flip a byte in the middle of the record data
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = channel.size() / 2;
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, position);
+            buffer.put(0, (byte) (buffer.get(0) ^ 0x55));
+            buffer.rewind();
+            channel.write(buffer, position);
+        }
+
+        assertNull(ProductSnapshot.read(snapshotFile, tempCsvFile), "Corrupt snapshot should fail its checksum");
+    }
+
+    @Test
+    public void testManyBlocks() throws IOException {
+        TreeSkuIndex tree = new TreeSkuIndex();
+        for (int i = 0; i < 200_000; i++) {
+            tree.put(new Product(String.format("SKU%07d", i), i, i / 2.0, "A product name that is long enough to fill several blocks " + i, "Category" + (i % 7)));
+        }
+        ProductSnapshot.write(snapshotFile, tree, tree.size(), ProductSnapshot.Source.of(tempCsvFile));
+
+        List<Product> products = ProductSnapshot.read(snapshotFile, tempCsvFile);
+        assertNotNull(products, "Multi-block snapshot should load");
+        assertEquals(200_000, products.size(), "Every product should be restored");
+        assertEquals("SKU0123456", products.get(123_456).getSku(), "Products should stay in SKU order");
+    }
+}
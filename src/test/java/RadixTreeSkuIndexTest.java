@@ -0,0 +1,286 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class RadixTreeSkuIndexTest {
+
+    private static Product product(String sku, double price) {
+        return new Product(sku, price, price, "Product " + sku, "Toys");
+    }
+
+    private static List<String> skus(Iterator<Product> iterator) {
+        List<String> skus = new ArrayList<>();
+        iterator.forEachRemaining(product -> skus.add(product.getSku()));
+        return skus;
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        RadixTreeSkuIndex index = new RadixTreeSkuIndex();
+        for (int i = 0; i < 100; i++) {
+            assertNull(index.put(product(String.format("SKU%03d", i), i)), "New SKU should not replace anything");
+        }
+        checkInvariants(index);
+        assertEquals(100, index.size(), "Should hold 100 products");
+        assertEquals(42.0, index.get("SKU042").getPriceCurrent(), 0.001, "Should find SKU042");
+        assertNull(index.get("SKU100"), "SKU100 should not be found");
+        assertNull(index.get("SKU04"), "A prefix of a SKU should not be found");
+        assertNull(index.get("SKU0421"), "An extension of a SKU should not be found");
+
+        Product replacement = product("SKU042", 1.0);
+        assertEquals(42.0, index.put(replacement).getPriceCurrent(), 0.001, "Replacing should return the old product");
+        assertSame(replacement, index.get("SKU042"), "Replacement should be found");
+        assertEquals(100, index.size(), "Replacing should not change the size");
+
+        for (int i = 0; i < 100; i += 2) {
+            assertNotNull(index.remove(String.format("SKU%03d", i)), "Even SKUs should be removed");
+        }
+        assertNull(index.remove("SKU000"), "Removing twice should find nothing");
+        checkInvariants(index);
+        assertEquals(50, index.size(), "Half should be left");
+        assertEquals("SKU001", index.iterator().next().getSku(), "Scan should start at the smallest SKU left");
+
+        for (int i = 1; i < 100; i += 2) {
+            index.remove(String.format("SKU%03d", i));
+        }
+        assertEquals(0, index.size(), "Index should be empty");
+        assertNull(index.root, "Empty index should have no nodes left");
+    }
+
+    @Test
+    public void testKeyEncodingPreservesStringOrder() {
+        String[] samples = {"", "\0", "\0\0", "A", "A\0", "AB", "Z", "\u007F", "\u0080", "\u07FF", "\u0800",
+                "\uD7FF", "\uD800\uDC00", "\uDBFF\uDFFF", "\uE000", "\uFFFF", "caf\u00E9", "cafe", "\u00E9t\u00E9"};
+        for (String a : samples) {
+            for (String b : samples) {
+                byte[] keyA = RadixTreeSkuIndex.keyBytes(a);
+                byte[] keyB = RadixTreeSkuIndex.keyBytes(b);
+                assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(Arrays.compareUnsigned(keyA, keyB)),
+                        "Byte order should match String order for " + a + " and " + b);
+            }
+        }
+    }
+
+    @Test
+    public void testRandomOperationsMatchTree() {
+        // Short keys over a small alphabet make many SKUs prefixes of others; the wide
+        // alphabet fills nodes up to 256 children and back
+        String[] alphabets = {"AB", "ABCDEFGHIJ", "\0A\u00E9\u4E2D\uD83D", wideAlphabet()};
+        for (int round = 0; round < alphabets.length; round++) {
+            String alphabet = alphabets[round];
+            RadixTreeSkuIndex index = new RadixTreeSkuIndex();
+            TreeSkuIndex reference = new TreeSkuIndex();
+            Random random = new Random(round);
+
+            List<Product> batch = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                batch.add(product(randomSku(random, alphabet), i));
+            }
+            index.putAll(batch);
+            reference.putAll(batch);
+            checkInvariants(index);
+
+            for (int i = 0; i < 20_000; i++) {
+                String sku = randomSku(random, alphabet);
+                if (random.nextInt(3) == 0) {
+                    Product product = product(sku, -i);
+                    assertSame(reference.put(product), index.put(product), "put should agree for " + sku);
+                } else {
+                    assertSame(reference.remove(sku), index.remove(sku), "remove should agree for " + sku);
+                }
+                if (i % 2000 == 0) {
+                    checkInvariants(index);
+                }
+            }
+            checkInvariants(index);
+
+            assertEquals(reference.size(), index.size(), "Sizes should agree in round " + round);
+            assertEquals(skus(reference.iterator()), skus(index.iterator()), "Scans should agree in round " + round);
+            for (int i = 0; i < 200; i++) {
+                String sku = randomSku(random, alphabet);
+                assertSame(reference.get(sku), index.get(sku), "get should agree for " + sku);
+                assertEquals(skus(reference.iteratorAfter(sku)), skus(index.iteratorAfter(sku)), "Scans after " + sku + " should agree");
+                String prefix = sku.substring(0, random.nextInt(sku.length() + 1));
+                assertEquals(reference.withPrefix(prefix, 50).stream().map(Product::getSku).toList(),
+                        index.withPrefix(prefix, 50).stream().map(Product::getSku).toList(), "Prefix queries should agree for " + prefix);
+            }
+            assertEquals(reference.stream().map(Product::getSku).toList(), index.stream().map(Product::getSku).toList(), "Streams should agree");
+        }
+    }
+
+    @Test
+    public void testSnapshotsAreIsolated() {
+        for (String alphabet : new String[] {"AB", wideAlphabet()}) {
+            RadixTreeSkuIndex index = new RadixTreeSkuIndex();
+            Random random = new Random(alphabet.length());
+            List<SkuIndex> snapshots = new ArrayList<>();
+            List<List<String>> expected = new ArrayList<>();
+            for (int round = 0; round < 60; round++) {
+                for (int i = 0; i < 200; i++) {
+                    String sku = randomSku(random, alphabet);
+                    if (random.nextInt(2) == 0) {
+                        index.remove(sku);
+                    } else {
+                        index.put(product(sku, round));
+                    }
+                }
+                checkInvariants(index);
+                snapshots.add(index.snapshot());
+                expected.add(index.stream().map(product -> product.getSku() + "@" + product.getPriceCurrent()).toList());
+            }
+
+            for (int i = 0; i < snapshots.size(); i++) {
+                SkuIndex snapshot = snapshots.get(i);
+                assertEquals(expected.get(i), snapshot.stream().map(product -> product.getSku() + "@" + product.getPriceCurrent()).toList(),
+                        "Snapshot " + i + " should not see later changes");
+                assertEquals(expected.get(i).size(), snapshot.size(), "Snapshot " + i + " should keep its size");
+                for (String entry : expected.get(i)) {
+                    String sku = entry.substring(0, entry.lastIndexOf('@'));
+                    assertEquals(entry, sku + "@" + snapshot.get(sku).getPriceCurrent(), "Snapshot " + i + " should still find " + sku);
+                }
+            }
+            assertThrows(UnsupportedOperationException.class, () -> snapshots.get(0).remove("A"), "Snapshots should be read-only");
+        }
+    }
+
+    private static String wideAlphabet() {
+        StringBuilder alphabet = new StringBuilder();
+        for (char c = '!'; c < '!' + 120; c++) {
+            alphabet.append(c);
+        }
+        return alphabet.toString();
+    }
+
+    private static String randomSku(Random random, String alphabet) {
+        int length = 1 + random.nextInt(alphabet.length() > 10 ? 2 : 6);
+        StringBuilder sku = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            char c = alphabet.charAt(random.nextInt(alphabet.length()));
+            sku.append(c);
+            if (Character.isHighSurrogate(c)) {
+                sku.append('\uDE00');
+            }
+        }
+        return sku.toString();
+    }
+
+    @Test
+    public void testPrefixQueries() {
+        RadixTreeSkuIndex index = new RadixTreeSkuIndex();
+        for (String sku : List.of("AB", "ABC", "ABD", "ABDA", "AC", "B", "AA")) {
+            index.put(product(sku, 1));
+        }
+        assertEquals(List.of("AB", "ABC", "ABD", "ABDA"), index.withPrefix("AB", 10).stream().map(Product::getSku).toList(), "Should include the exact SKU and its extensions");
+        assertEquals(List.of("ABD", "ABDA"), index.withPrefix("ABD", 10).stream().map(Product::getSku).toList(), "Should stop at the first SKU without the prefix");
+        assertEquals(List.of("ABDA"), index.withPrefix("ABDA", 10).stream().map(Product::getSku).toList(), "A whole SKU is its own prefix");
+        assertEquals(2, index.withPrefix("A", 2).size(), "Should respect the limit");
+        assertEquals(7, index.withPrefix("", 10).size(), "Empty prefix should match everything");
+        assertTrue(index.withPrefix("C", 10).isEmpty(), "Unknown prefix should match nothing");
+        assertTrue(index.withPrefix("ABDAX", 10).isEmpty(), "Longer prefix should match nothing");
+    }
+
+    @Test
+    public void testDropInForProductManager() throws IOException {
+        Path csvFile = Files.createTempFile("radix", ".csv");
+        try {
+            new CatalogGenerator(CatalogGenerator.Distribution.SKEWED, 6).writeCsv(csvFile, 20_000);
+            ProductManager tree = new ProductManager();
+            ProductManager radix = new ProductManager(new RadixTreeSkuIndex());
+            tree.loadProductsFromCSV(csvFile.toString());
+            radix.loadProductsFromCSV(csvFile.toString());
+
+            assertEquals(tree.streamBySKU().map(Product::getSku).toList(), radix.streamBySKU().map(Product::getSku).toList(), "Catalogs should match");
+            String sku = tree.streamBySKU().skip(1234).findFirst().orElseThrow().getSku();
+            assertEquals(tree.searchBySKU(sku).getPriceCurrent(), radix.searchBySKU(sku).getPriceCurrent(), "Lookups should match");
+            assertEquals(tree.searchBySKUPrefix("SKU00000001", 20).size(), radix.searchBySKUPrefix("SKU00000001", 20).size(), "Prefix queries should match");
+            assertEquals(sku, radix.deleteBySKU(sku).getSku(), "Deletes should go through");
+            assertNull(radix.searchBySKU(sku), "Deleted SKU should be gone");
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+    }
+
+    @Test
+    public void testVendorPrefixedSkusAgainstTree() {
+        // SKUs under a handful of long vendor prefixes, as in the real catalog; lookup speed is measured in SkuIndexBenchmark
+        int count = 1_000_000;
+        String[] vendors = {"SAMSUNG-ELEC-", "LG-ELECTRONICS-", "WHIRLPOOL-HOME-", "PHILIPS-LIGHTING-"};
+        Random random = new Random(5);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String sku = vendors[random.nextInt(vendors.length)] + String.format("%08d", random.nextInt(100_000_000));
+            products.add(product(sku, i));
+        }
+        TreeSkuIndex tree = new TreeSkuIndex();
+        tree.putAll(products);
+        RadixTreeSkuIndex radix = new RadixTreeSkuIndex();
+        radix.putAll(products);
+
+        assertEquals(tree.size(), radix.size(), "Both indexes should hold every distinct SKU");
+        assertTrue(radix.getNodeCount() < radix.size() / 2, "Shared prefixes should be stored once, not per SKU: " + radix.getNodeCount() + " nodes");
+        for (int i = 0; i < 200_000; i++) {
+            String sku = products.get(random.nextInt(count)).getSku();
+            assertSame(tree.get(sku), radix.get(sku), "Lookups should agree for " + sku);
+        }
+        assertEquals(tree.withPrefix("LG-ELECTRONICS-0001", 100).stream().map(Product::getSku).toList(),
+                radix.withPrefix("LG-ELECTRONICS-0001", 100).stream().map(Product::getSku).toList(), "Prefix queries should agree");
+    }
+
+    /**
+     * Checks that every product sits on the path its SKU spells, that nodes fit their type,
+     * and that no node is empty or a one-child link that path compression should have merged.
+     */
+    private static void checkInvariants(RadixTreeSkuIndex index) {
+        int products = check(index.root, new byte[0], index.root);
+        assertEquals(index.size(), products, "Size should match the products in the tree");
+    }
+
+    private static int check(Object slot, byte[] path, Object root) {
+        if (slot == null) {
+            return 0;
+        }
+        if (slot instanceof Product product) {
+            byte[] key = RadixTreeSkuIndex.keyBytes(product.getSku());
+            assertTrue(key.length >= path.length && Arrays.equals(key, 0, path.length, path, 0, path.length),
+                    product.getSku() + " should be below the path that leads to it");
+            return 1;
+        }
+
+        RadixTreeSkuIndex.Node node = (RadixTreeSkuIndex.Node) slot;
+        byte[] nodePath = Arrays.copyOf(path, path.length + node.prefix.length);
+        System.arraycopy(node.prefix, 0, nodePath, path.length, node.prefix.length);
+        assertTrue(node.count > 1 || (node.count == 1 && node.value != null), "Node should branch or hold a product as well as a child");
+        if (node instanceof RadixTreeSkuIndex.Node4) {
+            assertTrue(node.count <= 4, "Node4 should not overflow");
+        } else if (node instanceof RadixTreeSkuIndex.SortedNode) {
+            assertTrue(node.count > 3 && node.count <= 16, "Node16 should hold 4 to 16 children");
+        } else if (node instanceof RadixTreeSkuIndex.IndexedNode) {
+            assertTrue(node.count > 12 && node.count <= 48, "Node48 should hold 13 to 48 children");
+        } else {
+            assertTrue(node.count > 36, "Node256 should shrink when sparse");
+        }
+
+        int products = 0;
+        if (node.value != null) {
+            assertTrue(Arrays.equals(nodePath, RadixTreeSkuIndex.keyBytes(node.value.getSku())), "Node product should end at the node");
+            products++;
+        }
+        int children = 0;
+        for (int b = node.nextByte(0); b >= 0; b = node.nextByte(b + 1)) {
+            byte[] childPath = Arrays.copyOf(nodePath, nodePath.length + 1);
+            childPath[nodePath.length] = (byte) b;
+            products += check(node.child(b), childPath, root);
+            children++;
+        }
+        assertEquals(node.count, children, "Child count should match the children");
+        return products;
+    }
+}
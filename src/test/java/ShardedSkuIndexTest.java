@@ -0,0 +1,115 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class ShardedSkuIndexTest {
+
+    private static Product product(String sku, double price) {
+        return new Product(sku, price, price, "Product " + sku, "Toys");
+    }
+
+    private static List<Product> toList(Iterator<Product> iterator) {
+        List<Product> products = new ArrayList<>();
+        iterator.forEachRemaining(products::add);
+        return products;
+    }
+
+    private static List<String> skus(List<Product> products) {
+        return products.stream().map(Product::getSku).toList();
+    }
+
+    @Test
+    public void testMatchesSingleTree() {
+        ShardedSkuIndex sharded = new ShardedSkuIndex(7);
+        TreeSkuIndex single = new TreeSkuIndex();
+
+        Random random = new Random(3);
+        List<Product> batch = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            batch.add(product("SKU" + random.nextInt(4000), i));
+        }
+        sharded.putAll(batch);
+        single.putAll(batch);
+
+        for (int i = 0; i < 3000; i++) {
+            String sku = "SKU" + random.nextInt(5000);
+            if (random.nextBoolean()) {
+                Product product = product(sku, -i);
+                assertSame(single.put(product), sharded.put(product), "put should replace the same product for " + sku);
+            } else {
+                assertSame(single.remove(sku), sharded.remove(sku), "remove should remove the same product for " + sku);
+            }
+        }
+
+        assertEquals(single.size(), sharded.size(), "Sizes should agree");
+        assertEquals(toList(single.iterator()), toList(sharded.iterator()), "Merged iteration should be in SKU order");
+        assertEquals(toList(single.iteratorAfter("SKU25")), toList(sharded.iteratorAfter("SKU25")), "Iteration after a SKU should agree");
+        assertEquals(single.stats().getNodeCount(), sharded.stats().getNodeCount(), "Stats should count every shard");
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            keys.add("SKU" + random.nextInt(5000));
+        }
+        keys.sort(null);
+        List<Product> expected = single.getAll(keys);
+        List<Product> actual = sharded.getAll(keys);
+        for (int i = 0; i < keys.size(); i++) {
+            assertSame(expected.get(i), actual.get(i), "Batch lookup should agree for " + keys.get(i));
+            assertSame(expected.get(i), sharded.get(keys.get(i)), "Point lookup should agree for " + keys.get(i));
+        }
+    }
+
+    @Test
+    public void testEmptyAndInvalid() {
+        ShardedSkuIndex index = new ShardedSkuIndex(4);
+        assertEquals(0, index.size(), "New index should be empty");
+        assertFalse(index.iterator().hasNext(), "Empty index should iterate nothing");
+        assertNull(index.get("SKU1"), "Empty index should find nothing");
+        assertEquals(0.0, index.stats().getAverageDepth(), "Empty index should have no depth");
+        assertThrows(IllegalArgumentException.class, () -> new ShardedSkuIndex(0), "Shard count must be positive");
+    }
+
+    @Test
+    public void testProductManagerOnShards() throws IOException {
+        Path csvFile = Files.createTempFile("sharded", ".csv");
+        try {
+            new CatalogGenerator(CatalogGenerator.Distribution.SKEWED, 9).writeCsv(csvFile, 20_000);
+            ProductManager single = new ProductManager();
+            ProductManager sharded = new ProductManager(new ShardedSkuIndex(5));
+            single.loadProductsFromCSVParallel(csvFile.toString());
+            sharded.loadProductsFromCSVParallel(csvFile.toString());
+
+            assertEquals(skus(single.streamBySKU().toList()), skus(sharded.streamBySKU().toList()), "Catalogs should match in SKU order");
+            String cursor = single.pageBySKU(null, 100).getNextCursor();
+            assertEquals(skus(single.pageBySKU(cursor, 100).getProducts()), skus(sharded.pageBySKU(cursor, 100).getProducts()), "Second pages should match");
+            assertEquals(skus(single.cheapest(10)), skus(sharded.cheapest(10)), "Secondary indexes should match");
+            assertEquals(single.searchBySKU("SKU0000000042").getPriceCurrent(), sharded.searchBySKU("SKU0000000042").getPriceCurrent(), "Later duplicates should win on both");
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+    }
+
+    @Test
+    public void testParallelBuild() {
+        List<Product> products = new CatalogGenerator(CatalogGenerator.Distribution.RANDOM, 5).products(1_000_000);
+
+        // Build times are compared in LoadBenchmark.loadParallelSharded
+        TreeSkuIndex single = new TreeSkuIndex();
+        single.putAll(products);
+        ShardedSkuIndex sharded = new ShardedSkuIndex();
+        sharded.putAll(products);
+
+        assertEquals(single.size(), sharded.size(), "Both indexes should hold every product");
+        Iterator<Product> expected = single.iterator();
+        for (Product product : sharded) {
+            assertSame(expected.next(), product, "Merged shards should list products in SKU order");
+        }
+    }
+}
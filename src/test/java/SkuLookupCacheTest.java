@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class SkuLookupCacheTest {
+
+    private static Product product(String sku) {
+        return new Product(sku, 10.0, 8.0, "Product " + sku, "Toys");
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        SkuLookupCache cache = new SkuLookupCache(4);
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Product> loader = sku -> {
+            loads.incrementAndGet();
+            return sku.startsWith("SKU") ? product(sku) : null;
+        };
+
+        Product first = cache.get("SKU1", loader);
+        assertSame(first, cache.get("SKU1", loader), "Second lookup should come from the cache");
+        assertEquals(1, loads.get(), "SKU1 should be loaded once");
+
+        assertNull(cache.get("UNKNOWN", loader), "Unknown SKU should not be found");
+        assertNull(cache.get("UNKNOWN", loader), "Unknown SKU should still not be found");
+        assertEquals(2, loads.get(), "Misses should be cached too");
+
+        assertEquals(2, cache.getHitCount(), "Should count two hits");
+        assertEquals(2, cache.getMissCount(), "Should count two misses");
+        assertEquals(0.5, cache.getHitRate(), 0.001, "Half of the lookups should hit");
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        SkuLookupCache cache = new SkuLookupCache(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.get("SKU" + i, SkuLookupCacheTest::product);
+        }
+        assertEquals(100, cache.size(), "Cache should not grow past its capacity");
+        assertEquals(900, cache.getEvictionCount(), "Every insert past capacity should evict");
+    }
+
+    @Test
+    public void testReferencedEntriesSurviveEviction() {
+        SkuLookupCache cache = new SkuLookupCache(4);
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Product> loader = sku -> {
+            loads.incrementAndGet();
+            return product(sku);
+        };
+
+        // A hot SKU looked up between every cold one keeps its second chance
+        for (int i = 0; i < 100; i++) {
+            cache.get("HOT", loader);
+            cache.get("COLD" + i, loader);
+        }
+        assertEquals(101, loads.get(), "HOT should only have been loaded once");
+    }
+
+    @Test
+    public void testInvalidateAndClear() {
+        SkuLookupCache cache = new SkuLookupCache(2);
+        cache.get("SKU1", sku -> null);
+        cache.invalidate("SKU1");
+        assertNotNull(cache.get("SKU1", SkuLookupCacheTest::product), "Invalidated miss should be loaded again");
+
+        // The invalidated slot is reused without counting as an eviction
+        cache.get("SKU2", SkuLookupCacheTest::product);
+        assertEquals(2, cache.size(), "Cache should hold two entries");
+        assertEquals(0, cache.getEvictionCount(), "Reusing an invalidated slot is not an eviction");
+
+        cache.clear();
+        assertEquals(0, cache.size(), "Clear should empty the cache");
+        assertThrows(IllegalArgumentException.class, () -> new SkuLookupCache(0), "Capacity must be positive");
+    }
+
+    @Test
+    public void testInvalidationDuringLoadIsNotCached() {
+        SkuLookupCache cache = new SkuLookupCache(4);
+        Product stale = product("SKU1");
+        Product fresh = product("SKU1");
+
+        // The SKU changes while its old product is being loaded; the invalidation finds nothing to remove
+        assertSame(stale, cache.get("SKU1", sku -> {
+            cache.invalidate(sku);
+            return stale;
+        }), "The loading lookup still returns what it read");
+        assertSame(fresh, cache.get("SKU1", sku -> fresh), "The stale product should not have been cached");
+        assertSame(fresh, cache.get("SKU1", sku -> stale), "A later load should be cached as usual");
+
+        // Clearing during a load has the same effect
+        assertNull(cache.get("SKU2", sku -> {
+            cache.clear();
+            return null;
+        }), "Lookup during clear should return its result");
+        assertEquals(0, cache.size(), "Nothing loaded across a clear should be cached");
+    }
+}